@@ -0,0 +1,200 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.BytesRobinHoodMap;
+
+/**
+ * Performs a series of tests on the BytesRobinHoodMap using a mapping
+ * from the bytes of a String => Integer.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ */
+public class BytesRobinHoodMapTest {
+
+	private BytesRobinHoodMap<Integer> mapd;
+
+	private static final String [] array = { "AB", "AA", "BA", "CA", "LM",
+			 												  "MN", "NM", "KJ", "PO", "RL",
+			 												  "RN", "EM", "ZA", "TO", "WL",
+															  "OL", "XY", "ZY", "YZ",  "ZZ"};
+
+	@Before
+	public void setUp() throws Exception {
+		mapd = new BytesRobinHoodMap<Integer>( );
+		for ( int i=0; i<array.length; i++ )
+			mapd.put( bytes( array[i] ), i );
+	}
+
+	private static byte[] bytes( String s )
+	{
+		return s.getBytes( StandardCharsets.US_ASCII );
+	}
+
+	/**
+	 * Tests the parameterized constructor to ensure that it rejects
+	 * an invalid capacity.
+	 * Test method for {@link util.BytesRobinHoodMap#BytesRobinHoodMap(int)}.
+	 */
+	@Test
+	public void testBytesRobinHoodMapInt() {
+		try {
+			new BytesRobinHoodMap<Integer>( -1 );
+			fail ("Cannot instantiate map with negative size.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid capacity for bytes map", e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that keys are found by content through arrays, ranges of arrays,
+	 * and heap and direct buffers.
+	 * Test method for {@link util.BytesRobinHoodMap#get()}.
+	 */
+	@Test
+	public void testGet() {
+		assertTrue ( mapd.isFull() );
+		assertNull ( mapd.put( bytes( "Too many" ), 100 ) );
+		byte[] frame = bytes( "xx" + String.join( "", array ) );
+		for ( int i=0; i<array.length; i++ )
+		{
+			assertEquals ( i, (int) mapd.get( bytes( array[i] ) ) );
+			assertEquals ( i, (int) mapd.get( frame, 2 + 2 * i, 2 ) );
+
+			ByteBuffer heap = ByteBuffer.wrap( frame, 2 + 2 * i, 2 ).slice();
+			assertEquals ( i, (int) mapd.get( heap ) );
+			ByteBuffer direct = ByteBuffer.allocateDirect( 2 );
+			direct.put( bytes( array[i] ) ).flip();
+			assertEquals ( i, (int) mapd.get( direct ) );
+			assertEquals ( 0, direct.position() );
+		}
+		assertNull ( mapd.get( bytes( "A" ) ) );
+		assertNull ( mapd.get( frame, 2, 3 ) );
+		assertFalse ( mapd.containsKey( ByteBuffer.allocate( 0 ) ) );
+	}
+
+	/**
+	 * Tests that removed keys free room for new ones, including keys longer
+	 * than the arena first allowed for.
+	 * Test method for {@link util.BytesRobinHoodMap#remove()}.
+	 */
+	@Test
+	public void testRemovePut() {
+		assertEquals ( 100, (int) mapd.put( bytes( array[0] ), 100 ) );
+		for ( int round=0; round<10; round++ )
+		{
+			for ( int i=0; i<array.length; i+=2 )
+				assertNotNull ( mapd.remove( bytes( array[i] ) ) );
+			assertNull ( mapd.remove( ByteBuffer.wrap( bytes( array[0] ) ) ) );
+			assertEquals ( array.length / 2, mapd.size() );
+			for ( int i=0; i<array.length; i+=2 )
+				assertEquals ( i, (int) mapd.put( ByteBuffer.wrap( bytes( array[i] + "-long-key-" + round ) ), i ) );
+			for ( int i=1; i<array.length; i+=2 )
+				assertEquals ( i, (int) mapd.get( bytes( array[i] ) ) );
+			for ( int i=0; i<array.length; i+=2 )
+			{
+				assertEquals ( i, (int) mapd.remove( bytes( array[i] + "-long-key-" + round ) ) );
+				mapd.put( bytes( array[i] ), i );
+			}
+		}
+		assertEquals ( array.length, mapd.size() );
+	}
+
+	/**
+	 * Tests that a range outside the array is rejected before any byte is read or
+	 * copied, and leaves the map unchanged.
+	 * Test method for {@link util.BytesRobinHoodMap#put(byte[], int, int, Object)}.
+	 */
+	@Test
+	public void testInvalidRange() {
+		byte[] frame = bytes( "xxAB" );
+		int[][] ranges = { { -1, 2 }, { 3, 2 }, { 0, -1 }, { 5, 0 } };
+		for ( int[] range: ranges )
+		{
+			try {
+				mapd.get( frame, range[0], range[1] );
+				fail ("Cannot look up a range outside the array.");
+			} catch (IndexOutOfBoundsException e) { }
+			try {
+				mapd.put( frame, range[0], range[1], 100 );
+				fail ("Cannot put a range outside the array.");
+			} catch (IndexOutOfBoundsException e) { }
+		}
+		assertEquals ( array.length, mapd.size() );
+		assertEquals ( 0, (int) mapd.get( frame, 2, 2 ) );
+	}
+
+	/**
+	 * Tests keys whose bytes together exceed one arena chunk, so that some key runs
+	 * from one chunk into the next, both before and after the arena is compacted.
+	 * Test method for {@link util.BytesRobinHoodMap#put(byte[], Object)}.
+	 */
+	@Test
+	public void testKeysAcrossChunks() {
+		BytesRobinHoodMap<Integer> map = new BytesRobinHoodMap<Integer>( 40 );
+		map.put( bytes( "leading" ), -1 );
+		for ( int i=0; i<24; i++ )
+			assertEquals ( i, (int) map.put( bigKey( i ), i ) );
+		for ( int i=0; i<24; i++ )
+		{
+			assertEquals ( i, (int) map.get( bigKey( i ) ) );
+			ByteBuffer direct = ByteBuffer.allocateDirect( 1 << 20 );
+			direct.put( bigKey( i ) ).flip();
+			assertEquals ( i, (int) map.get( direct ) );
+		}
+		for ( int i=0; i<20; i++ )
+			assertEquals ( i, (int) map.remove( bigKey( i ) ) );
+		for ( int i=24; i<36; i++ )
+			assertEquals ( i, (int) map.put( ByteBuffer.wrap( bigKey( i ) ), i ) );
+		assertEquals ( -1, (int) map.get( bytes( "leading" ) ) );
+		for ( int i=0; i<36; i++ )
+			assertEquals ( i < 20 ? null : Integer.valueOf( i ), map.get( bigKey( i ) ) );
+		int[] seen = new int[1];
+		map.forEach( (k, v) -> {
+			if ( v >= 0 )
+				assertArrayEquals ( bigKey( v ), k );
+			seen[0]++;
+		});
+		assertEquals ( 17, seen[0] );
+	}
+
+	/**
+	 * @param i: the number of the key
+	 * @return a key of one MiB whose bytes depend on the number: byte[]
+	 */
+	private static byte[] bigKey( int i )
+	{
+		byte[] key = new byte[1 << 20];
+		for ( int j=0; j<key.length; j++ )
+			key[j] = (byte) (i * 31 + j);
+		return key;
+	}
+
+	/**
+	 * Tests that forEach passes a copy of each key, and that clear empties the map.
+	 * Test method for {@link util.BytesRobinHoodMap#forEach()}.
+	 */
+	@Test
+	public void testForEachClear() {
+		ArrayList<String> keys = new ArrayList<String>();
+		mapd.forEach( (k, v) -> {
+			assertEquals ( array[v], new String( k, StandardCharsets.US_ASCII ) );
+			keys.add( new String( k, StandardCharsets.US_ASCII ) );
+		});
+		assertEquals ( array.length, keys.size() );
+
+		mapd.clear();
+		assertTrue ( mapd.isEmpty() );
+		assertEquals ( "BytesRobinHoodMap:[]", mapd.toString() );
+		mapd.put( bytes( "AB" ), 1 );
+		assertEquals ( "BytesRobinHoodMap:[[65, 66]=1]", mapd.toString() );
+	}
+
+}
@@ -0,0 +1,81 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.junit.Test;
+
+import util.ConcurrentRobinHoodInterner;
+import util.RobinHoodInterner;
+
+/**
+ * Performs a series of tests on the ConcurrentRobinHoodInterner using String values.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ */
+public class ConcurrentRobinHoodInternerTest {
+
+	/**
+	 * Tests the parameterized constructor to ensure that it rejects
+	 * an invalid capacity.
+	 * Test method for {@link util.ConcurrentRobinHoodInterner#ConcurrentRobinHoodInterner(int, boolean)}.
+	 */
+	@Test
+	public void testConcurrentRobinHoodInternerInt() {
+		try {
+			new ConcurrentRobinHoodInterner<String>( 0, false );
+			fail ("Cannot instantiate interner with zero size.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid capacity for interner", e.getMessage());
+		}
+		try {
+			new ConcurrentRobinHoodInterner<String>( 10, false, 0 );
+			fail ("Cannot instantiate interner with no segments.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid concurrency for interner", e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that equal values interned from several threads all resolve
+	 * to a single canonical instance.
+	 * Test method for {@link util.ConcurrentRobinHoodInterner#intern(Object)}.
+	 */
+	@Test
+	public void testIntern() throws InterruptedException {
+		ConcurrentRobinHoodInterner<String> interner = new ConcurrentRobinHoodInterner<String>( 2000, false, 8 );
+		int threads = 4, values = 500;
+		AtomicReferenceArray<String> first = new AtomicReferenceArray<String>( values );
+		List<Thread> workers = new ArrayList<Thread>();
+		boolean[] failed = { false };
+		for ( int t=0; t<threads; t++ )
+		{
+			Thread worker = new Thread( () -> {
+				for ( int i=0; i<values; i++ )
+				{
+					String canonical = i % 2 == 0
+							? interner.intern( new String( "value" + i ) )
+							: interner.intern( new StringBuilder( "value" ).append( i ), RobinHoodInterner.CHARS );
+					if ( !first.compareAndSet( i, null, canonical ) && first.get( i ) != canonical )
+						failed[0] = true;
+				}
+			} );
+			workers.add( worker );
+			worker.start();
+		}
+		for ( Thread worker: workers )
+			worker.join();
+		assertFalse ( failed[0] );
+		assertEquals ( values, interner.size() );
+		assertTrue ( interner.contains( "value7" ) );
+		assertSame ( first.get( 7 ), interner.intern( "value7" ) );
+
+		interner.clear();
+		assertEquals ( 0, interner.size() );
+		assertFalse ( interner.contains( "value7" ) );
+	}
+
+}
@@ -0,0 +1,148 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.IdentityRobinHoodHashMap;
+
+/**
+ * Performs a series of tests on the IdentityRobinHoodHashMap using a mapping
+ * from String => Integer.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ */
+public class IdentityRobinHoodHashMapTest {
+
+	private IdentityRobinHoodHashMap<String, Integer> mapd;
+
+	private static final String [] array = { "AB", "AA", "BA", "CA", "LM",
+			 												  "MN", "NM", "KJ", "PO", "RL",
+			 												  "RN", "EM", "ZA", "TO", "WL",
+															  "OL", "XY", "ZY", "YZ",  "ZZ"};
+
+	@Before
+	public void setUp() throws Exception {
+		mapd = new IdentityRobinHoodHashMap<String, Integer>( );
+		for ( int i=0; i<array.length; i++ )
+			mapd.put( array[i], i );
+	}
+
+	/**
+	 * Tests the parameterized constructor to ensure that it rejects
+	 * an invalid capacity.
+	 * Test method for {@link util.IdentityRobinHoodHashMap#IdentityRobinHoodHashMap(int)}.
+	 */
+	@Test
+	public void testIdentityRobinHoodHashMapInt() {
+		try {
+			new IdentityRobinHoodHashMap<String, Integer>( -1 );
+			fail ("Cannot instantiate map with negative size.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid capacity for identity map", e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that maps and entries are compared and hashed by identity, so a map
+	 * holding equal but distinct keys is a different map.
+	 * Test method for {@link util.IdentityRobinHoodHashMap#equals(Object)}.
+	 */
+	@Test
+	public void testIdentityEquals() {
+		IdentityRobinHoodHashMap<String, Integer> same = new IdentityRobinHoodHashMap<String, Integer>( );
+		IdentityRobinHoodHashMap<String, Integer> copies = new IdentityRobinHoodHashMap<String, Integer>( );
+		for ( int i=array.length-1; i>=0; i-- )
+		{
+			same.put( array[i], mapd.get( array[i] ) );
+			copies.put( new String( array[i] ), mapd.get( array[i] ) );
+		}
+		assertEquals ( mapd, same );
+		assertEquals ( mapd.hashCode(), same.hashCode() );
+		assertNotEquals ( mapd, copies );
+		assertNotEquals ( mapd.entrySet(), copies.entrySet() );
+
+		Entry<String, Integer> entry = mapd.entrySet().iterator().next();
+		Entry<String, Integer> equal = new java.util.AbstractMap.SimpleEntry<String, Integer>( new String( entry.getKey() ), entry.getValue() );
+		assertNotEquals ( entry, equal );
+		assertEquals ( System.identityHashCode( entry.getKey() ) ^ System.identityHashCode( entry.getValue() ), entry.hashCode() );
+	}
+
+	/**
+	 * Tests that keys are found only by the same object, not by an equal one.
+	 * Test method for {@link util.IdentityRobinHoodHashMap#get()}.
+	 */
+	@Test
+	public void testIdentity() {
+		assertTrue ( mapd.isFull() );
+		for ( int i=0; i<array.length; i++ )
+		{
+			assertEquals ( i, (int) mapd.get( array[i] ) );
+			assertNull ( mapd.get( new String( array[i] ) ) );
+			assertFalse ( mapd.containsKey( new String( array[i] ) ) );
+		}
+		assertNull ( mapd.put( new String( array[0] ), 100 ) );
+
+		IdentityRobinHoodHashMap<String, Integer> map = new IdentityRobinHoodHashMap<String, Integer>( 4 );
+		String a = new String( "same" ), b = new String( "same" );
+		map.put( a, 1 );
+		map.put( b, 2 );
+		assertEquals ( 2, map.size() );
+		assertEquals ( 1, (int) map.get( a ) );
+		assertEquals ( 2, (int) map.get( b ) );
+		Integer value = 1000;
+		map.put( a, value );
+		assertTrue ( map.containsValue( value ) );
+		assertFalse ( map.containsValue( 999 ) );
+	}
+
+	/**
+	 * Tests that entries can be replaced and removed, and that the freed
+	 * slots can be reused.
+	 * Test method for {@link util.IdentityRobinHoodHashMap#remove()}.
+	 */
+	@Test
+	public void testRemove() {
+		assertEquals ( 100, (int) mapd.put( array[0], 100 ) );
+		assertEquals ( 100, (int) mapd.remove( array[0] ) );
+		assertNull ( mapd.remove( array[0] ) );
+		assertNull ( mapd.remove( new String( array[1] ) ) );
+		for ( int i=1; i<array.length; i++ )
+			assertEquals ( i, (int) mapd.remove( array[i] ) );
+		assertTrue ( mapd.isEmpty() );
+		assertEquals ( "IdentityRobinHoodHashMap:[]", mapd.toString() );
+		mapd.put( array[3], 3 );
+		assertEquals ( "IdentityRobinHoodHashMap:[CA=3]", mapd.toString() );
+	}
+
+	/**
+	 * Tests that removing through the iterator visits every entry once.
+	 * Test method for {@link util.IdentityRobinHoodHashMap#entrySet()}.
+	 */
+	@Test
+	public void testIteratorRemove() {
+		Iterator<Entry<String, Integer>> iterator = mapd.entrySet().iterator();
+		int visited = 0;
+		while ( iterator.hasNext() )
+		{
+			Entry<String, Integer> entry = iterator.next();
+			visited++;
+			if ( entry.getValue() % 2 == 0 )
+				iterator.remove();
+			else
+				entry.setValue( -1 );
+		}
+		assertEquals ( array.length, visited );
+		assertEquals ( array.length / 2, mapd.size() );
+		for ( int value: mapd.values() )
+			assertEquals ( -1, value );
+		int[] count = { 0 };
+		mapd.forEach( (k, v) -> count[0]++ );
+		assertEquals ( array.length / 2, count[0] );
+	}
+
+}
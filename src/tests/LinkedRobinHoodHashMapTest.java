@@ -0,0 +1,193 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map.Entry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.LinkedRobinHoodHashMap;
+
+/**
+ * Performs a series of tests on the LinkedRobinHoodHashMap using a mapping
+ * from String => Integer.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ */
+public class LinkedRobinHoodHashMapTest {
+
+	private LinkedRobinHoodHashMap<String, Integer> mapd;
+	private LinkedRobinHoodHashMap<String, Integer> mapAccess;
+
+	private static final String [] array = { "AB", "AA", "BA", "CA", "LM",
+			 												  "MN", "NM", "KJ", "PO", "RL",
+			 												  "RN", "EM", "ZA", "TO", "WL",
+															  "OL", "XY", "ZY", "YZ",  "ZZ"};
+
+	@Before
+	public void setUp() throws Exception {
+		mapd = new LinkedRobinHoodHashMap<String, Integer>( );
+		mapAccess = new LinkedRobinHoodHashMap<String, Integer>( array.length, true );
+		for ( int i=0; i<array.length; i++ )
+		{
+			mapd.put( array[i], i );
+			mapAccess.put( array[i], i );
+		}
+	}
+
+	/**
+	 * Tests the parameterized constructor to ensure that it rejects an invalid capacity.
+	 * Test method for {@link util.LinkedRobinHoodHashMap#LinkedRobinHoodHashMap(int, boolean)}.
+	 */
+	@Test
+	public void testLinkedRobinHoodHashMapInt() {
+		try {
+			new LinkedRobinHoodHashMap<String, Integer>( 0, true );
+			fail ("Cannot instantiate map with no capacity.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid capacity for linked map", e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that the entries are iterated in the order the keys were first
+	 * inserted, regardless of where they were placed in the slot array.
+	 * Test method for {@link util.LinkedRobinHoodHashMap#entrySet()}.
+	 */
+	@Test
+	public void testInsertionOrder() {
+		assertTrue ( mapd.isFull() );
+		int i = 0;
+		for ( Entry<String, Integer> entry: mapd.entrySet() )
+		{
+			assertEquals ( array[i], entry.getKey() );
+			assertEquals ( i++, (int) entry.getValue() );
+		}
+		assertEquals ( array.length, i );
+
+		mapd.put( array[0], 100 );
+		assertEquals ( array[0], mapd.firstKey() );
+		assertEquals ( array[array.length-1], mapd.lastKey() );
+	}
+
+	/**
+	 * Tests that removing entries keeps the order of the remaining entries,
+	 * including entries shifted back into the removed slots.
+	 * Test method for {@link util.LinkedRobinHoodHashMap#remove()}.
+	 */
+	@Test
+	public void testRemoveKeepsOrder() {
+		for ( int i=0; i<array.length; i+=3 )
+			assertEquals ( i, (int) mapd.remove( array[i] ) );
+		assertNull ( mapd.remove( array[0] ) );
+
+		ArrayList<String> expected = new ArrayList<String>();
+		for ( int i=0; i<array.length; i++ )
+			if ( i % 3 != 0 )
+				expected.add( array[i] );
+		assertEquals ( expected, new ArrayList<String>( mapd.keySet() ) );
+
+		mapd.put( array[0], 0 );
+		expected.add( array[0] );
+		assertEquals ( expected, new ArrayList<String>( mapd.keySet() ) );
+	}
+
+	/**
+	 * Tests that in access order, get and put move an entry to the end.
+	 * Test method for {@link util.LinkedRobinHoodHashMap#get()}.
+	 */
+	@Test
+	public void testAccessOrder() {
+		assertEquals ( array[0], mapAccess.firstKey() );
+		assertEquals ( 0, (int) mapAccess.get( array[0] ) );
+		assertEquals ( array[0], mapAccess.lastKey() );
+		assertEquals ( array[1], mapAccess.firstKey() );
+
+		mapAccess.put( array[1], 1 );
+		assertEquals ( array[1], mapAccess.lastKey() );
+		assertEquals ( array[2], mapAccess.firstKey() );
+
+		mapd.get( array[0] );
+		assertEquals ( array[0], mapd.firstKey() );
+	}
+
+	/**
+	 * Tests that overriding removeEldestEntry evicts the least recently
+	 * accessed entry when the map is full.
+	 * Test method for {@link util.LinkedRobinHoodHashMap#removeEldestEntry()}.
+	 */
+	@Test
+	public void testRemoveEldestEntry() {
+		assertNull ( mapd.put( "Too many", 100 ) );
+		assertFalse ( mapd.containsKey( "Too many" ) );
+
+		LinkedRobinHoodHashMap<String, Integer> lru = new LinkedRobinHoodHashMap<String, Integer>( 3, true ) {
+			@Override
+			protected boolean removeEldestEntry(Entry<String, Integer> eldest) {
+				return true;
+			}
+		};
+		lru.put( array[0], 0 );
+		lru.put( array[1], 1 );
+		lru.put( array[2], 2 );
+		lru.get( array[0] );
+		assertEquals ( 3, (int) lru.put( array[3], 3 ) );
+		assertFalse ( lru.containsKey( array[1] ) );
+		assertTrue ( lru.containsKey( array[0] ) );
+		assertEquals ( 3, lru.size() );
+	}
+
+	/**
+	 * Tests that removing through the iterator continues in order with
+	 * the entry following the removed one.
+	 * Test method for {@link util.LinkedRobinHoodHashMap#entrySet()}.
+	 */
+	@Test
+	public void testIteratorRemove() {
+		Iterator<Entry<String, Integer>> iterator = mapd.entrySet().iterator();
+		int i = 0;
+		while ( iterator.hasNext() )
+		{
+			Entry<String, Integer> entry = iterator.next();
+			assertEquals ( array[i], entry.getKey() );
+			if ( i++ % 2 == 0 )
+				iterator.remove();
+			else
+				entry.setValue( -1 );
+		}
+		assertEquals ( array.length / 2, mapd.size() );
+		for ( int value: mapd.values() )
+			assertEquals ( -1, value );
+	}
+
+	/**
+	 * Tests that forEach visits the entries in order.
+	 * Test method for {@link util.LinkedRobinHoodHashMap#forEach()}.
+	 */
+	@Test
+	public void testForEach() {
+		ArrayList<Integer> values = new ArrayList<Integer>();
+		mapd.forEach( (k, v) -> values.add( v ) );
+		for ( int i=0; i<array.length; i++ )
+			assertEquals ( i, (int) values.get( i ) );
+	}
+
+	/**
+	 * Tests that the map is empty after clear and can be refilled in order.
+	 * Test method for {@link util.LinkedRobinHoodHashMap#clear()}.
+	 */
+	@Test
+	public void testClear() {
+		mapd.clear();
+		assertTrue ( mapd.isEmpty() );
+		assertNull ( mapd.firstKey() );
+		assertEquals ( "LinkedRobinHoodHashMap:[]", mapd.toString() );
+		mapd.put( array[1], 1 );
+		mapd.put( array[0], 0 );
+		assertEquals ( "LinkedRobinHoodHashMap:[AA=1, AB=0]", mapd.toString() );
+	}
+
+}
@@ -0,0 +1,156 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import util.LongLongCounter;
+
+/**
+ * Performs a series of tests on the LongLongCounter, aimed at the keys that a
+ * primitive table is most likely to mishandle and at counts that fall to zero
+ * or below.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ */
+public class LongLongCounterTest {
+
+	/**
+	 * Tests the parameterized constructor to ensure that it rejects an invalid capacity.
+	 * Test method for {@link util.LongLongCounter#LongLongCounter(int)}.
+	 */
+	@Test
+	public void testLongLongCounterInt() {
+		try {
+			new LongLongCounter( 0 );
+			fail ("Cannot instantiate counter with no slots.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid capacity for counter", e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that the key zero, the extreme keys and keys that differ only in their
+	 * high bits are counted separately, and that each is removed when its count
+	 * returns to zero without losing the keys displaced behind it.
+	 * Test method for {@link util.LongLongCounter#increment(long, long)}.
+	 */
+	@Test
+	public void testEdgeKeys() {
+		long[] keys = { 0, -1, Long.MIN_VALUE, Long.MAX_VALUE, 1L << 32, 2L << 32, 3L << 32, 1L << 63 | 1 };
+		LongLongCounter counter = new LongLongCounter( 2 );
+		assertEquals ( 0, counter.increment( 0, 0 ) );
+		assertFalse ( counter.containsKey( 0 ) );
+		for ( long key: keys )
+			assertEquals ( 1, counter.increment( key ) );
+		assertEquals ( keys.length, counter.size() );
+		for ( int i=0; i<keys.length; i+=2 )
+			assertEquals ( 0, counter.increment( keys[i], -1 ) );
+		assertEquals ( keys.length / 2, counter.size() );
+		for ( int i=0; i<keys.length; i++ )
+		{
+			assertEquals ( i % 2, counter.get( keys[i] ) );
+			assertEquals ( i % 2 == 1, counter.containsKey( keys[i] ) );
+		}
+		assertEquals ( 1, counter.remove( Long.MAX_VALUE ) );
+		assertEquals ( 0, counter.remove( Long.MAX_VALUE ) );
+		counter.clear();
+		assertEquals ( "LongLongCounter:[]", counter.toString() );
+		counter.increment( 3, -2 );
+		assertEquals ( "LongLongCounter:[3=-2]", counter.toString() );
+	}
+
+	/**
+	 * Tests that the table only grows when a new key is added, so that incrementing a
+	 * key already counted, or an absent key by zero, keeps the slots where they are.
+	 * Test method for {@link util.LongLongCounter#increment(long, long)}.
+	 */
+	@Test
+	public void testGrowsOnlyOnInsert() {
+		LongLongCounter counter = new LongLongCounter( 4 );
+		counter.increment( 1 );
+		counter.increment( 3 );
+		counter.increment( 4 );
+		assertEquals ( "LongLongCounter:[1=1, 4=1, 3=1]", counter.toString() );
+		assertEquals ( 2, counter.increment( 1 ) );
+		assertEquals ( 0, counter.increment( 9, 0 ) );
+		assertEquals ( "LongLongCounter:[1=2, 4=1, 3=1]", counter.toString() );
+		counter.increment( 5 );
+		assertEquals ( "LongLongCounter:[4=1, 3=1, 1=2, 5=1]", counter.toString() );
+	}
+
+	/**
+	 * Tests that negative counts are kept and ordered below positive ones by topK,
+	 * and that forEach sees every key with its count.
+	 * Test method for {@link util.LongLongCounter#topK(int)}.
+	 */
+	@Test
+	public void testNegativeCounts() {
+		LongLongCounter counter = new LongLongCounter();
+		counter.increment( 10, -5 );
+		counter.increment( 20, 2 );
+		counter.increment( 30, -1 );
+		counter.increment( 40, Long.MAX_VALUE );
+		assertArrayEquals ( new long[] { 40, 20, 30, 10 }, counter.topK( 10 ) );
+		assertArrayEquals ( new long[] { 40, 20 }, counter.topK( 2 ) );
+		assertEquals ( 0, counter.topK( 0 ).length );
+		long[] sum = new long[2];
+		counter.forEach( (key, count) -> { sum[0] += key; sum[1] += count; } );
+		assertEquals ( 100, sum[0] );
+		assertEquals ( Long.MAX_VALUE - 4, sum[1] );
+		assertEquals ( 0, counter.increment( 10, 5 ) );
+		assertArrayEquals ( new long[] { 40, 20, 30 }, counter.topK( 10 ) );
+		try {
+			counter.topK( -1 );
+			fail ("Cannot return a negative number of keys.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid k for topK", e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that merging removes the keys whose counts cancel, that a counter cannot be
+	 * merged into itself, and that mergeAll sums many counters.
+	 * Test method for {@link util.LongLongCounter#mergeAll(List)}.
+	 */
+	@Test
+	public void testMergeCancels() {
+		LongLongCounter counter = new LongLongCounter();
+		counter.increment( 0, 4 );
+		counter.increment( 1, 1 );
+		LongLongCounter other = new LongLongCounter();
+		other.increment( 0, -4 );
+		other.increment( 2, -2 );
+		counter.mergeFrom( other );
+		assertFalse ( counter.containsKey( 0 ) );
+		assertEquals ( 1, counter.get( 1 ) );
+		assertEquals ( -2, counter.get( 2 ) );
+		assertEquals ( 2, counter.size() );
+		try {
+			counter.mergeFrom( counter );
+			fail ("Cannot merge a counter into itself.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Cannot merge a counter into itself", e.getMessage());
+		}
+
+		List<LongLongCounter> counters = new ArrayList<LongLongCounter>();
+		for ( int t=0; t<9; t++ )
+		{
+			LongLongCounter c = new LongLongCounter();
+			for ( long k=0; k<100; k++ )
+				c.increment( k, t % 2 == 0 ? 1 : -1 );
+			c.increment( -1, t );
+			counters.add( c );
+		}
+		LongLongCounter merged = LongLongCounter.mergeAll( counters );
+		assertEquals ( 101, merged.size() );
+		assertEquals ( 36, merged.get( -1 ) );
+		for ( long k=0; k<100; k++ )
+			assertEquals ( 1, merged.get( k ) );
+		assertEquals ( 0, LongLongCounter.mergeAll( new ArrayList<LongLongCounter>() ).size() );
+	}
+
+}
@@ -0,0 +1,113 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.PerfectHashMap;
+import util.RobinHoodHashMap;
+
+/**
+ * Performs a series of tests on the PerfectHashMap using a mapping
+ * from String => Integer.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ */
+public class PerfectHashMapTest {
+
+	private PerfectHashMap<String, Integer> mapd;
+
+	private static final String [] array = { "AB", "AA", "BA", "CA", "LM",
+			 												  "MN", "NM", "KJ", "PO", "RL",
+			 												  "RN", "EM", "ZA", "TO", "WL",
+															  "OL", "XY", "ZY", "YZ",  "ZZ"};
+
+	@Before
+	public void setUp() throws Exception {
+		RobinHoodHashMap<String, Integer> source = new RobinHoodHashMap<String, Integer>( );
+		for ( int i=0; i<array.length; i++ )
+			source.put( array[i], i );
+		mapd = PerfectHashMap.of( source );
+	}
+
+	/**
+	 * Tests that every key of the source map is found with its value, and that
+	 * absent keys are rejected by the key check.
+	 * Test method for {@link util.PerfectHashMap#get(Object)}.
+	 */
+	@Test
+	public void testGet() {
+		assertEquals ( array.length, mapd.size() );
+		Set<Integer> slots = new HashSet<Integer>();
+		for ( int i=0; i<array.length; i++ )
+		{
+			assertEquals ( i, (int) mapd.get( array[i] ) );
+			assertTrue ( mapd.containsKey( array[i] ) );
+			int slot = mapd.indexOf( array[i] );
+			assertTrue ( slot >= 0 && slot < array.length );
+			assertTrue ( slots.add( slot ) );
+		}
+		assertNull ( mapd.get( "QQ" ) );
+		assertNull ( mapd.get( null ) );
+		assertEquals ( -1, mapd.indexOf( "QQ" ) );
+		assertFalse ( mapd.containsKey( 1 ) );
+		try {
+			mapd.put( "QQ", 1 );
+			fail ("Cannot modify a perfect hash map.");
+		} catch (UnsupportedOperationException e) { }
+	}
+
+	/**
+	 * Tests that keys sharing a hashCode are all found, and that every pair is
+	 * visited once by the entry set.
+	 * Test method for {@link util.PerfectHashMap#entrySet()}.
+	 */
+	@Test
+	public void testSharedHashCodes() {
+		List<String> keys = new ArrayList<String>();
+		keys.add( "Aa" );
+		keys.add( "BB" );
+		keys.add( "AaAa" );
+		keys.add( "BBBB" );
+		keys.add( "AaBB" );
+		PerfectHashMap<String, Integer> map = PerfectHashMap.of( keys, String::length );
+		assertEquals ( 5, map.size() );
+		for ( String key: keys )
+			assertEquals ( key.length(), (int) map.get( key ) );
+		assertEquals ( -1, map.indexOf( "BB" ) );
+		assertNull ( map.get( "BBAa" ) );
+		Set<String> visited = new HashSet<String>();
+		for ( Entry<String, Integer> entry: map.entrySet() )
+			assertTrue ( visited.add( entry.getKey() ) );
+		assertEquals ( new HashSet<String>( keys ), visited );
+
+		PerfectHashMap<String, Integer> empty = PerfectHashMap.<String, Integer>builder().put( null, 1 ).build();
+		assertTrue ( empty.isEmpty() );
+		assertNull ( empty.get( "AB" ) );
+		assertEquals ( "PerfectHashMap:[]", empty.toString() );
+	}
+
+	/**
+	 * Tests that a large dictionary is addressed with about three bits per key.
+	 * Test method for {@link util.PerfectHashMap#bitsPerKey()}.
+	 */
+	@Test
+	public void testBitsPerKey() {
+		PerfectHashMap.Builder<Integer, Integer> builder = PerfectHashMap.builder();
+		for ( int i=0; i<100000; i++ )
+			builder.put( i * 7919, i );
+		PerfectHashMap<Integer, Integer> map = builder.build();
+		for ( int i=0; i<100000; i++ )
+			assertEquals ( i, (int) map.get( i * 7919 ) );
+		assertNull ( map.get( 1 ) );
+		assertTrue ( map.bitsPerKey() < 4.0 );
+	}
+
+}
@@ -0,0 +1,192 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.RobinHoodBiMap;
+
+/**
+ * Performs a series of tests on the RobinHoodBiMap using a mapping
+ * from String <=> Integer.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ */
+public class RobinHoodBiMapTest {
+
+	private RobinHoodBiMap<String, Integer> map1;
+	private RobinHoodBiMap<String, Integer> mapd;
+	private RobinHoodBiMap<String, Integer> mapfilled5;
+
+	private static final String [] array = { "AB", "AA", "BA", "CA", "LM",
+			 												  "MN", "NM", "KJ", "PO", "RL",
+			 												  "RN", "EM", "ZA", "TO", "WL",
+															  "OL", "XY", "ZY", "YZ",  "ZZ"};
+
+	@Before
+	public void setUp() throws Exception {
+		map1 = new RobinHoodBiMap<String, Integer>(1);
+		mapd = new RobinHoodBiMap<String, Integer>( );
+		mapfilled5 = new RobinHoodBiMap<String, Integer>( );
+		for ( int i=0; i<5;i++)
+			mapfilled5.put(array[i], i);
+	}
+
+	/**
+	 * Tests the parameterized constructor to ensure that it rejects
+	 * an invalid capacity.
+	 * Test method for {@link util.RobinHoodBiMap#RobinHoodBiMap(int)}.
+	 */
+	@Test
+	public void testRobinHoodBiMapInt() {
+		assertNotNull (map1);
+		try {
+			new RobinHoodBiMap<String, Integer>(0);
+			fail ("Cannot instantiate map with no capacity.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid capacity for bimap", e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that every key can be found by value through the inverse
+	 * view, and every value by key.
+	 * Test method for {@link util.RobinHoodBiMap#inverse()}.
+	 */
+	@Test
+	public void testInverse() {
+		for ( int i=0; i<array.length; i++ )
+			assertEquals ( i, (int) mapd.put( array[i], i ) );
+		assertTrue ( mapd.isFull() );
+
+		Map<Integer, String> inverse = mapd.inverse();
+		assertEquals ( mapd.size(), inverse.size() );
+		for ( int i=0; i<array.length; i++ )
+		{
+			assertEquals ( i, (int) mapd.get( array[i] ) );
+			assertEquals ( array[i], inverse.get( i ) );
+			assertTrue ( mapd.containsValue( i ) );
+			assertTrue ( inverse.containsValue( array[i] ) );
+		}
+		assertNull ( inverse.get( 100 ) );
+		assertSame ( mapd, mapd.inverse().inverse() );
+	}
+
+	/**
+	 * Tests that a value cannot be associated with two keys, unless the
+	 * other key is removed with forcePut.
+	 * Test method for {@link util.RobinHoodBiMap#put()}.
+	 */
+	@Test
+	public void testPutUniqueValues() {
+		try {
+			mapfilled5.put( "New", 0 );
+			fail ("Value is already associated with another key.");
+		} catch (IllegalArgumentException e) { }
+		assertEquals ( 0, (int) mapfilled5.put( array[0], 0 ) );
+
+		assertEquals ( 0, (int) mapfilled5.forcePut( "New", 0 ) );
+		assertFalse ( mapfilled5.containsKey( array[0] ) );
+		assertEquals ( "New", mapfilled5.inverse().get( 0 ) );
+		assertEquals ( 5, mapfilled5.size() );
+
+		assertEquals ( 100, (int) mapfilled5.put( array[1], 100 ) );
+		assertFalse ( mapfilled5.containsValue( 1 ) );
+		assertEquals ( array[1], mapfilled5.inverse().get( 100 ) );
+
+		assertNull ( map1.put( "Key", null ) );
+		assertEquals ( 0, (int) map1.put( "Key", 0 ) );
+		assertNull ( map1.put( "Too many", 1 ) );
+	}
+
+	/**
+	 * Tests that pairs put through the inverse view are visible in the map
+	 * and that keys remain unique.
+	 * Test method for {@link util.RobinHoodBiMap#inverse()}.
+	 */
+	@Test
+	public void testInversePut() {
+		assertEquals ( "New", mapfilled5.inverse().put( 100, "New" ) );
+		assertEquals ( 100, (int) mapfilled5.get( "New" ) );
+		try {
+			mapfilled5.inverse().put( 200, "New" );
+			fail ("Key is already associated with another value.");
+		} catch (IllegalArgumentException e) { }
+
+		assertEquals ( "Other", mapfilled5.inverse().put( 100, "Other" ) );
+		assertFalse ( mapfilled5.containsKey( "New" ) );
+		assertEquals ( 6, mapfilled5.size() );
+	}
+
+	/**
+	 * Tests that removing by key and by value keeps both directions
+	 * consistent.
+	 * Test method for {@link util.RobinHoodBiMap#remove()}.
+	 */
+	@Test
+	public void testRemove() {
+		for ( int i=0; i<array.length; i++ )
+			mapd.put( array[i], i );
+		for ( int i=0; i<array.length; i+=2 )
+			assertEquals ( i, (int) mapd.remove( array[i] ) );
+		for ( int i=1; i<array.length; i+=4 )
+			assertEquals ( array[i], mapd.inverse().remove( i ) );
+
+		for ( int i=0; i<array.length; i++ )
+		{
+			boolean present = i % 4 == 3;
+			assertEquals ( present, mapd.containsKey( array[i] ) );
+			assertEquals ( present, mapd.inverse().containsKey( i ) );
+			if ( present )
+				assertEquals ( array[i], mapd.inverse().get( i ) );
+		}
+		assertEquals ( 5, mapd.size() );
+		assertNull ( mapd.remove( "bad key" ) );
+	}
+
+	/**
+	 * Tests that the entry set iterates over every pair and allows
+	 * removal and value replacement through the iterator.
+	 * Test method for {@link util.RobinHoodBiMap#entrySet()}.
+	 */
+	@Test
+	public void testEntrySet() {
+		int count = 0;
+		Iterator<Entry<String, Integer>> iterator = mapfilled5.entrySet().iterator();
+		while ( iterator.hasNext() )
+		{
+			Entry<String, Integer> entry = iterator.next();
+			assertEquals ( mapfilled5.get( entry.getKey() ), entry.getValue() );
+			if ( entry.getValue() % 2 == 0 )
+				iterator.remove();
+			else
+				entry.setValue( entry.getValue() + 10 );
+			count++;
+		}
+		assertEquals ( 5, count );
+		assertEquals ( 2, mapfilled5.size() );
+		assertEquals ( array[1], mapfilled5.inverse().get( 11 ) );
+		assertEquals ( array[3], mapfilled5.inverse().get( 13 ) );
+		assertTrue ( mapfilled5.values().contains( 13 ) );
+	}
+
+	/**
+	 * Tests that the map is empty after clear and can be refilled.
+	 * Test method for {@link util.RobinHoodBiMap#clear()}.
+	 */
+	@Test
+	public void testClear() {
+		mapfilled5.clear();
+		assertTrue ( mapfilled5.isEmpty() );
+		assertTrue ( mapfilled5.inverse().isEmpty() );
+		assertFalse ( mapfilled5.containsValue( 0 ) );
+		mapfilled5.put( array[0], 0 );
+		assertEquals ( array[0], mapfilled5.inverse().get( 0 ) );
+	}
+
+}
@@ -0,0 +1,201 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.RobinHoodCache;
+import util.Weigher;
+
+/**
+ * Performs a series of tests on the RobinHoodCache using a mapping
+ * from String => Integer.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ */
+public class RobinHoodCacheTest {
+
+	private RobinHoodCache<String, Integer> cache5;
+	private RobinHoodCache<String, Integer> cached;
+
+	private static final String [] array = { "AB", "AA", "BA", "CA", "LM",
+			 												  "MN", "NM", "KJ", "PO", "RL",
+			 												  "RN", "EM", "ZA", "TO", "WL",
+															  "OL", "XY", "ZY", "YZ",  "ZZ"};
+
+	@Before
+	public void setUp() throws Exception {
+		cache5 = new RobinHoodCache<String, Integer>( 5 );
+		cached = new RobinHoodCache<String, Integer>( );
+	}
+
+	/**
+	 * Tests the parameterized constructor to ensure that it rejects
+	 * an invalid capacity.
+	 * Test method for {@link util.RobinHoodCache#RobinHoodCache(int)}.
+	 */
+	@Test
+	public void testRobinHoodCacheInt() {
+		assertEquals ( 5, cache5.capacity() );
+		try {
+			new RobinHoodCache<String, Integer>( -1 );
+			fail ("Cannot instantiate cache with negative size.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid capacity for cache", e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that values can be stored, replaced and removed, and that the
+	 * hit and miss counts are kept.
+	 * Test method for {@link util.RobinHoodCache#get()}.
+	 */
+	@Test
+	public void testPutGet() {
+		for ( int i=0; i<array.length; i++ )
+			assertEquals ( i, (int) cached.put( array[i], i ) );
+		for ( int i=0; i<array.length; i++ )
+			assertEquals ( i, (int) cached.get( array[i] ) );
+		assertNull ( cached.get( "bad key" ) );
+		assertEquals ( array.length, cached.hitCount() );
+		assertEquals ( 1, cached.missCount() );
+
+		assertEquals ( 100, (int) cached.put( array[0], 100 ) );
+		assertEquals ( 100, (int) cached.get( array[0] ) );
+		assertEquals ( 100, (int) cached.remove( array[0] ) );
+		assertFalse ( cached.containsKey( array[0] ) );
+		assertEquals ( array.length - 1, cached.size() );
+		assertNull ( cached.put( null, 0 ) );
+	}
+
+	/**
+	 * Tests that a full cache evicts an entry for every new key, and that
+	 * entries which have been read survive the entries that have not.
+	 * Test method for {@link util.RobinHoodCache#put()}.
+	 */
+	@Test
+	public void testEviction() {
+		for ( int i=0; i<5; i++ )
+			cache5.put( array[i], i );
+		for ( int i=0; i<3; i++ )
+			cache5.get( array[i] );
+
+		cache5.put( array[5], 5 );
+		cache5.put( array[6], 6 );
+		assertEquals ( 5, cache5.size() );
+		assertEquals ( 2, cache5.evictionCount() );
+		for ( int i=0; i<3; i++ )
+			assertTrue ( cache5.containsKey( array[i] ) );
+		assertTrue ( cache5.containsKey( array[6] ) );
+		int unread = 0;
+		for ( int i=3; i<6; i++ )
+			if ( cache5.containsKey( array[i] ) )
+				unread++;
+		assertEquals ( 1, unread );
+
+		for ( int i=7; i<array.length; i++ )
+		{
+			cache5.put( array[i], i );
+			assertEquals ( i, (int) cache5.get( array[i] ) );
+			assertEquals ( 5, cache5.size() );
+		}
+		assertEquals ( array.length - 5, cache5.evictionCount() );
+	}
+
+	/**
+	 * Tests that forEach visits every entry and that clear empties the cache.
+	 * Test method for {@link util.RobinHoodCache#clear()}.
+	 */
+	@Test
+	public void testForEachClear() {
+		for ( int i=0; i<5; i++ )
+			cache5.put( array[i], i );
+		ArrayList<String> keys = new ArrayList<String>();
+		cache5.forEach( (k, v) -> keys.add( k ) );
+		assertEquals ( 5, keys.size() );
+
+		cache5.clear();
+		assertTrue ( cache5.isEmpty() );
+		assertEquals ( "RobinHoodCache:[]", cache5.toString() );
+		cache5.put( array[0], 0 );
+		assertEquals ( 0, (int) cache5.get( array[0] ) );
+	}
+
+	/**
+	 * Tests that a cache bounded by weight evicts entries until the total
+	 * weight fits, grows past its initial capacity, and rejects an entry
+	 * heavier than the maximum.
+	 * Test method for {@link util.RobinHoodCache.Builder#maximumWeight(long)}.
+	 */
+	@Test
+	public void testMaximumWeight() {
+		Weigher<String, Integer> weigher = (key, value) -> value;
+		RobinHoodCache<String, Integer> weighted = RobinHoodCache.<String, Integer>builder()
+				.maximumWeight( 100 ).weigher( weigher ).initialCapacity( 2 ).build();
+		assertEquals ( 100, weighted.maximumWeight() );
+		assertEquals ( Integer.MAX_VALUE, weighted.capacity() );
+
+		for ( int i=0; i<array.length; i++ )
+			weighted.put( array[i], 5 );
+		assertEquals ( array.length, weighted.size() );
+		assertEquals ( 100, weighted.weight() );
+		assertEquals ( 0, weighted.evictionCount() );
+
+		assertEquals ( 30, (int) weighted.put( array[0], 30 ) );
+		assertEquals ( 100, weighted.weight() );
+		assertEquals ( 5, weighted.evictionCount() );
+		assertEquals ( 25, weighted.evictionWeight() );
+
+		assertNull ( weighted.put( "heavy", 101 ) );
+		assertFalse ( weighted.containsKey( "heavy" ) );
+		assertEquals ( 100, (int) weighted.put( "heavy", 100 ) );
+		assertEquals ( 1, weighted.size() );
+		assertEquals ( 100, weighted.weight() );
+		assertEquals ( 100, (int) weighted.remove( "heavy" ) );
+		assertEquals ( 0, weighted.weight() );
+	}
+
+	/**
+	 * Tests that the builder rejects a missing, ambiguous or invalid bound, and that
+	 * a cache bounded by size reports its size as its weight.
+	 * Test method for {@link util.RobinHoodCache.Builder#build()}.
+	 */
+	@Test
+	public void testBuilder() {
+		RobinHoodCache<String, Integer> sized = RobinHoodCache.<String, Integer>builder().maximumSize( 5 ).build();
+		for ( int i=0; i<array.length; i++ )
+			sized.put( array[i], i );
+		assertEquals ( 5, sized.capacity() );
+		assertEquals ( 5, sized.weight() );
+		assertEquals ( array.length - 5, sized.evictionWeight() );
+
+		try {
+			RobinHoodCache.<String, Integer>builder().maximumWeight( 10 ).build();
+			fail ("Cannot build a weighted cache without a weigher.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Maximum weight requires a weigher and no maximum size", e.getMessage());
+		}
+		try {
+			RobinHoodCache.<String, Integer>builder().weigher( (key, value) -> 1 ).build();
+			fail ("Cannot build a cache with a weigher and no maximum weight.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Weigher requires a maximum weight", e.getMessage());
+		}
+		try {
+			RobinHoodCache.<String, Integer>builder().maximumSize( 0 );
+			fail ("Cannot build a cache holding no entries.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid maximum size for cache", e.getMessage());
+		}
+		try {
+			RobinHoodCache.<String, Integer>builder().initialCapacity( -1 );
+			fail ("Cannot size a weighted cache for a negative number of entries.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid initial capacity for cache", e.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,151 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import util.RobinHoodCounter;
+
+/**
+ * Performs a series of tests on the RobinHoodCounter, aimed at counts that fall
+ * to zero or below and at counters whose counts cancel when merged.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ */
+public class RobinHoodCounterTest {
+
+	/**
+	 * Tests the parameterized constructor to ensure that it rejects an invalid capacity.
+	 * Test method for {@link util.RobinHoodCounter#RobinHoodCounter(int)}.
+	 */
+	@Test
+	public void testRobinHoodCounterInt() {
+		try {
+			new RobinHoodCounter<String>( 0 );
+			fail ("Cannot instantiate counter with no slots.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid capacity for counter", e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that a key whose count returns to zero is removed, that an increment of
+	 * zero does not add an absent key, and that the keys displaced behind a removed
+	 * key are still found.
+	 * Test method for {@link util.RobinHoodCounter#increment(Object, long)}.
+	 */
+	@Test
+	public void testCountReachesZero() {
+		RobinHoodCounter<Integer> counter = new RobinHoodCounter<Integer>( 4 );
+		assertEquals ( 0, counter.increment( 7, 0 ) );
+		assertFalse ( counter.containsKey( 7 ) );
+		assertTrue ( counter.isEmpty() );
+		for ( int i=0; i<50; i++ )
+			counter.increment( i, 3 );
+		assertEquals ( 3, counter.increment( 25, 0 ) );
+		for ( int i=0; i<50; i+=2 )
+			assertEquals ( 0, counter.increment( i, -3 ) );
+		assertEquals ( 25, counter.size() );
+		for ( int i=0; i<50; i++ )
+		{
+			assertEquals ( i % 2 == 0 ? 0 : 3, counter.get( i ) );
+			assertEquals ( i % 2 == 1, counter.containsKey( i ) );
+		}
+		assertEquals ( 0, counter.increment( null ) );
+		assertEquals ( 3, counter.remove( 1 ) );
+		assertEquals ( 0, counter.remove( 1 ) );
+		counter.clear();
+		assertEquals ( "RobinHoodCounter:[]", counter.toString() );
+	}
+
+	/**
+	 * Tests that the table only grows when a new key is added, so that incrementing a
+	 * key already counted, or an absent key by zero, keeps the slots where they are.
+	 * Test method for {@link util.RobinHoodCounter#increment(Object, long)}.
+	 */
+	@Test
+	public void testGrowsOnlyOnInsert() {
+		RobinHoodCounter<Integer> counter = new RobinHoodCounter<Integer>( 4 );
+		counter.increment( 3 );
+		counter.increment( 4 );
+		counter.increment( 5 );
+		assertEquals ( "RobinHoodCounter:[4=1, 5=1, 3=1]", counter.toString() );
+		assertEquals ( 2, counter.increment( 3 ) );
+		assertEquals ( 0, counter.increment( 9, 0 ) );
+		assertEquals ( "RobinHoodCounter:[4=1, 5=1, 3=2]", counter.toString() );
+		counter.increment( 6 );
+		assertEquals ( "RobinHoodCounter:[3=2, 4=1, 5=1, 6=1]", counter.toString() );
+	}
+
+	/**
+	 * Tests that counts may go negative, that a negative key is kept until it returns
+	 * to zero, and that topK orders negative counts below positive ones.
+	 * Test method for {@link util.RobinHoodCounter#topK(int)}.
+	 */
+	@Test
+	public void testNegativeCounts() {
+		RobinHoodCounter<String> counter = new RobinHoodCounter<String>();
+		assertEquals ( -5, counter.increment( "A", -5 ) );
+		assertEquals ( 2, counter.increment( "B", 2 ) );
+		assertEquals ( -1, counter.increment( "C", -1 ) );
+		assertEquals ( Long.MIN_VALUE, counter.increment( "D", Long.MIN_VALUE ) );
+		assertEquals ( 4, counter.size() );
+		assertEquals ( Arrays.asList( "B", "C", "A", "D" ), counter.topK( 10 ) );
+		assertEquals ( Arrays.asList( "B" ), counter.topK( 1 ) );
+		assertTrue ( counter.topK( 0 ).isEmpty() );
+		assertEquals ( 0, counter.increment( "A", 5 ) );
+		assertFalse ( counter.containsKey( "A" ) );
+		assertEquals ( Arrays.asList( "B", "C", "D" ), counter.topK( 10 ) );
+		try {
+			counter.topK( -1 );
+			fail ("Cannot return a negative number of keys.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid k for topK", e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that merging removes the keys whose counts cancel, that a counter cannot be
+	 * merged into itself, and that mergeAll sums an odd number of counters.
+	 * Test method for {@link util.RobinHoodCounter#mergeAll(List)}.
+	 */
+	@Test
+	public void testMergeCancels() {
+		RobinHoodCounter<String> counter = new RobinHoodCounter<String>();
+		counter.increment( "A", 4 );
+		counter.increment( "B", 1 );
+		RobinHoodCounter<String> other = new RobinHoodCounter<String>();
+		other.increment( "A", -4 );
+		other.increment( "C", -2 );
+		counter.mergeFrom( other );
+		assertFalse ( counter.containsKey( "A" ) );
+		assertEquals ( 1, counter.get( "B" ) );
+		assertEquals ( -2, counter.get( "C" ) );
+		assertEquals ( 2, counter.size() );
+		try {
+			counter.mergeFrom( counter );
+			fail ("Cannot merge a counter into itself.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Cannot merge a counter into itself", e.getMessage());
+		}
+
+		List<RobinHoodCounter<String>> counters = new ArrayList<RobinHoodCounter<String>>();
+		for ( int t=0; t<7; t++ )
+		{
+			RobinHoodCounter<String> c = new RobinHoodCounter<String>();
+			c.increment( "X", t % 2 == 0 ? 1 : -1 );
+			c.increment( "Y", t );
+			counters.add( c );
+		}
+		RobinHoodCounter<String> merged = RobinHoodCounter.mergeAll( counters );
+		assertEquals ( 1, merged.get( "X" ) );
+		assertEquals ( 21, merged.get( "Y" ) );
+		assertEquals ( 2, merged.size() );
+		assertTrue ( RobinHoodCounter.mergeAll( new ArrayList<RobinHoodCounter<String>>() ).isEmpty() );
+	}
+
+}
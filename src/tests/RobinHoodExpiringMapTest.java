@@ -0,0 +1,174 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import util.RobinHoodExpiringMap;
+
+/**
+ * Performs a series of tests on the RobinHoodExpiringMap using a mapping
+ * from String => Integer and a clock advanced by the tests.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ */
+public class RobinHoodExpiringMapTest {
+
+	private long time;
+	private RobinHoodExpiringMap<String, Integer> mapWrite;
+	private RobinHoodExpiringMap<String, Integer> mapAccess;
+
+	private static final String [] array = { "AB", "AA", "BA", "CA", "LM",
+			 												  "MN", "NM", "KJ", "PO", "RL",
+			 												  "RN", "EM", "ZA", "TO", "WL",
+															  "OL", "XY", "ZY", "YZ",  "ZZ"};
+
+	@Before
+	public void setUp() throws Exception {
+		time = 1000;
+		mapWrite = new RobinHoodExpiringMap<String, Integer>( array.length, 10, TimeUnit.SECONDS, false, () -> time );
+		mapAccess = new RobinHoodExpiringMap<String, Integer>( array.length, 10, TimeUnit.SECONDS, true, () -> time );
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		mapWrite.stopMaintenance();
+	}
+
+	private void sleep( long seconds )
+	{
+		time += TimeUnit.SECONDS.toNanos( seconds );
+	}
+
+	/**
+	 * Tests the parameterized constructor to ensure that it rejects
+	 * an invalid capacity and time to live.
+	 * Test method for {@link util.RobinHoodExpiringMap#RobinHoodExpiringMap(int, long, TimeUnit, boolean)}.
+	 */
+	@Test
+	public void testRobinHoodExpiringMapInt() {
+		try {
+			new RobinHoodExpiringMap<String, Integer>( -1, 1, TimeUnit.SECONDS, false );
+			fail ("Cannot instantiate map with negative size.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid capacity for expiring map", e.getMessage());
+		}
+		try {
+			new RobinHoodExpiringMap<String, Integer>( 0, TimeUnit.SECONDS );
+			fail ("Cannot instantiate map with no time to live.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid time to live", e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that entries expire after the time to live counted from the
+	 * last write, and that a write restarts it.
+	 * Test method for {@link util.RobinHoodExpiringMap#put()}.
+	 */
+	@Test
+	public void testExpireAfterWrite() {
+		for ( int i=0; i<array.length; i++ )
+			assertEquals ( i, (int) mapWrite.put( array[i], i ) );
+		assertTrue ( mapWrite.isFull() );
+		assertNull ( mapWrite.put( "Too many", 100 ) );
+
+		sleep( 5 );
+		assertEquals ( 0, (int) mapWrite.get( array[0] ) );
+		assertEquals ( 1, (int) mapWrite.put( array[1], 1 ) );
+		sleep( 5 );
+		assertNull ( mapWrite.get( array[0] ) );
+		assertFalse ( mapWrite.containsKey( array[2] ) );
+		assertEquals ( 1, (int) mapWrite.get( array[1] ) );
+		assertEquals ( 1, mapWrite.size() );
+		sleep( 5 );
+		assertTrue ( mapWrite.isEmpty() );
+		assertEquals ( "RobinHoodExpiringMap:[]", mapWrite.toString() );
+	}
+
+	/**
+	 * Tests that in expire-after-access mode a read restarts the time to live.
+	 * Test method for {@link util.RobinHoodExpiringMap#get()}.
+	 */
+	@Test
+	public void testExpireAfterAccess() {
+		for ( int i=0; i<array.length; i++ )
+			mapAccess.put( array[i], i );
+		for ( int step=0; step<5; step++ )
+		{
+			sleep( 6 );
+			assertEquals ( 0, (int) mapAccess.get( array[0] ) );
+		}
+		assertEquals ( 1, mapAccess.size() );
+		assertFalse ( mapAccess.containsKey( array[1] ) );
+		sleep( 10 );
+		assertNull ( mapAccess.get( array[0] ) );
+	}
+
+	/**
+	 * Tests that each entry can be given its own time to live, including
+	 * one beyond the span of the timer wheel.
+	 * Test method for {@link util.RobinHoodExpiringMap#put(Object, Object, long, TimeUnit)}.
+	 */
+	@Test
+	public void testPerEntryTtl() {
+		for ( int i=0; i<array.length; i++ )
+			mapWrite.put( array[i], i, i + 1, TimeUnit.SECONDS );
+		mapWrite.put( array[0], 0, 30, TimeUnit.DAYS );
+		for ( int i=1; i<array.length; i++ )
+		{
+			sleep( 1 );
+			assertEquals ( array.length - i + 1, mapWrite.size() );
+			assertTrue ( mapWrite.containsKey( array[i] ) );
+			if ( i > 1 )
+				assertFalse ( mapWrite.containsKey( array[i-1] ) );
+		}
+		sleep( TimeUnit.DAYS.toSeconds( 29 ) );
+		assertEquals ( 0, (int) mapWrite.get( array[0] ) );
+		sleep( TimeUnit.DAYS.toSeconds( 1 ) );
+		assertNull ( mapWrite.get( array[0] ) );
+		assertEquals ( 0, mapWrite.size() );
+	}
+
+	/**
+	 * Tests that removal and clear free room for new entries.
+	 * Test method for {@link util.RobinHoodExpiringMap#remove()}.
+	 */
+	@Test
+	public void testRemoveClear() {
+		for ( int i=0; i<array.length; i++ )
+			mapWrite.put( array[i], i );
+		for ( int i=0; i<array.length; i+=2 )
+			assertEquals ( i, (int) mapWrite.remove( array[i] ) );
+		assertNull ( mapWrite.remove( array[0] ) );
+		assertEquals ( array.length / 2, mapWrite.size() );
+		for ( int i=1; i<array.length; i+=2 )
+			assertEquals ( i, (int) mapWrite.get( array[i] ) );
+
+		mapWrite.clear();
+		assertTrue ( mapWrite.isEmpty() );
+		mapWrite.put( array[0], 0 );
+		sleep( 11 );
+		assertNull ( mapWrite.get( array[0] ) );
+	}
+
+	/**
+	 * Tests that the maintenance thread removes expired entries while
+	 * the map is otherwise unused.
+	 * Test method for {@link util.RobinHoodExpiringMap#startMaintenance()}.
+	 */
+	@Test
+	public void testMaintenance() throws InterruptedException {
+		RobinHoodExpiringMap<String, Integer> map = new RobinHoodExpiringMap<String, Integer>( 5, TimeUnit.MILLISECONDS );
+		map.put( array[0], 0 );
+		map.startMaintenance( 5, TimeUnit.MILLISECONDS );
+		Thread.sleep( 100 );
+		map.stopMaintenance();
+		assertEquals ( "RobinHoodExpiringMap:[]", map.toString() );
+	}
+
+}
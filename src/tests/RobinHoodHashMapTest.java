@@ -2,14 +2,19 @@ package tests;
 
 import static org.junit.Assert.*;
 
+import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.Map.Entry;
 import java.util.Set;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import util.HashingStrategy;
+import util.MapCursor;
 import util.RobinHoodHashMap;
 
 /**
@@ -190,6 +195,59 @@ public class RobinHoodHashMapTest {
 		assertFalse ( mapfilled5.containsValue( 100 ) );
 	}
 
+	/**
+	 * Tests that containsValue finds values stored away from the hashed slot
+	 * of the value itself.
+	 * Test method for {@link util.RobinHoodHashMap#testContainsValue()}.
+	 */
+	@Test
+	public void testContainsValueScan() {
+		RobinHoodHashMap<Integer, Integer> map = new RobinHoodHashMap<Integer, Integer>( 10 );
+		for ( int i=0; i<5; i++ )
+			map.put( i, 9 - i );
+		for ( int i=0; i<5; i++ )
+			assertTrue ( map.containsValue( 9 - i ) );
+		assertFalse ( map.containsValue( 0 ) );
+	}
+
+	/**
+	 * Tests that the value index stays consistent as values are added,
+	 * replaced, shared between keys and removed.
+	 * Test method for {@link util.RobinHoodHashMap#setValueIndexed()}.
+	 */
+	@Test
+	public void testValueIndex() {
+		mapfilled5.setValueIndexed( true );
+		assertTrue ( mapfilled5.isValueIndexed() );
+		for ( int i=0; i<5;i++)
+			assertTrue( mapfilled5.containsValue( i ) );
+		
+		mapfilled5.put( array[0], 1 );
+		assertFalse ( mapfilled5.containsValue( 0 ) );
+		assertTrue ( mapfilled5.containsValue( 1 ) );
+		mapfilled5.remove( array[1] );
+		assertTrue ( mapfilled5.containsValue( 1 ) );
+		mapfilled5.remove( array[0] );
+		assertFalse ( mapfilled5.containsValue( 1 ) );
+		
+		mapfilled5.merge( array[2], 10, Integer::sum );
+		assertFalse ( mapfilled5.containsValue( 2 ) );
+		assertTrue ( mapfilled5.containsValue( 12 ) );
+		for ( Entry<String, Integer> entry: mapfilled5.entrySet() )
+			entry.setValue( entry.getValue() + 100 );
+		assertTrue ( mapfilled5.containsValue( 112 ) );
+		assertFalse ( mapfilled5.containsValue( 12 ) );
+		
+		mapfilled5.clear();
+		assertFalse ( mapfilled5.containsValue( 112 ) );
+		mapfilled5.put( "Key", 7 );
+		assertTrue ( mapfilled5.containsValue( 7 ) );
+		
+		mapfilled5.setValueIndexed( false );
+		assertFalse ( mapfilled5.isValueIndexed() );
+		assertTrue ( mapfilled5.containsValue( 7 ) );
+	}
+
 	/**
 	 * Tests that the put method correctly inserts the key-value pair
 	 * into the map. Also tests that an insert of pair with an existing 
@@ -259,6 +317,179 @@ public class RobinHoodHashMapTest {
 		}
 	}
 
+	/**
+	 * Tests that getOrDefault returns the mapped value for a present key
+	 * and the default value for an absent or null key.
+	 * Test method for {@link util.RobinHoodHashMap#getOrDefault()}.
+	 */
+	@Test
+	public void testGetOrDefault() {
+		for ( int i=0; i<5;i++)
+			assertEquals( i, (int) mapfilled5.getOrDefault(array[i], -1 ) );
+		
+		assertEquals ( -1, (int) mapfilled5.getOrDefault( "bad key", -1 ) );
+		assertEquals ( -1, (int) mapfilled5.getOrDefault( null, -1 ) );
+		assertEquals ( -1, (int) map1.getOrDefault( "bad key", -1 ) );
+	}
+
+	/**
+	 * Tests that computeIfAbsent only invokes the mapping function for
+	 * absent keys and stores the computed value.
+	 * Test method for {@link util.RobinHoodHashMap#computeIfAbsent()}.
+	 */
+	@Test
+	public void testComputeIfAbsent() {
+		assertEquals ( 0, (int) mapfilled5.computeIfAbsent( array[0], k -> 100 ) );
+		assertEquals ( 0, (int) mapfilled5.get( array[0] ) );
+		assertEquals ( 100, (int) mapfilled5.computeIfAbsent( "New", k -> 100 ) );
+		assertEquals ( 100, (int) mapfilled5.get( "New" ) );
+		assertEquals ( 6, mapfilled5.size() );
+		
+		assertNull ( mapfilled5.computeIfAbsent( "Null", k -> null ) );
+		assertFalse ( mapfilled5.containsKey( "Null" ) );
+		
+		map1.put( "Key", 0 );
+		assertNull ( map1.computeIfAbsent( "Too many", k -> 100 ) );
+		assertFalse ( map1.containsKey( "Too many" ) );
+	}
+
+	/**
+	 * Tests that computeIfPresent only remaps existing keys and that a
+	 * null result removes the key.
+	 * Test method for {@link util.RobinHoodHashMap#computeIfPresent()}.
+	 */
+	@Test
+	public void testComputeIfPresent() {
+		assertEquals ( 10, (int) mapfilled5.computeIfPresent( array[1], (k, v) -> v * 10 ) );
+		assertEquals ( 10, (int) mapfilled5.get( array[1] ) );
+		assertNull ( mapfilled5.computeIfPresent( "bad key", (k, v) -> 100 ) );
+		assertFalse ( mapfilled5.containsKey( "bad key" ) );
+		
+		assertNull ( mapfilled5.computeIfPresent( array[1], (k, v) -> null ) );
+		assertFalse ( mapfilled5.containsKey( array[1] ) );
+		assertEquals ( 4, mapfilled5.size() );
+	}
+
+	/**
+	 * Tests that compute inserts, replaces and removes values according
+	 * to the result of the remapping function.
+	 * Test method for {@link util.RobinHoodHashMap#compute()}.
+	 */
+	@Test
+	public void testCompute() {
+		assertEquals ( 1, (int) mapd.compute( "Key", (k, v) -> v == null ? 1 : v + 1 ) );
+		assertEquals ( 2, (int) mapd.compute( "Key", (k, v) -> v == null ? 1 : v + 1 ) );
+		assertEquals ( 2, (int) mapd.get( "Key" ) );
+		assertNull ( mapd.compute( "Key", (k, v) -> null ) );
+		assertTrue ( mapd.isEmpty() );
+	}
+
+	/**
+	 * Tests that merge stores the given value for absent keys and
+	 * combines it with the current value for present keys.
+	 * Test method for {@link util.RobinHoodHashMap#merge()}.
+	 */
+	@Test
+	public void testMerge() {
+		for ( int n=0; n<3; n++ )
+			for ( String s: list )
+				mapd.merge( s, 1, Integer::sum );
+		
+		assertEquals ( list.size(), mapd.size() );
+		for ( String s: list )
+			assertEquals ( 3, (int) mapd.get( s ) );
+		
+		assertNull ( mapd.merge( array[0], 1, (a, b) -> null ) );
+		assertFalse ( mapd.containsKey( array[0] ) );
+		assertEquals ( list.size() - 1, mapd.size() );
+	}
+
+	/**
+	 * Tests that entries with colliding hashes are displaced correctly so
+	 * that every key remains reachable after inserts and removals.
+	 * Test method for {@link util.RobinHoodHashMap#put()}.
+	 */
+	@Test
+	public void testPutCollisions() {
+		RobinHoodHashMap<Integer, Integer> map = new RobinHoodHashMap<Integer, Integer>( 10 );
+		for ( int i=0; i<10; i++ )
+			assertEquals ( i, (int) map.put( (i % 3) * 10 + i / 3, i ) );
+		for ( int i=0; i<10; i++ )
+			assertEquals ( i, (int) map.get( (i % 3) * 10 + i / 3 ) );
+		for ( int i=0; i<10; i+=2 )
+			assertEquals ( i, (int) map.remove( (i % 3) * 10 + i / 3 ) );
+		for ( int i=0; i<10; i++ )
+			assertEquals ( i % 2 == 0, map.get( (i % 3) * 10 + i / 3 ) == null );
+	}
+
+	/**
+	 * Tests that the cursor visits every key-value pair exactly once
+	 * and allows values to be replaced in place.
+	 * Test method for {@link util.RobinHoodHashMap#cursor()}.
+	 */
+	@Test
+	public void testCursor() {
+		assertFalse ( map1.cursor().advance() );
+		
+		MapCursor<String, Integer> cursor = mapfilled5.cursor();
+		int i = 0;
+		while ( cursor.advance() )
+		{
+			assertEquals ( mapfilled5.get( cursor.key() ), cursor.value() );
+			cursor.setValue( cursor.value() + 10 );
+			i++;
+		}
+		assertEquals ( mapfilled5.size(), i );
+		assertFalse ( cursor.advance() );
+		for ( int j=0; j<5; j++ )
+			assertEquals ( j + 10, (int) mapfilled5.get( array[j] ) );
+	}
+
+	/**
+	 * Tests that removing through the cursor removes pairs from the map
+	 * without skipping or revisiting the pairs shifted into their place.
+	 * Test method for {@link util.RobinHoodHashMap#cursor()}.
+	 */
+	@Test
+	public void testCursorRemove() {
+		RobinHoodHashMap<Integer, Integer> map = new RobinHoodHashMap<Integer, Integer>( 10 );
+		for ( int i=0; i<10; i++ )
+			map.put( 8 + (i % 2) + (i / 2) * 10, i );
+		
+		MapCursor<Integer, Integer> cursor = map.cursor();
+		int visited = 0;
+		while ( cursor.advance() )
+		{
+			visited++;
+			if ( cursor.value() % 2 == 0 )
+				cursor.remove();
+		}
+		assertEquals ( 10, visited );
+		assertEquals ( 5, map.size() );
+		for ( int i=0; i<10; i++ )
+			assertEquals ( i % 2 != 0, map.containsKey( 8 + (i % 2) + (i / 2) * 10 ) );
+		
+		try {
+			map.cursor().remove();
+			fail ("Cannot remove before the cursor is positioned.");
+		} catch (IllegalStateException e) { }
+	}
+
+	/**
+	 * Tests that forEach passes every key-value pair to the action.
+	 * Test method for {@link util.RobinHoodHashMap#forEach()}.
+	 */
+	@Test
+	public void testForEach() {
+		ArrayList<String> keys = new ArrayList<String>();
+		mapfilled5.forEach( (k, v) -> {
+			assertEquals ( mapfilled5.get( k ), v );
+			keys.add( k );
+		});
+		assertEquals ( mapfilled5.size(), keys.size() );
+		assertTrue ( keys.containsAll( mapfilled5.keySet() ) );
+	}
+
 	@Test
 	public void testClear() {
 		assertTrue( map5.isEmpty() );
@@ -274,7 +505,116 @@ public class RobinHoodHashMapTest {
 		assertTrue( mapd.isEmpty() );
 	}
 
+
+	/**
+	 * Tests that a cleared map can be refilled repeatedly and that no
+	 * entry from before a clear is visible afterwards.
+	 * Test method for {@link util.RobinHoodHashMap#clear()}.
+	 */
+	@Test
+	public void testClearReuse() {
+		for ( int n=0; n<3; n++ )
+		{
+			for ( int i=n; i<array.length; i+=2 )
+				mapd.put( array[i], n );
+			mapd.clear();
+			assertTrue ( mapd.isEmpty() );
+			for ( String s: list )
+				assertFalse ( mapd.containsKey( s ) );
+			assertFalse ( mapd.keySet().iterator().hasNext() );
+			assertFalse ( mapd.cursor().advance() );
+		}
+		for ( int i=0; i<array.length; i++ )
+			mapd.put( array[i], i );
+		for ( int i=0; i<array.length; i++ )
+			assertEquals ( i, (int) mapd.get( array[i] ) );
+		assertEquals ( array.length, mapd.size() );
+	}
 	
+	/**
+	 * Tests that trimToSize and compact release slots after mass removal and
+	 * that the released slots are reclaimed when the map grows again.
+	 * Test method for {@link util.RobinHoodHashMap#compact()}.
+	 */
+	@Test
+	public void testCompact() {
+		RobinHoodHashMap<Integer, Integer> map = new RobinHoodHashMap<Integer, Integer>( 1000 );
+		for ( int i=0; i<1000; i++ )
+			map.put( i, i );
+		for ( int i=100; i<1000; i++ )
+			map.remove( i );
+		assertEquals ( 1000, map.getTableSize() );
+		
+		map.compact();
+		assertEquals ( 200, map.getTableSize() );
+		for ( int i=0; i<100; i++ )
+			assertEquals ( i, (int) map.get( i ) );
+		
+		map.trimToSize();
+		assertEquals ( 100, map.getTableSize() );
+		assertFalse ( map.isFull() );
+		for ( int i=0; i<1000; i++ )
+			map.put( i, i );
+		assertTrue ( map.isFull() );
+		assertEquals ( 1000, map.getTableSize() );
+		for ( int i=0; i<1000; i++ )
+			assertEquals ( i, (int) map.get( i ) );
+	}
+
+	/**
+	 * Tests that a trimmed map doubles its array before the load factor passes
+	 * three quarters, rather than filling every slot, until it reaches its capacity.
+	 * Test method for {@link util.RobinHoodHashMap#trimToSize()}.
+	 */
+	@Test
+	public void testGrowthAfterTrim() {
+		RobinHoodHashMap<Integer, Integer> map = new RobinHoodHashMap<Integer, Integer>( 1000 );
+		for ( int i=0; i<100; i++ )
+			map.put( i, i );
+		map.trimToSize();
+		assertEquals ( 100, map.getTableSize() );
+		for ( int i=100; i<200; i++ )
+		{
+			map.put( i, i );
+			assertTrue ( map.size() <= 0.75 * map.getTableSize() );
+		}
+		assertEquals ( 400, map.getTableSize() );
+		for ( int i=200; i<1000; i++ )
+			map.put( i, i );
+		assertTrue ( map.isFull() );
+		assertEquals ( 1000, map.getTableSize() );
+		for ( int i=0; i<1000; i++ )
+			assertTrue ( map.containsKey( i ) );
+	}
+
+	/**
+	 * Tests that the map shrinks once the load factor falls below the
+	 * minimum and does not shrink again until the load halves.
+	 * Test method for {@link util.RobinHoodHashMap#setMinLoadFactor()}.
+	 */
+	@Test
+	public void testMinLoadFactor() {
+		RobinHoodHashMap<Integer, Integer> map = new RobinHoodHashMap<Integer, Integer>( 1000 );
+		map.setMinLoadFactor( 0.25f );
+		for ( int i=0; i<1000; i++ )
+			map.put( i, i );
+		for ( int i=999; i>=250; i-- )
+			map.remove( i );
+		assertEquals ( 1000, map.getTableSize() );
+		map.remove( 249 );
+		assertEquals ( 498, map.getTableSize() );
+		for ( int i=248; i>=125; i-- )
+			map.remove( i );
+		assertEquals ( 498, map.getTableSize() );
+		for ( int i=0; i<125; i++ )
+			assertEquals ( i, (int) map.get( i ) );
+		
+		try {
+			map.setMinLoadFactor( 0.5f );
+			fail ("Cannot shrink to a load factor above the target.");
+		} catch (IllegalArgumentException e) { }
+	}
+
 	/**
 	 * Tests that the key set contains all the keys that have been
 	 * inserted into the map. Also test the isEmpty and size methods
@@ -481,6 +821,89 @@ public class RobinHoodHashMapTest {
 		assertEquals( mapfilled5.size(), i);
 	}
 
+	/**
+	 * Tests that the key set iterator visits every key of a sparse map
+	 * rather than stopping at the first empty slot.
+	 * Test method for {@link util.RobinHoodHashMap#keySet()}.
+	 */
+	@Test
+	public void testKeySetIteratorSparse() {
+		RobinHoodHashMap<Integer, Integer> map = new RobinHoodHashMap<Integer, Integer>( 100 );
+		for ( int i=0; i<100; i+=10 )
+			map.put( i, i );
+		int count = 0;
+		for ( Integer key: map.keySet() )
+		{
+			assertTrue ( map.containsKey( key ) );
+			count++;
+		}
+		assertEquals ( 10, count );
+	}
+
+	/**
+	 * Tests that removing through the key set iterator removes the keys from
+	 * the underlying map without skipping keys shifted into their place.
+	 * Test method for {@link util.RobinHoodHashMap#keySet()}.
+	 */
+	@Test
+	public void testKeySetIteratorRemove() {
+		RobinHoodHashMap<Integer, Integer> map = new RobinHoodHashMap<Integer, Integer>( 10 );
+		for ( int i=0; i<10; i++ )
+			map.put( 8 + (i % 2) + (i / 2) * 10, i );
+		
+		Iterator<Integer> iterator = map.keySet().iterator();
+		int visited = 0;
+		while ( iterator.hasNext() )
+		{
+			visited++;
+			if ( map.get( iterator.next() ) % 2 == 0 )
+				iterator.remove();
+		}
+		assertEquals ( 10, visited );
+		assertEquals ( 5, map.size() );
+		for ( Integer value: map.values() )
+			assertEquals ( 1, value % 2 );
+		
+		try {
+			map.keySet().iterator().remove();
+			fail ("Cannot remove before next is called.");
+		} catch (IllegalStateException e) { }
+	}
+
+	/**
+	 * Tests that the iterators of the map views detect modification of the
+	 * map that was not made through the iterator.
+	 * Test method for {@link util.RobinHoodHashMap#keySet()}.
+	 */
+	@Test
+	public void testIteratorConcurrentModification() {
+		Iterator<String> keys = mapfilled5.keySet().iterator();
+		keys.next();
+		mapfilled5.remove( array[0] );
+		try {
+			keys.next();
+			fail ("Iterator should detect the removal.");
+		} catch (ConcurrentModificationException e) { }
+		
+		Iterator<Integer> values = mapfilled5.values().iterator();
+		values.next();
+		mapfilled5.put( "New", 100 );
+		try {
+			values.next();
+			fail ("Iterator should detect the insertion.");
+		} catch (ConcurrentModificationException e) { }
+		
+		Iterator<Entry<String, Integer>> entries = mapfilled5.entrySet().iterator();
+		entries.next();
+		mapfilled5.put( "New", 200 );
+		entries.next();
+		
+		try {
+			mapfilled5.computeIfAbsent( "Other", k -> mapfilled5.remove( array[1] ) );
+			fail ("computeIfAbsent should detect the removal.");
+		} catch (ConcurrentModificationException e) { }
+	}
+
 	/**
 	 * Tests that the value set contains all the values that have been
 	 * inserted into the map.
@@ -602,6 +1025,22 @@ public class RobinHoodHashMapTest {
 		assertEquals ( mapfilled5.size(), entrySet.size() );
 	}
 	
+	/**
+	 * Tests that the entry set contains an entry only if its key is
+	 * mapped to its value.
+	 * Test method for {@link util.RobinHoodHashMap#entrySet()}.
+	 */
+	@Test
+	public void testEntrySetContains() {
+		Set<Entry<String, Integer>> entrySet = mapfilled5.entrySet();
+		for ( int i=0; i<5;i++)
+			assertTrue ( entrySet.contains( new SimpleEntry<String, Integer>( array[i], i ) ) );
+		assertFalse ( entrySet.contains( new SimpleEntry<String, Integer>( array[0], 1 ) ) );
+		assertFalse ( entrySet.contains( new SimpleEntry<String, Integer>( "bad key", 0 ) ) );
+		assertFalse ( entrySet.contains( 0 ) );
+		assertTrue ( entrySet.containsAll( mapfilled5.entrySet() ) );
+	}
+
 	/**
 	 * Tests that the key set doesn't allow for misuse of the 
 	 * key set. Test that keys cannot be added to the key set
@@ -622,4 +1061,125 @@ public class RobinHoodHashMapTest {
 		
 	}
 	
+	/**
+	 * Tests that a map with a hashing strategy finds keys that are equal under the
+	 * strategy, here byte arrays with the same contents, without wrapping them, and
+	 * that a key of another type is absent whether the strategy is built in or not.
+	 * Test method for {@link util.RobinHoodHashMap#RobinHoodHashMap(int, HashingStrategy)}.
+	 */
+	@Test
+	public void testHashingStrategy() {
+		RobinHoodHashMap<byte[], Integer> bytes = new RobinHoodHashMap<byte[], Integer>( array.length, HashingStrategy.byteArrays() );
+		for ( int i=0; i<array.length; i++ )
+			assertEquals ( i, (int) bytes.put( array[i].getBytes(), i ) );
+		assertTrue ( bytes.isFull() );
+		for ( int i=0; i<array.length; i++ )
+			assertEquals ( i, (int) bytes.get( array[i].getBytes() ) );
+		assertEquals ( 100, (int) bytes.put( array[0].getBytes(), 100 ) );
+		assertEquals ( array.length, bytes.size() );
+		assertEquals ( 100, (int) bytes.remove( array[0].getBytes() ) );
+		assertFalse ( bytes.containsKey( array[0].getBytes() ) );
+		assertNull ( bytes.get( array[1] ) );
+		assertFalse ( bytes.containsKey( 5 ) );
+		assertNull ( bytes.remove( 5 ) );
+
+		RobinHoodHashMap<String, Integer> names = new RobinHoodHashMap<String, Integer>( 5, HashingStrategy.caseInsensitive() );
+		names.put( "Robin", 1 );
+		assertEquals ( 1, (int) names.get( "ROBIN" ) );
+		names.put( "robin", 2 );
+		assertEquals ( 1, names.size() );
+		assertEquals ( 2, (int) names.get( "Robin" ) );
+		assertNull ( names.get( 5 ) );
+		assertFalse ( names.containsKey( 5 ) );
+		assertNull ( names.remove( 5 ) );
+		assertEquals ( 1, names.size() );
+
+		RobinHoodHashMap<String, Integer> lengths = new RobinHoodHashMap<String, Integer>( 5, new HashingStrategy<String>() {
+			@Override
+			public int hash(String key) {
+				return key.length();
+			}
+
+			@Override
+			public boolean equals(String a, String b) {
+				return a.length() == b.length();
+			}
+		});
+		lengths.put( "AB", 1 );
+		assertEquals ( 1, (int) lengths.get( "ZZ" ) );
+		assertNull ( lengths.get( 2 ) );
+		assertFalse ( lengths.containsKey( 2 ) );
+		assertNull ( lengths.remove( 2 ) );
+		assertEquals ( 1, lengths.size() );
+	}
+
+	/**
+	 * Tests that a small map keeps its entries inline, in insertion order, and
+	 * allocates the slot array once it grows past eight entries.
+	 * Test method for {@link util.RobinHoodHashMap#getTableSize()}.
+	 */
+	@Test
+	public void testInline() {
+		assertEquals ( 0, mapd.getTableSize() );
+		for ( int i=0; i<8; i++ )
+			mapd.put( array[i], i );
+		assertEquals ( 8, mapd.getTableSize() );
+		assertEquals ( "RobinHoodHashMap:[0, 1, 2, 3, 4, 5, 6, 7]", mapd.toString() );
+		assertEquals ( 5, (int) mapd.merge( array[5], 100, (a, b) -> a ) );
+		assertEquals ( 10, (int) mapd.compute( array[1], (k, v) -> v + 9 ) );
+
+		Iterator<Entry<String, Integer>> entries = mapd.entrySet().iterator();
+		while ( entries.hasNext() )
+		{
+			Entry<String, Integer> entry = entries.next();
+			if ( entry.getValue() % 2 == 0 )
+				entries.remove();
+			else
+				entry.setValue( -entry.getValue() );
+		}
+		assertEquals ( "RobinHoodHashMap:[-3, -5, -7]", mapd.toString() );
+		assertEquals ( 8, mapd.getTableSize() );
+
+		for ( int i=0; i<array.length; i++ )
+			mapd.put( array[i], i );
+		assertEquals ( 20, mapd.getTableSize() );
+		assertTrue ( mapd.isFull() );
+		for ( int i=0; i<array.length; i++ )
+			assertEquals ( i, (int) mapd.get( array[i] ) );
+
+		assertEquals ( 0, map5.getTableSize() );
+		for ( int i=0; i<6; i++ )
+			map5.put( array[i], i );
+		assertTrue ( map5.isFull() );
+		assertEquals ( 5, map5.getTableSize() );
+		assertNull ( map5.get( array[5] ) );
+	}
+
+	/**
+	 * Tests that an empty map allocates nothing until a key is added, and that
+	 * each view is created once, when first requested.
+	 * Test method for {@link util.RobinHoodHashMap#keySet()}.
+	 */
+	@Test
+	public void testLazyAllocation() {
+		RobinHoodHashMap<Integer, Integer> map = new RobinHoodHashMap<Integer, Integer>( 1000 );
+		assertEquals ( 0, map.getTableSize() );
+		assertNull ( map.get( 1 ) );
+		assertNull ( map.remove( 1 ) );
+		assertFalse ( map.containsValue( 1 ) );
+		map.compact();
+		map.trimToSize();
+		map.clear();
+		assertEquals ( 0, map.getTableSize() );
+		assertSame ( map.keySet(), map.keySet() );
+		assertSame ( map.values(), map.values() );
+		assertSame ( map.entrySet(), map.entrySet() );
+		assertFalse ( map.entrySet().iterator().hasNext() );
+
+		map.put( 1, 1 );
+		assertEquals ( 2, map.getTableSize() );
+		map.clear();
+		assertEquals ( 0, map.getTableSize() );
+	}
+
 }
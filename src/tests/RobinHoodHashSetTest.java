@@ -4,10 +4,13 @@ import static org.junit.Assert.*;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import util.HashingStrategy;
 import util.RobinHoodHashSet;
 
 /**
@@ -157,6 +160,53 @@ public class RobinHoodHashSetTest {
 		assertEquals(setd.size(), i);
 	}
 
+	/**
+	 * Tests that removing through the iterator removes the elements from the
+	 * set and that modification outside the iterator is detected.
+	 * Test method for {@link util.RobinHoodHashSet#iterator()}.
+	 */
+	@Test
+	public void testIteratorRemove() {
+		assertTrue( setd.addAll(list) );
+		Iterator<String> iterator = setd.iterator();
+		int i=0;
+		while ( iterator.hasNext() )
+		{
+			String s = iterator.next();
+			if ( i++ % 2 == 0 )
+				iterator.remove();
+			assertTrue( list.contains(s) );
+		}
+		assertEquals( list.size(), i );
+		assertEquals( list.size() / 2, setd.size() );
+		
+		iterator = setd.iterator();
+		iterator.next();
+		setd.remove( iterator.next() );
+		try {
+			iterator.next();
+			fail ("Iterator should detect the removal.");
+		} catch (ConcurrentModificationException e) { }
+	}
+
+	/**
+	 * Tests that the iterator visits every element of a sparse set.
+	 * Test method for {@link util.RobinHoodHashSet#iterator()}.
+	 */
+	@Test
+	public void testIteratorSparse() {
+		RobinHoodHashSet<Integer> set = new RobinHoodHashSet<Integer> ( 100 );
+		for ( int i=0; i<100; i+=10 )
+			set.add( i );
+		int count=0;
+		for ( Integer element: set )
+		{
+			assertTrue( set.contains( element ) );
+			count++;
+		}
+		assertEquals( 10, count );
+	}
+
 	/**
 	 * Test method for {@link util.RobinHoodHashSet#toArray()}.
 	 */
@@ -309,6 +359,109 @@ public class RobinHoodHashSetTest {
 		assertEquals(0, setd.size() );
 	}
 
+	/**
+	 * Tests that a cleared set can be refilled and that no element from
+	 * before the clear is visible afterwards.
+	 * Test method for {@link util.RobinHoodHashSet#clear()}.
+	 */
+	@Test
+	public void testClearReuse() {
+		assertTrue(  setd.addAll(list) );
+		setd.clear();
+		for ( String s: list )
+			assertFalse( setd.contains( s ) );
+		assertFalse( setd.iterator().hasNext() );
+		for ( int i=0; i<list.size(); i+=2 )
+			assertTrue( setd.add( list.get(i) ) );
+		for ( int i=0; i<list.size(); i++ )
+			assertEquals( i % 2 == 0, setd.contains( list.get(i) ) );
+		assertEquals( list.size() / 2, setd.size() );
+	}
+
+	/**
+	 * Tests that trimToSize and compact release slots after mass removal and
+	 * that the released slots are reclaimed when the set grows again.
+	 * Test method for {@link util.RobinHoodHashSet#compact()}.
+	 */
+	@Test
+	public void testCompact() {
+		RobinHoodHashSet<Integer> set = new RobinHoodHashSet<Integer>( 1000 );
+		for ( int i=0; i<1000; i++ )
+			set.add( i );
+		for ( int i=100; i<1000; i++ )
+			set.remove( i );
+		assertEquals ( 1000, set.getTableSize() );
+		
+		set.compact();
+		assertEquals ( 200, set.getTableSize() );
+		for ( int i=0; i<100; i++ )
+			assertTrue ( set.contains( i ) );
+		
+		set.trimToSize();
+		assertEquals ( 100, set.getTableSize() );
+		assertFalse ( set.isFull() );
+		for ( int i=0; i<1000; i++ )
+			set.add( i );
+		assertTrue ( set.isFull() );
+		assertEquals ( 1000, set.getTableSize() );
+		for ( int i=0; i<1000; i++ )
+			assertTrue ( set.contains( i ) );
+	}
+
+	/**
+	 * Tests that a trimmed set doubles its array before the load factor passes
+	 * three quarters, rather than filling every slot, until it reaches its capacity.
+	 * Test method for {@link util.RobinHoodHashSet#trimToSize()}.
+	 */
+	@Test
+	public void testGrowthAfterTrim() {
+		RobinHoodHashSet<Integer> set = new RobinHoodHashSet<Integer>( 1000 );
+		for ( int i=0; i<100; i++ )
+			set.add( i );
+		set.trimToSize();
+		assertEquals ( 100, set.getTableSize() );
+		for ( int i=100; i<200; i++ )
+		{
+			set.add( i );
+			assertTrue ( set.size() <= 0.75 * set.getTableSize() );
+		}
+		assertEquals ( 400, set.getTableSize() );
+		for ( int i=200; i<1000; i++ )
+			set.add( i );
+		assertTrue ( set.isFull() );
+		assertEquals ( 1000, set.getTableSize() );
+		for ( int i=0; i<1000; i++ )
+			assertTrue ( set.contains( i ) );
+	}
+
+	/**
+	 * Tests that the set shrinks once the load factor falls below the
+	 * minimum and does not shrink again until the load halves.
+	 * Test method for {@link util.RobinHoodHashSet#setMinLoadFactor()}.
+	 */
+	@Test
+	public void testMinLoadFactor() {
+		RobinHoodHashSet<Integer> set = new RobinHoodHashSet<Integer>( 1000 );
+		set.setMinLoadFactor( 0.25f );
+		for ( int i=0; i<1000; i++ )
+			set.add( i );
+		for ( int i=999; i>=250; i-- )
+			set.remove( i );
+		assertEquals ( 1000, set.getTableSize() );
+		set.remove( 249 );
+		assertEquals ( 498, set.getTableSize() );
+		for ( int i=248; i>=125; i-- )
+			set.remove( i );
+		assertEquals ( 498, set.getTableSize() );
+		for ( int i=0; i<125; i++ )
+			assertTrue ( set.contains( i ) );
+		
+		try {
+			set.setMinLoadFactor( 0.5f );
+			fail ("Cannot shrink to a load factor above the target.");
+		} catch (IllegalArgumentException e) { }
+	}
+
 	/**
 	 * Test method for {@link util.RobinHoodHashSet#toString()}.
 	 */
@@ -322,4 +475,50 @@ public class RobinHoodHashSetTest {
 		}
 	}
 
+	/**
+	 * Tests that a set with a hashing strategy treats elements that are equal
+	 * under the strategy as duplicates.
+	 * Test method for {@link util.RobinHoodHashSet#RobinHoodHashSet(int, HashingStrategy)}.
+	 */
+	@Test
+	public void testHashingStrategy() {
+		RobinHoodHashSet<String> names = new RobinHoodHashSet<String>( list.size(), HashingStrategy.caseInsensitive() );
+		for ( int i=0; i<list.size(); i++ )
+			assertTrue ( names.add( list.get(i).toLowerCase() ) );
+		for ( int i=0; i<list.size(); i++ )
+		{
+			assertFalse ( names.add( list.get(i).toUpperCase() ) );
+			assertTrue ( names.contains( list.get(i).toUpperCase() ) );
+		}
+		assertEquals ( list.size(), names.size() );
+		assertTrue ( names.remove( list.get(0).toUpperCase() ) );
+		assertFalse ( names.contains( list.get(0) ) );
+		assertFalse ( names.contains( 5 ) );
+		assertFalse ( names.remove( 5 ) );
+	}
+
+	/**
+	 * Tests that the slot array is only allocated when the first element is
+	 * added, and that an unallocated set behaves as an empty set.
+	 * Test method for {@link util.RobinHoodHashSet#getTableSize()}.
+	 */
+	@Test
+	public void testLazyAllocation() {
+		RobinHoodHashSet<Integer> set = new RobinHoodHashSet<Integer>( 1000 );
+		assertEquals ( 0, set.getTableSize() );
+		assertFalse ( set.contains( 1 ) );
+		assertFalse ( set.remove( 1 ) );
+		assertFalse ( set.iterator().hasNext() );
+		assertEquals ( 0, set.toArray( new Integer[0] ).length );
+		set.compact();
+		set.trimToSize();
+		set.clear();
+		assertEquals ( 0, set.getTableSize() );
+		assertEquals ( "RobinHoodHashSet:[]", set.toString() );
+
+		assertTrue ( set.add( 1 ) );
+		assertEquals ( 1000, set.getTableSize() );
+		assertTrue ( set.contains( 1 ) );
+	}
+
 }
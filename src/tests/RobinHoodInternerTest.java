@@ -0,0 +1,132 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.RobinHoodInterner;
+
+/**
+ * Performs a series of tests on the RobinHoodInterner using String values.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ */
+public class RobinHoodInternerTest {
+
+	private RobinHoodInterner<String> interner;
+
+	private static final String [] array = { "AB", "AA", "BA", "CA", "LM",
+			 												  "MN", "NM", "KJ", "PO", "RL",
+			 												  "RN", "EM", "ZA", "TO", "WL",
+															  "OL", "XY", "ZY", "YZ",  "ZZ"};
+
+	@Before
+	public void setUp() throws Exception {
+		interner = new RobinHoodInterner<String>( );
+		for ( int i=0; i<array.length; i++ )
+			interner.intern( array[i] );
+	}
+
+	/**
+	 * Tests the parameterized constructor to ensure that it rejects
+	 * an invalid capacity.
+	 * Test method for {@link util.RobinHoodInterner#RobinHoodInterner(int, boolean)}.
+	 */
+	@Test
+	public void testRobinHoodInternerInt() {
+		try {
+			new RobinHoodInterner<String>( -1, false );
+			fail ("Cannot instantiate interner with negative size.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid capacity for interner", e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that equal values intern to the first instance seen, and that
+	 * new values are returned as they are once the interner is full.
+	 * Test method for {@link util.RobinHoodInterner#intern(Object)}.
+	 */
+	@Test
+	public void testIntern() {
+		assertTrue ( interner.isFull() );
+		assertEquals ( array.length, interner.size() );
+		for ( int i=0; i<array.length; i++ )
+		{
+			assertSame ( array[i], interner.intern( new String( array[i] ) ) );
+			assertTrue ( interner.contains( new String( array[i] ) ) );
+		}
+		String extra = new String( "QQ" );
+		assertSame ( extra, interner.intern( extra ) );
+		assertFalse ( interner.contains( "QQ" ) );
+		assertNull ( interner.intern( null ) );
+
+		interner.clear();
+		assertEquals ( 0, interner.size() );
+		assertSame ( extra, interner.intern( extra ) );
+		assertSame ( extra, interner.intern( new String( "QQ" ) ) );
+	}
+
+	/**
+	 * Tests that values interned from characters and UTF-8 bytes find the
+	 * canonical instance, and are only created when new.
+	 * Test method for {@link util.RobinHoodInterner#intern(Object, util.RobinHoodInterner.Lookup)}.
+	 */
+	@Test
+	public void testLookup() {
+		RobinHoodInterner<String> strings = new RobinHoodInterner<String>( 10, false );
+		String word = "caf\u00e9 \ud83d\ude00";
+		String canonical = strings.intern( new String( word ) );
+		assertSame ( canonical, strings.intern( new StringBuilder( word ), RobinHoodInterner.CHARS ) );
+		assertSame ( canonical, strings.intern( CharBuffer.wrap( "x" + word, 1, word.length() + 1 ), RobinHoodInterner.CHARS ) );
+		assertSame ( canonical, strings.intern( word.getBytes( StandardCharsets.UTF_8 ), RobinHoodInterner.UTF8 ) );
+		assertEquals ( 1, strings.size() );
+
+		String created = strings.intern( "new".getBytes( StandardCharsets.UTF_8 ), RobinHoodInterner.UTF8 );
+		assertEquals ( "new", created );
+		assertSame ( created, strings.intern( "new" ) );
+		assertSame ( created, strings.intern( new StringBuilder( "new" ), RobinHoodInterner.CHARS ) );
+
+		byte[] malformed = { 'a', (byte) 0xc0, (byte) 0x80, 'b' };
+		String decoded = strings.intern( malformed, RobinHoodInterner.UTF8 );
+		assertEquals ( new String( malformed, StandardCharsets.UTF_8 ), decoded );
+		assertSame ( decoded, strings.intern( malformed.clone(), RobinHoodInterner.UTF8 ) );
+		assertSame ( decoded, strings.intern( new String( decoded ) ) );
+	}
+
+	/**
+	 * Tests that weakly held instances no longer used elsewhere are reclaimed.
+	 * Test method for {@link util.RobinHoodInterner#size()}.
+	 */
+	@Test
+	public void testWeak() throws InterruptedException {
+		RobinHoodInterner<String> weak = new RobinHoodInterner<String>( 100, true );
+		List<String> kept = new ArrayList<String>();
+		for ( int i=0; i<100; i++ )
+		{
+			String value = new String( "value" + i );
+			if ( i % 2 == 0 )
+				kept.add( value );
+			assertSame ( value, weak.intern( value ) );
+		}
+		assertTrue ( weak.isFull() );
+		for ( int tries=0; tries<50 && weak.size() > kept.size(); tries++ )
+		{
+			System.gc();
+			Thread.sleep( 10 );
+		}
+		assertEquals ( kept.size(), weak.size() );
+		for ( String value: kept )
+			assertSame ( value, weak.intern( new String( value ) ) );
+		String value = new String( "value1" );
+		assertSame ( value, weak.intern( value ) );
+		assertSame ( value, weak.intern( new String( "value1" ) ) );
+	}
+
+}
@@ -0,0 +1,201 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import util.RobinHoodLoadingCache;
+
+/**
+ * Performs a series of tests on the RobinHoodLoadingCache using a mapping
+ * from String => Integer.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ */
+public class RobinHoodLoadingCacheTest {
+
+	private long time;
+	private ExecutorService executor;
+	private RobinHoodLoadingCache<String, Integer> cache;
+	private AtomicInteger loads;
+
+	private static final String [] array = { "AB", "AA", "BA", "CA", "LM",
+			 												  "MN", "NM", "KJ", "PO", "RL",
+			 												  "RN", "EM", "ZA", "TO", "WL",
+															  "OL", "XY", "ZY", "YZ",  "ZZ"};
+
+	@Before
+	public void setUp() throws Exception {
+		time = 1000;
+		executor = Executors.newFixedThreadPool( 4 );
+		cache = new RobinHoodLoadingCache<String, Integer>( array.length, executor, 10, TimeUnit.SECONDS, () -> time );
+		loads = new AtomicInteger();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		executor.shutdownNow();
+	}
+
+	private Integer load( String key )
+	{
+		loads.incrementAndGet();
+		return Arrays.asList( array ).indexOf( key );
+	}
+
+	/**
+	 * Tests that concurrent misses for one key share a single load.
+	 * Test method for {@link util.RobinHoodLoadingCache#getAsync()}.
+	 */
+	@Test
+	public void testGetAsyncDeduplicates() throws Exception {
+		CountDownLatch release = new CountDownLatch( 1 );
+		ArrayList<CompletableFuture<Integer>> futures = new ArrayList<CompletableFuture<Integer>>();
+		for ( int i=0; i<10; i++ )
+			futures.add( cache.getAsync( array[3], key -> {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new IllegalStateException( e );
+				}
+				return load( key );
+			}));
+		assertEquals ( "RobinHoodLoadingCache:[CA=...]", cache.toString() );
+		release.countDown();
+		for ( CompletableFuture<Integer> future: futures )
+			assertEquals ( 3, (int) future.get( 5, TimeUnit.SECONDS ) );
+		assertEquals ( 1, loads.get() );
+		assertEquals ( 1, cache.missCount() );
+		assertEquals ( 9, cache.hitCount() );
+		assertEquals ( 3, (int) cache.getAsync( array[3], this::load ).get() );
+		assertEquals ( 1, loads.get() );
+	}
+
+	/**
+	 * Tests that a load in flight cannot be evicted while the cache is full of
+	 * completed entries, so a later read still shares the running load.
+	 * Test method for {@link util.RobinHoodLoadingCache#getAsync()}.
+	 */
+	@Test
+	public void testLoadInFlightIsPinned() throws Exception {
+		RobinHoodLoadingCache<String, Integer> small = new RobinHoodLoadingCache<String, Integer>( 2, executor );
+		CountDownLatch release = new CountDownLatch( 1 );
+		CompletableFuture<Integer> pending = small.getAsync( array[0], key -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				throw new IllegalStateException( e );
+			}
+			return load( key );
+		});
+		for ( int i=1; i<8; i++ )
+			small.getAsync( array[i], this::load ).get( 5, TimeUnit.SECONDS );
+		assertTrue ( small.evictionCount() > 0 );
+		assertSame ( pending, small.getAsync( array[0], this::load ) );
+		assertEquals ( 3, small.size() );
+		release.countDown();
+		assertEquals ( 0, (int) pending.get( 5, TimeUnit.SECONDS ) );
+		assertEquals ( 8, loads.get() );
+		assertEquals ( 0, (int) small.getIfPresent( array[0] ).get() );
+		assertEquals ( 2, small.size() );
+
+		CountDownLatch hold = new CountDownLatch( 1 );
+		CompletableFuture<Integer> invalidated = small.getAsync( array[9], key -> {
+			try {
+				hold.await();
+			} catch (InterruptedException e) {
+				throw new IllegalStateException( e );
+			}
+			return load( key );
+		});
+		small.invalidate( array[9] );
+		hold.countDown();
+		assertEquals ( 9, (int) invalidated.get( 5, TimeUnit.SECONDS ) );
+		assertNull ( small.getIfPresent( array[9] ) );
+	}
+
+	/**
+	 * Tests that a failed or null load is not kept, so the next read loads again.
+	 * Test method for {@link util.RobinHoodLoadingCache#getAsync()}.
+	 */
+	@Test
+	public void testFailedLoad() throws Exception {
+		CompletableFuture<Integer> failed = cache.getAsync( array[0], key -> { throw new IllegalStateException( "down" ); } );
+		try {
+			failed.get( 5, TimeUnit.SECONDS );
+			fail ("Load should have failed.");
+		} catch (java.util.concurrent.ExecutionException e) {
+			assertEquals ( "down", e.getCause().getMessage() );
+		}
+		assertNull ( cache.getIfPresent( array[0] ) );
+		assertNull ( cache.getAsync( array[1], key -> null ).get( 5, TimeUnit.SECONDS ) );
+		assertEquals ( 0, cache.size() );
+		assertEquals ( 2, cache.loadFailureCount() );
+		assertEquals ( 0, (int) cache.getAsync( array[0], this::load ).get( 5, TimeUnit.SECONDS ) );
+		assertEquals ( 1, cache.loadSuccessCount() );
+	}
+
+	/**
+	 * Tests that reading an old value returns it at once and reloads it in
+	 * the background.
+	 * Test method for {@link util.RobinHoodLoadingCache#getAsync()}.
+	 */
+	@Test
+	public void testRefreshAhead() throws Exception {
+		assertEquals ( 5, (int) cache.getAsync( array[5], this::load ).get( 5, TimeUnit.SECONDS ) );
+		time += TimeUnit.SECONDS.toNanos( 11 );
+		CountDownLatch reloaded = new CountDownLatch( 1 );
+		CompletableFuture<Integer> old = cache.getAsync( array[5], key -> {
+			reloaded.countDown();
+			return 50;
+		});
+		assertEquals ( 5, (int) old.getNow( -1 ) );
+		assertTrue ( reloaded.await( 5, TimeUnit.SECONDS ) );
+		for ( int tries=0; tries<500 && cache.loadSuccessCount() < 2; tries++ )
+			Thread.sleep( 10 );
+		assertEquals ( 50, (int) cache.getAsync( array[5], this::load ).get() );
+		assertEquals ( 1, loads.get() );
+	}
+
+	/**
+	 * Tests that getAllAsync passes only the absent keys to one call of the
+	 * bulk loader.
+	 * Test method for {@link util.RobinHoodLoadingCache#getAllAsync()}.
+	 */
+	@Test
+	public void testGetAllAsync() throws Exception {
+		cache.getAsync( array[0], this::load ).get( 5, TimeUnit.SECONDS );
+		ArrayList<Integer> batchSizes = new ArrayList<Integer>();
+		Map<String, Integer> all = cache.getAllAsync( Arrays.asList( array ).subList( 0, 10 ), keys -> {
+			batchSizes.add( keys.size() );
+			Map<String, Integer> values = new HashMap<String, Integer>();
+			for ( String key: keys )
+				if ( !key.equals( array[9] ) )
+					values.put( key, load( key ) );
+			return values;
+		}).get( 5, TimeUnit.SECONDS );
+		assertEquals ( Arrays.asList( 9 ), batchSizes );
+		assertEquals ( 9, all.size() );
+		for ( int i=0; i<9; i++ )
+			assertEquals ( i, (int) all.get( array[i] ) );
+		assertNull ( cache.getIfPresent( array[9] ) );
+		assertEquals ( 9, cache.size() );
+
+		cache.invalidateAll();
+		assertEquals ( 0, cache.size() );
+	}
+
+}
@@ -0,0 +1,195 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.RobinHoodMultiMap;
+
+/**
+ * Performs a series of tests on the RobinHoodMultiMap using a mapping
+ * from String => Integer.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ */
+public class RobinHoodMultiMapTest {
+
+	private RobinHoodMultiMap<String, Integer> map1;
+	private RobinHoodMultiMap<String, Integer> mapd;
+
+	private static final String [] array = { "AB", "AA", "BA", "CA", "LM",
+			 												  "MN", "NM", "KJ", "PO", "RL",
+			 												  "RN", "EM", "ZA", "TO", "WL",
+															  "OL", "XY", "ZY", "YZ",  "ZZ"};
+
+	@Before
+	public void setUp() throws Exception {
+		map1 = new RobinHoodMultiMap<String, Integer>(1);
+		mapd = new RobinHoodMultiMap<String, Integer>( );
+	}
+
+	/**
+	 * Tests the parameterized constructor to ensure that it rejects an invalid capacity.
+	 * Test method for {@link util.RobinHoodMultiMap#RobinHoodMultiMap(int)}.
+	 */
+	@Test
+	public void testRobinHoodMultiMapInt() {
+		try {
+			new RobinHoodMultiMap<String, Integer>( 0 );
+			fail ("Cannot instantiate multimap with no keys.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid capacity for multimap", e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that values are kept in insertion order for each key and that
+	 * the sizes count values and keys separately.
+	 * Test method for {@link util.RobinHoodMultiMap#put()}.
+	 */
+	@Test
+	public void testPut() {
+		for ( int n=0; n<5; n++ )
+			for ( int i=0; i<array.length; i++ )
+				if ( i % 5 >= n )
+					assertTrue ( mapd.put( array[i], n ) );
+
+		assertEquals ( array.length, mapd.keyCount() );
+		assertEquals ( 60, mapd.size() );
+		assertTrue ( mapd.isFull() );
+		for ( int i=0; i<array.length; i++ )
+		{
+			List<Integer> values = mapd.get( array[i] );
+			assertEquals ( i % 5 + 1, values.size() );
+			for ( int n=0; n<values.size(); n++ )
+				assertEquals ( n, (int) values.get( n ) );
+		}
+
+		assertFalse ( mapd.put( "Too many", 0 ) );
+		assertTrue ( mapd.put( array[0], 100 ) );
+		assertFalse ( mapd.put( null, 0 ) );
+		assertFalse ( mapd.put( "Key", null ) );
+	}
+
+	/**
+	 * Tests that removing single values keeps the remaining values in order
+	 * and that a key is removed with its last value.
+	 * Test method for {@link util.RobinHoodMultiMap#remove()}.
+	 */
+	@Test
+	public void testRemove() {
+		for ( int n=0; n<4; n++ )
+			for ( int i=0; i<10; i++ )
+				mapd.put( array[i], n );
+
+		for ( int i=0; i<10; i++ )
+			assertTrue ( mapd.remove( array[i], 1 ) );
+		assertFalse ( mapd.remove( array[0], 1 ) );
+		assertFalse ( mapd.remove( "bad key", 0 ) );
+		assertEquals ( 30, mapd.size() );
+		assertEquals ( 2, (int) mapd.get( array[0] ).get( 1 ) );
+
+		for ( int n : new int[] { 0, 2, 3 } )
+			assertTrue ( mapd.remove( array[0], n ) );
+		assertFalse ( mapd.containsKey( array[0] ) );
+		assertEquals ( 9, mapd.keyCount() );
+		assertTrue ( mapd.get( array[0] ).isEmpty() );
+		for ( int i=1; i<10; i++ )
+			assertTrue ( mapd.containsEntry( array[i], 3 ) );
+	}
+
+	/**
+	 * Tests that removing a key returns all of its values and leaves
+	 * the other keys intact.
+	 * Test method for {@link util.RobinHoodMultiMap#removeAll()}.
+	 */
+	@Test
+	public void testRemoveAll() {
+		for ( int n=0; n<3; n++ )
+			for ( int i=0; i<array.length; i++ )
+				mapd.put( array[i], n );
+
+		for ( int i=0; i<array.length; i+=2 )
+		{
+			List<Integer> removed = mapd.removeAll( array[i] );
+			assertEquals ( 3, removed.size() );
+			assertEquals ( 2, (int) removed.get( 2 ) );
+		}
+		assertTrue ( mapd.removeAll( array[0] ).isEmpty() );
+		assertEquals ( array.length / 2, mapd.keyCount() );
+		assertEquals ( 3 * array.length / 2, mapd.size() );
+
+		for ( int n=3; n<20; n++ )
+			for ( int i=1; i<array.length; i+=2 )
+				mapd.put( array[i], n );
+		for ( int i=1; i<array.length; i+=2 )
+		{
+			List<Integer> values = mapd.get( array[i] );
+			assertEquals ( 20, values.size() );
+			for ( int n=0; n<20; n++ )
+				assertEquals ( n, (int) values.get( n ) );
+		}
+	}
+
+	/**
+	 * Tests that the view returned by get reflects and writes through
+	 * to the map.
+	 * Test method for {@link util.RobinHoodMultiMap#get()}.
+	 */
+	@Test
+	public void testGetView() {
+		List<Integer> values = mapd.get( "Key" );
+		assertTrue ( values.isEmpty() );
+		assertTrue ( values.add( 1 ) );
+		mapd.put( "Key", 2 );
+		assertEquals ( 2, values.size() );
+		assertEquals ( 2, mapd.valueCount( "Key" ) );
+
+		assertEquals ( 1, (int) values.set( 0, 10 ) );
+		assertTrue ( mapd.containsEntry( "Key", 10 ) );
+		assertEquals ( 10, (int) values.remove( 0 ) );
+		assertEquals ( 1, mapd.size() );
+		values.clear();
+		assertFalse ( mapd.containsKey( "Key" ) );
+
+		map1.put( "Key", 0 );
+		assertFalse ( map1.get( "Too many" ).add( 0 ) );
+	}
+
+	/**
+	 * Tests that forEach visits every key-value pair.
+	 * Test method for {@link util.RobinHoodMultiMap#forEach()}.
+	 */
+	@Test
+	public void testForEach() {
+		for ( int n=0; n<3; n++ )
+			for ( int i=0; i<5; i++ )
+				mapd.put( array[i], n );
+		ArrayList<String> pairs = new ArrayList<String>();
+		mapd.forEach( (k, v) -> pairs.add( k + v ) );
+		assertEquals ( 15, pairs.size() );
+		assertTrue ( pairs.contains( array[4] + 2 ) );
+	}
+
+	/**
+	 * Tests that the map is empty after clear and can be refilled.
+	 * Test method for {@link util.RobinHoodMultiMap#clear()}.
+	 */
+	@Test
+	public void testClear() {
+		for ( int i=0; i<array.length; i++ )
+			mapd.put( array[i], i );
+		mapd.clear();
+		assertTrue ( mapd.isEmpty() );
+		assertEquals ( 0, mapd.keyCount() );
+		assertFalse ( mapd.containsKey( array[0] ) );
+		assertEquals ( "RobinHoodMultiMap:[]", mapd.toString() );
+		mapd.put( array[0], 0 );
+		assertEquals ( "RobinHoodMultiMap:[AB=[0]]", mapd.toString() );
+	}
+
+}
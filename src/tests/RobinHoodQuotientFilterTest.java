@@ -0,0 +1,191 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import util.RobinHoodQuotientFilter;
+
+/**
+ * Performs a series of tests on the RobinHoodQuotientFilter, mostly with hash
+ * functions that fix the fingerprints, so that duplicate fingerprints, long
+ * clusters and a table that cannot grow can be produced on purpose.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ */
+public class RobinHoodQuotientFilterTest {
+
+	/**
+	 * Tests the parameterized constructor to ensure that it rejects a number of
+	 * elements it cannot be sized for, or an invalid false positive rate.
+	 * Test method for {@link util.RobinHoodQuotientFilter#RobinHoodQuotientFilter(int, double)}.
+	 */
+	@Test
+	public void testRobinHoodQuotientFilterInt() {
+		try {
+			new RobinHoodQuotientFilter<String>( 0, 0.01 );
+			fail ("Cannot instantiate filter for no elements.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid expected elements for filter", e.getMessage());
+		}
+		try {
+			new RobinHoodQuotientFilter<String>( RobinHoodQuotientFilter.MAX_EXPECTED_ELEMENTS + 1, 0.01 );
+			fail ("Cannot instantiate filter for more elements than its largest table holds.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid expected elements for filter", e.getMessage());
+		}
+		try {
+			new RobinHoodQuotientFilter<String>( 10, 1.0 );
+			fail ("Cannot instantiate filter with a false positive rate of one.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid false positive rate for filter", e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that elements sharing a fingerprint are counted separately, so each
+	 * add must be matched by a remove before the element reads as absent.
+	 * Test method for {@link util.RobinHoodQuotientFilter#remove(Object)}.
+	 */
+	@Test
+	public void testDuplicateFingerprints() {
+		RobinHoodQuotientFilter<String> filter = new RobinHoodQuotientFilter<String>( 100, 0.01, e -> 42L << 40 );
+		assertTrue ( filter.add( "A" ) );
+		assertTrue ( filter.add( "B" ) );
+		assertTrue ( filter.add( "A" ) );
+		assertEquals ( 3, filter.size() );
+		assertTrue ( filter.mightContain( "C" ) );
+		assertTrue ( filter.remove( "A" ) );
+		assertTrue ( filter.remove( "B" ) );
+		assertTrue ( filter.mightContain( "A" ) );
+		assertTrue ( filter.remove( "A" ) );
+		assertFalse ( filter.mightContain( "A" ) );
+		assertFalse ( filter.remove( "A" ) );
+		assertTrue ( filter.isEmpty() );
+		assertFalse ( filter.add( null ) );
+		assertFalse ( filter.mightContain( null ) );
+	}
+
+	/**
+	 * Tests that a cluster longer than a slot's distance can record makes the
+	 * table double even though its load is low, and that every entry of the
+	 * cluster is still found afterwards.
+	 * Test method for {@link util.RobinHoodQuotientFilter#add(Object)}.
+	 */
+	@Test
+	public void testLongCluster() {
+		RobinHoodQuotientFilter<Long> filter = new RobinHoodQuotientFilter<Long>( 1000, 0.01, e -> (e % 128) << 46 );
+		assertEquals ( 2048, filter.getTableSize() );
+		assertEquals ( 7, filter.getRemainderBits() );
+		for ( long i=0; i<255; i++ )
+			assertTrue ( filter.add( i ) );
+		assertEquals ( 2048, filter.getTableSize() );
+		assertTrue ( filter.add( 255L ) );
+		assertEquals ( 4096, filter.getTableSize() );
+		assertEquals ( 6, filter.getRemainderBits() );
+		for ( long i=0; i<256; i++ )
+			assertTrue ( filter.mightContain( i ) );
+		for ( long i=0; i<256; i+=2 )
+			assertTrue ( filter.remove( i ) );
+		assertEquals ( 128, filter.size() );
+		for ( long i=1; i<128; i+=2 )
+			assertTrue ( filter.mightContain( i ) );
+	}
+
+	/**
+	 * Tests that a filter whose remainder is a single bit fills every slot and then
+	 * refuses further elements, reporting the failure rather than dropping them.
+	 * Test method for {@link util.RobinHoodQuotientFilter#add(Object)}.
+	 */
+	@Test
+	public void testFailedGrowth() {
+		RobinHoodQuotientFilter<Integer> filter = new RobinHoodQuotientFilter<Integer>( 4, 0.5 );
+		assertEquals ( 8, filter.getTableSize() );
+		assertEquals ( 1, filter.getRemainderBits() );
+		int stored = 0;
+		for ( int i=0; i<20; i++ )
+		{
+			if ( filter.add( i ) )
+			{
+				stored++;
+				assertTrue ( filter.mightContain( i ) );
+			}
+			else
+				assertEquals ( 8, filter.size() );
+		}
+		assertEquals ( 8, stored );
+		assertEquals ( 8, filter.getTableSize() );
+
+		RobinHoodQuotientFilter<Integer> other = new RobinHoodQuotientFilter<Integer>( 4, 0.5 );
+		other.add( 100 );
+		assertFalse ( filter.mergeFrom( other ) );
+		filter.clear();
+		assertTrue ( filter.mergeFrom( other ) );
+		assertTrue ( filter.mightContain( 100 ) );
+	}
+
+	/**
+	 * Tests that the table doubles past its load without losing any element, that
+	 * the measured false positive rate stays near the estimate, that filters with
+	 * fingerprints of different lengths cannot be merged, and that a filter cannot
+	 * be merged into itself.
+	 * Test method for {@link util.RobinHoodQuotientFilter#mergeFrom(RobinHoodQuotientFilter)}.
+	 */
+	@Test
+	public void testResizeAndMerge() {
+		RobinHoodQuotientFilter<Integer> numbers = new RobinHoodQuotientFilter<Integer>( 1000, 0.01 );
+		assertEquals ( 2048, numbers.getTableSize() );
+		for ( int i=0; i<4000; i++ )
+			assertTrue ( numbers.add( i ) );
+		assertEquals ( 8192, numbers.getTableSize() );
+		assertEquals ( 5, numbers.getRemainderBits() );
+		for ( int i=0; i<4000; i++ )
+			assertTrue ( numbers.mightContain( i ) );
+		int positives = 0;
+		for ( int i=0; i<100000; i++ )
+			if ( numbers.mightContain( -1 - i ) )
+				positives++;
+		assertTrue ( positives / 100000.0 < 2 * numbers.falsePositiveRate() );
+
+		RobinHoodQuotientFilter<Integer> other = new RobinHoodQuotientFilter<Integer>( 1000, 0.01 );
+		for ( int i=4000; i<4100; i++ )
+			other.add( i );
+		assertTrue ( numbers.mergeFrom( other ) );
+		assertEquals ( 4100, numbers.size() );
+		for ( int i=0; i<4100; i++ )
+			assertTrue ( numbers.mightContain( i ) );
+		try {
+			numbers.mergeFrom( new RobinHoodQuotientFilter<Integer>( 1000, 0.0001 ) );
+			fail ("Cannot merge filters with different fingerprints.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Incompatible filter for merge", e.getMessage());
+		}
+		try {
+			numbers.mergeFrom( numbers );
+			fail ("Cannot merge a filter into itself.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Cannot merge a filter into itself", e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that a filter can be sized for a billion elements, and that a table of
+	 * more than one chunk of distances finds and removes entries in every chunk.
+	 * Test method for {@link util.RobinHoodQuotientFilter#getTableSize()}.
+	 */
+	@Test
+	public void testLargeTable() {
+		assertTrue ( RobinHoodQuotientFilter.MAX_EXPECTED_ELEMENTS > 1000000000 );
+		RobinHoodQuotientFilter<Integer> numbers = new RobinHoodQuotientFilter<Integer>( 20000000, 0.01 );
+		assertEquals ( 1L << 25, numbers.getTableSize() );
+		for ( int i=0; i<100000; i++ )
+			assertTrue ( numbers.add( i ) );
+		for ( int i=0; i<100000; i++ )
+			assertTrue ( numbers.mightContain( i ) );
+		for ( int i=0; i<100000; i++ )
+			assertTrue ( numbers.remove( i ) );
+		assertTrue ( numbers.isEmpty() );
+		assertEquals ( 1L << 25, numbers.getTableSize() );
+	}
+
+}
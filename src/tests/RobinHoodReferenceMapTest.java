@@ -0,0 +1,175 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map.Entry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.RobinHoodReferenceMap;
+
+/**
+ * Performs a series of tests on the RobinHoodReferenceMap using a mapping
+ * from String => Integer.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ */
+public class RobinHoodReferenceMapTest {
+
+	private RobinHoodReferenceMap<String, Integer> mapWeak;
+	private RobinHoodReferenceMap<String, Integer> mapSoft;
+
+	private static final String [] array = { "AB", "AA", "BA", "CA", "LM",
+			 												  "MN", "NM", "KJ", "PO", "RL",
+			 												  "RN", "EM", "ZA", "TO", "WL",
+															  "OL", "XY", "ZY", "YZ",  "ZZ"};
+
+	@Before
+	public void setUp() throws Exception {
+		mapWeak = new RobinHoodReferenceMap<String, Integer>( );
+		mapSoft = new RobinHoodReferenceMap<String, Integer>( array.length, false, true );
+		for ( int i=0; i<array.length; i++ )
+		{
+			mapWeak.put( array[i], i );
+			mapSoft.put( array[i], i );
+		}
+	}
+
+	/**
+	 * Tests the parameterized constructor to ensure that it rejects
+	 * an invalid capacity.
+	 * Test method for {@link util.RobinHoodReferenceMap#RobinHoodReferenceMap(int, boolean, boolean)}.
+	 */
+	@Test
+	public void testRobinHoodReferenceMapInt() {
+		try {
+			new RobinHoodReferenceMap<String, Integer>( -1, true, true );
+			fail ("Cannot instantiate map with negative size.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid capacity for reference map", e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that both modes behave as an ordinary map while their keys and
+	 * values are reachable.
+	 * Test method for {@link util.RobinHoodReferenceMap#put()}.
+	 */
+	@Test
+	public void testPutGetRemove() {
+		for ( RobinHoodReferenceMap<String, Integer> map: Arrays.asList( mapWeak, mapSoft ) )
+		{
+			assertTrue ( map.isFull() );
+			assertNull ( map.put( "Too many", 100 ) );
+			for ( int i=0; i<array.length; i++ )
+				assertEquals ( i, (int) map.get( new String( array[i] ) ) );
+			assertEquals ( 100, (int) map.put( array[0], 100 ) );
+			assertEquals ( 100, (int) map.remove( array[0] ) );
+			assertFalse ( map.containsKey( array[0] ) );
+			assertNull ( map.remove( array[0] ) );
+			assertEquals ( array.length - 1, map.size() );
+			assertNull ( map.get( null ) );
+		}
+	}
+
+	/**
+	 * Tests that entries whose keys are no longer reachable are removed by the
+	 * next write once the garbage collector clears them.
+	 * Test method for {@link util.RobinHoodReferenceMap#size()}.
+	 */
+	@Test
+	public void testWeakKeysReclaimed() throws InterruptedException {
+		RobinHoodReferenceMap<String, Integer> map = new RobinHoodReferenceMap<String, Integer>( 100, true, false );
+		ArrayList<String> kept = new ArrayList<String>();
+		for ( int i=0; i<100; i++ )
+		{
+			String key = new String( "key" + i );
+			if ( i % 2 == 0 )
+				kept.add( key );
+			map.put( key, i );
+		}
+		for ( int tries=0; tries<50 && map.size() > kept.size(); tries++ )
+		{
+			System.gc();
+			Thread.sleep( 10 );
+			map.put( kept.get( 0 ), 0 );
+		}
+		assertEquals ( kept.size(), map.size() );
+		for ( int i=0; i<kept.size(); i++ )
+			assertEquals ( 2 * i, (int) map.get( kept.get( i ) ) );
+		for ( Entry<String, Integer> entry: map.entrySet() )
+			assertEquals ( 0, entry.getValue() % 2 );
+		assertNotNull ( map.put( "new", 1 ) );
+	}
+
+	/**
+	 * Tests that reading the map while iterating over it never invalidates the
+	 * iterator, even after the collector has cleared some of the keys.
+	 * Test method for {@link util.RobinHoodReferenceMap#get(Object)}.
+	 */
+	@Test
+	public void testReadsDuringIteration() throws InterruptedException {
+		RobinHoodReferenceMap<String, Integer> map = new RobinHoodReferenceMap<String, Integer>( 100, true, false );
+		ArrayList<String> kept = new ArrayList<String>();
+		for ( int i=0; i<100; i++ )
+		{
+			String key = new String( "key" + i );
+			if ( i % 2 == 0 )
+				kept.add( key );
+			map.put( key, i );
+		}
+		Iterator<Entry<String, Integer>> iterator = map.entrySet().iterator();
+		WeakReference<Object> collected = new WeakReference<Object>( new Object() );
+		for ( int tries=0; tries<50 && collected.get() != null; tries++ )
+		{
+			System.gc();
+			Thread.sleep( 10 );
+		}
+		Thread.sleep( 50 );
+
+		int visited = 0;
+		while ( iterator.hasNext() )
+		{
+			Entry<String, Integer> entry = iterator.next();
+			visited++;
+			assertEquals ( entry.getValue(), map.get( entry.getKey() ) );
+			assertTrue ( map.containsKey( entry.getKey() ) );
+			assertTrue ( map.size() >= kept.size() );
+			for ( String key: kept )
+				assertNotNull ( map.get( key ) );
+		}
+		assertTrue ( visited >= kept.size() );
+	}
+
+	/**
+	 * Tests that removing through the iterator visits every entry once.
+	 * Test method for {@link util.RobinHoodReferenceMap#entrySet()}.
+	 */
+	@Test
+	public void testIteratorRemove() {
+		Iterator<Entry<String, Integer>> iterator = mapSoft.entrySet().iterator();
+		int visited = 0;
+		while ( iterator.hasNext() )
+		{
+			Entry<String, Integer> entry = iterator.next();
+			visited++;
+			if ( entry.getValue() % 2 == 0 )
+				iterator.remove();
+			else
+				entry.setValue( -1 );
+		}
+		assertEquals ( array.length, visited );
+		assertEquals ( array.length / 2, mapSoft.size() );
+		for ( int value: mapSoft.values() )
+			assertEquals ( -1, value );
+
+		mapSoft.clear();
+		assertEquals ( "RobinHoodReferenceMap:[]", mapSoft.toString() );
+	}
+
+}
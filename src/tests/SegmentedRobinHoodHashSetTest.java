@@ -0,0 +1,141 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.junit.Test;
+
+import util.SegmentedRobinHoodHashSet;
+
+/**
+ * Performs a series of tests on the SegmentedRobinHoodHashSet using chunks of four
+ * slots and hash functions chosen so that clusters cross chunk boundaries and wrap
+ * from the last chunk to the first.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ */
+public class SegmentedRobinHoodHashSetTest {
+
+	/**
+	 * @param set: the set to list
+	 * @return the elements of the set in slot order, from slot 0: String
+	 */
+	private static String slots( SegmentedRobinHoodHashSet<?> set )
+	{
+		StringBuilder s = new StringBuilder();
+		set.forEach( e -> s.append( s.length() == 0 ? "" : " " ).append( e ) );
+		return s.toString();
+	}
+
+	/**
+	 * Tests the parameterized constructor to ensure that it rejects an invalid
+	 * capacity, an invalid chunk size, or a capacity needing too many chunks.
+	 * Test method for {@link util.SegmentedRobinHoodHashSet#SegmentedRobinHoodHashSet(long, int, java.util.function.ToLongFunction)}.
+	 */
+	@Test
+	public void testSegmentedRobinHoodHashSetLong() {
+		try {
+			new SegmentedRobinHoodHashSet<String>( 0 );
+			fail ("Cannot instantiate set with zero capacity.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid capacity for set", e.getMessage());
+		}
+		try {
+			new SegmentedRobinHoodHashSet<String>( 10, 3, String::hashCode );
+			fail ("Cannot instantiate set with a chunk size that is not a power of two.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid chunk size for set", e.getMessage());
+		}
+		try {
+			new SegmentedRobinHoodHashSet<String>( Long.MAX_VALUE, 1, String::hashCode );
+			fail ("Cannot instantiate set with more chunks than an array holds.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid capacity for chunk size", e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests a cluster that starts in the short last chunk and wraps into the first
+	 * two chunks, then is removed from at both ends of the wrap so that the backward
+	 * shift moves elements from the first chunk back into the last.
+	 * Test method for {@link util.SegmentedRobinHoodHashSet#remove(Object)}.
+	 */
+	@Test
+	public void testChunkBoundaryWrap() {
+		SegmentedRobinHoodHashSet<Integer> set = new SegmentedRobinHoodHashSet<Integer>( 10, 4, e -> 8 );
+		for ( int i=0; i<7; i++ )
+			assertTrue ( set.add( i ) );
+		assertEquals ( "2 3 4 5 6 0 1", slots( set ) );
+		assertEquals ( "SegmentedRobinHoodHashSet:[0, 1, 2, 3, 4, 5, 6]", set.toString() );
+		assertTrue ( set.remove( 0 ) );
+		assertEquals ( "3 4 5 6 1 2", slots( set ) );
+		assertTrue ( set.remove( 6 ) );
+		assertFalse ( set.remove( 6 ) );
+		for ( int i=1; i<6; i++ )
+			assertTrue ( set.contains( i ) );
+		assertEquals ( 5L, set.size() );
+
+		for ( int i=6; i<15; i++ )
+			set.add( i );
+		assertTrue ( set.isFull() );
+		assertFalse ( set.add( 99 ) );
+		for ( int i=1; i<11; i++ )
+			assertTrue ( set.contains( i ) );
+		assertFalse ( set.contains( 11 ) );
+	}
+
+	/**
+	 * Tests that hashes above 2^32 and negative hashes are reduced to a slot of a
+	 * table whose capacity is not a multiple of the chunk size.
+	 * Test method for {@link util.SegmentedRobinHoodHashSet#add(Object)}.
+	 */
+	@Test
+	public void testLongHashes() {
+		SegmentedRobinHoodHashSet<Long> set = new SegmentedRobinHoodHashSet<Long>( 13, 4, e -> e );
+		long[] hashes = { Long.MIN_VALUE, -1, Long.MAX_VALUE, 1L << 40, (1L << 40) + 13, 12 };
+		for ( long h: hashes )
+			assertTrue ( set.add( h ) );
+		for ( long h: hashes )
+			assertTrue ( set.contains( h ) );
+		assertEquals ( 6L, set.size() );
+		assertEquals ( 13L, set.capacity() );
+	}
+
+	/**
+	 * Tests that removing through the iterator over a cluster that wraps from the
+	 * last chunk to the first visits every element exactly once.
+	 * Test method for {@link util.SegmentedRobinHoodHashSet#iterator()}.
+	 */
+	@Test
+	public void testIteratorRemoveAcrossWrap() {
+		SegmentedRobinHoodHashSet<Integer> set = new SegmentedRobinHoodHashSet<Integer>( 12, 4, e -> 10 + e % 3 );
+		for ( int i=0; i<10; i++ )
+			set.add( i );
+		Set<Integer> visited = new HashSet<Integer>();
+		Iterator<Integer> iterator = set.iterator();
+		while ( iterator.hasNext() )
+		{
+			int element = iterator.next();
+			assertTrue ( visited.add( element ) );
+			if ( element % 2 == 0 )
+				iterator.remove();
+		}
+		assertEquals ( 10, visited.size() );
+		for ( int i=0; i<10; i++ )
+			assertEquals ( i % 2 == 1, set.contains( i ) );
+		assertEquals ( 5L, set.size() );
+
+		try {
+			set.forEach( e -> set.remove( e ) );
+			fail ("Modifying the set during forEach should fail.");
+		} catch (ConcurrentModificationException e) { }
+		set.clear();
+		assertTrue ( set.isEmpty() );
+		assertFalse ( set.iterator().hasNext() );
+	}
+
+}
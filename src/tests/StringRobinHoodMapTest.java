@@ -0,0 +1,169 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.MapCursor;
+import util.StringRobinHoodMap;
+
+/**
+ * Performs a series of tests on the StringRobinHoodMap using a mapping
+ * from String => Integer.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ */
+public class StringRobinHoodMapTest {
+
+	private StringRobinHoodMap<Integer> mapd;
+
+	private static final String [] array = { "AB", "AA", "BA", "CA", "LM",
+			 												  "MN", "NM", "KJ", "PO", "RL",
+			 												  "RN", "EM", "ZA", "TO", "WL",
+															  "OL", "XY", "ZY", "YZ",  "ZZ"};
+
+	@Before
+	public void setUp() throws Exception {
+		mapd = new StringRobinHoodMap<Integer>( );
+		for ( int i=0; i<array.length; i++ )
+			mapd.put( array[i], i );
+	}
+
+	/**
+	 * Tests the parameterized constructor to ensure that it rejects
+	 * an invalid capacity.
+	 * Test method for {@link util.StringRobinHoodMap#StringRobinHoodMap(int)}.
+	 */
+	@Test
+	public void testStringRobinHoodMapInt() {
+		try {
+			new StringRobinHoodMap<Integer>( -1 );
+			fail ("Cannot instantiate map with negative size.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid capacity for string map", e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that keys are found by any CharSequence with the same characters,
+	 * and that the keys take only their encoded bytes.
+	 * Test method for {@link util.StringRobinHoodMap#get()}.
+	 */
+	@Test
+	public void testGet() {
+		assertTrue ( mapd.isFull() );
+		assertNull ( mapd.put( "Too many", 100 ) );
+		assertEquals ( 2 * array.length, mapd.keyBytes() );
+		StringBuilder builder = new StringBuilder();
+		for ( int i=0; i<array.length; i++ )
+		{
+			assertEquals ( i, (int) mapd.get( array[i] ) );
+			builder.setLength( 0 );
+			builder.append( array[i] );
+			assertEquals ( i, (int) mapd.get( builder ) );
+			assertEquals ( i, (int) mapd.get( java.nio.CharBuffer.wrap( "x" + array[i] + "x", 1, 3 ) ) );
+		}
+		assertNull ( mapd.get( "A" ) );
+		assertNull ( mapd.get( "ABC" ) );
+		assertFalse ( mapd.containsKey( "" ) );
+	}
+
+	/**
+	 * Tests that keys outside ASCII, including supplementary characters and
+	 * unpaired surrogates, are stored and returned exactly.
+	 * Test method for {@link util.StringRobinHoodMap#put()}.
+	 */
+	@Test
+	public void testUnicode() {
+		String[] keys = { "", "caf\u00e9", "\u65e5\u672c", "\ud83d\ude00 smile", "lone \ud800", "\udc00 lone", "caf\u00c9" };
+		StringRobinHoodMap<Integer> map = new StringRobinHoodMap<Integer>( keys.length );
+		for ( int i=0; i<keys.length; i++ )
+			assertEquals ( i, (int) map.put( new StringBuilder( keys[i] ), i ) );
+		for ( int i=0; i<keys.length; i++ )
+			assertEquals ( i, (int) map.get( keys[i] ) );
+		assertNull ( map.get( "lone \ud801" ) );
+		assertNull ( map.get( "cafe" ) );
+		HashMap<String, Integer> copy = new HashMap<String, Integer>();
+		map.forEach( copy::put );
+		assertEquals ( keys.length, copy.size() );
+		for ( int i=0; i<keys.length; i++ )
+			assertEquals ( i, (int) copy.get( keys[i] ) );
+	}
+
+	/**
+	 * Tests that a cursor visits every pair once, decoding keys on demand,
+	 * and can remove pairs as it goes.
+	 * Test method for {@link util.StringRobinHoodMap#cursor()}.
+	 */
+	@Test
+	public void testCursor() {
+		MapCursor<String, Integer> cursor = mapd.cursor();
+		int visited = 0;
+		while ( cursor.advance() )
+		{
+			visited++;
+			if ( cursor.value() % 2 == 0 )
+				cursor.remove();
+			else
+				assertEquals ( array[cursor.value()], cursor.key() );
+		}
+		assertEquals ( array.length, visited );
+		assertEquals ( array.length / 2, mapd.size() );
+		for ( int i=0; i<array.length; i++ )
+			assertEquals ( i % 2 == 1, mapd.containsKey( array[i] ) );
+		try {
+			cursor.key();
+			fail ("Cursor is not positioned on a pair.");
+		} catch (IllegalStateException e) { }
+
+		mapd.clear();
+		assertEquals ( "StringRobinHoodMap:[]", mapd.toString() );
+		mapd.put( "AB", 1 );
+		assertEquals ( "StringRobinHoodMap:[AB=1]", mapd.toString() );
+	}
+
+	/**
+	 * Tests keys of multi-byte characters whose encodings together exceed one arena
+	 * chunk, so that a character runs from one chunk into the next, both before and
+	 * after the arena is compacted.
+	 * Test method for {@link util.StringRobinHoodMap#put(CharSequence, Object)}.
+	 */
+	@Test
+	public void testKeysAcrossChunks() {
+		StringRobinHoodMap<Integer> map = new StringRobinHoodMap<Integer>( 40 );
+		map.put( "xy", -1 );
+		for ( int i=0; i<20; i++ )
+			assertEquals ( i, (int) map.put( bigKey( i ), i ) );
+		assertEquals ( 2 + 20L * (3 * 349525 + 2), map.keyBytes() );
+		for ( int i=0; i<20; i++ )
+			assertEquals ( i, (int) map.get( new StringBuilder( bigKey( i ) ) ) );
+		for ( int i=0; i<16; i++ )
+			assertEquals ( i, (int) map.remove( bigKey( i ) ) );
+		for ( int i=20; i<30; i++ )
+			assertEquals ( i, (int) map.put( bigKey( i ), i ) );
+		assertEquals ( 2 + 14L * (3 * 349525 + 2), map.keyBytes() );
+		assertEquals ( -1, (int) map.get( "xy" ) );
+		MapCursor<String, Integer> cursor = map.cursor();
+		int seen = 0;
+		while ( cursor.advance() )
+		{
+			if ( cursor.value() >= 0 )
+				assertEquals ( bigKey( cursor.value() ), cursor.key() );
+			seen++;
+		}
+		assertEquals ( 15, seen );
+	}
+
+	/**
+	 * @param i: the number of the key
+	 * @return a key of three-byte characters ending in the number: String
+	 */
+	private static String bigKey( int i )
+	{
+		return "\u20ac".repeat( 349525 ) + (char) ('A' + i / 26) + (char) ('A' + i % 26);
+	}
+
+}
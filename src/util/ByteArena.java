@@ -0,0 +1,258 @@
+package util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Holds the bytes of the keys of BytesRobinHoodMap and StringRobinHoodMap. The bytes are
+ * kept in chunks of at most 16 MiB addressed by a long position, so the keys of a map may
+ * take more than the 2 GiB a single array can hold, and a key may run from one chunk into
+ * the next. Every chunk but the last is full size; the last starts small and doubles, so
+ * no memory is taken before the first key is added.
+ *
+ * Removing a key leaves its bytes unused. When more room is needed and at least half of
+ * the bytes in use belong to no key, the arena is compacted instead of grown: the key of
+ * every slot of the map is copied, in slot order, into new chunks and its position updated.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ */
+final class ByteArena {
+
+	/** The number of bits of a position that select the byte within its chunk **/
+	private static final int CHUNK_BITS = 24;
+
+	/** The length of every chunk but the last **/
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+	/** The length of the first chunk **/
+	private static final int MIN_CHUNK = 64;
+
+	/** The chunks holding the bytes **/
+	private byte[][] chunks = new byte[0][];
+
+	/** The first position that has not been used **/
+	private long size = 0;
+
+	/** The number of used positions no longer holding any key **/
+	private long garbage = 0;
+
+	/**
+	 * @param p: a position in the arena
+	 * @return the byte at the position: byte
+	 */
+	byte get(long p)
+	{
+		return chunks[(int) (p >>> CHUNK_BITS)][(int) p & (CHUNK_SIZE - 1)];
+	}
+
+	/**
+	 * @param p: a position in the arena that has been reserved
+	 * @param b: the byte to store at the position
+	 */
+	void set(long p, byte b)
+	{
+		chunks[(int) (p >>> CHUNK_BITS)][(int) p & (CHUNK_SIZE - 1)] = b;
+	}
+
+	/**
+	 * @return the number of bytes holding keys: long
+	 */
+	long used()
+	{
+		return size - garbage;
+	}
+
+	/**
+	 * Marks the bytes of a removed key as unused.
+	 * @param length: the number of bytes in the key
+	 */
+	void release(int length)
+	{
+		garbage += length;
+	}
+
+	/**
+	 * Drops every chunk, so an emptied map holds no key memory.
+	 */
+	void clear()
+	{
+		chunks = new byte[0][];
+		size = 0;
+		garbage = 0;
+	}
+
+	/**
+	 * Reserves room for a key at the end of the arena, compacting the keys of the map
+	 * when at least half of the used bytes are unused, and adding room otherwise. The
+	 * arena is unchanged if the room cannot be allocated.
+	 * @param length: the number of bytes to reserve
+	 * @param offsets: the position of the key of each slot, updated when compacting
+	 * @param lengths: the number of bytes in the key of each slot
+	 * @param values: the value of each slot; null if the slot is empty
+	 * @return the position of the reserved bytes: long
+	 */
+	long reserve(int length, long[] offsets, int[] lengths, Object[] values)
+	{
+		if ( size + length > capacity() && garbage >= size / 2 && garbage > 0 )
+			compact(length, offsets, lengths, values);
+		ensure(size + length);
+		long start = size;
+		size += length;
+		return start;
+	}
+
+	/**
+	 * @return the number of positions in the chunks: long
+	 */
+	private long capacity()
+	{
+		int last = chunks.length - 1;
+		return last < 0 ? 0 : (long) last * CHUNK_SIZE + chunks[last].length;
+	}
+
+	/**
+	 * Adds room until the chunks hold at least the given number of positions, doubling
+	 * the last chunk until it is full size before adding another.
+	 * @param needed: the number of positions wanted
+	 */
+	private void ensure(long needed)
+	{
+		while ( capacity() < needed )
+		{
+			int last = chunks.length - 1;
+			if ( last >= 0 && chunks[last].length < CHUNK_SIZE )
+			{
+				long wanted = Math.max( 2L * chunks[last].length, needed - (long) last * CHUNK_SIZE );
+				chunks[last] = Arrays.copyOf( chunks[last], (int) Math.min( CHUNK_SIZE, wanted ) );
+			}
+			else
+			{
+				long wanted = Math.max( MIN_CHUNK, needed - (long) (last + 1) * CHUNK_SIZE );
+				byte[] chunk = new byte[(int) Math.min( CHUNK_SIZE, wanted )];
+				chunks = Arrays.copyOf( chunks, last + 2 );
+				chunks[last + 1] = chunk;
+			}
+		}
+	}
+
+	/**
+	 * Copies the key of every slot, in slot order, into new chunks with room for
+	 * another key of the given length.
+	 * @param length: the number of bytes about to be reserved
+	 * @param offsets: the position of the key of each slot, updated to its new position
+	 * @param lengths: the number of bytes in the key of each slot
+	 * @param values: the value of each slot; null if the slot is empty
+	 */
+	private void compact(int length, long[] offsets, int[] lengths, Object[] values)
+	{
+		ByteArena packed = new ByteArena();
+		packed.ensure( used() + length );
+		for ( int i=0; i<values.length; i++ )
+		{
+			if ( values[i] == null )
+				continue;
+			long to = packed.size;
+			long from = offsets[i];
+			for ( int done=0; done<lengths[i]; )
+			{
+				byte[] chunk = chunks[(int) (from >>> CHUNK_BITS)];
+				int at = (int) from & (CHUNK_SIZE - 1);
+				int n = Math.min( lengths[i] - done, chunk.length - at );
+				packed.write( to, chunk, at, n );
+				from += n;
+				to += n;
+				done += n;
+			}
+			offsets[i] = packed.size;
+			packed.size = to;
+		}
+		chunks = packed.chunks;
+		size = packed.size;
+		garbage = 0;
+	}
+
+	/**
+	 * Copies bytes from an array into reserved positions of the arena.
+	 * @param p: the first position to write
+	 * @param src: the array holding the bytes
+	 * @param from: the first byte to copy
+	 * @param length: the number of bytes to copy
+	 */
+	void write(long p, byte[] src, int from, int length)
+	{
+		while ( length > 0 )
+		{
+			byte[] chunk = chunks[(int) (p >>> CHUNK_BITS)];
+			int at = (int) p & (CHUNK_SIZE - 1);
+			int n = Math.min( length, chunk.length - at );
+			System.arraycopy( src, from, chunk, at, n );
+			p += n;
+			from += n;
+			length -= n;
+		}
+	}
+
+	/**
+	 * Copies the remaining bytes of a buffer into reserved positions of the arena,
+	 * without changing the position of the buffer.
+	 * @param p: the first position to write
+	 * @param src: the buffer holding the bytes
+	 */
+	void write(long p, ByteBuffer src)
+	{
+		ByteBuffer in = src.duplicate();
+		while ( in.hasRemaining() )
+		{
+			byte[] chunk = chunks[(int) (p >>> CHUNK_BITS)];
+			int at = (int) p & (CHUNK_SIZE - 1);
+			int n = Math.min( in.remaining(), chunk.length - at );
+			in.get( chunk, at, n );
+			p += n;
+		}
+	}
+
+	/**
+	 * Compares bytes of the arena with a range of an array, a chunk at a time, using
+	 * Arrays.equals over ranges, which the runtime vectorizes.
+	 * @param p: the first position to compare
+	 * @param key: the array holding the other bytes
+	 * @param from: the first byte of the range
+	 * @param to: the end of the range (exclusive)
+	 * @return true if the bytes are equal: boolean
+	 */
+	boolean equals(long p, byte[] key, int from, int to)
+	{
+		while ( from < to )
+		{
+			byte[] chunk = chunks[(int) (p >>> CHUNK_BITS)];
+			int at = (int) p & (CHUNK_SIZE - 1);
+			int n = Math.min( to - from, chunk.length - at );
+			if ( !Arrays.equals( chunk, at, at + n, key, from, from + n ) )
+				return false;
+			p += n;
+			from += n;
+		}
+		return true;
+	}
+
+	/**
+	 * @param p: the first position to copy
+	 * @param length: the number of bytes to copy
+	 * @return a new array holding the bytes: byte[]
+	 */
+	byte[] copy(long p, int length)
+	{
+		byte[] bytes = new byte[length];
+		for ( int done=0; done<length; )
+		{
+			byte[] chunk = chunks[(int) (p >>> CHUNK_BITS)];
+			int at = (int) p & (CHUNK_SIZE - 1);
+			int n = Math.min( length - done, chunk.length - at );
+			System.arraycopy( chunk, at, bytes, done, n );
+			p += n;
+			done += n;
+		}
+		return bytes;
+	}
+
+}
@@ -0,0 +1,492 @@
+package util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * Implements a map collection (no duplicate keys) using the robinhood hashing technique
+ * whose keys are sequences of bytes, compared by content. The bytes of every key are
+ * copied into a shared ByteArena, and a slot only records where its key starts in the
+ * arena, how long it is and its hash code. No object is kept per key. The arena is
+ * chunked and addressed by long positions, so the keys together may exceed 2 GiB.
+ *
+ * Keys may be looked up by a byte array, a range of one, or the remaining bytes of a
+ * ByteBuffer, without copying them or decoding them into a String. The probe loop
+ * compares the full hash before comparing any bytes, and compares bytes with
+ * Arrays.equals over ranges, which the runtime vectorizes.
+ *
+ * Removing a key leaves its bytes unused in the arena; the arena is compacted when it
+ * runs out of room and at least half of its used bytes are unused.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ *
+ * @param <V> The value type of the map.
+ */
+public class BytesRobinHoodMap<V> {
+
+	/** The default size of the array is 20 unless overridden by the constructor. **/
+	private static final int DEFAULT_CAPACITY = 20;
+
+	/** The values in each slot; null if the slot is empty **/
+	private Object[] values;
+
+	/** The position in the arena of the key of each slot **/
+	private long[] offsets;
+
+	/** The number of bytes in the key of each slot **/
+	private int[] lengths;
+
+	/** The hash code of the key of each slot **/
+	private int[] hashes;
+
+	/** The offset distance of each slot from the hashed slot of its key **/
+	private int[] distances;
+
+	/** The bytes of the keys **/
+	private final ByteArena arena = new ByteArena();
+
+	/** The number of elements in the map **/
+	private int size = 0;
+
+	/** The number of structural modifications, used to detect concurrent modification **/
+	private int modCount = 0;
+
+	/**
+	 * Instantiates the BytesRobinHoodMap with a small number of storage locations
+	 * by default. Should only be used for testing purposes or when only a small map is needed.
+	 */
+	public BytesRobinHoodMap( )
+	{
+		this( DEFAULT_CAPACITY );
+	}
+
+	/**
+	 * Instantiates the BytesRobinHoodMap with the given capacity. The arena takes
+	 * no memory until the first key is put, and grows as needed.
+	 * @param capacity: the maximum capacity of the map.
+	 */
+	public BytesRobinHoodMap( int capacity )
+	{
+		if ( capacity <= 0 ) throw new IllegalArgumentException("Invalid capacity for bytes map");
+		this.values = new Object[capacity];
+		this.offsets = new long[capacity];
+		this.lengths = new int[capacity];
+		this.hashes = new int[capacity];
+		this.distances = new int[capacity];
+	}
+
+	/**
+	 * Produces the hash code of a range of bytes, as Arrays.hashCode would for a copy of the range.
+	 * @param key: the array holding the bytes
+	 * @param from: the first byte of the range
+	 * @param to: the end of the range (exclusive)
+	 * @return the hash code: int
+	 */
+	private static int hash(byte[] key, int from, int to)
+	{
+		int h = 1;
+		for ( int i=from; i<to; i++ )
+			h = 31 * h + key[i];
+		return h;
+	}
+
+	/**
+	 * Produces the hash code of the remaining bytes of a buffer, as Arrays.hashCode would for a copy of them.
+	 * @param key: the buffer
+	 * @return the hash code: int
+	 */
+	private static int hash(ByteBuffer key)
+	{
+		if ( key.hasArray() )
+			return hash(key.array(), key.arrayOffset() + key.position(), key.arrayOffset() + key.limit());
+		int h = 1;
+		for ( int i=key.position(); i<key.limit(); i++ )
+			h = 31 * h + key.get(i);
+		return h;
+	}
+
+	/**
+	 * @param h: the hash code of a key
+	 * @return the hashed slot of the key: int
+	 */
+	private int slot(int h)
+	{
+		return (h & 0x7fffffff) % values.length;
+	}
+
+	/**
+	 * Locates the key held in a range of an array using a single probe sequence
+	 * starting from its hashed slot.
+	 * @param key: the array holding the key
+	 * @param from: the first byte of the key
+	 * @param to: the end of the key (exclusive)
+	 * @param h: the hash code of the key
+	 * @return the index of the key if present, otherwise -(insertion point + 1): int
+	 */
+	private int find(byte[] key, int from, int to, int h)
+	{
+		int idx = slot(h);
+		int length = to - from;
+		for ( int offset=0; offset<values.length; offset++)
+		{
+			int i = (idx + offset) % values.length;
+			if ( values[i] == null || distances[i] < offset )
+				return -(i+1);
+			if ( hashes[i] == h && lengths[i] == length && arena.equals(offsets[i], key, from, to) )
+				return i;
+		}
+		return -(idx+1);
+	}
+
+	/**
+	 * Locates the key held in the remaining bytes of a buffer using a single probe
+	 * sequence starting from its hashed slot. A buffer backed by an array is compared
+	 * as a range of that array; any other buffer is compared byte by byte with
+	 * absolute reads, so its position is not changed.
+	 * @param key: the buffer holding the key
+	 * @param h: the hash code of the key
+	 * @return the index of the key if present, otherwise -(insertion point + 1): int
+	 */
+	private int find(ByteBuffer key, int h)
+	{
+		if ( key.hasArray() )
+			return find(key.array(), key.arrayOffset() + key.position(), key.arrayOffset() + key.limit(), h);
+		int idx = slot(h);
+		int length = key.remaining();
+		for ( int offset=0; offset<values.length; offset++)
+		{
+			int i = (idx + offset) % values.length;
+			if ( values[i] == null || distances[i] < offset )
+				return -(i+1);
+			if ( hashes[i] == h && lengths[i] == length && matches(i, key) )
+				return i;
+		}
+		return -(idx+1);
+	}
+
+	/**
+	 * @param i: a slot in use
+	 * @param key: a buffer whose remaining bytes are as many as the key of the slot
+	 * @return true if the key of the slot equals the remaining bytes of the buffer: boolean
+	 */
+	private boolean matches(int i, ByteBuffer key)
+	{
+		long start = offsets[i];
+		int position = key.position();
+		for ( int j=0; j<lengths[i]; j++ )
+			if ( arena.get(start + j) != key.get(position + j) )
+				return false;
+		return true;
+	}
+
+	/**
+	 * @return the number of elements in the map: int
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if the map holds no elements: boolean
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns true if this map is at capacity and cannot accept any new
+	 * elements.
+	 * @return true if the map is full: boolean
+	 */
+	public boolean isFull() {
+		return size == values.length;
+	}
+
+	/**
+	 * @param key: the key to look for
+	 * @return true if the key is present: boolean
+	 */
+	public boolean containsKey(byte[] key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * @param key: the buffer whose remaining bytes are the key to look for
+	 * @return true if the key is present: boolean
+	 */
+	public boolean containsKey(ByteBuffer key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * @param key: the key to look up
+	 * @return the value, or null if the key is absent: V
+	 */
+	public V get(byte[] key) {
+		if ( key == null ) return null;
+		return get(key, 0, key.length);
+	}
+
+	/**
+	 * Returns the value for the key held in a range of an array, without copying the range.
+	 * @param key: the array holding the key
+	 * @param offset: the first byte of the key
+	 * @param length: the number of bytes in the key
+	 * @return the value, or null if the key is absent: V
+	 * @throws IndexOutOfBoundsException if the range is not within the array
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(byte[] key, int offset, int length) {
+		if ( key == null ) return null;
+		Objects.checkFromIndexSize(offset, length, key.length);
+		if ( size == 0 ) return null;
+		int i = find(key, offset, offset + length, hash(key, offset, offset + length));
+		return i < 0 ? null : (V) values[i];
+	}
+
+	/**
+	 * Returns the value for the key held in the remaining bytes of the buffer, without
+	 * copying them. The position of the buffer is not changed.
+	 * @param key: the buffer holding the key
+	 * @return the value, or null if the key is absent: V
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(ByteBuffer key) {
+		if ( size == 0 || key == null ) return null;
+		int i = find(key, hash(key));
+		return i < 0 ? null : (V) values[i];
+	}
+
+	/**
+	 * Associates the value with the key. The bytes of a new key are copied into the arena,
+	 * so the array may be reused afterwards.
+	 * @param key: the key
+	 * @param value: the value
+	 * @return the value, or null if the key or value is null or the map is full: V
+	 */
+	public V put(byte[] key, V value) {
+		if ( key == null ) return null;
+		return put(key, 0, key.length, value);
+	}
+
+	/**
+	 * Associates the value with the key held in a range of an array.
+	 * @param key: the array holding the key
+	 * @param offset: the first byte of the key
+	 * @param length: the number of bytes in the key
+	 * @param value: the value
+	 * @return the value, or null if the key or value is null or the map is full: V
+	 * @throws IndexOutOfBoundsException if the range is not within the array
+	 */
+	public V put(byte[] key, int offset, int length, V value) {
+		if ( key == null || value == null )
+		{
+			return null;
+		}
+		Objects.checkFromIndexSize(offset, length, key.length);
+
+		int h = hash(key, offset, offset + length);
+		int i = find(key, offset, offset + length, h);
+		if ( i >= 0 )
+		{
+			values[i] = value;
+			return value;
+		}
+		if ( size == values.length )
+		{
+			return null;
+		}
+		long start = arena.reserve(length, offsets, lengths, values);
+		arena.write(start, key, offset, length);
+		insertAt(-i-1, value, start, length, h);
+		return value;
+	}
+
+	/**
+	 * Associates the value with the key held in the remaining bytes of the buffer.
+	 * The position of the buffer is not changed.
+	 * @param key: the buffer holding the key
+	 * @param value: the value
+	 * @return the value, or null if the key or value is null or the map is full: V
+	 */
+	public V put(ByteBuffer key, V value) {
+		if ( key == null || value == null )
+		{
+			return null;
+		}
+
+		int h = hash(key);
+		int i = find(key, h);
+		if ( i >= 0 )
+		{
+			values[i] = value;
+			return value;
+		}
+		if ( size == values.length )
+		{
+			return null;
+		}
+		int length = key.remaining();
+		long start = arena.reserve(length, offsets, lengths, values);
+		arena.write(start, key);
+		insertAt(-i-1, value, start, length, h);
+		return value;
+	}
+
+	/**
+	 * Removes the key from the map.
+	 * @param key: the key to remove
+	 * @return the value that was mapped to the key, or null if absent: V
+	 */
+	public V remove(byte[] key) {
+		if ( size == 0 || key == null ) return null;
+		return removeFound(find(key, 0, key.length, hash(key, 0, key.length)));
+	}
+
+	/**
+	 * Removes the key held in the remaining bytes of the buffer from the map.
+	 * @param key: the buffer holding the key
+	 * @return the value that was mapped to the key, or null if absent: V
+	 */
+	public V remove(ByteBuffer key) {
+		if ( size == 0 || key == null ) return null;
+		return removeFound(find(key, hash(key)));
+	}
+
+	/**
+	 * Removes every key from the map.
+	 */
+	public void clear() {
+		Arrays.fill(values, null);
+		arena.clear();
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * Passes every key-value pair to the given action. Each key is passed as a new
+	 * array holding a copy of its bytes.
+	 * @param action: the action to perform on each pair
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEach(BiConsumer<byte[], ? super V> action) {
+		int expectedModCount = modCount;
+		for ( int i=0; i<values.length; i++ )
+		{
+			if ( values[i] == null )
+				continue;
+			action.accept( arena.copy(offsets[i], lengths[i]), (V) values[i] );
+			if ( modCount != expectedModCount )
+				throw new ConcurrentModificationException();
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder s = new StringBuilder("BytesRobinHoodMap:[" );
+		int n=0;
+		for ( int i=0; i<values.length; i++ )
+		{
+			if ( values[i] == null )
+				continue;
+			if ( n++ > 0 )
+			{
+				s.append( ", " );
+			}
+			s.append( Arrays.toString( arena.copy(offsets[i], lengths[i]) ) );
+			s.append( "=" ).append( values[i] );
+		}
+		s.append( "]" );
+		return  s.toString();
+	}
+
+	/**
+	 * Removes the entry found by a previous probe, if any.
+	 * @param i: the result of find
+	 * @return the value of the entry, or null if none was found: V
+	 */
+	@SuppressWarnings("unchecked")
+	private V removeFound(int i)
+	{
+		if ( i < 0 )
+			return null;
+		V value = (V) values[i];
+		removeAt(i);
+		return value;
+	}
+
+	/**
+	 * Adds a new entry at the insertion point found by a previous probe, displacing
+	 * any entry that is closer to its hashed slot. The key's bytes are already in the arena.
+	 * @param i: the insertion point
+	 * @param value: the value to add
+	 * @param start: the position of the key in the arena
+	 * @param length: the number of bytes in the key
+	 * @param h: the hash code of the key
+	 */
+	private void insertAt(int i, Object value, long start, int length, int h)
+	{
+		int distance = (i - slot(h) + values.length) % values.length;
+		while ( values[i] != null )
+		{
+			if ( distances[i] < distance )
+			{
+				Object displacedValue = values[i];
+				long displacedStart = offsets[i];
+				int displacedLength = lengths[i];
+				int displacedHash = hashes[i];
+				int displacedDistance = distances[i];
+				values[i] = value;
+				offsets[i] = start;
+				lengths[i] = length;
+				hashes[i] = h;
+				distances[i] = distance;
+				value = displacedValue;
+				start = displacedStart;
+				length = displacedLength;
+				h = displacedHash;
+				distance = displacedDistance;
+			}
+			i = (i + 1) % values.length;
+			distance++;
+		}
+		values[i] = value;
+		offsets[i] = start;
+		lengths[i] = length;
+		hashes[i] = h;
+		distances[i] = distance;
+		size++;
+		modCount++;
+	}
+
+	/**
+	 * Removes the entry in the given slot, shifting each subsequent entry
+	 * that is away from its hashed slot back by one position. The bytes of
+	 * its key become unused.
+	 * @param i: the slot to empty
+	 */
+	private void removeAt(int i)
+	{
+		arena.release(lengths[i]);
+		int j = (i + 1) % values.length;
+		while ( values[j] != null && distances[j] > 0 )
+		{
+			values[i] = values[j];
+			offsets[i] = offsets[j];
+			lengths[i] = lengths[j];
+			hashes[i] = hashes[j];
+			distances[i] = distances[j] - 1;
+			i = j;
+			j = (i + 1) % values.length;
+		}
+		values[i] = null;
+		distances[i] = 0;
+		size--;
+		modCount++;
+	}
+
+}
@@ -0,0 +1,145 @@
+package util;
+
+/**
+ * A RobinHoodInterner that may be used by several threads at once. The values are spread
+ * over a number of segments by the high bits of their hash code, and each segment is an
+ * interner of its own guarded by its own lock, so threads interning different values
+ * rarely wait on each other. Two equal values always go to the same segment, so there is
+ * still a single canonical instance of each value.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ *
+ * @param <T> The type of the interned objects.
+ */
+public class ConcurrentRobinHoodInterner<T> {
+
+	/** The default number of segments **/
+	private static final int DEFAULT_SEGMENTS = 16;
+
+	/** The segments, each guarded by its own lock **/
+	private final RobinHoodInterner<T>[] segments;
+
+	/** The number of bits of the hash that select a segment **/
+	private final int shift;
+
+	/**
+	 * Instantiates the ConcurrentRobinHoodInterner with the given capacity, divided
+	 * evenly over the default number of segments.
+	 * @param capacity: the maximum number of canonical instances.
+	 * @param weak: true to hold the instances through weak references
+	 */
+	public ConcurrentRobinHoodInterner( int capacity, boolean weak )
+	{
+		this( capacity, weak, DEFAULT_SEGMENTS );
+	}
+
+	/**
+	 * Instantiates the ConcurrentRobinHoodInterner with the given capacity, divided
+	 * evenly over the given number of segments.
+	 * @param capacity: the maximum number of canonical instances.
+	 * @param weak: true to hold the instances through weak references
+	 * @param concurrency: the number of segments, rounded up to a power of two
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentRobinHoodInterner( int capacity, boolean weak, int concurrency )
+	{
+		if ( capacity <= 0 ) throw new IllegalArgumentException("Invalid capacity for interner");
+		if ( concurrency <= 0 ) throw new IllegalArgumentException("Invalid concurrency for interner");
+		int n = 1;
+		while ( n < concurrency && n < capacity && n < (1 << 16) )
+			n <<= 1;
+		this.shift = 32 - Integer.numberOfTrailingZeros(n);
+		this.segments = (RobinHoodInterner<T>[]) new RobinHoodInterner<?>[n];
+		for ( int i=0; i<n; i++ )
+			segments[i] = new RobinHoodInterner<T>( (capacity + n - 1) / n, weak );
+	}
+
+	/**
+	 * Selects the segment of a value from the high bits of its mixed hash code, leaving
+	 * the low bits to place the value within the segment.
+	 * @param h: the hash code of the value
+	 * @return the segment: RobinHoodInterner
+	 */
+	private RobinHoodInterner<T> segment(int h)
+	{
+		return shift == 32 ? segments[0] : segments[(h * 0x9e3779b9) >>> shift];
+	}
+
+	/**
+	 * Returns the canonical instance equal to the candidate. If there is none, the
+	 * candidate becomes the canonical instance, unless its segment is full.
+	 * @param candidate: the instance to intern
+	 * @return the canonical instance, or the candidate if it is new or the segment is full: T
+	 */
+	public T intern(T candidate) {
+		if ( candidate == null ) return null;
+		int h = candidate.hashCode();
+		RobinHoodInterner<T> segment = segment(h);
+		synchronized ( segment )
+		{
+			return segment.intern(candidate, h, RobinHoodInterner.self());
+		}
+	}
+
+	/**
+	 * Returns the canonical instance of the value the source creates. The value is only
+	 * created if there is no canonical instance, in which case it becomes the canonical
+	 * instance unless its segment is full.
+	 * @param source: the source of the value
+	 * @param lookup: describes how the source hashes, compares and creates the value
+	 * @return the canonical instance, or the new value: T
+	 */
+	public <S> T intern(S source, RobinHoodInterner.Lookup<S, T> lookup) {
+		if ( source == null ) return null;
+		int h = lookup.hash(source);
+		RobinHoodInterner<T> segment = segment(h);
+		synchronized ( segment )
+		{
+			return segment.intern(source, h, lookup);
+		}
+	}
+
+	/**
+	 * @param value: the value to look for
+	 * @return true if an instance equal to the value is interned: boolean
+	 */
+	public boolean contains(T value) {
+		if ( value == null ) return false;
+		RobinHoodInterner<T> segment = segment(value.hashCode());
+		synchronized ( segment )
+		{
+			return segment.contains(value);
+		}
+	}
+
+	/**
+	 * Returns the number of canonical instances. Values interned by other threads
+	 * while the segments are counted may or may not be included.
+	 * @return the number of instances: int
+	 */
+	public int size() {
+		int size = 0;
+		for ( RobinHoodInterner<T> segment : segments )
+		{
+			synchronized ( segment )
+			{
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Removes every canonical instance, one segment at a time.
+	 */
+	public void clear() {
+		for ( RobinHoodInterner<T> segment : segments )
+		{
+			synchronized ( segment )
+			{
+				segment.clear();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,140 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * The parts of RobinHoodCounter and LongLongCounter that do not depend on the type
+ * of their keys: choosing the slots with the highest counts, and combining many
+ * counters in parallel.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ */
+final class Counters {
+
+	/** The largest number of slots a counter grows to, the largest array the runtime allows **/
+	static final int MAX_SLOTS = Integer.MAX_VALUE - 8;
+
+	private Counters( ) { }
+
+	/**
+	 * @param length: the number of slots of a table
+	 * @return the number of slots to grow it to, twice as many up to MAX_SLOTS: int
+	 */
+	static int grow(int length)
+	{
+		return (int) Math.min( MAX_SLOTS, 2L * length );
+	}
+
+	/**
+	 * Returns the slots with the highest counts, highest first. The slot array is
+	 * scanned once, keeping the best k slots in a heap whose root is the lowest of them.
+	 * @param counts: the count of each slot
+	 * @param occupied: tells whether a slot holds a key
+	 * @param size: the number of slots holding a key
+	 * @param k: the number of slots to return
+	 * @return up to k slots, ordered by decreasing count: int[]
+	 */
+	static int[] topSlots(long[] counts, IntPredicate occupied, int size, int k)
+	{
+		if ( k < 0 ) throw new IllegalArgumentException("Invalid k for topK");
+		int[] heap = new int[Math.min(k, size)];
+		int n = 0;
+		for ( int i=0; i<counts.length && heap.length > 0; i++ )
+		{
+			if ( !occupied.test(i) )
+				continue;
+			if ( n < heap.length )
+			{
+				heap[n] = i;
+				siftUp(counts, heap, n++);
+			}
+			else if ( counts[i] > counts[heap[0]] )
+			{
+				heap[0] = i;
+				siftDown(counts, heap, n);
+			}
+		}
+		int[] top = new int[n];
+		while ( n > 0 )
+		{
+			top[--n] = heap[0];
+			heap[0] = heap[n];
+			siftDown(counts, heap, n);
+		}
+		return top;
+	}
+
+	/**
+	 * Moves a slot up the heap until its parent has no higher count.
+	 * @param counts: the count of each slot
+	 * @param heap: the slots of the heap
+	 * @param c: the position of the slot in the heap
+	 */
+	private static void siftUp(long[] counts, int[] heap, int c)
+	{
+		int slot = heap[c];
+		while ( c > 0 && counts[heap[(c - 1) / 2]] > counts[slot] )
+		{
+			heap[c] = heap[(c - 1) / 2];
+			c = (c - 1) / 2;
+		}
+		heap[c] = slot;
+	}
+
+	/**
+	 * Moves the root of the heap down until neither child has a lower count.
+	 * @param counts: the count of each slot
+	 * @param heap: the slots of the heap
+	 * @param n: the number of slots in the heap
+	 */
+	private static void siftDown(long[] counts, int[] heap, int n)
+	{
+		int slot = heap[0];
+		int p = 0;
+		while ( 2 * p + 1 < n )
+		{
+			int c = 2 * p + 1;
+			if ( c + 1 < n && counts[heap[c + 1]] < counts[heap[c]] )
+				c++;
+			if ( counts[heap[c]] >= counts[slot] )
+				break;
+			heap[p] = heap[c];
+			p = c;
+		}
+		heap[p] = slot;
+	}
+
+	/**
+	 * Combines counters by merging them in pairs in parallel, then the results in
+	 * pairs, until one counter remains. Each pair is merged into its first counter.
+	 * @param counters: the counters to combine
+	 * @param merge: merges its second counter into its first
+	 * @param empty: produces the result when there are no counters
+	 * @return the counter holding the sum of the counts: C
+	 */
+	static <C> C mergeAll(List<C> counters, BiConsumer<C, C> merge, Supplier<C> empty)
+	{
+		List<C> round = new ArrayList<C>(counters);
+		if ( round.isEmpty() )
+			return empty.get();
+		while ( round.size() > 1 )
+		{
+			List<C> current = round;
+			int pairs = current.size() / 2;
+			IntStream.range(0, pairs).parallel()
+				.forEach( p -> merge.accept( current.get(2 * p), current.get(2 * p + 1) ) );
+			round = new ArrayList<C>();
+			for ( int p=0; p<pairs; p++ )
+				round.add( current.get(2 * p) );
+			if ( current.size() % 2 == 1 )
+				round.add( current.get(current.size() - 1) );
+		}
+		return round.get(0);
+	}
+
+}
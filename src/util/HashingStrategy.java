@@ -0,0 +1,75 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Defines how the keys of a map, or the elements of a set, are hashed and compared, in
+ * place of their own hashCode and equals. A strategy lets a table be keyed by a type whose
+ * own equality is unsuitable, such as a byte[], a string compared without case, or a
+ * subset of an object's fields, without wrapping every key in an object that provides
+ * the wanted equality.
+ *
+ * The two methods must agree: keys that are equal under the strategy must have the same
+ * hash. A lookup may pass an object of another type, which makes the call throw a
+ * ClassCastException; RobinHoodHashMap and RobinHoodHashSet catch it and report such a
+ * key as absent, whether the strategy is one of the built-in ones or not.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ *
+ * @param <K> The key type the strategy applies to.
+ */
+public interface HashingStrategy<K> {
+
+	/**
+	 * @param key: the key to hash, which is never null
+	 * @return the hash code of the key under this strategy: int
+	 */
+	int hash(K key);
+
+	/**
+	 * @param a: a key held by the table, which is never null
+	 * @param b: the key being looked up, which is never null
+	 * @return true if the keys are equal under this strategy: boolean
+	 */
+	boolean equals(K a, K b);
+
+	/**
+	 * @return a strategy comparing byte arrays by their contents: HashingStrategy
+	 */
+	static HashingStrategy<byte[]> byteArrays()
+	{
+		return new HashingStrategy<byte[]>() {
+			@Override
+			public int hash(byte[] key) {
+				return Arrays.hashCode(key);
+			}
+
+			@Override
+			public boolean equals(byte[] a, byte[] b) {
+				return Arrays.equals(a, b);
+			}
+		};
+	}
+
+	/**
+	 * @return a strategy comparing strings without regard to case, as equalsIgnoreCase does: HashingStrategy
+	 */
+	static HashingStrategy<String> caseInsensitive()
+	{
+		return new HashingStrategy<String>() {
+			@Override
+			public int hash(String key) {
+				int h = 0;
+				for ( int i=0; i<key.length(); i++ )
+					h = 31 * h + Character.toLowerCase(Character.toUpperCase(key.charAt(i)));
+				return h;
+			}
+
+			@Override
+			public boolean equals(String a, String b) {
+				return a.equalsIgnoreCase(b);
+			}
+		};
+	}
+
+}
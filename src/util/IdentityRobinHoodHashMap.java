@@ -0,0 +1,493 @@
+package util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Implements a map collection (no duplicate keys) using the robinhood hashing technique
+ * in which keys are compared by reference rather than by equals, and hashed with
+ * System.identityHashCode rather than hashCode. Two keys are the same key only if they
+ * are the same object, which is what a visited set needs when walking an object graph:
+ * the probe loop never calls a method on a key, however deep or mutable the key is.
+ *
+ * Keys and values are stored side by side in a single array, the key of slot i at 2i and
+ * its value at 2i+1, so the value of a key found by a probe is on the same cache line.
+ * Values are also compared by reference, and so are the maps and entries themselves:
+ * equals and hashCode use reference equality and System.identityHashCode, as in
+ * IdentityHashMap, rather than the equals and hashCode of the keys and values.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ *
+ * @param <K> The key type of the map.
+ * @param <V> The value type of the map.
+ */
+public class IdentityRobinHoodHashMap<K, V> extends AbstractMap<K, V> {
+
+	/** The default size of the array is 20 unless overridden by the constructor. **/
+	private static final int DEFAULT_CAPACITY = 20;
+
+	/** The key of each slot at even positions and its value at the following odd position; the key is null if the slot is empty **/
+	private Object[] table;
+
+	/** The offset distance of each slot from the hashed slot of its key **/
+	private int[] distances;
+
+	/** The number of slots **/
+	private final int capacity;
+
+	/** The number of elements in the map **/
+	private int size = 0;
+
+	/** The number of structural modifications, used to detect concurrent modification **/
+	private int modCount = 0;
+
+	/** The internal representation of the entry set for this map **/
+	private IdentityEntrySet entrySet;
+
+	/**
+	 * Instantiates the IdentityRobinHoodHashMap with a small number of storage locations
+	 * by default. Should only be used for testing purposes or when only a small map is needed.
+	 */
+	public IdentityRobinHoodHashMap( )
+	{
+		this( DEFAULT_CAPACITY );
+	}
+
+	/**
+	 * Instantiates the IdentityRobinHoodHashMap with the given capacity.
+	 * @param capacity: the maximum capacity of the map.
+	 */
+	public IdentityRobinHoodHashMap( int capacity )
+	{
+		if ( capacity <= 0 || capacity > Integer.MAX_VALUE / 2 ) throw new IllegalArgumentException("Invalid capacity for identity map");
+		this.capacity = capacity;
+		this.table = new Object[2 * capacity];
+		this.distances = new int[capacity];
+	}
+
+	/**
+	 * Produces the hash value of the key from its identity
+	 * @param key: the key
+	 * @return the hashed value: int
+	 */
+	private int hash(Object key)
+	{
+		return (System.identityHashCode(key) & 0x7fffffff) % capacity;
+	}
+
+	/**
+	 * Locates the given key using a single probe sequence starting from its hashed slot.
+	 * @param key: the key to locate
+	 * @return the index of the key if present, otherwise -(insertion point + 1): int
+	 */
+	private int find(Object key)
+	{
+		int idx = hash(key);
+		for ( int offset=0; offset<capacity; offset++)
+		{
+			int i = (idx + offset) % capacity;
+			Object k = table[2 * i];
+			if ( k == null || distances[i] < offset )
+				return -(i+1);
+			if ( k == key )
+				return i;
+		}
+		return -(idx+1);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns true if this map is at capacity and cannot accept any new
+	 * elements.
+	 * @return true if the map is full: boolean
+	 */
+	public boolean isFull() {
+		return size == capacity;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		if ( size == 0 || key == null ) return false;
+		return find(key) >= 0;
+	}
+
+	/**
+	 * Returns true if the given object is a value of the map, comparing by reference.
+	 * @param value: the value to look for
+	 * @return true if the value is present: boolean
+	 */
+	@Override
+	public boolean containsValue(Object value) {
+		if ( size == 0 || value == null ) return false;
+		for ( int i=0; i<capacity; i++ )
+			if ( table[2 * i] != null && table[2 * i + 1] == value )
+				return true;
+		return false;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V get(Object key) {
+		if ( size == 0 || key == null ) return null;
+		int i = find(key);
+		return i < 0 ? null : (V) table[2 * i + 1];
+	}
+
+	/**
+	 * Associates the value with the key.
+	 * @param key: the key
+	 * @param value: the value
+	 * @return the value, or null if the key or value is null or the map is full: V
+	 */
+	@Override
+	public V put(K key, V value) {
+		if ( key == null || value == null )
+		{
+			return null;
+		}
+
+		int i = find(key);
+		if ( i >= 0 )
+		{
+			table[2 * i + 1] = value;
+			return value;
+		}
+		if ( size == capacity )
+		{
+			return null;
+		}
+		insertAt(-i-1, key, value);
+		return value;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V remove(Object key) {
+		if ( size == 0 || key == null ) return null;
+		int i = find(key);
+		if ( i < 0 )
+			return null;
+		V value = (V) table[2 * i + 1];
+		removeAt(i);
+		return value;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(table, null);
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * Passes every key-value pair to the given action without producing
+	 * an object for each pair.
+	 * @param action: the action to perform on each pair
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public void forEach(BiConsumer<? super K, ? super V> action) {
+		int expectedModCount = modCount;
+		for ( int i=0; i<capacity; i++ )
+		{
+			if ( table[2 * i] == null )
+				continue;
+			action.accept( (K) table[2 * i], (V) table[2 * i + 1] );
+			if ( modCount != expectedModCount )
+				throw new ConcurrentModificationException();
+		}
+	}
+
+	@Override
+	public Set<Entry<K, V>> entrySet() {
+		if ( entrySet == null )
+			entrySet = new IdentityEntrySet();
+		return entrySet;
+	}
+
+	/**
+	 * Compares this map with another by reference equality. Another identity map is
+	 * equal if it holds the same key objects mapped to the same value objects; any other
+	 * map is compared as by AbstractMap.
+	 * @param object: the object to compare with
+	 * @return true if the object is an equal map: boolean
+	 */
+	@Override
+	public boolean equals(Object object) {
+		if ( object == this )
+			return true;
+		if ( !(object instanceof IdentityRobinHoodHashMap) )
+			return super.equals(object);
+		IdentityRobinHoodHashMap<?, ?> other = (IdentityRobinHoodHashMap<?, ?>) object;
+		if ( other.size != size )
+			return false;
+		for ( int i=0; i<capacity; i++ )
+		{
+			Object key = table[2 * i];
+			if ( key == null )
+				continue;
+			int j = other.size == 0 ? -1 : other.find(key);
+			if ( j < 0 || other.table[2 * j + 1] != table[2 * i + 1] )
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the sum of the identity hash codes of the entries: int
+	 */
+	@Override
+	public int hashCode() {
+		int h = 0;
+		for ( int i=0; i<capacity; i++ )
+			if ( table[2 * i] != null )
+				h += System.identityHashCode(table[2 * i]) ^ System.identityHashCode(table[2 * i + 1]);
+		return h;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder s = new StringBuilder("IdentityRobinHoodHashMap:[" );
+		int n=0;
+		for ( int i=0; i<capacity; i++ )
+		{
+			if ( table[2 * i] == null )
+				continue;
+			if ( n++ > 0 )
+			{
+				s.append( ", " );
+			}
+			s.append( table[2 * i] ).append( "=" ).append( table[2 * i + 1] );
+		}
+		s.append( "]" );
+		return  s.toString();
+	}
+
+	/**
+	 * Adds a new key-value pair at the insertion point found by a previous probe,
+	 * displacing any entry that is closer to its hashed slot.
+	 * @param i: the insertion point
+	 * @param key: the key to add
+	 * @param value: the value to add
+	 */
+	private void insertAt(int i, Object key, Object value)
+	{
+		int distance = (i - hash(key) + capacity) % capacity;
+		while ( table[2 * i] != null )
+		{
+			if ( distances[i] < distance )
+			{
+				Object displacedKey = table[2 * i];
+				Object displacedValue = table[2 * i + 1];
+				int displacedDistance = distances[i];
+				table[2 * i] = key;
+				table[2 * i + 1] = value;
+				distances[i] = distance;
+				key = displacedKey;
+				value = displacedValue;
+				distance = displacedDistance;
+			}
+			i = (i + 1) % capacity;
+			distance++;
+		}
+		table[2 * i] = key;
+		table[2 * i + 1] = value;
+		distances[i] = distance;
+		size++;
+		modCount++;
+	}
+
+	/**
+	 * Removes the entry in the given slot, shifting each subsequent entry
+	 * that is away from its hashed slot back by one position.
+	 * @param i: the slot to empty
+	 */
+	private void removeAt(int i)
+	{
+		int j = (i + 1) % capacity;
+		while ( table[2 * j] != null && distances[j] > 0 )
+		{
+			table[2 * i] = table[2 * j];
+			table[2 * i + 1] = table[2 * j + 1];
+			distances[i] = distances[j] - 1;
+			i = j;
+			j = (i + 1) % capacity;
+		}
+		table[2 * i] = null;
+		table[2 * i + 1] = null;
+		distances[i] = 0;
+		size--;
+		modCount++;
+	}
+
+	/**
+	 * A key-value pair of the map. The value is written through to the map, and the
+	 * pair is compared and hashed by the identity of its key and value.
+	 */
+	private class IdentityEntry extends SimpleEntry<K, V>
+	{
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * @param key: the key of the pair
+		 * @param value: the value of the pair
+		 */
+		IdentityEntry(K key, V value)
+		{
+			super(key, value);
+		}
+
+		@Override
+		public V setValue(V value) {
+			if ( value == null )
+				throw new IllegalArgumentException();
+			int i = find(getKey());
+			if ( i >= 0 )
+				table[2 * i + 1] = value;
+			return super.setValue(value);
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if ( !(object instanceof Entry) )
+				return false;
+			Entry<?, ?> entry = (Entry<?, ?>) object;
+			return entry.getKey() == getKey() && entry.getValue() == getValue();
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(getKey()) ^ System.identityHashCode(getValue());
+		}
+	}
+
+	public class IdentityEntrySet extends AbstractSet<Entry<K, V>>
+	{
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean contains(Object object) {
+			if ( !(object instanceof Entry) || size == 0 )
+				return false;
+			Entry<?, ?> entry = (Entry<?, ?>) object;
+			if ( entry.getKey() == null )
+				return false;
+			int i = find(entry.getKey());
+			return i >= 0 && table[2 * i + 1] == entry.getValue();
+		}
+
+		@Override
+		public boolean remove(Object object) {
+			if ( !contains(object) )
+				return false;
+			IdentityRobinHoodHashMap.this.remove(((Entry<?, ?>) object).getKey());
+			return true;
+		}
+
+		@Override
+		public void clear() {
+			IdentityRobinHoodHashMap.this.clear();
+		}
+
+		@Override
+		public Iterator<Entry<K, V>> iterator() {
+			return new IdentityIterator();
+		}
+
+		/**
+		 * Iterates over the pairs of the table in slot order, producing for each one an
+		 * entry that writes its value through to the map. Since the keys are never asked
+		 * for their hashCode, the iterator can walk a map whose keys are being mutated.
+		 * Removing a pair pulls the following pair of its cluster into the same slot,
+		 * so the scan resumes at that slot.
+		 */
+		public class IdentityIterator implements Iterator<Entry<K, V>>
+		{
+			/** The slot the scan started from **/
+			private final int start;
+			/** The number of slots examined so far **/
+			private int examined = 0;
+			/** The number of entries not yet returned **/
+			private int remaining = size;
+			/** The slot of the entry most recently returned, or -1 if there is none **/
+			private int last = -1;
+			/** The modification count expected by this iterator **/
+			private int expectedModCount = modCount;
+
+			/**
+			 *  Creates an iterator for an IdentityRobinHoodHashMap
+			 */
+			IdentityIterator( )
+			{
+				int s = 0;
+				for ( int i=0; i<capacity; i++ )
+				{
+					if ( table[2 * i] == null )
+					{
+						s = (i + 1) % capacity;
+						break;
+					}
+					if ( distances[i] == 0 )
+						s = i;
+				}
+				start = s;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return remaining > 0;
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public Entry<K, V> next() {
+				if ( modCount != expectedModCount )
+					throw new ConcurrentModificationException();
+				if ( remaining == 0 )
+					throw new NoSuchElementException();
+				while ( true )
+				{
+					int i = (start + examined++) % capacity;
+					if ( table[2 * i] != null )
+					{
+						last = i;
+						remaining--;
+						return new IdentityEntry((K) table[2 * i], (V) table[2 * i + 1]);
+					}
+				}
+			}
+
+			@Override
+			public void remove() {
+				if ( last < 0 )
+					throw new IllegalStateException();
+				if ( modCount != expectedModCount )
+					throw new ConcurrentModificationException();
+				removeAt(last);
+				examined = (last - start + capacity) % capacity;
+				last = -1;
+				expectedModCount = modCount;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,548 @@
+package util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Implements a map collection (no duplicate keys) using the robinhood hashing technique
+ * that also keeps its entries in a predictable order: either the order in which keys
+ * were inserted, or the order in which entries were last accessed. The order is kept
+ * as a doubly-linked list threaded through two int arrays parallel to the slot array,
+ * so no node objects are allocated and iterating in order visits only the live entries.
+ *
+ * Whenever an entry moves to another slot (displacement on insert or the backward
+ * shift on removal), its links move with it. The last two positions of the link
+ * arrays are spare positions used to hold the links of an entry that is being
+ * carried between slots.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ *
+ * @param <K> The key type of the map.
+ * @param <V> The value type of the map.
+ */
+public class LinkedRobinHoodHashMap<K, V> extends AbstractMap<K, V> {
+
+	/** The default size of the array is 20 unless overridden by the constructor. **/
+	private static final int DEFAULT_CAPACITY = 20;
+
+	/** Marks the end of the linked order **/
+	private static final int NIL = -1;
+
+	/** The keys in each slot; null if the slot is empty **/
+	private Object[] keys;
+
+	/** The values in each slot **/
+	private Object[] values;
+
+	/** The offset distance of each slot from the hashed slot of its key **/
+	private int[] distances;
+
+	/** The slot of the previous entry in order, for each slot **/
+	private int[] prev;
+
+	/** The slot of the next entry in order, for each slot **/
+	private int[] next;
+
+	/** The position in the link arrays holding the entry being carried during an insert **/
+	private int carry;
+
+	/** A position in the link arrays used while exchanging an entry with the carried one **/
+	private int spare;
+
+	/** The slot of the first entry in order **/
+	private int head = NIL;
+
+	/** The slot of the last entry in order **/
+	private int tail = NIL;
+
+	/** True if entries are ordered by access rather than by insertion **/
+	private final boolean accessOrder;
+
+	/** The number of elements in the map **/
+	private int size = 0;
+
+	/** The number of structural modifications, used to detect concurrent modification **/
+	private int modCount = 0;
+
+	/** The internal representation of the entry set for this map **/
+	private LinkedEntrySet entrySet;
+
+	/**
+	 * Instantiates the LinkedRobinHoodHashMap with a small number of storage locations
+	 * by default, ordered by insertion. Should only be used for testing purposes or
+	 * when only a small map is needed.
+	 */
+	public LinkedRobinHoodHashMap( )
+	{
+		this( DEFAULT_CAPACITY, false );
+	}
+
+	/**
+	 * Instantiates the LinkedRobinHoodHashMap with the given capacity, ordered by insertion.
+	 * @param capacity: the maximum capacity of the map.
+	 */
+	public LinkedRobinHoodHashMap( int capacity )
+	{
+		this( capacity, false );
+	}
+
+	/**
+	 * Instantiates the LinkedRobinHoodHashMap with the given capacity and ordering.
+	 * @param capacity: the maximum capacity of the map.
+	 * @param accessOrder: true to order entries from least to most recently accessed,
+	 * false to order them by insertion
+	 */
+	public LinkedRobinHoodHashMap( int capacity, boolean accessOrder )
+	{
+		if ( capacity <= 0 ) throw new IllegalArgumentException("Invalid capacity for linked map");
+		this.keys = new Object[capacity];
+		this.values = new Object[capacity];
+		this.distances = new int[capacity];
+		this.prev = new int[capacity + 2];
+		this.next = new int[capacity + 2];
+		this.carry = capacity;
+		this.spare = capacity + 1;
+		this.accessOrder = accessOrder;
+	}
+
+	/**
+	 * Produces the hash value of the key
+	 * @param key: the key
+	 * @return the hashed value: int
+	 */
+	private int hash(Object key)
+	{
+		return (key.hashCode() & 0x7fffffff) % keys.length;
+	}
+
+	/**
+	 * Locates the given key using a single probe sequence starting from its hashed slot.
+	 * @param key: the key to locate
+	 * @return the index of the key if present, otherwise -(insertion point + 1): int
+	 */
+	private int find(Object key)
+	{
+		int idx = hash(key);
+		for ( int offset=0; offset<keys.length; offset++)
+		{
+			int i = (idx + offset) % keys.length;
+			if ( keys[i] == null || distances[i] < offset )
+				return -(i+1);
+			if ( keys[i].equals(key) )
+				return i;
+		}
+		return -(idx+1);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns true if this map is at capacity and cannot accept any new
+	 * elements.
+	 * @return true if the map is full: boolean
+	 */
+	public boolean isFull() {
+		return size == keys.length;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		if ( size == 0 || key == null ) return false;
+		return find(key) >= 0;
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		if ( size == 0 || value == null ) return false;
+		for ( int i=head; i!=NIL; i=next[i] )
+			if ( values[i].equals(value) )
+				return true;
+		return false;
+	}
+
+	/**
+	 * Returns the value for the given key. In access order, the entry becomes
+	 * the most recently accessed.
+	 * @param key: the key to look up
+	 * @return the value, or null if the key is absent: V
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public V get(Object key) {
+		if ( size == 0 || key == null ) return null;
+		int i = find(key);
+		if ( i < 0 )
+			return null;
+		if ( accessOrder )
+			moveToTail(i);
+		return (V) values[i];
+	}
+
+	/**
+	 * Associates the value with the key. In access order, the entry becomes the
+	 * most recently accessed. If the map is full and the key is new, the eldest entry
+	 * is removed if removeEldestEntry allows it; otherwise the key is not added.
+	 * @param key: the key
+	 * @param value: the value
+	 * @return the value, or null if the key or value is null or the map is full: V
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public V put(K key, V value) {
+		if ( key == null || value == null )
+		{
+			return null;
+		}
+
+		int i = find(key);
+		if ( i >= 0 )
+		{
+			values[i] = value;
+			if ( accessOrder )
+				moveToTail(i);
+			return value;
+		}
+		if ( isFull() )
+		{
+			if ( !removeEldestEntry( new SimpleImmutableEntry<K, V>((K) keys[head], (V) values[head]) ) )
+				return null;
+			removeSlot(head);
+			i = find(key);
+		}
+		insertAt(-i-1, key, value);
+		return value;
+	}
+
+	/**
+	 * Decides whether the eldest entry (the first in order) is removed to make room
+	 * for a new key when the map is full. The default never removes an entry, so
+	 * new keys are refused when the map is full; override to build an LRU cache.
+	 * @param eldest: the first entry in order
+	 * @return true to remove the eldest entry: boolean
+	 */
+	protected boolean removeEldestEntry(Entry<K, V> eldest) {
+		return false;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V remove(Object key) {
+		if ( size == 0 || key == null ) return null;
+		int i = find(key);
+		if ( i < 0 )
+			return null;
+		V value = (V) values[i];
+		removeSlot(i);
+		return value;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(keys, null);
+		Arrays.fill(values, null);
+		head = tail = NIL;
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * @return the first key in order, or null if the map is empty: K
+	 */
+	@SuppressWarnings("unchecked")
+	public K firstKey() {
+		return head == NIL ? null : (K) keys[head];
+	}
+
+	/**
+	 * @return the last key in order, or null if the map is empty: K
+	 */
+	@SuppressWarnings("unchecked")
+	public K lastKey() {
+		return tail == NIL ? null : (K) keys[tail];
+	}
+
+	/**
+	 * Passes every key-value pair to the given action in order. Only the live
+	 * entries are visited and no objects are produced for the pairs.
+	 * @param action: the action to perform on each pair
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public void forEach(BiConsumer<? super K, ? super V> action) {
+		int expectedModCount = modCount;
+		for ( int i=head; i!=NIL; i=next[i] )
+		{
+			action.accept( (K) keys[i], (V) values[i] );
+			if ( modCount != expectedModCount )
+				throw new ConcurrentModificationException();
+		}
+	}
+
+	@Override
+	public Set<Entry<K, V>> entrySet() {
+		if ( entrySet == null )
+			entrySet = new LinkedEntrySet();
+		return entrySet;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder s = new StringBuilder("LinkedRobinHoodHashMap:[" );
+		for ( int i=head; i!=NIL; i=next[i] )
+		{
+			if ( i != head )
+			{
+				s.append( ", " );
+			}
+			s.append( keys[i] ).append( "=" ).append( values[i] );
+		}
+		s.append( "]" );
+		return  s.toString();
+	}
+
+	/**
+	 * Adds a new key-value pair at the insertion point found by a previous probe.
+	 * The new entry is linked at the end of the order while it is carried; every
+	 * entry it displaces exchanges both its contents and its links with it.
+	 * @param i: the insertion point
+	 * @param key: the key to add
+	 * @param value: the value to add
+	 */
+	private void insertAt(int i, Object key, Object value)
+	{
+		int distance = (i - hash(key) + keys.length) % keys.length;
+		linkLast(carry);
+		while ( keys[i] != null )
+		{
+			if ( distances[i] < distance )
+			{
+				Object displacedKey = keys[i];
+				Object displacedValue = values[i];
+				int displacedDistance = distances[i];
+				keys[i] = key;
+				values[i] = value;
+				distances[i] = distance;
+				key = displacedKey;
+				value = displacedValue;
+				distance = displacedDistance;
+				moveLinks(i, spare);
+				moveLinks(carry, i);
+				moveLinks(spare, carry);
+			}
+			i = (i + 1) % keys.length;
+			distance++;
+		}
+		keys[i] = key;
+		values[i] = value;
+		distances[i] = distance;
+		moveLinks(carry, i);
+		size++;
+		modCount++;
+	}
+
+	/**
+	 * Removes the entry in the given slot from the order, then shifts each subsequent
+	 * entry that is away from its hashed slot back by one position along with its links.
+	 * @param i: the slot to empty
+	 */
+	private void removeSlot(int i)
+	{
+		unlink(i);
+		int j = (i + 1) % keys.length;
+		while ( keys[j] != null && distances[j] > 0 )
+		{
+			keys[i] = keys[j];
+			values[i] = values[j];
+			distances[i] = distances[j] - 1;
+			moveLinks(j, i);
+			i = j;
+			j = (i + 1) % keys.length;
+		}
+		keys[i] = null;
+		values[i] = null;
+		distances[i] = 0;
+		size--;
+		modCount++;
+	}
+
+	/**
+	 * Moves the links of an entry to another position, which must not be linked,
+	 * and updates its neighbors to point to the new position.
+	 * @param from: the current position of the entry
+	 * @param to: the new position of the entry
+	 */
+	private void moveLinks(int from, int to)
+	{
+		int p = prev[from], n = next[from];
+		prev[to] = p;
+		next[to] = n;
+		if ( p == NIL ) head = to; else next[p] = to;
+		if ( n == NIL ) tail = to; else prev[n] = to;
+	}
+
+	/**
+	 * Links the entry at the given position at the end of the order.
+	 * @param i: the position of the entry
+	 */
+	private void linkLast(int i)
+	{
+		prev[i] = tail;
+		next[i] = NIL;
+		if ( tail == NIL ) head = i; else next[tail] = i;
+		tail = i;
+	}
+
+	/**
+	 * Removes the entry at the given position from the order.
+	 * @param i: the position of the entry
+	 */
+	private void unlink(int i)
+	{
+		int p = prev[i], n = next[i];
+		if ( p == NIL ) head = n; else next[p] = n;
+		if ( n == NIL ) tail = p; else prev[n] = p;
+	}
+
+	/**
+	 * Makes the entry in the given slot the last in order.
+	 * @param i: the slot of the entry
+	 */
+	private void moveToTail(int i)
+	{
+		if ( i == tail )
+			return;
+		unlink(i);
+		linkLast(i);
+		modCount++;
+	}
+
+	/**
+	 * A key-value pair of the map. The value is written through to the map,
+	 * without changing the order of the entry.
+	 */
+	private class LinkedEntry extends SimpleEntry<K, V>
+	{
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * @param key: the key of the pair
+		 * @param value: the value of the pair
+		 */
+		LinkedEntry(K key, V value)
+		{
+			super(key, value);
+		}
+
+		@Override
+		public V setValue(V value) {
+			if ( value == null )
+				throw new IllegalArgumentException();
+			int i = find(getKey());
+			if ( i >= 0 )
+				values[i] = value;
+			return super.setValue(value);
+		}
+	}
+
+	public class LinkedEntrySet extends AbstractSet<Entry<K, V>>
+	{
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean contains(Object object) {
+			if ( !(object instanceof Entry) || size == 0 )
+				return false;
+			Entry<?, ?> entry = (Entry<?, ?>) object;
+			if ( entry.getKey() == null )
+				return false;
+			int i = find(entry.getKey());
+			return i >= 0 && values[i].equals(entry.getValue());
+		}
+
+		@Override
+		public boolean remove(Object object) {
+			if ( !contains(object) )
+				return false;
+			LinkedRobinHoodHashMap.this.remove(((Entry<?, ?>) object).getKey());
+			return true;
+		}
+
+		@Override
+		public void clear() {
+			LinkedRobinHoodHashMap.this.clear();
+		}
+
+		@Override
+		public Iterator<Entry<K, V>> iterator() {
+			return new LinkedIterator();
+		}
+
+		/**
+		 * Iterates over the entries in order. A removal may shift the next entry to
+		 * another slot, so the next entry is located again by key after a removal.
+		 */
+		public class LinkedIterator implements Iterator<Entry<K, V>>
+		{
+			/** The slot of the next entry, or NIL at the end **/
+			private int nextSlot = head;
+			/** The slot of the entry most recently returned, or NIL if there is none **/
+			private int last = NIL;
+			/** The modification count expected by this iterator **/
+			private int expectedModCount = modCount;
+
+			/**
+			 *  Creates an iterator for a LinkedRobinHoodHashMap
+			 */
+			LinkedIterator( ) { }
+
+			@Override
+			public boolean hasNext() {
+				return nextSlot != NIL;
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public Entry<K, V> next() {
+				if ( modCount != expectedModCount )
+					throw new ConcurrentModificationException();
+				if ( nextSlot == NIL )
+					throw new NoSuchElementException();
+				last = nextSlot;
+				nextSlot = next[nextSlot];
+				return new LinkedEntry((K) keys[last], (V) values[last]);
+			}
+
+			@Override
+			public void remove() {
+				if ( last == NIL )
+					throw new IllegalStateException();
+				if ( modCount != expectedModCount )
+					throw new ConcurrentModificationException();
+				Object nextKey = nextSlot == NIL ? null : keys[nextSlot];
+				removeSlot(last);
+				nextSlot = nextKey == null ? NIL : find(nextKey);
+				last = NIL;
+				expectedModCount = modCount;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,18 @@
+package util;
+
+/**
+ * Accepts a key and its count, both primitive longs, so that walking a
+ * LongLongCounter boxes neither.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ */
+@FunctionalInterface
+public interface LongLongConsumer {
+
+	/**
+	 * @param key: the key
+	 * @param count: the count of the key
+	 */
+	void accept(long key, long count);
+
+}
@@ -0,0 +1,56 @@
+package util;
+
+/**
+ * A cursor over the key-value pairs of a map. Unlike an iterator over the entry set,
+ * a cursor does not produce an entry object for each pair; it is positioned on a 
+ * slot of the underlying structure and exposes the key and value of that slot 
+ * directly. Iterating with a cursor therefore does not allocate.
+ * 
+ * A typical scan looks like:
+ * <pre>
+ * MapCursor&lt;K,V&gt; cursor = map.cursor();
+ * while ( cursor.advance() )
+ *     process( cursor.key(), cursor.value() );
+ * </pre>
+ * 
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ *
+ * @param <K> The key type of the map.
+ * @param <V> The value type of the map.
+ */
+public interface MapCursor<K, V> {
+
+	/**
+	 * Moves the cursor to the next key-value pair in the map.
+	 * @return true if the cursor is positioned on a pair, false if there are no more pairs: boolean
+	 */
+	boolean advance();
+
+	/**
+	 * @return the key of the pair the cursor is positioned on: K
+	 * @throws IllegalStateException if the cursor is not positioned on a pair
+	 */
+	K key();
+
+	/**
+	 * @return the value of the pair the cursor is positioned on: V
+	 * @throws IllegalStateException if the cursor is not positioned on a pair
+	 */
+	V value();
+
+	/**
+	 * Replaces the value of the pair the cursor is positioned on.
+	 * @param value: the new value
+	 * @return the new value: V
+	 * @throws IllegalStateException if the cursor is not positioned on a pair
+	 */
+	V setValue(V value);
+
+	/**
+	 * Removes the pair the cursor is positioned on from the map. The next call
+	 * to advance moves the cursor to the pair following the removed one.
+	 * @throws IllegalStateException if the cursor is not positioned on a pair
+	 */
+	void remove();
+
+}
@@ -0,0 +1,512 @@
+package util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * An immutable map for dictionaries that are read-only once built, addressed by a
+ * minimal perfect hash function rather than by probing. Every key is assigned a slot
+ * of its own between 0 and size-1, so a lookup computes the slot with no probe sequence.
+ * Computing it reads the packed pilot index of the key's bucket and the pilot it names
+ * in the dictionary, and for the one percent of keys on the extra positions described
+ * below, one redirection entry; these arrays take about three bits per key, so they
+ * tend to stay in cache. The slot then holds the key and its value side by side in one
+ * array, as in the IdentityRobinHoodHashMap, so a lookup makes three or four array
+ * reads of which usually only the last, a single cache line, misses the cache. The key
+ * stored in the slot is compared with the key looked up, so keys that are not in the
+ * map are rejected.
+ *
+ * The hash function is built in the manner of CHD and PTHash: the keys are split into
+ * small buckets, and for each bucket, largest first, a pilot value is searched for
+ * that sends all of its keys to free slots. The table has about one percent more
+ * positions than keys so that the search stays short; keys landing on the extra
+ * positions are redirected to the slots left free below size. The pilots are stored
+ * as indexes into a dictionary of the distinct pilot values, packed with as few bits
+ * as the dictionary needs, which comes to about three bits per key (see bitsPerKey).
+ *
+ * Keys are placed by their hashCode, so keys sharing a hashCode cannot be separated;
+ * all but the first of them are kept in a small RobinHoodHashMap. The slot of the first
+ * is marked, and the RobinHoodHashMap is only consulted when a marked slot holds a
+ * different key, so looking up an absent key does not otherwise probe it.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ *
+ * @param <K> The key type of the map.
+ * @param <V> The value type of the map.
+ */
+public class PerfectHashMap<K, V> extends AbstractMap<K, V> {
+
+	/** The average number of keys in a bucket **/
+	private static final int BUCKET_SIZE = 4;
+
+	/** The number of pilot values tried for a bucket before the build restarts with a new seed **/
+	private static final int MAX_PILOT = 1 << 20;
+
+	/** The key of slot i at 2i and its value at 2i+1 **/
+	private final Object[] table;
+
+	/** The number of keys placed by the hash function **/
+	private final int n;
+
+	/** The number of positions the pilots address; positions from n on are redirected **/
+	private final int m;
+
+	/** The number of buckets **/
+	private final int buckets;
+
+	/** The seed of the hash function **/
+	private final long seed;
+
+	/** The distinct pilot values **/
+	private final int[] dictionary;
+
+	/** The index into the dictionary of the pilot of each bucket, packed into width bits **/
+	private final long[] pilots;
+
+	/** The number of bits of each packed pilot index **/
+	private final int width;
+
+	/** The slot each position from n on is redirected to **/
+	private final int[] remap;
+
+	/** The keys that share a hashCode with a placed key, or null if there are none **/
+	private final RobinHoodHashMap<K, V> overflow;
+
+	/** A bit for each slot whose key shares its hashCode with a key in overflow, or null if there is no overflow **/
+	private final long[] shared;
+
+	/** The internal representation of the entry set for this map **/
+	private PerfectEntrySet entrySet;
+
+	/**
+	 * Builds the map from the given key-value pairs, which must not contain null
+	 * keys or values or keys sharing a hashCode.
+	 * @param pairs: the key-value pairs
+	 * @param overflow: the pairs whose keys share a hashCode with a key in pairs, or null
+	 */
+	private PerfectHashMap( List<Entry<K, V>> pairs, RobinHoodHashMap<K, V> overflow )
+	{
+		this.n = pairs.size();
+		this.m = n == 0 ? 0 : n + n / 100;
+		this.buckets = Math.max( 1, (n + BUCKET_SIZE - 1) / BUCKET_SIZE );
+		this.table = new Object[2 * n];
+		this.overflow = overflow;
+		this.shared = overflow == null ? null : new long[(n + 63) / 64];
+
+		long[] hashes = new long[n];
+		int[] pilotOf = new int[buckets];
+		long s = 0;
+		for ( int attempt=0; ; attempt++ )
+		{
+			s = mix( attempt + 0x5851f42d4c957f2dL );
+			for ( int i=0; i<n; i++ )
+				hashes[i] = mix( pairs.get(i).getKey().hashCode() ^ s );
+			if ( searchPilots( hashes, pilotOf ) )
+				break;
+		}
+		this.seed = s;
+
+		HashMap<Integer, Integer> distinct = new HashMap<Integer, Integer>();
+		for ( int pilot: pilotOf )
+			distinct.putIfAbsent( pilot, distinct.size() );
+		this.dictionary = new int[distinct.size()];
+		for ( Entry<Integer, Integer> entry: distinct.entrySet() )
+			dictionary[entry.getValue()] = entry.getKey();
+		this.width = Math.max( 1, 32 - Integer.numberOfLeadingZeros( dictionary.length - 1 ) );
+		this.pilots = new long[(int) (((long) buckets * width + 63) / 64)];
+		for ( int b=0; b<buckets; b++ )
+			pack( b, distinct.get( pilotOf[b] ) );
+
+		boolean[] used = new boolean[m];
+		int[] positions = new int[n];
+		for ( int i=0; i<n; i++ )
+		{
+			positions[i] = position( hashes[i], pilotOf[bucket( hashes[i] )] );
+			used[positions[i]] = true;
+		}
+		this.remap = new int[m - n];
+		int free = 0;
+		for ( int p=n; p<m; p++ )
+		{
+			if ( !used[p] )
+				continue;
+			while ( used[free] )
+				free++;
+			remap[p - n] = free++;
+		}
+		HashSet<Integer> sharedHashCodes = new HashSet<Integer>();
+		if ( overflow != null )
+			for ( K key: overflow.keySet() )
+				sharedHashCodes.add( key.hashCode() );
+		for ( int i=0; i<n; i++ )
+		{
+			int slot = positions[i] < n ? positions[i] : remap[positions[i] - n];
+			K key = pairs.get(i).getKey();
+			table[2 * slot] = key;
+			table[2 * slot + 1] = pairs.get(i).getValue();
+			if ( sharedHashCodes.contains( key.hashCode() ) )
+				shared[slot >>> 6] |= 1L << slot;
+		}
+	}
+
+	/**
+	 * Searches, bucket by bucket from the largest, for a pilot that sends every key
+	 * of the bucket to a distinct free position.
+	 * @param hashes: the hash of each key
+	 * @param pilotOf: receives the pilot of each bucket
+	 * @return true if every bucket was given a pilot, false if the search gave up: boolean
+	 */
+	private boolean searchPilots( long[] hashes, int[] pilotOf )
+	{
+		int[] counts = new int[buckets + 1];
+		for ( long h: hashes )
+			counts[bucket( h ) + 1]++;
+		int[] sizes = Arrays.copyOfRange( counts, 1, buckets + 1 );
+		for ( int b=0; b<buckets; b++ )
+			counts[b + 1] += counts[b];
+		int[] members = new int[hashes.length];
+		int[] fill = Arrays.copyOf( counts, buckets );
+		for ( int i=0; i<hashes.length; i++ )
+			members[fill[bucket( hashes[i] )]++] = i;
+
+		Integer[] order = new Integer[buckets];
+		for ( int b=0; b<buckets; b++ )
+			order[b] = b;
+		Arrays.sort( order, (a, b) -> sizes[b] - sizes[a] );
+
+		boolean[] taken = new boolean[m];
+		int[] placed = new int[BUCKET_SIZE * 16];
+		for ( int b: order )
+		{
+			int size = sizes[b];
+			if ( size == 0 )
+				break;
+			if ( size > placed.length )
+				placed = new int[size];
+			int pilot = 0;
+			search:
+			for ( ; pilot<MAX_PILOT; pilot++ )
+			{
+				for ( int k=0; k<size; k++ )
+				{
+					int p = position( hashes[members[counts[b] + k]], pilot );
+					if ( taken[p] )
+					{
+						for ( int j=0; j<k; j++ )
+							taken[placed[j]] = false;
+						continue search;
+					}
+					taken[p] = true;
+					placed[k] = p;
+				}
+				break;
+			}
+			if ( pilot == MAX_PILOT )
+				return false;
+			pilotOf[b] = pilot;
+		}
+		return true;
+	}
+
+	/**
+	 * Mixes a value into a well distributed 64-bit hash.
+	 * @param h: the value to mix
+	 * @return the hash: long
+	 */
+	private static long mix(long h)
+	{
+		h *= 0x9e3779b97f4a7c15L;
+		h ^= h >>> 32;
+		h *= 0xd6e8feb86659fd93L;
+		return h ^ (h >>> 32);
+	}
+
+	/**
+	 * @param h: the hash of a key
+	 * @return the bucket of the key: int
+	 */
+	private int bucket(long h)
+	{
+		return (int) (((h >>> 32) * buckets) >>> 32);
+	}
+
+	/**
+	 * @param h: the hash of a key
+	 * @param pilot: the pilot of the key's bucket
+	 * @return the position of the key: int
+	 */
+	private int position(long h, int pilot)
+	{
+		return (int) (((h ^ mix( pilot )) & Long.MAX_VALUE) % m);
+	}
+
+	/**
+	 * Stores the dictionary index of a bucket's pilot.
+	 * @param b: the bucket
+	 * @param index: the index into the dictionary
+	 */
+	private void pack(int b, int index)
+	{
+		long bit = (long) b * width;
+		int word = (int) (bit >>> 6), shift = (int) (bit & 63);
+		pilots[word] |= (long) index << shift;
+		if ( shift + width > 64 )
+			pilots[word + 1] |= (long) index >>> (64 - shift);
+	}
+
+	/**
+	 * @param b: a bucket
+	 * @return the index into the dictionary of the bucket's pilot: int
+	 */
+	private int unpack(int b)
+	{
+		long bit = (long) b * width;
+		int word = (int) (bit >>> 6), shift = (int) (bit & 63);
+		long bits = pilots[word] >>> shift;
+		if ( shift + width > 64 )
+			bits |= pilots[word + 1] << (64 - shift);
+		return (int) (bits & ((1L << width) - 1));
+	}
+
+	/**
+	 * Computes the slot of a key with the perfect hash function. A key that is not in
+	 * the map is also given a slot, which holds some other key.
+	 * @param key: the key
+	 * @return the slot of the key: int
+	 */
+	private int slot(Object key)
+	{
+		long h = mix( key.hashCode() ^ seed );
+		int p = position( h, dictionary[unpack( bucket( h ) )] );
+		return p < n ? p : remap[p - n];
+	}
+
+	/**
+	 * Returns the slot of the given key, a number between 0 and the number of keys
+	 * placed by the hash function, so that data about the keys can be kept in plain
+	 * arrays alongside the map.
+	 * @param key: the key
+	 * @return the slot of the key, or -1 if it is absent or kept apart because it shares a hashCode: int
+	 */
+	public int indexOf(Object key) {
+		if ( n == 0 || key == null ) return -1;
+		int i = slot(key);
+		return table[2 * i].equals(key) ? i : -1;
+	}
+
+	@Override
+	public int size() {
+		return n + (overflow == null ? 0 : overflow.size());
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V get(Object key) {
+		if ( n == 0 || key == null ) return null;
+		int i = slot(key);
+		if ( table[2 * i].equals(key) )
+			return (V) table[2 * i + 1];
+		if ( overflow == null || (shared[i >>> 6] & (1L << i)) == 0 )
+			return null;
+		return overflow.get(key);
+	}
+
+	/**
+	 * Returns the number of bits the hash function uses per key: the packed pilot
+	 * indexes, the pilot dictionary and the redirected positions.
+	 * @return the bits per key: double
+	 */
+	public double bitsPerKey() {
+		if ( n == 0 ) return 0;
+		return (64.0 * pilots.length + 32.0 * dictionary.length + 32.0 * remap.length) / n;
+	}
+
+	@Override
+	public Set<Entry<K, V>> entrySet() {
+		if ( entrySet == null )
+			entrySet = new PerfectEntrySet();
+		return entrySet;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder s = new StringBuilder("PerfectHashMap:[" );
+		int i=0;
+		for ( Entry<K, V> entry: entrySet() )
+		{
+			if ( i++ > 0 )
+			{
+				s.append( ", " );
+			}
+			s.append( entry.getKey() ).append( "=" ).append( entry.getValue() );
+		}
+		s.append( "]" );
+		return  s.toString();
+	}
+
+	/**
+	 * Builds a map holding the same key-value pairs as the given map, such as a
+	 * RobinHoodHashMap that has been filled.
+	 * @param map: the map to copy
+	 * @return the new map: PerfectHashMap
+	 */
+	public static <K, V> PerfectHashMap<K, V> of(Map<? extends K, ? extends V> map)
+	{
+		return PerfectHashMap.<K, V>builder().putAll(map).build();
+	}
+
+	/**
+	 * Builds a map from the given keys, computing the value of each.
+	 * @param keys: the keys of the map
+	 * @param valueFunction: produces the value of each key
+	 * @return the new map: PerfectHashMap
+	 */
+	public static <K, V> PerfectHashMap<K, V> of(Collection<? extends K> keys, Function<? super K, ? extends V> valueFunction)
+	{
+		Builder<K, V> builder = builder();
+		for ( K key: keys )
+			builder.put(key, valueFunction.apply(key));
+		return builder.build();
+	}
+
+	/**
+	 * @return a builder for a PerfectHashMap: Builder
+	 */
+	public static <K, V> Builder<K, V> builder()
+	{
+		return new Builder<K, V>();
+	}
+
+	/**
+	 * Collects the key-value pairs of a PerfectHashMap. A key put again replaces its
+	 * value; null keys and values are ignored.
+	 *
+	 * @param <K> The key type of the map.
+	 * @param <V> The value type of the map.
+	 */
+	public static class Builder<K, V>
+	{
+		/** The pairs collected so far **/
+		private final LinkedHashMap<K, V> pairs = new LinkedHashMap<K, V>();
+
+		/**
+		 * @param key: the key
+		 * @param value: the value of the key
+		 * @return this builder: Builder
+		 */
+		public Builder<K, V> put(K key, V value)
+		{
+			if ( key != null && value != null )
+				pairs.put(key, value);
+			return this;
+		}
+
+		/**
+		 * @param map: the key-value pairs to add
+		 * @return this builder: Builder
+		 */
+		public Builder<K, V> putAll(Map<? extends K, ? extends V> map)
+		{
+			map.forEach( this::put );
+			return this;
+		}
+
+		/**
+		 * Builds the hash function for the keys collected so far.
+		 * @return the new map: PerfectHashMap
+		 */
+		public PerfectHashMap<K, V> build()
+		{
+			HashMap<Integer, Boolean> hashCodes = new HashMap<Integer, Boolean>();
+			List<Entry<K, V>> placed = new ArrayList<Entry<K, V>>(pairs.size());
+			List<Entry<K, V>> shared = new ArrayList<Entry<K, V>>();
+			for ( Entry<K, V> entry: pairs.entrySet() )
+			{
+				Entry<K, V> pair = new SimpleImmutableEntry<K, V>(entry);
+				if ( hashCodes.putIfAbsent(entry.getKey().hashCode(), Boolean.TRUE) == null )
+					placed.add(pair);
+				else
+					shared.add(pair);
+			}
+			RobinHoodHashMap<K, V> overflow = null;
+			if ( !shared.isEmpty() )
+			{
+				overflow = new RobinHoodHashMap<K, V>(shared.size());
+				for ( Entry<K, V> pair: shared )
+					overflow.put(pair.getKey(), pair.getValue());
+			}
+			return new PerfectHashMap<K, V>(placed, overflow);
+		}
+	}
+
+	public class PerfectEntrySet extends AbstractSet<Entry<K, V>>
+	{
+		@Override
+		public int size() {
+			return PerfectHashMap.this.size();
+		}
+
+		@Override
+		public boolean contains(Object object) {
+			if ( !(object instanceof Entry) )
+				return false;
+			Entry<?, ?> entry = (Entry<?, ?>) object;
+			V value = get(entry.getKey());
+			return value != null && value.equals(entry.getValue());
+		}
+
+		@Override
+		public Iterator<Entry<K, V>> iterator() {
+			return new PerfectIterator();
+		}
+
+		/**
+		 * Iterates over the slots in order, then over the keys kept apart.
+		 */
+		public class PerfectIterator implements Iterator<Entry<K, V>>
+		{
+			/** The next slot to return **/
+			private int index = 0;
+			/** The iterator over the keys kept apart, once the slots are exhausted **/
+			private Iterator<Entry<K, V>> rest = overflow == null ? null : overflow.entrySet().iterator();
+
+			@Override
+			public boolean hasNext() {
+				return index < n || (rest != null && rest.hasNext());
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public Entry<K, V> next() {
+				if ( index < n )
+				{
+					int i = index++;
+					return new SimpleImmutableEntry<K, V>((K) table[2 * i], (V) table[2 * i + 1]);
+				}
+				if ( rest == null )
+					throw new NoSuchElementException();
+				Entry<K, V> entry = rest.next();
+				return new SimpleImmutableEntry<K, V>(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,657 @@
+package util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Implements a bidirectional map (no duplicate keys and no duplicate values) using the
+ * robinhood hashing technique. The key-value pairs are stored densely in a pair of
+ * parallel arrays. Two robinhood slot arrays, one hashed by key and one hashed by value,
+ * hold the positions of the pairs, so a lookup by value through the inverse view costs
+ * the same as a lookup by key. Each slot array has a third more slots than the map has
+ * capacity, so neither is more than three quarters full.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ *
+ * @param <K> The key type of the map.
+ * @param <V> The value type of the map.
+ */
+public class RobinHoodBiMap<K, V> extends AbstractMap<K, V> {
+
+	/** The default size of the array is 20 unless overridden by the constructor. **/
+	private static final int DEFAULT_CAPACITY = 20;
+
+	/** The highest fraction of the slots of each index that the pairs may occupy **/
+	private static final float LOAD_FACTOR = 0.75f;
+
+	/** The keys of the pairs; the first size positions are in use **/
+	private Object[] keys;
+
+	/** The values of the pairs, parallel to the keys **/
+	private Object[] values;
+
+	/** The slots locating each pair by key **/
+	private SlotIndex keyIndex;
+
+	/** The slots locating each pair by value **/
+	private SlotIndex valueIndex;
+
+	/** The number of pairs in the map **/
+	private int size = 0;
+
+	/** The number of structural modifications, used to detect concurrent modification **/
+	private int modCount = 0;
+
+	/** The internal representation of the entry set for this map **/
+	private BiEntrySet entrySet;
+
+	/** The inverse view of this map **/
+	private Inverse inverse;
+
+	/**
+	 * Instantiates the RobinHoodBiMap with a small number of storage locations
+	 * by default. Should only be used for testing purposes or when only a small map is needed.
+	 */
+	public RobinHoodBiMap( )
+	{
+		this( DEFAULT_CAPACITY );
+	}
+
+	/**
+	 * Instantiates the RobinHoodBiMap with the given capacity.
+	 * @param capacity: the maximum capacity of the map.
+	 */
+	public RobinHoodBiMap( int capacity )
+	{
+		if ( capacity <= 0 ) throw new IllegalArgumentException("Invalid capacity for bimap");
+		this.keys = new Object[capacity];
+		this.values = new Object[capacity];
+		this.keyIndex = new SlotIndex(keys);
+		this.valueIndex = new SlotIndex(values);
+		this.size = 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns true if this map is at capacity and cannot accept any new
+	 * pairs.
+	 * @return true if the map is full: boolean
+	 */
+	public boolean isFull() {
+		return size == keys.length;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		if ( size == 0 || key == null ) return false;
+		return keyIndex.find(key) >= 0;
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		if ( size == 0 || value == null ) return false;
+		return valueIndex.find(value) >= 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V get(Object key) {
+		if ( size == 0 || key == null ) return null;
+		int i = keyIndex.find(key);
+		return i >= 0 ? (V) values[keyIndex.pair(i)] : null;
+	}
+
+	/**
+	 * Associates the value with the key. A value may only be associated with one key.
+	 * @param key: the key
+	 * @param value: the value
+	 * @return the value, or null if the key or value is null or the map is full: V
+	 * @throws IllegalArgumentException if the value is already associated with another key
+	 */
+	@Override
+	public V put(K key, V value) {
+		return put(key, value, false);
+	}
+
+	/**
+	 * Associates the value with the key, first removing any other key that is
+	 * associated with the value.
+	 * @param key: the key
+	 * @param value: the value
+	 * @return the value, or null if the key or value is null or the map is full: V
+	 */
+	public V forcePut(K key, V value) {
+		return put(key, value, true);
+	}
+
+	/**
+	 * Associates the value with the key.
+	 * @param key: the key
+	 * @param value: the value
+	 * @param force: true to remove any other key associated with the value
+	 * @return the value, or null if the key or value is null or the map is full: V
+	 * @throws IllegalArgumentException if the value is associated with another key and force is false
+	 */
+	private V put(K key, V value, boolean force) {
+		if ( key == null || value == null )
+		{
+			return null;
+		}
+
+		int ki = keyIndex.find(key);
+		int vi = valueIndex.find(value);
+		if ( ki >= 0 && vi >= 0 && keyIndex.pair(ki) == valueIndex.pair(vi) )
+		{
+			return value;
+		}
+		if ( vi >= 0 )
+		{
+			if ( !force )
+				throw new IllegalArgumentException("Value already present in map");
+			removePair(valueIndex.pair(vi));
+			ki = keyIndex.find(key);
+			vi = valueIndex.find(value);
+		}
+		if ( ki >= 0 )
+		{
+			int p = keyIndex.pair(ki);
+			valueIndex.removeAt(valueIndex.find(values[p]));
+			values[p] = value;
+			valueIndex.insert(valueIndex.find(value), p);
+			return value;
+		}
+		if ( isFull() )
+		{
+			return null;
+		}
+		keys[size] = key;
+		values[size] = value;
+		keyIndex.insert(ki, size);
+		valueIndex.insert(vi, size);
+		size++;
+		modCount++;
+		return value;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V remove(Object key) {
+		if ( size == 0 || key == null ) return null;
+		int i = keyIndex.find(key);
+		if ( i < 0 )
+			return null;
+		V value = (V) values[keyIndex.pair(i)];
+		removePair(keyIndex.pair(i));
+		return value;
+	}
+
+	/**
+	 * Removes the pair at the given position. The last pair is moved into
+	 * its place so that the pairs remain dense.
+	 * @param p: the position of the pair
+	 */
+	private void removePair(int p)
+	{
+		keyIndex.removeAt(keyIndex.find(keys[p]));
+		valueIndex.removeAt(valueIndex.find(values[p]));
+		int last = size - 1;
+		if ( p != last )
+		{
+			keyIndex.repoint(keyIndex.find(keys[last]), p);
+			valueIndex.repoint(valueIndex.find(values[last]), p);
+			keys[p] = keys[last];
+			values[p] = values[last];
+		}
+		keys[last] = null;
+		values[last] = null;
+		size--;
+		modCount++;
+	}
+
+	@Override
+	public void clear()
+	{
+		Arrays.fill(keys, 0, size, null);
+		Arrays.fill(values, 0, size, null);
+		keyIndex.clear();
+		valueIndex.clear();
+		size = 0;
+		modCount++;
+	}
+
+	@Override
+	public Set<Entry<K, V>> entrySet() {
+		if ( entrySet == null )
+			entrySet = new BiEntrySet();
+		return entrySet;
+	}
+
+	/**
+	 * Returns the values of this map. Since values are unique, this is a set.
+	 * @return the set of values: Set
+	 */
+	@Override
+	public Set<V> values() {
+		return inverse().keySet();
+	}
+
+	/**
+	 * Returns a view of this map with the keys and values exchanged. The view
+	 * shares its storage with this map, so changes to either are visible in both.
+	 * @return the inverse map: RobinHoodBiMap.Inverse
+	 */
+	public Inverse inverse() {
+		if ( inverse == null )
+			inverse = new Inverse();
+		return inverse;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder s = new StringBuilder("RobinHoodBiMap:[" );
+		for ( int p=0; p<size; p++ )
+		{
+			if ( p > 0 )
+			{
+				s.append( ", " );
+			}
+			s.append( keys[p] ).append( "=" ).append( values[p] );
+		}
+		s.append( "]" );
+		return  s.toString();
+	}
+
+	/**
+	 * A robinhood slot array holding the positions of the pairs, hashed by
+	 * either the key or the value of each pair. A slot holds the position
+	 * of its pair plus one, so that 0 marks an empty slot.
+	 */
+	private static class SlotIndex
+	{
+		/** The keys or the values of the pairs that are hashed into this index **/
+		private final Object[] data;
+		/** The position of the pair in each slot plus one; 0 if the slot is empty **/
+		private final int[] slots;
+		/** The offset distance of each slot from the hashed slot of its pair **/
+		private final int[] distances;
+
+		/**
+		 * Instantiates an empty index with enough slots to keep every pair at
+		 * no more than the load factor.
+		 * @param data: the keys or the values that are hashed into this index
+		 */
+		SlotIndex(Object[] data)
+		{
+			int length = (int) Math.min( Integer.MAX_VALUE - 8, (long) Math.ceil( data.length / LOAD_FACTOR ) );
+			this.data = data;
+			this.slots = new int[length];
+			this.distances = new int[length];
+		}
+
+		/**
+		 * Produces the hashed slot of the given object.
+		 * @param object: the object to hash
+		 * @return the hashed slot: int
+		 */
+		private int hash(Object object)
+		{
+			return (object.hashCode() & 0x7fffffff) % slots.length;
+		}
+
+		/**
+		 * Locates the slot of the pair holding the given object using a single probe.
+		 * @param object: the key or value to locate
+		 * @return the slot if present, otherwise -(insertion point + 1): int
+		 */
+		int find(Object object)
+		{
+			int idx = hash(object);
+			for ( int offset=0; offset<slots.length; offset++)
+			{
+				int i = (idx + offset) % slots.length;
+				if ( slots[i] == 0 || distances[i] < offset )
+					return -(i+1);
+				if ( data[slots[i]-1].equals(object) )
+					return i;
+			}
+			return -(idx+1);
+		}
+
+		/**
+		 * @param i: a slot in use
+		 * @return the position of the pair in the slot: int
+		 */
+		int pair(int i)
+		{
+			return slots[i] - 1;
+		}
+
+		/**
+		 * Changes the position of the pair held by a slot.
+		 * @param i: a slot in use
+		 * @param p: the new position of its pair
+		 */
+		void repoint(int i, int p)
+		{
+			slots[i] = p + 1;
+		}
+
+		/**
+		 * Places a pair at the insertion point found by find, displacing any pair
+		 * that is closer to its hashed slot.
+		 * @param found: the result of find for the pair's key or value
+		 * @param p: the position of the pair
+		 */
+		void insert(int found, int p)
+		{
+			int i = -found - 1;
+			int distance = (i - hash(data[p]) + slots.length) % slots.length;
+			int slot = p + 1;
+			while ( slots[i] != 0 )
+			{
+				if ( distances[i] < distance )
+				{
+					int displaced = slots[i];
+					int displacedDistance = distances[i];
+					slots[i] = slot;
+					distances[i] = distance;
+					slot = displaced;
+					distance = displacedDistance;
+				}
+				i = (i + 1) % slots.length;
+				distance++;
+			}
+			slots[i] = slot;
+			distances[i] = distance;
+		}
+
+		/**
+		 * Empties the given slot, shifting each subsequent slot that is away from
+		 * its hashed slot back by one position.
+		 * @param i: the slot to empty
+		 */
+		void removeAt(int i)
+		{
+			int j = (i + 1) % slots.length;
+			while ( slots[j] != 0 && distances[j] > 0 )
+			{
+				slots[i] = slots[j];
+				distances[i] = distances[j] - 1;
+				i = j;
+				j = (i + 1) % slots.length;
+			}
+			slots[i] = 0;
+			distances[i] = 0;
+		}
+
+		/**
+		 * Empties every slot.
+		 */
+		void clear()
+		{
+			Arrays.fill(slots, 0);
+			Arrays.fill(distances, 0);
+		}
+	}
+
+	/**
+	 * Iterates over the pairs in the order they are stored. Removing a pair moves
+	 * the last pair into its position, so that position is visited again.
+	 */
+	private abstract class PairIterator<T> implements Iterator<T>
+	{
+		/** The position of the next pair **/
+		private int index = 0;
+		/** The position of the pair most recently returned, or -1 if there is none **/
+		private int last = -1;
+		/** The modification count expected by this iterator **/
+		private int expectedModCount = modCount;
+
+		/**
+		 * @param p: the position of a pair
+		 * @return the element produced for the pair: T
+		 */
+		protected abstract T element(int p);
+
+		@Override
+		public boolean hasNext() {
+			return index < size;
+		}
+
+		@Override
+		public T next() {
+			if ( modCount != expectedModCount )
+				throw new ConcurrentModificationException();
+			if ( index >= size )
+				throw new NoSuchElementException();
+			last = index++;
+			return element(last);
+		}
+
+		@Override
+		public void remove() {
+			if ( last < 0 )
+				throw new IllegalStateException();
+			if ( modCount != expectedModCount )
+				throw new ConcurrentModificationException();
+			removePair(last);
+			index = last;
+			last = -1;
+			expectedModCount = modCount;
+		}
+	}
+
+	/**
+	 * A key-value pair of the map. Replacing the value goes through the map so
+	 * that the values remain unique.
+	 */
+	private class BiEntry extends SimpleEntry<K, V>
+	{
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * @param key: the key of the pair
+		 * @param value: the value of the pair
+		 */
+		BiEntry(K key, V value)
+		{
+			super(key, value);
+		}
+
+		@Override
+		public V setValue(V value) {
+			RobinHoodBiMap.this.put(getKey(), value);
+			return super.setValue(value);
+		}
+	}
+
+	public class BiEntrySet extends AbstractSet<Entry<K, V>>
+	{
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean contains(Object object) {
+			if ( !(object instanceof Entry) )
+				return false;
+			Entry<?, ?> entry = (Entry<?, ?>) object;
+			V value = get(entry.getKey());
+			return value != null && value.equals(entry.getValue());
+		}
+
+		@Override
+		public boolean remove(Object object) {
+			if ( !contains(object) )
+				return false;
+			RobinHoodBiMap.this.remove(((Entry<?, ?>) object).getKey());
+			return true;
+		}
+
+		@Override
+		public void clear() {
+			RobinHoodBiMap.this.clear();
+		}
+
+		@Override
+		public Iterator<Entry<K, V>> iterator() {
+			return new PairIterator<Entry<K, V>>() {
+				@SuppressWarnings("unchecked")
+				@Override
+				protected Entry<K, V> element(int p) {
+					return new BiEntry((K) keys[p], (V) values[p]);
+				}
+			};
+		}
+	}
+
+	/**
+	 * A view of the RobinHoodBiMap with the keys and values exchanged. Lookups
+	 * by value use the slots hashed by value, so they cost the same as lookups by key.
+	 */
+	public class Inverse extends AbstractMap<V, K>
+	{
+		/** The internal representation of the entry set for this view **/
+		private Set<Entry<V, K>> inverseEntrySet;
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return size == 0;
+		}
+
+		@Override
+		public boolean containsKey(Object value) {
+			return RobinHoodBiMap.this.containsValue(value);
+		}
+
+		@Override
+		public boolean containsValue(Object key) {
+			return RobinHoodBiMap.this.containsKey(key);
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public K get(Object value) {
+			if ( size == 0 || value == null ) return null;
+			int i = valueIndex.find(value);
+			return i >= 0 ? (K) keys[valueIndex.pair(i)] : null;
+		}
+
+		/**
+		 * Associates the key with the value in the underlying map.
+		 * @param value: the value
+		 * @param key: the key
+		 * @return the key, or null if the key or value is null or the map is full: K
+		 * @throws IllegalArgumentException if the key is already associated with another value
+		 */
+		@Override
+		public K put(V value, K key) {
+			if ( key != null && value != null && containsValue(key) && !value.equals(RobinHoodBiMap.this.get(key)) )
+				throw new IllegalArgumentException("Key already present in map");
+			return forcePut(value, key);
+		}
+
+		/**
+		 * Associates the key with the value in the underlying map, first removing
+		 * any other value that is associated with the key.
+		 * @param value: the value
+		 * @param key: the key
+		 * @return the key, or null if the key or value is null or the map is full: K
+		 */
+		public K forcePut(V value, K key) {
+			if ( key == null || value == null ) return null;
+			RobinHoodBiMap.this.remove(key);
+			return RobinHoodBiMap.this.forcePut(key, value) != null ? key : null;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public K remove(Object value) {
+			if ( size == 0 || value == null ) return null;
+			int i = valueIndex.find(value);
+			if ( i < 0 )
+				return null;
+			K key = (K) keys[valueIndex.pair(i)];
+			removePair(valueIndex.pair(i));
+			return key;
+		}
+
+		@Override
+		public void clear() {
+			RobinHoodBiMap.this.clear();
+		}
+
+		@Override
+		public Set<K> values() {
+			return RobinHoodBiMap.this.keySet();
+		}
+
+		/**
+		 * @return the map this view was produced from: RobinHoodBiMap
+		 */
+		public RobinHoodBiMap<K, V> inverse() {
+			return RobinHoodBiMap.this;
+		}
+
+		@Override
+		public Set<Entry<V, K>> entrySet() {
+			if ( inverseEntrySet == null )
+			{
+				inverseEntrySet = new AbstractSet<Entry<V, K>>() {
+					@Override
+					public int size() {
+						return size;
+					}
+
+					@Override
+					public boolean contains(Object object) {
+						if ( !(object instanceof Entry) )
+							return false;
+						Entry<?, ?> entry = (Entry<?, ?>) object;
+						K key = get(entry.getKey());
+						return key != null && key.equals(entry.getValue());
+					}
+
+					@Override
+					public void clear() {
+						RobinHoodBiMap.this.clear();
+					}
+
+					@Override
+					public Iterator<Entry<V, K>> iterator() {
+						return new PairIterator<Entry<V, K>>() {
+							@SuppressWarnings("unchecked")
+							@Override
+							protected Entry<V, K> element(int p) {
+								return new SimpleImmutableEntry<V, K>((V) values[p], (K) keys[p]);
+							}
+						};
+					}
+				};
+			}
+			return inverseEntrySet;
+		}
+	}
+
+}
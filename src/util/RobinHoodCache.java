@@ -0,0 +1,600 @@
+package util;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.function.BiConsumer;
+
+/**
+ * Implements a size-bounded cache using the robinhood hashing technique. Entries are
+ * ordered in an array by hashed key for quick lookup, as in the RobinHoodHashMap.
+ * Rather than refusing new keys once full, the cache evicts an entry using the CLOCK
+ * algorithm: each slot keeps a reference bit in an array beside its distance, a read
+ * sets the bit, and a clock hand sweeps the slot array clearing set bits until it finds
+ * an entry whose bit is clear. That entry is removed with the usual backward shift.
+ *
+ * A cache made by the Builder may instead be bounded by weight: a Weigher gives each
+ * entry a weight when it is put, and the clock evicts entries until the total weight is
+ * within the maximum. Since the number of entries is then unknown, the slot array grows
+ * as needed rather than being sized once.
+ *
+ * Setting the reference bit is a single store to its own array rather than an update of
+ * the slot's distance, so a read never rewrites the layout of the table. The cache is
+ * still not synchronized, since a read also updates the statistics and follows a probe
+ * sequence that a concurrent write may shift; callers sharing a cache between threads
+ * must synchronize every call, as RobinHoodLoadingCache does.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ *
+ * @param <K> The key type of the cache.
+ * @param <V> The value type of the cache.
+ */
+public class RobinHoodCache<K, V> {
+
+	/** The default number of entries is 20 unless overridden by the constructor. **/
+	private static final int DEFAULT_CAPACITY = 20;
+
+	/** The fraction of the slot array that may be in use before entries are evicted. **/
+	private static final float LOAD_FACTOR = 0.75f;
+
+	/** The keys in each slot; null if the slot is empty **/
+	private Object[] keys;
+
+	/** The values in each slot **/
+	private Object[] values;
+
+	/** The distance of each slot from the hashed slot of its key **/
+	private int[] distances;
+
+	/** The reference bit of each slot, set when its entry is read and cleared by the clock hand **/
+	private boolean[] referenced;
+
+	/** The weight of each slot's entry, or null if every entry weighs one **/
+	private int[] weights;
+
+	/** Computes the weight of new entries, or null if every entry weighs one **/
+	private Weigher<? super K, ? super V> weigher;
+
+	/** The maximum number of entries in the cache, or Integer.MAX_VALUE if it is bounded by weight **/
+	private int capacity;
+
+	/** The maximum total weight of the entries in the cache **/
+	private long maximumWeight;
+
+	/** The total weight of the entries in the cache **/
+	private long weight = 0;
+
+	/** The total weight of the entries evicted to make room for new entries **/
+	private long evictionWeight = 0;
+
+	/** The slot the clock hand will examine next **/
+	private int hand = 0;
+
+	/** The number of entries in the cache **/
+	private int size = 0;
+
+	/** The number of entries evicted to make room for new keys **/
+	private long evictionCount = 0;
+
+	/** The number of lookups that found their key **/
+	private long hitCount = 0;
+
+	/** The number of lookups that did not find their key **/
+	private long missCount = 0;
+
+	/** The number of structural modifications, used to detect concurrent modification **/
+	private int modCount = 0;
+
+	/**
+	 * Instantiates the RobinHoodCache with a small capacity by default. Should only
+	 * be used for testing purposes or when only a small cache is needed.
+	 */
+	public RobinHoodCache( )
+	{
+		this( DEFAULT_CAPACITY );
+	}
+
+	/**
+	 * Instantiates the RobinHoodCache with the given capacity. The slot array is
+	 * sized so that it is at most three quarters full.
+	 * @param capacity: the maximum number of entries in the cache.
+	 */
+	public RobinHoodCache( int capacity )
+	{
+		if ( capacity <= 0 ) throw new IllegalArgumentException("Invalid capacity for cache");
+		int length = (int) Math.min( Integer.MAX_VALUE - 8, (long) Math.ceil( capacity / LOAD_FACTOR ) );
+		this.capacity = capacity;
+		this.maximumWeight = capacity;
+		this.keys = new Object[length];
+		this.values = new Object[length];
+		this.distances = new int[length];
+		this.referenced = new boolean[length];
+	}
+
+	/**
+	 * Instantiates a RobinHoodCache bounded by the total weight of its entries.
+	 * @param builder: the builder holding the maximum weight, weigher and initial capacity
+	 */
+	private RobinHoodCache( Builder<K, V> builder )
+	{
+		this( builder.initialCapacity );
+		this.capacity = Integer.MAX_VALUE;
+		this.maximumWeight = builder.maximumWeight;
+		this.weigher = builder.weigher;
+		this.weights = new int[keys.length];
+	}
+
+	/**
+	 * Produces a builder for a cache bounded by either its number of entries or the
+	 * total weight of its entries, for example:
+	 * <pre>
+	 * RobinHoodCache&lt;String, byte[]&gt; cache = RobinHoodCache.&lt;String, byte[]&gt;builder()
+	 *     .maximumWeight( 64 &lt;&lt; 20 )
+	 *     .weigher( (key, value) -&gt; value.length )
+	 *     .build();
+	 * </pre>
+	 * @return a new builder: Builder
+	 */
+	public static <K, V> Builder<K, V> builder()
+	{
+		return new Builder<K, V>();
+	}
+
+	/**
+	 * Produces the hash value of the key
+	 * @param key: the key
+	 * @return the hashed value: int
+	 */
+	private int hash(Object key)
+	{
+		return (key.hashCode() & 0x7fffffff) % keys.length;
+	}
+
+	/**
+	 * Locates the given key using a single probe sequence starting from its hashed slot.
+	 * @param key: the key to locate
+	 * @return the index of the key if present, otherwise -(insertion point + 1): int
+	 */
+	private int find(Object key)
+	{
+		int idx = hash(key);
+		for ( int offset=0; offset<keys.length; offset++)
+		{
+			int i = (idx + offset) % keys.length;
+			if ( keys[i] == null || distances[i] < offset )
+				return -(i+1);
+			if ( keys[i].equals(key) )
+				return i;
+		}
+		return -(idx+1);
+	}
+
+	/**
+	 * @return the number of entries in the cache: int
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if the cache holds no entries: boolean
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return the maximum number of entries in the cache, or Integer.MAX_VALUE if it is bounded by weight: int
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the maximum total weight of the entries; the capacity if every entry weighs one: long
+	 */
+	public long maximumWeight() {
+		return maximumWeight;
+	}
+
+	/**
+	 * @return the total weight of the entries in the cache; the size if every entry weighs one: long
+	 */
+	public long weight() {
+		return weight;
+	}
+
+	/**
+	 * @return the total weight of the entries evicted to make room for new entries: long
+	 */
+	public long evictionWeight() {
+		return evictionWeight;
+	}
+
+	/**
+	 * @return the number of entries evicted to make room for new keys: long
+	 */
+	public long evictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * @return the number of calls to get that found their key: long
+	 */
+	public long hitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @return the number of calls to get that did not find their key: long
+	 */
+	public long missCount() {
+		return missCount;
+	}
+
+	/**
+	 * Returns true if the key is in the cache. Unlike get, this does not count
+	 * as a use of the entry.
+	 * @param key: the key to look for
+	 * @return true if the key is present: boolean
+	 */
+	public boolean containsKey(Object key) {
+		if ( size == 0 || key == null ) return false;
+		return find(key) >= 0;
+	}
+
+	/**
+	 * Returns the value for the given key and sets the reference bit of its entry,
+	 * so that the clock hand passes over it once before it can be evicted.
+	 * @param key: the key to look up
+	 * @return the value, or null if the key is absent: V
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		int i = ( size == 0 || key == null ) ? -1 : find(key);
+		if ( i < 0 )
+		{
+			missCount++;
+			return null;
+		}
+		hitCount++;
+		referenced[i] = true;
+		return (V) values[i];
+	}
+
+	/**
+	 * Associates the value with the key. If the key is new and the cache is full,
+	 * an entry is evicted first; in a cache bounded by weight, entries are evicted
+	 * until the new weight fits, which may include the entry being replaced. A new
+	 * entry starts with its reference bit clear, so an entry that is never read is
+	 * the first to be evicted.
+	 * @param key: the key
+	 * @param value: the value
+	 * @return the value, or null if the key or value is null or the entry is heavier than the maximum weight: V
+	 */
+	public V put(K key, V value) {
+		if ( key == null || value == null )
+		{
+			return null;
+		}
+
+		int w = 1;
+		if ( weigher != null )
+		{
+			w = weigher.weigh(key, value);
+			if ( w < 0 ) throw new IllegalArgumentException("Invalid weight for entry");
+		}
+		int i = find(key);
+		if ( w > maximumWeight )
+		{
+			if ( i >= 0 )
+				removeAt(i);
+			return null;
+		}
+		if ( i >= 0 )
+		{
+			values[i] = value;
+			if ( weights != null )
+			{
+				weight += w - weights[i];
+				weights[i] = w;
+				while ( weight > maximumWeight )
+					evict();
+			}
+			return value;
+		}
+		if ( weight + w > maximumWeight )
+		{
+			while ( weight + w > maximumWeight )
+				evict();
+			i = find(key);
+		}
+		if ( weights != null && size >= keys.length * LOAD_FACTOR )
+		{
+			resize(keys.length * 2);
+			i = find(key);
+		}
+		insertAt(-i-1, key, value, w, false);
+		return value;
+	}
+
+	/**
+	 * Removes the key from the cache.
+	 * @param key: the key to remove
+	 * @return the value that was mapped to the key, or null if absent: V
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(Object key) {
+		if ( size == 0 || key == null ) return null;
+		int i = find(key);
+		if ( i < 0 )
+			return null;
+		V value = (V) values[i];
+		removeAt(i);
+		return value;
+	}
+
+	/**
+	 * Removes every entry from the cache. The statistics are kept.
+	 */
+	public void clear() {
+		Arrays.fill(keys, null);
+		Arrays.fill(values, null);
+		Arrays.fill(distances, 0);
+		Arrays.fill(referenced, false);
+		hand = 0;
+		size = 0;
+		weight = 0;
+		modCount++;
+	}
+
+	/**
+	 * Passes every key-value pair to the given action. This does not count
+	 * as a use of the entries.
+	 * @param action: the action to perform on each pair
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEach(BiConsumer<? super K, ? super V> action) {
+		int expectedModCount = modCount;
+		for ( int i=0; i<keys.length; i++ )
+		{
+			if ( keys[i] == null )
+				continue;
+			action.accept( (K) keys[i], (V) values[i] );
+			if ( modCount != expectedModCount )
+				throw new ConcurrentModificationException();
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder s = new StringBuilder("RobinHoodCache:[" );
+		int n=0;
+		for ( int i=0; i<keys.length; i++ )
+		{
+			if ( keys[i] == null )
+				continue;
+			if ( n++ > 0 )
+			{
+				s.append( ", " );
+			}
+			s.append( keys[i] ).append( "=" ).append( values[i] );
+		}
+		s.append( "]" );
+		return  s.toString();
+	}
+
+	/**
+	 * Advances the clock hand until it reaches an entry whose reference bit is clear,
+	 * clearing every set bit it passes, then removes that entry. The backward shift
+	 * moves the following entry into the hand's slot, so the hand stays where it is.
+	 */
+	private void evict()
+	{
+		while ( true )
+		{
+			if ( keys[hand] != null )
+			{
+				if ( !referenced[hand] )
+				{
+					evictionWeight += weights == null ? 1 : weights[hand];
+					removeAt(hand);
+					evictionCount++;
+					return;
+				}
+				referenced[hand] = false;
+			}
+			hand = (hand + 1) % keys.length;
+		}
+	}
+
+	/**
+	 * Replaces the slot array with one of the given length and inserts every entry
+	 * again, keeping its weight and reference bit. The clock hand starts over.
+	 * @param length: the new length of the slot array
+	 */
+	private void resize(int length)
+	{
+		Object[] oldKeys = keys;
+		Object[] oldValues = values;
+		boolean[] oldReferenced = referenced;
+		int[] oldWeights = weights;
+		keys = new Object[length];
+		values = new Object[length];
+		distances = new int[length];
+		referenced = new boolean[length];
+		weights = new int[length];
+		size = 0;
+		weight = 0;
+		hand = 0;
+		for ( int i=0; i<oldKeys.length; i++ )
+		{
+			if ( oldKeys[i] != null )
+				insertAt(-find(oldKeys[i])-1, oldKeys[i], oldValues[i], oldWeights[i], oldReferenced[i]);
+		}
+	}
+
+	/**
+	 * Adds a new key-value pair at the insertion point found by a previous probe,
+	 * displacing any entry that is closer to its hashed slot. A displaced entry
+	 * keeps its weight and reference bit.
+	 * @param i: the insertion point
+	 * @param key: the key to add
+	 * @param value: the value to add
+	 * @param w: the weight of the entry
+	 * @param ref: the reference bit of the entry
+	 */
+	private void insertAt(int i, Object key, Object value, int w, boolean ref)
+	{
+		int distance = (i - hash(key) + keys.length) % keys.length;
+		weight += w;
+		while ( keys[i] != null )
+		{
+			if ( distances[i] < distance )
+			{
+				Object displacedKey = keys[i];
+				Object displacedValue = values[i];
+				int displacedDistance = distances[i];
+				boolean displacedRef = referenced[i];
+				keys[i] = key;
+				values[i] = value;
+				distances[i] = distance;
+				referenced[i] = ref;
+				key = displacedKey;
+				value = displacedValue;
+				distance = displacedDistance;
+				ref = displacedRef;
+				if ( weights != null )
+				{
+					int displacedWeight = weights[i];
+					weights[i] = w;
+					w = displacedWeight;
+				}
+			}
+			i = (i + 1) % keys.length;
+			distance++;
+		}
+		keys[i] = key;
+		values[i] = value;
+		distances[i] = distance;
+		referenced[i] = ref;
+		if ( weights != null )
+			weights[i] = w;
+		size++;
+		modCount++;
+	}
+
+	/**
+	 * Removes the entry in the given slot, shifting each subsequent entry
+	 * that is away from its hashed slot back by one position.
+	 * @param i: the slot to empty
+	 */
+	private void removeAt(int i)
+	{
+		weight -= weights == null ? 1 : weights[i];
+		int j = (i + 1) % keys.length;
+		while ( keys[j] != null && distances[j] > 0 )
+		{
+			keys[i] = keys[j];
+			values[i] = values[j];
+			distances[i] = distances[j] - 1;
+			referenced[i] = referenced[j];
+			if ( weights != null )
+				weights[i] = weights[j];
+			i = j;
+			j = (i + 1) % keys.length;
+		}
+		keys[i] = null;
+		values[i] = null;
+		distances[i] = 0;
+		referenced[i] = false;
+		size--;
+		modCount++;
+	}
+
+	/**
+	 * Collects the bound of a cache before it is made. A cache is bounded either by
+	 * its number of entries, with maximumSize, or by the total weight of its entries,
+	 * with maximumWeight and weigher together.
+	 *
+	 * @param <K> The key type of the cache.
+	 * @param <V> The value type of the cache.
+	 */
+	public static class Builder<K, V> {
+
+		/** The maximum number of entries, or -1 if not set **/
+		private int maximumSize = -1;
+
+		/** The maximum total weight of the entries, or -1 if not set **/
+		private long maximumWeight = -1;
+
+		/** Computes the weight of each entry, or null if not set **/
+		private Weigher<? super K, ? super V> weigher;
+
+		/** The number of entries the slot array of a weighted cache is first sized for **/
+		private int initialCapacity = DEFAULT_CAPACITY;
+
+		/**
+		 * @param maximumSize: the maximum number of entries in the cache
+		 * @return this builder: Builder
+		 */
+		public Builder<K, V> maximumSize(int maximumSize)
+		{
+			if ( maximumSize <= 0 ) throw new IllegalArgumentException("Invalid maximum size for cache");
+			this.maximumSize = maximumSize;
+			return this;
+		}
+
+		/**
+		 * @param maximumWeight: the maximum total weight of the entries in the cache
+		 * @return this builder: Builder
+		 */
+		public Builder<K, V> maximumWeight(long maximumWeight)
+		{
+			if ( maximumWeight <= 0 ) throw new IllegalArgumentException("Invalid weight for cache");
+			this.maximumWeight = maximumWeight;
+			return this;
+		}
+
+		/**
+		 * @param weigher: computes the weight of each entry when it is put
+		 * @return this builder: Builder
+		 */
+		public Builder<K, V> weigher(Weigher<? super K, ? super V> weigher)
+		{
+			if ( weigher == null ) throw new NullPointerException();
+			this.weigher = weigher;
+			return this;
+		}
+
+		/**
+		 * @param initialCapacity: the number of entries a weighted cache is first sized for
+		 * @return this builder: Builder
+		 */
+		public Builder<K, V> initialCapacity(int initialCapacity)
+		{
+			if ( initialCapacity <= 0 ) throw new IllegalArgumentException("Invalid initial capacity for cache");
+			this.initialCapacity = initialCapacity;
+			return this;
+		}
+
+		/**
+		 * @return a new, empty cache with the bound of this builder: RobinHoodCache
+		 * @throws IllegalArgumentException if the bound is missing or ambiguous
+		 */
+		public RobinHoodCache<K, V> build()
+		{
+			if ( maximumWeight >= 0 )
+			{
+				if ( weigher == null || maximumSize >= 0 )
+					throw new IllegalArgumentException("Maximum weight requires a weigher and no maximum size");
+				return new RobinHoodCache<K, V>( this );
+			}
+			if ( weigher != null )
+				throw new IllegalArgumentException("Weigher requires a maximum weight");
+			return new RobinHoodCache<K, V>( maximumSize >= 0 ? maximumSize : DEFAULT_CAPACITY );
+		}
+
+	}
+
+}
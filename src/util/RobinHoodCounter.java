@@ -0,0 +1,352 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Counts occurrences of keys using the robinhood hashing technique, keeping the counts
+ * in a long[] beside the keys so that incrementing never boxes. An increment makes a
+ * single probe, which either finds the key or ends at the slot where the key is added;
+ * only a new key that grows the table probes again. The table doubles when a new key
+ * would fill more than three quarters of it, up to the largest array the runtime
+ * allows; a key added once every slot of that is in use is refused with an
+ * IllegalStateException. Counts may be negative, and a key whose count returns to zero
+ * is removed, so only keys with a nonzero count are kept.
+ *
+ * The most frequent keys are extracted with a heap of k slots that is filled in one
+ * pass over the slot array, and counters filled separately, such as one per thread,
+ * are combined with mergeFrom or, in parallel, with mergeAll.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ *
+ * @param <K> The key type of the counter.
+ */
+public class RobinHoodCounter<K> {
+
+	/** The default size of the array is 20 unless overridden by the constructor. **/
+	private static final int DEFAULT_CAPACITY = 20;
+
+	/** The load factor at which the table doubles **/
+	private static final double MAX_LOAD = 0.75;
+
+	/** The key in each slot, or null if the slot is empty **/
+	private Object[] keys;
+
+	/** The count of the key in each slot **/
+	private long[] counts;
+
+	/** The offset distance of each slot from the hashed slot of its key **/
+	private int[] distances;
+
+	/** The number of keys in the counter **/
+	private int size = 0;
+
+	/** The number of structural modifications, used to detect concurrent modification **/
+	private int modCount = 0;
+
+	/**
+	 * Instantiates the RobinHoodCounter with a small number of storage locations
+	 * by default, which grows as keys are added.
+	 */
+	public RobinHoodCounter( )
+	{
+		this( DEFAULT_CAPACITY );
+	}
+
+	/**
+	 * Instantiates the RobinHoodCounter with the given number of slots.
+	 * @param capacity: the initial number of slots.
+	 */
+	public RobinHoodCounter( int capacity )
+	{
+		if ( capacity <= 0 ) throw new IllegalArgumentException("Invalid capacity for counter");
+		allocate( capacity );
+	}
+
+	/**
+	 * Allocates empty slots.
+	 * @param length: the number of slots
+	 */
+	private void allocate(int length)
+	{
+		this.keys = new Object[length];
+		this.counts = new long[length];
+		this.distances = new int[length];
+	}
+
+	/**
+	 * Produces the hash value of the key
+	 * @param key: the key
+	 * @return the hashed value: int
+	 */
+	private int hash(Object key)
+	{
+		return (key.hashCode() & 0x7fffffff) % keys.length;
+	}
+
+	/**
+	 * Locates the given key using a single probe sequence starting from its hashed slot.
+	 * @param key: the key to locate
+	 * @return the index of the key if present, otherwise -(insertion point + 1): int
+	 */
+	private int find(Object key)
+	{
+		int idx = hash(key);
+		for ( int offset=0; offset<keys.length; offset++)
+		{
+			int i = (idx + offset) % keys.length;
+			if ( keys[i] == null || distances[i] < offset )
+				return -(i+1);
+			if ( keys[i].equals(key) )
+				return i;
+		}
+		return -(idx+1);
+	}
+
+	/**
+	 * Adds the given amount to the count of the key, adding the key with that count
+	 * if it is absent and removing it if its count becomes zero.
+	 * @param key: the key to count
+	 * @param delta: the amount to add
+	 * @return the new count, or 0 if the key is null: long
+	 * @throws IllegalStateException if the key is new and every slot is in use
+	 */
+	public long increment(K key, long delta) {
+		if ( key == null ) return 0;
+		int i = find(key);
+		if ( i >= 0 )
+		{
+			long count = counts[i] += delta;
+			if ( count == 0 )
+				removeAt(i);
+			return count;
+		}
+		if ( delta == 0 )
+			return 0;
+		if ( size + 1 > MAX_LOAD * keys.length && keys.length < Counters.MAX_SLOTS )
+		{
+			resize( Counters.grow( keys.length ) );
+			i = find(key);
+		}
+		if ( size == keys.length ) throw new IllegalStateException("Counter is full");
+		insertAt(-i-1, key, delta);
+		return delta;
+	}
+
+	/**
+	 * Adds one to the count of the key.
+	 * @param key: the key to count
+	 * @return the new count, or 0 if the key is null: long
+	 */
+	public long increment(K key) {
+		return increment(key, 1);
+	}
+
+	/**
+	 * @param key: the key
+	 * @return the count of the key, or 0 if it is absent: long
+	 */
+	public long get(Object key) {
+		if ( size == 0 || key == null ) return 0;
+		int i = find(key);
+		return i >= 0 ? counts[i] : 0;
+	}
+
+	/**
+	 * @param key: the key
+	 * @return true if the key has been counted: boolean
+	 */
+	public boolean containsKey(Object key) {
+		if ( size == 0 || key == null ) return false;
+		return find(key) >= 0;
+	}
+
+	/**
+	 * Removes the key and its count.
+	 * @param key: the key to remove
+	 * @return the count of the key, or 0 if it is absent: long
+	 */
+	public long remove(Object key) {
+		if ( size == 0 || key == null ) return 0;
+		int i = find(key);
+		if ( i < 0 )
+			return 0;
+		long count = counts[i];
+		removeAt(i);
+		return count;
+	}
+
+	/**
+	 * @return the number of keys in the counter: int
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if no key has been counted: boolean
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes every key.
+	 */
+	public void clear() {
+		Arrays.fill(keys, null);
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * Passes every key and its count to the given action without boxing the count.
+	 * @param action: the action to perform on each key and count
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEach(ObjLongConsumer<? super K> action) {
+		int expectedModCount = modCount;
+		for ( int i=0; i<keys.length; i++ )
+		{
+			if ( keys[i] == null )
+				continue;
+			action.accept( (K) keys[i], counts[i] );
+			if ( modCount != expectedModCount )
+				throw new ConcurrentModificationException();
+		}
+	}
+
+	/**
+	 * Returns the keys with the highest counts, highest first, found with a heap of
+	 * k slots filled in one pass over the slot array.
+	 * @param k: the number of keys to return
+	 * @return up to k keys, ordered by decreasing count: List
+	 */
+	@SuppressWarnings("unchecked")
+	public List<K> topK(int k) {
+		int[] slots = Counters.topSlots(counts, i -> keys[i] != null, size, k);
+		List<K> top = new ArrayList<K>(slots.length);
+		for ( int slot: slots )
+			top.add( (K) keys[slot] );
+		return top;
+	}
+
+	/**
+	 * Adds the count of every key of the other counter to this one.
+	 * @param other: the counter to merge in
+	 */
+	@SuppressWarnings("unchecked")
+	public void mergeFrom(RobinHoodCounter<? extends K> other) {
+		if ( other == this )
+			throw new IllegalArgumentException("Cannot merge a counter into itself");
+		for ( int i=0; i<other.keys.length; i++ )
+			if ( other.keys[i] != null )
+				increment( (K) other.keys[i], other.counts[i] );
+	}
+
+	/**
+	 * Combines the given counters, such as one per thread, by merging them in pairs
+	 * in parallel, then the results in pairs, until one counter remains. The counters
+	 * must not be in use elsewhere while they are merged; their contents afterwards
+	 * are unspecified.
+	 * @param counters: the counters to combine
+	 * @return a counter holding the sum of the counts: RobinHoodCounter
+	 */
+	public static <K> RobinHoodCounter<K> mergeAll(List<RobinHoodCounter<K>> counters) {
+		return Counters.mergeAll(counters, RobinHoodCounter::mergeFrom, RobinHoodCounter<K>::new);
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder s = new StringBuilder("RobinHoodCounter:[" );
+		int n=0;
+		for ( int i=0; i<keys.length; i++ )
+		{
+			if ( keys[i] == null )
+				continue;
+			if ( n++ > 0 )
+			{
+				s.append( ", " );
+			}
+			s.append( keys[i] ).append( "=" ).append( counts[i] );
+		}
+		s.append( "]" );
+		return  s.toString();
+	}
+
+	/**
+	 * Rehashes every key into a new array of the given length.
+	 * @param length: the number of slots in the new array
+	 */
+	private void resize(int length)
+	{
+		Object[] oldKeys = this.keys;
+		long[] oldCounts = this.counts;
+		allocate(length);
+		this.size = 0;
+		for ( int i=0; i<oldKeys.length; i++ )
+			if ( oldKeys[i] != null )
+				insertAt(-find(oldKeys[i]) - 1, oldKeys[i], oldCounts[i]);
+	}
+
+	/**
+	 * Adds a new key at the insertion point found by a previous probe,
+	 * displacing any key that is closer to its hashed slot.
+	 * @param i: the insertion point
+	 * @param key: the key to add
+	 * @param count: the count of the key
+	 */
+	private void insertAt(int i, Object key, long count)
+	{
+		int distance = (i - hash(key) + keys.length) % keys.length;
+		while ( keys[i] != null )
+		{
+			if ( distances[i] < distance )
+			{
+				Object displacedKey = keys[i];
+				long displacedCount = counts[i];
+				int displacedDistance = distances[i];
+				keys[i] = key;
+				counts[i] = count;
+				distances[i] = distance;
+				key = displacedKey;
+				count = displacedCount;
+				distance = displacedDistance;
+			}
+			i = (i + 1) % keys.length;
+			distance++;
+		}
+		keys[i] = key;
+		counts[i] = count;
+		distances[i] = distance;
+		size++;
+		modCount++;
+	}
+
+	/**
+	 * Removes the key in the given slot, shifting each subsequent key
+	 * that is away from its hashed slot back by one position.
+	 * @param i: the slot to empty
+	 */
+	private void removeAt(int i)
+	{
+		int j = (i + 1) % keys.length;
+		while ( keys[j] != null && distances[j] > 0 )
+		{
+			keys[i] = keys[j];
+			counts[i] = counts[j];
+			distances[i] = distances[j] - 1;
+			i = j;
+			j = (i + 1) % keys.length;
+		}
+		keys[i] = null;
+		distances[i] = 0;
+		size--;
+		modCount++;
+	}
+
+}
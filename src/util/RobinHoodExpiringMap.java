@@ -0,0 +1,611 @@
+package util;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Implements a map collection (no duplicate keys) using the robinhood hashing technique
+ * in which every entry expires after a time to live. The time to live is counted either
+ * from when the entry was last written, or from when it was last read or written.
+ *
+ * Expired entries are found with a hierarchical timer wheel rather than by scanning the
+ * slot array: four levels of 64 buckets, each level covering 64 times the span of the level
+ * below, with the lowest level advancing about once a millisecond. Each bucket is a
+ * doubly-linked list threaded through int arrays parallel to the slot array, so the wheel
+ * refers to entries by slot index and allocates nothing. When an entry moves to another
+ * slot, its links and deadline move with it.
+ *
+ * The wheel is advanced at the start of every operation, so the work of expiring entries is
+ * spread over the calls that use the map; an optional maintenance thread advances it while
+ * the map is idle. An entry whose deadline has passed is never returned, even if the wheel
+ * has not yet removed it. All operations are synchronized so that the maintenance thread
+ * can run while the map is in use.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ *
+ * @param <K> The key type of the map.
+ * @param <V> The value type of the map.
+ */
+public class RobinHoodExpiringMap<K, V> {
+
+	/** The default size of the array is 20 unless overridden by the constructor. **/
+	private static final int DEFAULT_CAPACITY = 20;
+
+	/** The duration of one tick of the lowest wheel level is 2^20 nanoseconds (about a millisecond) **/
+	private static final int TICK_SHIFT = 20;
+
+	/** The number of bits of a tick count that select a bucket within one level **/
+	private static final int LEVEL_BITS = 6;
+
+	/** The number of buckets in each level of the wheel **/
+	private static final int BUCKETS = 1 << LEVEL_BITS;
+
+	/** The number of levels of the wheel **/
+	private static final int LEVELS = 4;
+
+	/** Marks the end of a bucket list **/
+	private static final int NIL = -1;
+
+	/** The keys in each slot; null if the slot is empty **/
+	private Object[] keys;
+
+	/** The values in each slot **/
+	private Object[] values;
+
+	/** The offset distance of each slot from the hashed slot of its key **/
+	private int[] distances;
+
+	/** The time, in nanoseconds since the map was created, at which each entry expires **/
+	private long[] deadlines;
+
+	/** The time to live of each entry in nanoseconds **/
+	private long[] ttls;
+
+	/** The bucket holding each entry **/
+	private int[] bucketOf;
+
+	/** The slot of the previous entry in the same bucket, for each slot **/
+	private int[] prev;
+
+	/** The slot of the next entry in the same bucket, for each slot **/
+	private int[] next;
+
+	/** The slot of the first entry in each bucket; the last bucket holds entries being processed **/
+	private int[] buckets;
+
+	/** The position in the per-entry arrays holding the entry being carried during an insert **/
+	private int carry;
+
+	/** A position in the per-entry arrays used while exchanging an entry with the carried one **/
+	private int spare;
+
+	/** The time to live given to entries put without one, in nanoseconds **/
+	private final long defaultTtl;
+
+	/** True if reading an entry restarts its time to live **/
+	private final boolean expireAfterAccess;
+
+	/** The source of the current time in nanoseconds **/
+	private final LongSupplier ticker;
+
+	/** The ticker value when the map was created **/
+	private final long origin;
+
+	/** The tick up to which the wheel has been advanced **/
+	private long currentTick = 0;
+
+	/** The number of elements in the map **/
+	private int size = 0;
+
+	/** The executor running the maintenance thread, or null if it is not running **/
+	private ScheduledExecutorService maintenance;
+
+	/**
+	 * Instantiates the RobinHoodExpiringMap with a small number of storage locations
+	 * by default and the given time to live counted from each write.
+	 * @param ttl: the time to live of entries
+	 * @param unit: the unit of the time to live
+	 */
+	public RobinHoodExpiringMap( long ttl, TimeUnit unit )
+	{
+		this( DEFAULT_CAPACITY, ttl, unit, false );
+	}
+
+	/**
+	 * Instantiates the RobinHoodExpiringMap with the given capacity and time to live.
+	 * @param capacity: the maximum capacity of the map.
+	 * @param ttl: the time to live of entries put without one
+	 * @param unit: the unit of the time to live
+	 * @param expireAfterAccess: true to restart the time to live when an entry is read
+	 */
+	public RobinHoodExpiringMap( int capacity, long ttl, TimeUnit unit, boolean expireAfterAccess )
+	{
+		this( capacity, ttl, unit, expireAfterAccess, System::nanoTime );
+	}
+
+	/**
+	 * Instantiates the RobinHoodExpiringMap with the given capacity, time to live and
+	 * source of time. Should only be used for testing purposes.
+	 * @param capacity: the maximum capacity of the map.
+	 * @param ttl: the time to live of entries put without one
+	 * @param unit: the unit of the time to live
+	 * @param expireAfterAccess: true to restart the time to live when an entry is read
+	 * @param ticker: produces the current time in nanoseconds
+	 */
+	public RobinHoodExpiringMap( int capacity, long ttl, TimeUnit unit, boolean expireAfterAccess, LongSupplier ticker )
+	{
+		if ( capacity <= 0 ) throw new IllegalArgumentException("Invalid capacity for expiring map");
+		if ( ttl <= 0 ) throw new IllegalArgumentException("Invalid time to live");
+		this.keys = new Object[capacity];
+		this.values = new Object[capacity];
+		this.distances = new int[capacity];
+		this.deadlines = new long[capacity + 2];
+		this.ttls = new long[capacity + 2];
+		this.bucketOf = new int[capacity + 2];
+		this.prev = new int[capacity + 2];
+		this.next = new int[capacity + 2];
+		this.buckets = new int[LEVELS * BUCKETS + 1];
+		Arrays.fill(buckets, NIL);
+		this.carry = capacity;
+		this.spare = capacity + 1;
+		this.defaultTtl = unit.toNanos(ttl);
+		this.expireAfterAccess = expireAfterAccess;
+		this.ticker = ticker;
+		this.origin = ticker.getAsLong();
+	}
+
+	/**
+	 * Produces the hash value of the key
+	 * @param key: the key
+	 * @return the hashed value: int
+	 */
+	private int hash(Object key)
+	{
+		return (key.hashCode() & 0x7fffffff) % keys.length;
+	}
+
+	/**
+	 * Locates the given key using a single probe sequence starting from its hashed slot.
+	 * @param key: the key to locate
+	 * @return the index of the key if present, otherwise -(insertion point + 1): int
+	 */
+	private int find(Object key)
+	{
+		int idx = hash(key);
+		for ( int offset=0; offset<keys.length; offset++)
+		{
+			int i = (idx + offset) % keys.length;
+			if ( keys[i] == null || distances[i] < offset )
+				return -(i+1);
+			if ( keys[i].equals(key) )
+				return i;
+		}
+		return -(idx+1);
+	}
+
+	/**
+	 * @return the time in nanoseconds since the map was created: long
+	 */
+	private long now()
+	{
+		return ticker.getAsLong() - origin;
+	}
+
+	/**
+	 * Returns the number of entries that have not expired. Entries that expired
+	 * within the last tick of the wheel may still be counted.
+	 * @return the number of entries: int
+	 */
+	public synchronized int size() {
+		advance(now());
+		return size;
+	}
+
+	/**
+	 * @return true if the map holds no entries that have not expired: boolean
+	 */
+	public synchronized boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Returns true if this map is at capacity and cannot accept any new
+	 * elements.
+	 * @return true if the map is full: boolean
+	 */
+	public synchronized boolean isFull() {
+		return size() == keys.length;
+	}
+
+	/**
+	 * @param key: the key to look for
+	 * @return true if the key is present and has not expired: boolean
+	 */
+	public synchronized boolean containsKey(Object key) {
+		if ( key == null ) return false;
+		long now = now();
+		advance(now);
+		return size > 0 && live(find(key), now) >= 0;
+	}
+
+	/**
+	 * Returns the value for the given key. If the map expires entries after access,
+	 * the time to live of the entry restarts.
+	 * @param key: the key to look up
+	 * @return the value, or null if the key is absent or has expired: V
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized V get(Object key) {
+		if ( key == null ) return null;
+		long now = now();
+		advance(now);
+		int i = size > 0 ? live(find(key), now) : -1;
+		if ( i < 0 )
+			return null;
+		if ( expireAfterAccess )
+			reschedule(i, now);
+		return (V) values[i];
+	}
+
+	/**
+	 * Associates the value with the key using the default time to live.
+	 * @param key: the key
+	 * @param value: the value
+	 * @return the value, or null if the key or value is null or the map is full: V
+	 */
+	public V put(K key, V value) {
+		return put(key, value, defaultTtl, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Associates the value with the key using the given time to live.
+	 * @param key: the key
+	 * @param value: the value
+	 * @param ttl: the time to live of the entry
+	 * @param unit: the unit of the time to live
+	 * @return the value, or null if the key or value is null or the map is full: V
+	 */
+	public synchronized V put(K key, V value, long ttl, TimeUnit unit) {
+		if ( key == null || value == null )
+		{
+			return null;
+		}
+		if ( ttl <= 0 ) throw new IllegalArgumentException("Invalid time to live");
+
+		long now = now();
+		advance(now);
+		int i = find(key);
+		if ( i >= 0 )
+		{
+			values[i] = value;
+			ttls[i] = unit.toNanos(ttl);
+			reschedule(i, now);
+			return value;
+		}
+		if ( size == keys.length )
+		{
+			process( (int) ((currentTick + 1) & (BUCKETS - 1)), now );
+			if ( size == keys.length )
+				return null;
+			i = find(key);
+		}
+		ttls[carry] = unit.toNanos(ttl);
+		insertAt(-i-1, key, value, now);
+		return value;
+	}
+
+	/**
+	 * Removes the key from the map.
+	 * @param key: the key to remove
+	 * @return the value that was mapped to the key, or null if absent or expired: V
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized V remove(Object key) {
+		if ( key == null ) return null;
+		long now = now();
+		advance(now);
+		int i = size > 0 ? live(find(key), now) : -1;
+		if ( i < 0 )
+			return null;
+		V value = (V) values[i];
+		removeSlot(i);
+		return value;
+	}
+
+	/**
+	 * Removes every entry from the map.
+	 */
+	public synchronized void clear() {
+		Arrays.fill(keys, null);
+		Arrays.fill(values, null);
+		Arrays.fill(buckets, NIL);
+		size = 0;
+	}
+
+	/**
+	 * Removes the entries that have expired by advancing the timer wheel to the current time.
+	 */
+	public synchronized void cleanUp() {
+		advance(now());
+	}
+
+	/**
+	 * Starts a daemon thread that calls cleanUp at the given period, so that entries
+	 * are removed even while the map is not being used. Does nothing if the thread is
+	 * already running.
+	 * @param period: the time between clean ups
+	 * @param unit: the unit of the period
+	 */
+	public synchronized void startMaintenance(long period, TimeUnit unit) {
+		if ( maintenance != null )
+			return;
+		maintenance = Executors.newSingleThreadScheduledExecutor( runnable -> {
+			Thread thread = new Thread( runnable, "RobinHoodExpiringMap-maintenance" );
+			thread.setDaemon( true );
+			return thread;
+		});
+		maintenance.scheduleAtFixedRate( this::cleanUp, period, period, unit );
+	}
+
+	/**
+	 * Stops the maintenance thread, if it is running.
+	 */
+	public synchronized void stopMaintenance() {
+		if ( maintenance == null )
+			return;
+		maintenance.shutdownNow();
+		maintenance = null;
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		long now = now();
+		advance(now);
+		StringBuilder s = new StringBuilder("RobinHoodExpiringMap:[" );
+		int n=0;
+		for ( int i=0; i<keys.length; i++ )
+		{
+			if ( keys[i] == null || deadlines[i] <= now )
+				continue;
+			if ( n++ > 0 )
+			{
+				s.append( ", " );
+			}
+			s.append( keys[i] ).append( "=" ).append( values[i] );
+		}
+		s.append( "]" );
+		return  s.toString();
+	}
+
+	/**
+	 * Checks the result of a probe against the deadline of the entry found. An entry
+	 * whose deadline has passed is removed and reported as absent.
+	 * @param i: the result of find
+	 * @param now: the current time
+	 * @return the slot of the entry if it is present and live, otherwise -1: int
+	 */
+	private int live(int i, long now)
+	{
+		if ( i < 0 )
+			return -1;
+		if ( deadlines[i] <= now )
+		{
+			removeSlot(i);
+			return -1;
+		}
+		return i;
+	}
+
+	/**
+	 * Produces the first tick at or after the given time.
+	 * @param time: a time in nanoseconds since the map was created
+	 * @return the tick: long
+	 */
+	private static long ceilTick(long time)
+	{
+		return (time >> TICK_SHIFT) + ((time & ((1L << TICK_SHIFT) - 1)) != 0 ? 1 : 0);
+	}
+
+	/**
+	 * Advances the wheel to the given time. For each level, only the buckets whose
+	 * span of ticks has been reached since the last advance are examined: at most
+	 * 64 per level, however long the map has been idle. Entries in those buckets
+	 * have either expired and are removed, or are placed in a lower level.
+	 * @param now: the current time
+	 */
+	private void advance(long now)
+	{
+		long tick = now >> TICK_SHIFT;
+		if ( tick <= currentTick )
+			return;
+		long previous = currentTick;
+		currentTick = tick;
+		for ( int level=LEVELS-1; level>=0; level-- )
+		{
+			int shift = level * LEVEL_BITS;
+			long from = (previous >> shift) + 1;
+			long to = tick >> shift;
+			long count = Math.min( BUCKETS, to - from + 1 );
+			for ( long unit=from; unit<from+count; unit++ )
+				process( level * BUCKETS + (int) (unit & (BUCKETS - 1)), now );
+		}
+	}
+
+	/**
+	 * Removes the expired entries of a bucket and places the others again. The bucket
+	 * is first moved to the processing bucket, so that entries placed again in the same
+	 * bucket are not examined twice; entries are then always taken from the head of the
+	 * processing bucket, so the list stays intact while removals shift other entries.
+	 * @param b: the bucket to process
+	 * @param now: the current time
+	 */
+	private void process(int b, long now)
+	{
+		int processing = LEVELS * BUCKETS;
+		if ( buckets[b] == NIL )
+			return;
+		buckets[processing] = buckets[b];
+		buckets[b] = NIL;
+		for ( int i=buckets[processing]; i!=NIL; i=next[i] )
+			bucketOf[i] = processing;
+		while ( buckets[processing] != NIL )
+		{
+			int i = buckets[processing];
+			if ( deadlines[i] <= now )
+			{
+				removeSlot(i);
+			}
+			else
+			{
+				unlink(i);
+				schedule(i);
+			}
+		}
+	}
+
+	/**
+	 * Restarts the time to live of the entry in the given slot.
+	 * @param i: the slot of the entry
+	 * @param now: the current time
+	 */
+	private void reschedule(int i, long now)
+	{
+		unlink(i);
+		deadlines[i] = deadline(now, ttls[i]);
+		schedule(i);
+	}
+
+	/**
+	 * @param now: the current time
+	 * @param ttl: a time to live
+	 * @return the deadline, saturating rather than overflowing: long
+	 */
+	private static long deadline(long now, long ttl)
+	{
+		return ttl > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + ttl;
+	}
+
+	/**
+	 * Links the entry at the given position into the bucket for its deadline. The
+	 * level is the lowest whose span covers the ticks until the deadline; a deadline
+	 * beyond the span of the wheel is placed at the end of the top level and placed
+	 * again when that bucket is reached.
+	 * @param i: the position of the entry
+	 */
+	private void schedule(int i)
+	{
+		long target = Math.max( ceilTick(deadlines[i]), currentTick + 1 );
+		long delta = target - currentTick;
+		int level = 0;
+		while ( level < LEVELS - 1 && delta >= 1L << ((level + 1) * LEVEL_BITS) )
+			level++;
+		if ( delta >= 1L << (LEVELS * LEVEL_BITS) )
+			target = currentTick + (1L << (LEVELS * LEVEL_BITS)) - 1;
+		int b = level * BUCKETS + (int) ((target >> (level * LEVEL_BITS)) & (BUCKETS - 1));
+		bucketOf[i] = b;
+		prev[i] = NIL;
+		next[i] = buckets[b];
+		if ( buckets[b] != NIL )
+			prev[buckets[b]] = i;
+		buckets[b] = i;
+	}
+
+	/**
+	 * Removes the entry at the given position from its bucket.
+	 * @param i: the position of the entry
+	 */
+	private void unlink(int i)
+	{
+		int p = prev[i], n = next[i];
+		if ( p == NIL ) buckets[bucketOf[i]] = n; else next[p] = n;
+		if ( n != NIL ) prev[n] = p;
+	}
+
+	/**
+	 * Moves the deadline, time to live and bucket links of an entry to another
+	 * position, which must not be linked, and updates its neighbors.
+	 * @param from: the current position of the entry
+	 * @param to: the new position of the entry
+	 */
+	private void relocate(int from, int to)
+	{
+		int p = prev[from], n = next[from];
+		deadlines[to] = deadlines[from];
+		ttls[to] = ttls[from];
+		bucketOf[to] = bucketOf[from];
+		prev[to] = p;
+		next[to] = n;
+		if ( p == NIL ) buckets[bucketOf[to]] = to; else next[p] = to;
+		if ( n != NIL ) prev[n] = to;
+	}
+
+	/**
+	 * Adds a new key-value pair at the insertion point found by a previous probe. The new
+	 * entry is scheduled while it is carried, using the time to live already stored in the
+	 * carry position; every entry it displaces exchanges its deadline and links with it.
+	 * @param i: the insertion point
+	 * @param key: the key to add
+	 * @param value: the value to add
+	 * @param now: the current time
+	 */
+	private void insertAt(int i, Object key, Object value, long now)
+	{
+		int distance = (i - hash(key) + keys.length) % keys.length;
+		deadlines[carry] = deadline(now, ttls[carry]);
+		schedule(carry);
+		while ( keys[i] != null )
+		{
+			if ( distances[i] < distance )
+			{
+				Object displacedKey = keys[i];
+				Object displacedValue = values[i];
+				int displacedDistance = distances[i];
+				keys[i] = key;
+				values[i] = value;
+				distances[i] = distance;
+				key = displacedKey;
+				value = displacedValue;
+				distance = displacedDistance;
+				relocate(i, spare);
+				relocate(carry, i);
+				relocate(spare, carry);
+			}
+			i = (i + 1) % keys.length;
+			distance++;
+		}
+		keys[i] = key;
+		values[i] = value;
+		distances[i] = distance;
+		relocate(carry, i);
+		size++;
+	}
+
+	/**
+	 * Removes the entry in the given slot from its bucket, then shifts each subsequent
+	 * entry that is away from its hashed slot back by one position with its links.
+	 * @param i: the slot to empty
+	 */
+	private void removeSlot(int i)
+	{
+		unlink(i);
+		int j = (i + 1) % keys.length;
+		while ( keys[j] != null && distances[j] > 0 )
+		{
+			keys[i] = keys[j];
+			values[i] = values[j];
+			distances[i] = distances[j] - 1;
+			relocate(j, i);
+			i = j;
+			j = (i + 1) % keys.length;
+		}
+		keys[i] = null;
+		values[i] = null;
+		distances[i] = 0;
+		size--;
+	}
+
+}
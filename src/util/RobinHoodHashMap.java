@@ -1,17 +1,30 @@
 package util;
 
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * Implements a map collection (no duplicate keys) using the robinhood hashing technique.
  * Elements in the set are ordered in an array by hashed key for quick lookup.
  * Hash conflicts result in elements occupying subsequent positions in the array.
  * 
+ * Nothing is allocated until the first key is added, so a map that is never written
+ * costs a single object. A map holding only a few entries keeps them side by side in
+ * a small flat array that is searched linearly, and only allocates the slot array once
+ * it grows past that size. The key set, value set and entry set are created when first
+ * requested.
+ * 
  * @author Ken Loomis (https://github.com/kjloomis3)
  *
  * @param <E> The element type for the set.
@@ -21,12 +34,42 @@ public class RobinHoodHashMap<K, E> implements Map<K, E> {
 	/** The default size of the array is 20 unless overridden by the constructor. **/
 	private static final int DEFAULT_CAPACITY = 20;
 
-	/** The underlying structure of this HashSet (Each slot should be instantiated before use) **/
+	/** The largest number of entries a map keeps inline before allocating the slot array. **/
+	private static final int INLINE_SIZE = 8;
+
+	/** The load factor of a table that is compacted or shrunk. **/
+	private static final float TARGET_LOAD_FACTOR = 0.5f;
+
+	/** The load factor at which an array smaller than the capacity is doubled. **/
+	private static final float MAX_LOAD_FACTOR = 0.75f;
+
+	/** The underlying structure of this HashSet (Each slot should be instantiated before use); null while the entries are inline **/
 	private ArrayList<RobinHoodEntry> array;
 
+	/** The inline entries of a small map, the key of entry i at 2i and its value at 2i+1; null once the slot array is in use **/
+	private Object[] inline;
+
 	/** The number of elements in the set **/
 	private int size = 0;
 
+	/** The maximum number of elements in the map; the array may be smaller after shrinking **/
+	private int capacity;
+
+	/** The load factor below which the array is shrunk on removal (0 disables shrinking) **/
+	private float minLoadFactor = 0;
+
+	/** Hashes and compares the keys, or null to use their own hashCode and equals **/
+	private final HashingStrategy<? super K> strategy;
+
+	/** The number of keys mapped to each value, or null if values are not indexed **/
+	private RobinHoodHashMap<E, Integer> valueIndex;
+
+	/** The number of structural modifications, used to detect concurrent modification **/
+	private int modCount = 0;
+
+	/** The generation of the live entries; entries stamped with an older generation are empty **/
+	private int generation = 0;
+
 	/** The internal representation of the key set for this map **/
 	private RobinHoodKeySet keySet;
 
@@ -50,25 +93,77 @@ public class RobinHoodHashMap<K, E> implements Map<K, E> {
 	 * @param capacity: the maximum capacity of the map.
 	 */
 	public RobinHoodHashMap( int capacity  ) 
+	{
+		this( capacity, null );
+	}
+
+	/**
+	 * Instantiates the RobinHoodHashMap with the given capacity, hashing and comparing
+	 * keys with the given strategy rather than their own hashCode and equals.
+	 * @param capacity: the maximum capacity of the map.
+	 * @param strategy: hashes and compares the keys, or null to use their own methods
+	 */
+	public RobinHoodHashMap( int capacity, HashingStrategy<? super K> strategy )
 	{
 		if ( capacity <= 0 ) throw new IllegalArgumentException("Invalid size for set");
-		this.array = new ArrayList<RobinHoodEntry>(capacity);
-		for ( int i=0; i<capacity; i++)
-			array.add( new RobinHoodEntry());
+		this.strategy = strategy;
+		this.capacity = capacity;
 		this.size = 0;
-		this.keySet = new RobinHoodKeySet();
-		this.valueSet = new RobinHoodValueSet();
-		this.entrySet = new RobinHoodEntrySet();
 	}
 
 	/**
-	 * Produces the hash value of the key to be added 
+	 * Produces an array of empty slots.
+	 * @param length: the number of slots
+	 * @return the slots: ArrayList
+	 */
+	private ArrayList<RobinHoodEntry> newArray(int length)
+	{
+		ArrayList<RobinHoodEntry> slots = new ArrayList<RobinHoodEntry>(length);
+		for ( int i=0; i<length; i++)
+			slots.add( new RobinHoodEntry());
+		return slots;
+	}
+
+	/**
+	 * Produces the hash value of the key to be added. A key of a type the strategy
+	 * cannot take is hashed as 0; it is never equal to a key held by the map.
 	 * @param element: the key to be added
 	 * @return the hashed value: int
 	 */
+	@SuppressWarnings("unchecked")
 	private int hash(Object object)
 	{
-		return Math.abs(object.hashCode()) % array.size();
+		int h;
+		if ( strategy == null )
+			h = object.hashCode();
+		else
+		{
+			try {
+				h = strategy.hash((K) object);
+			} catch (ClassCastException e) {
+				h = 0;
+			}
+		}
+		return Math.abs(h % array.size());
+	}
+
+	/**
+	 * Compares a key held by the map with the given key. A key of a type the
+	 * strategy cannot take is never equal, so lookups report it as absent.
+	 * @param stored: the key held by the map
+	 * @param key: the key being looked up
+	 * @return true if the keys are equal: boolean
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean keyEquals(K stored, Object key)
+	{
+		if ( strategy == null )
+			return stored.equals(key);
+		try {
+			return strategy.equals(stored, (K) key);
+		} catch (ClassCastException e) {
+			return false;
+		}
 	}
 
 	/**
@@ -99,57 +194,400 @@ public class RobinHoodHashMap<K, E> implements Map<K, E> {
 	 * @return true if the map is full: boolean
 	 */
 	public boolean isFull() {
-		return size == array.size();
+		return size == capacity;
 	}
 
+	/**
+	 * Returns the number of slots currently allocated for the map. This is the 
+	 * capacity of the map unless the map has been shrunk, or the number of entries
+	 * there is room for inline while the map is small.
+	 * @return the number of slots: int
+	 */
+	public int getTableSize() {
+		if ( array == null )
+			return inline == null ? 0 : inline.length / 2;
+		return array.size();
+	}
 
-	@Override
-	public E get(Object key) {
-		if ( size == 0 || key == null ) return null;
+	/**
+	 * Sets the load factor below which the map releases slots when keys are removed.
+	 * The map is then rehashed to a load factor of one half, so the load must halve
+	 * again before the next shrink. Slots are reclaimed as needed when keys are added,
+	 * up to the capacity of the map. Removal through an iterator or cursor never
+	 * shrinks the map. A load factor of 0 disables shrinking.
+	 * @param minLoadFactor: the load factor floor, at least 0 and below one half
+	 */
+	public void setMinLoadFactor(float minLoadFactor) {
+		if ( !(minLoadFactor >= 0 && minLoadFactor < TARGET_LOAD_FACTOR) )
+			throw new IllegalArgumentException("Invalid load factor for map");
+		this.minLoadFactor = minLoadFactor;
+		shrinkIfSparse();
+	}
+
+	/**
+	 * Rehashes the map into an array with exactly one slot per entry.
+	 */
+	public void trimToSize() {
+		if ( array == null ) return;
+		resize( Math.max( size, 1 ) );
+	}
+
+	/**
+	 * Rehashes the map into an array sized for a load factor of one half (bounded 
+	 * by the capacity of the map). This shortens the probe sequences and releases 
+	 * the slots and any keys and values still referenced by cleared slots.
+	 */
+	public void compact() {
+		if ( array == null ) return;
+		resize( targetSize() );
+	}
+
+	/**
+	 * @return the number of slots for the current size at the target load factor: int
+	 */
+	private int targetSize() {
+		return (int) Math.min( capacity, Math.max( 1, (long) Math.ceil( size / TARGET_LOAD_FACTOR ) ) );
+	}
+
+	/**
+	 * Shrinks the array if the load factor has fallen below the minimum.
+	 */
+	private void shrinkIfSparse() {
+		if ( array != null && size < minLoadFactor * array.size() && targetSize() < array.size() )
+			resize( targetSize() );
+	}
+
+	/**
+	 * Doubles the array (bounded by the capacity of the map) if adding another key
+	 * would take it past the maximum load factor, so that a map that has been shrunk
+	 * or trimmed does not fill every slot before it grows again.
+	 */
+	private void ensureRoom() {
+		if ( array.size() < capacity && size + 1 > MAX_LOAD_FACTOR * array.size() )
+			resize( (int) Math.min( capacity, 2L * array.size() ) );
+	}
+
+	/**
+	 * Rehashes every entry of the map into a new array of the given length.
+	 * @param length: the number of slots in the new array
+	 */
+	private void resize(int length) {
+		ArrayList<RobinHoodEntry> old = this.array;
+		this.array = newArray(length);
+		this.size = 0;
+		for ( RobinHoodEntry entry: old )
+		{
+			if ( !entry.isEmpty() )
+			{
+				int idx = hash(entry.getKey());
+				int i = -find(entry.getKey(), idx) - 1;
+				place(i, getDistance(i, idx), entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Moves the inline entries into a newly allocated slot array, once the
+	 * map has grown past the number of entries kept inline.
+	 */
+	@SuppressWarnings("unchecked")
+	private void inflate() {
+		Object[] pairs = this.inline;
+		int count = this.size;
+		this.inline = null;
+		this.array = newArray(capacity);
+		this.size = 0;
+		for ( int j=0; j<count; j++ )
+		{
+			K key = (K) pairs[2 * j];
+			int idx = hash(key);
+			int i = -find(key, idx) - 1;
+			place(i, getDistance(i, idx), key, (E) pairs[2 * j + 1]);
+		}
+	}
+
+	/**
+	 * Finds the given key among the inline entries with a linear scan.
+	 * @param key: the key to locate
+	 * @return the position of the key among the inline entries, or -1 if absent: int
+	 */
+	@SuppressWarnings("unchecked")
+	private int findInline(Object key)
+	{
+		for ( int i=0; i<size; i++ )
+			if ( keyEquals((K) inline[2 * i], key) )
+				return i;
+		return -1;
+	}
+
+	/**
+	 * @param i: the position of an inline entry
+	 * @return the key of the entry: K
+	 */
+	@SuppressWarnings("unchecked")
+	private K inlineKey(int i)
+	{
+		return (K) inline[2 * i];
+	}
+
+	/**
+	 * @param i: the position of an inline entry
+	 * @return the value of the entry: E
+	 */
+	@SuppressWarnings("unchecked")
+	private E inlineValue(int i)
+	{
+		return (E) inline[2 * i + 1];
+	}
+
+	/**
+	 * Replaces the value of an inline entry and updates the value index.
+	 * @param i: the position of the entry
+	 * @param value: the new value
+	 */
+	private void setInlineValue(int i, E value)
+	{
+		unindexValue(inlineValue(i));
+		indexValue(value);
+		inline[2 * i + 1] = value;
+	}
+
+	/**
+	 * Removes an inline entry, moving the entries after it down by one position.
+	 * @param i: the position of the entry
+	 */
+	private void removeInline(int i)
+	{
+		unindexValue(inlineValue(i));
+		System.arraycopy(inline, 2 * i + 2, inline, 2 * i, 2 * (size - i - 1));
+		inline[2 * size - 2] = null;
+		inline[2 * size - 1] = null;
+		size--;
+		modCount++;
+	}
+
+	/**
+	 * Adds a key known to be absent from the map, which must not be full. The pair is
+	 * kept inline while there is room, otherwise it is inserted into the slot array,
+	 * which is allocated first if the map is still small.
+	 * @param key: the key to be added
+	 * @param value: the value to be added
+	 */
+	private void insertAbsent(K key, E value)
+	{
+		if ( array == null )
+		{
+			if ( size < INLINE_SIZE )
+			{
+				if ( inline == null )
+					inline = new Object[2 * Math.min(capacity, 2)];
+				else if ( 2 * size == inline.length )
+					inline = Arrays.copyOf(inline, 2 * Math.min(capacity, 2 * size));
+				inline[2 * size] = key;
+				inline[2 * size + 1] = value;
+				size++;
+				modCount++;
+				indexValue(value);
+				return;
+			}
+			inflate();
+		}
+		ensureRoom();
 		int idx = hash(key);
-		int last = 0;
+		int i = find(key, idx);
+		insert(-i-1, getDistance(-i-1, idx), key, value);
+	}
+
+	/**
+	 * Locates the given key using a single probe sequence starting from its
+	 * hashed slot. The probe stops at the first empty slot or at the first entry
+	 * that is closer to its own hashed slot than the key would be, since the
+	 * robinhood ordering guarantees the key cannot appear beyond that point.
+	 * @param key: the key to locate
+	 * @param idx: the hashed slot of the key
+	 * @return the index of the key if present, otherwise -(insertion point + 1): int
+	 */
+	private int find(Object key, int idx)
+	{
 		for ( int offset=0; offset<array.size(); offset++)
 		{
 			int  i = getIndex(idx, offset);
-			if ( !array.get (i).isEmpty() && array.get(i).getKey().equals(key))
-				return array.get(i).getValue();
-			if ( !array.get(i).isEmpty() && array.get(i).getDistance() < last )
-				return null;
+			RobinHoodEntry entry = array.get(i);
+			if ( entry.isEmpty() || entry.getDistance() < offset )
+				return -(i+1);
+			if ( keyEquals(entry.getKey(), key) )
+				return i;
+		}
+		return -(idx+1);
+	}
+
+	/**
+	 * Places the key-value pair at the insertion point found by a previous probe.
+	 * Any entry that is closer to its hashed slot is displaced and carried forward
+	 * until an empty slot is reached. The map must not be full.
+	 * @param i: the insertion point
+	 * @param distance: the distance of the insertion point from the key's hashed slot
+	 * @param key: the key to be added
+	 * @param value: the value to be added
+	 */
+	private void place(int i, int distance, K key, E value)
+	{
+		while ( !array.get(i).isEmpty() )
+		{
+			RobinHoodEntry entry = array.get(i);
+			if ( entry.getDistance() < distance )
+			{
+				K displacedKey = entry.getKey();
+				E displacedValue = entry.getValue();
+				int displacedDistance = entry.getDistance();
+				entry.fill(key, value, distance);
+				key = displacedKey;
+				value = displacedValue;
+				distance = displacedDistance;
+			}
+			i = getIndex(i, 1);
+			distance++;
 		}
-		return null;
+		array.get(i).fill(key, value, distance);
+		size++;
+		modCount++;
+	}
+
+	/**
+	 * Adds a new key-value pair at the insertion point found by a previous probe
+	 * and counts the value in the value index.
+	 * @param i: the insertion point
+	 * @param distance: the distance of the insertion point from the key's hashed slot
+	 * @param key: the key to be added
+	 * @param value: the value to be added
+	 */
+	private void insert(int i, int distance, K key, E value)
+	{
+		place(i, distance, key, value);
+		indexValue(value);
+	}
+
+	/**
+	 * Counts one more key mapped to the given value in the value index.
+	 * @param value: the value now mapped by a key
+	 */
+	private void indexValue(E value)
+	{
+		if ( valueIndex != null )
+			valueIndex.merge(value, 1, Integer::sum);
+	}
+
+	/**
+	 * Counts one less key mapped to the given value in the value index.
+	 * @param value: the value no longer mapped by a key
+	 */
+	private void unindexValue(E value)
+	{
+		if ( valueIndex != null )
+			valueIndex.computeIfPresent(value, (v, count) -> count > 1 ? count - 1 : null);
+	}
+
+	/**
+	 * Produces the distance of an insertion point from the key's hashed slot. 
+	 * @param i: the insertion point
+	 * @param idx: the hashed slot of the key
+	 * @return the distance: int
+	 */
+	private int getDistance ( int i, int idx )
+	{
+		return (i - idx + array.size()) % array.size();
 	}
 
 	@Override
-	public boolean containsKey(Object key) {
-		if ( size == 0 || key == null ) return false;
-		int idx = hash(key);
-		int last = 0;
-		for ( int offset=0; offset<array.size(); offset++)
+	public E get(Object key) {
+		if ( size == 0 || key == null ) return null;
+		if ( array == null )
 		{
-			int  i = getIndex(idx, offset);
-			if ( !array.get (i).isEmpty() && array.get(i).getKey().equals(key))
-				return true;
-			if ( !array.get(i).isEmpty() && array.get(i).getDistance() < last )
-				return false;
+			int i = findInline(key);
+			return i >= 0 ? inlineValue(i) : null;
 		}
-		return false;
+		int i = find(key, hash(key));
+		return i >= 0 ? array.get(i).getValue() : null;
+	}
+
+	@Override
+	public E getOrDefault(Object key, E defaultValue) {
+		if ( size == 0 || key == null ) return defaultValue;
+		if ( array == null )
+		{
+			int i = findInline(key);
+			return i >= 0 ? inlineValue(i) : defaultValue;
+		}
+		int i = find(key, hash(key));
+		return i >= 0 ? array.get(i).getValue() : defaultValue;
 	}
 
+	@Override
+	public boolean containsKey(Object key) {
+		if ( size == 0 || key == null ) return false;
+		if ( array == null )
+			return findInline(key) >= 0;
+		return find(key, hash(key)) >= 0;
+	}
+
+	/**
+	 * Returns true if at least one key is mapped to the given value. If values are
+	 * indexed this is a single lookup, otherwise every slot is scanned.
+	 * @param value: the value to look for
+	 * @return true if the value is in the map: boolean
+	 */
 	@Override
 	public boolean containsValue(Object value) {
 		if ( size == 0 || value == null ) return false;
-		int idx = hash(value);
-		int last = 0;
-		for ( int offset=0; offset<array.size(); offset++)
+		if ( valueIndex != null )
+			return valueIndex.containsKey(value);
+		if ( array == null )
 		{
-			int  i = getIndex(idx, offset);
-			if ( !array.get (i).isEmpty() && array.get(i).getValue().equals(value))
-				return true;
-			if ( !array.get(i).isEmpty() && array.get(i).getDistance() < last )
-				return false;
+			for ( int i=0; i<size; i++ )
+				if ( inlineValue(i).equals(value) )
+					return true;
+			return false;
+		}
+		int remaining = size;
+		for ( int i=0; remaining > 0 && i<array.size(); i++)
+		{
+			RobinHoodEntry entry = array.get(i);
+			if ( !entry.isEmpty() )
+			{
+				if ( entry.getValue().equals(value) )
+					return true;
+				remaining--;
+			}
 		}
 		return false;
 	}
+
+	/**
+	 * Enables or disables the value index. When enabled, the map counts the keys
+	 * mapped to each distinct value so that containsValue is a single lookup,
+	 * at the cost of updating the count whenever a value is added, replaced or
+	 * removed. Enabling the index builds it from the current entries.
+	 * @param indexed: true to maintain the value index
+	 */
+	public void setValueIndexed(boolean indexed) {
+		if ( !indexed )
+		{
+			valueIndex = null;
+			return;
+		}
+		if ( valueIndex != null )
+			return;
+		valueIndex = new RobinHoodHashMap<E, Integer>(capacity);
+		forEach( (key, value) -> indexValue(value) );
+	}
+
+	/**
+	 * @return true if the map maintains a value index: boolean
+	 */
+	public boolean isValueIndexed() {
+		return valueIndex != null;
+	}
+
 	@Override
 	public E put(K key, E value) {
 		if (key == null || value == null )
@@ -157,58 +595,274 @@ public class RobinHoodHashMap<K, E> implements Map<K, E> {
 			return null;
 		}
 
+		if ( array == null )
+		{
+			int i = findInline(key);
+			if ( i >= 0 )
+				setInlineValue(i, value);
+			else if ( isFull() )
+				return null;
+			else
+				insertAbsent(key, value);
+			return value;
+		}
+		ensureRoom();
 		int idx = hash(key);
-		for ( int offset=0; offset<array.size(); offset++)
+		int i = find(key, idx);
+		if ( i >= 0 )
 		{
-			int  i = getIndex(idx, offset);
-			if ( array.get(i).isEmpty() )
+			array.get(i).setValue(value);
+			return value;
+		}
+		if ( isFull() )
+		{
+			return null;
+		}
+		insert(-i-1, getDistance(-i-1, idx), key, value);
+		return value;
+	}
+
+	/**
+	 * Returns the value for the given key, computing and inserting it with a single
+	 * probe if the key is not yet present.
+	 * @param key: the key to look up
+	 * @param mappingFunction: produces the value for an absent key
+	 * @return the current value, or null if no value could be stored: E
+	 * @throws ConcurrentModificationException if the mapping function modifies this map
+	 */
+	@Override
+	public E computeIfAbsent(K key, Function<? super K, ? extends E> mappingFunction) {
+		if ( key == null ) return null;
+		if ( array == null )
+		{
+			int i = findInline(key);
+			if ( i >= 0 )
+				return inlineValue(i);
+			if ( isFull() )
+				return null;
+			int expectedModCount = modCount;
+			E value = mappingFunction.apply(key);
+			checkModCount(expectedModCount);
+			if ( value != null )
+				insertAbsent(key, value);
+			return value;
+		}
+		ensureRoom();
+		int idx = hash(key);
+		int i = find(key, idx);
+		if ( i >= 0 )
+			return array.get(i).getValue();
+		if ( isFull() )
+			return null;
+		int expectedModCount = modCount;
+		E value = mappingFunction.apply(key);
+		checkModCount(expectedModCount);
+		if ( value == null )
+			return null;
+		insert(-i-1, getDistance(-i-1, idx), key, value);
+		return value;
+	}
+
+	/**
+	 * Replaces the value for the given key, if present, with the result of the 
+	 * remapping function using a single probe. A null result removes the key.
+	 * @param key: the key to look up
+	 * @param remappingFunction: produces the new value from the current one
+	 * @return the new value, or null if the key is absent or was removed: E
+	 * @throws ConcurrentModificationException if the remapping function modifies this map
+	 */
+	@Override
+	public E computeIfPresent(K key, BiFunction<? super K, ? super E, ? extends E> remappingFunction) {
+		if ( size == 0 || key == null ) return null;
+		if ( array == null )
+		{
+			int i = findInline(key);
+			if ( i < 0 )
+				return null;
+			int expectedModCount = modCount;
+			E value = remappingFunction.apply(key, inlineValue(i));
+			checkModCount(expectedModCount);
+			if ( value == null )
+				removeInline(i);
+			else
+				setInlineValue(i, value);
+			return value;
+		}
+		int i = find(key, hash(key));
+		if ( i < 0 )
+			return null;
+		int expectedModCount = modCount;
+		E value = remappingFunction.apply(key, array.get(i).getValue());
+		checkModCount(expectedModCount);
+		if ( value == null )
+		{
+			removeAt(i);
+			shrinkIfSparse();
+			return null;
+		}
+		array.get(i).setValue(value);
+		return value;
+	}
+
+	/**
+	 * Computes a new value for the given key from its current value (or null if 
+	 * absent) using a single probe. A null result removes the key.
+	 * @param key: the key to look up
+	 * @param remappingFunction: produces the new value from the current one
+	 * @return the new value, or null if no value is mapped: E
+	 * @throws ConcurrentModificationException if the remapping function modifies this map
+	 */
+	@Override
+	public E compute(K key, BiFunction<? super K, ? super E, ? extends E> remappingFunction) {
+		if ( key == null ) return null;
+		if ( array == null )
+		{
+			int i = findInline(key);
+			int expectedModCount = modCount;
+			E value = remappingFunction.apply(key, i >= 0 ? inlineValue(i) : null);
+			checkModCount(expectedModCount);
+			if ( i >= 0 )
 			{
-				array.get(i).setKey(key);
-				array.get(i).setValue(value);
-				array.get(i).setDistance(offset);
-				size++;
+				if ( value == null )
+					removeInline(i);
+				else
+					setInlineValue(i, value);
 				return value;
 			}
-			else if ( array.get(i).getKey().equals( key ))
+			if ( value == null || isFull() )
+				return null;
+			insertAbsent(key, value);
+			return value;
+		}
+		ensureRoom();
+		int idx = hash(key);
+		int i = find(key, idx);
+		int expectedModCount = modCount;
+		E value = remappingFunction.apply(key, i >= 0 ? array.get(i).getValue() : null);
+		checkModCount(expectedModCount);
+		if ( i >= 0 )
+		{
+			if ( value == null )
 			{
-				array.get(i).setValue(value);
-				array.get(i).setDistance(offset);
-				return value;
+				removeAt(i);
+				shrinkIfSparse();
 			}
+			else
+				array.get(i).setValue(value);
+			return value;
 		}
-		return null;
+		if ( value == null || isFull() )
+			return null;
+		insert(-i-1, getDistance(-i-1, idx), key, value);
+		return value;
 	}
 
+	/**
+	 * Associates the given value with the key if absent, otherwise combines it with 
+	 * the current value using the remapping function. Only a single probe is made.
+	 * A null result removes the key.
+	 * @param key: the key to look up
+	 * @param value: the value to store or combine
+	 * @param remappingFunction: combines the current value with the given one
+	 * @return the new value, or null if no value is mapped: E
+	 * @throws ConcurrentModificationException if the remapping function modifies this map
+	 */
 	@Override
-	public E remove(Object key) {
-		if ( size == 0 || key == null ) return null;
-		E value = null;
+	public E merge(K key, E value, BiFunction<? super E, ? super E, ? extends E> remappingFunction) {
+		if ( key == null || value == null ) return null;
+		if ( array == null )
+		{
+			int i = findInline(key);
+			if ( i >= 0 )
+			{
+				int expectedModCount = modCount;
+				E merged = remappingFunction.apply(inlineValue(i), value);
+				checkModCount(expectedModCount);
+				if ( merged == null )
+					removeInline(i);
+				else
+					setInlineValue(i, merged);
+				return merged;
+			}
+			if ( isFull() )
+				return null;
+			insertAbsent(key, value);
+			return value;
+		}
+		ensureRoom();
 		int idx = hash(key);
-		int last = 0;
-		for ( int offset=0; offset<array.size(); offset++)
+		int i = find(key, idx);
+		if ( i >= 0 )
 		{
-			int  i = getIndex(idx, offset);
-			if ( !array.get (i).isEmpty() && array.get(i).getKey().equals(key))
+			int expectedModCount = modCount;
+			E merged = remappingFunction.apply(array.get(i).getValue(), value);
+			checkModCount(expectedModCount);
+			if ( merged == null )
 			{
-				value =  array.get(i).getValue();
-				int j = getIndex(idx, offset+1);
-				while(!array.get(j).isEmpty() && array.get(j).getDistance() > 0)
-				{
-					array.get(i).setKey(array.get(j).getKey());
-					array.get(i).setValue(array.get(j).getValue());
-					array.get(i).setDistance(array.get(j).getDistance() -1);
-					i=j;
-					j=getIndex(i, 1);
-				}
-				array.get(i).setEmpty();
-				size--;
-				return value;
-
+				removeAt(i);
+				shrinkIfSparse();
 			}
-			if ( !array.get(i).isEmpty() && array.get(i).getDistance() < last )
+			else
+				array.get(i).setValue(merged);
+			return merged;
+		}
+		if ( isFull() )
+			return null;
+		insert(-i-1, getDistance(-i-1, idx), key, value);
+		return value;
+	}
+
+	/**
+	 * Verifies that the map has not been structurally modified since the
+	 * given modification count was taken.
+	 * @param expectedModCount: the modification count taken earlier
+	 * @throws ConcurrentModificationException if the map has been modified
+	 */
+	private void checkModCount(int expectedModCount)
+	{
+		if ( modCount != expectedModCount )
+			throw new ConcurrentModificationException();
+	}
+
+	@Override
+	public E remove(Object key) {
+		if ( size == 0 || key == null ) return null;
+		if ( array == null )
+		{
+			int i = findInline(key);
+			if ( i < 0 )
 				return null;
+			E value = inlineValue(i);
+			removeInline(i);
+			return value;
+		}
+		int i = find(key, hash(key));
+		if ( i < 0 )
+			return null;
+		E value = array.get(i).getValue();
+		removeAt(i);
+		shrinkIfSparse();
+		return value;
+	}
+
+	/**
+	 * Removes the entry in the given slot, shifting each subsequent entry
+	 * that is away from its hashed slot back by one position.
+	 * @param i: the slot to empty
+	 */
+	private void removeAt(int i)
+	{
+		unindexValue(array.get(i).getValue());
+		int j = getIndex(i, 1);
+		while(!array.get(j).isEmpty() && array.get(j).getDistance() > 0)
+		{
+			array.get(i).fill(array.get(j).getKey(), array.get(j).getValue(), array.get(j).getDistance() -1);
+			i=j;
+			j=getIndex(i, 1);
 		}
-		return null;
+		array.get(i).setEmpty();
+		size--;
+		modCount++;
 	}
 
 	@Override
@@ -224,27 +878,82 @@ public class RobinHoodHashMap<K, E> implements Map<K, E> {
 
 	@Override
 	public Set<K> keySet() {
+		if ( keySet == null )
+			keySet = new RobinHoodKeySet();
 		return keySet;
 	}
 
 	@Override
 	public Collection<E> values() {
+		if ( valueSet == null )
+			valueSet = new RobinHoodValueSet();
 		return valueSet;
 	}
 
 	@Override
 	public Set<Entry<K, E>> entrySet() {
+		if ( entrySet == null )
+			entrySet = new RobinHoodEntrySet();
 		return entrySet;
 	}
 
+	/**
+	 * Returns a cursor that walks the slots of this map directly without
+	 * producing an entry object for each key-value pair.
+	 * @return a cursor positioned before the first pair: MapCursor
+	 */
+	public MapCursor<K, E> cursor() {
+		return new RobinHoodMapCursor();
+	}
+
+	@Override
+	public void forEach(BiConsumer<? super K, ? super E> action) {
+		int expectedModCount = modCount;
+		if ( array == null )
+		{
+			for ( int i=0; i<size; i++ )
+			{
+				action.accept(inlineKey(i), inlineValue(i));
+				checkModCount(expectedModCount);
+			}
+			return;
+		}
+		int remaining = size;
+		for ( int i=0; remaining > 0 && i<array.size(); i++)
+		{
+			RobinHoodEntry entry = array.get(i);
+			if ( !entry.isEmpty() )
+			{
+				action.accept(entry.getKey(), entry.getValue());
+				checkModCount(expectedModCount);
+				remaining--;
+			}
+		}
+	}
+
+	/**
+	 * Removes all entries from the map in constant time. A small map releases its inline
+	 * entries. Otherwise, rather than emptying every slot, the generation of the map is advanced so that every entry stamped with
+	 * an earlier generation reads as empty. Keys and values of the cleared entries 
+	 * remain referenced until their slots are reused. The slots are only emptied
+	 * when the generation counter wraps around.
+	 */
 	@Override
 	public void clear() 
 	{
-		int capacity = array.size();
-		this.array = new ArrayList<RobinHoodEntry>(capacity);
-		for ( int i=0; i<capacity; i++)
-			array.add( new RobinHoodEntry());
+		if ( array == null )
+		{
+			inline = null;
+		}
+		else if ( ++generation == 0 )
+		{
+			for ( RobinHoodEntry entry: array )
+				entry.setEmpty();
+		}
 		this.size = 0;
+		if ( valueIndex != null )
+			valueIndex.clear();
+		modCount++;
 	}
 
 	@Override
@@ -281,6 +990,8 @@ public class RobinHoodHashMap<K, E> implements Map<K, E> {
 		private int distance;
 		/** A flag indicating the slot is empty even if it contain data **/
 		private boolean empty;
+		/** The generation of the map in which the slot was filled **/
+		private int generation;
 
 		/**
 		 * Instantiates a slot; sets all fields to default values. Should be
@@ -292,6 +1003,7 @@ public class RobinHoodHashMap<K, E> implements Map<K, E> {
 			this.value = null; 
 			this.distance = 0;  
 			this.empty = true; 
+			this.generation = 0;
 		}
 
 		@Override
@@ -313,6 +1025,7 @@ public class RobinHoodHashMap<K, E> implements Map<K, E> {
 				throw new IllegalArgumentException();
 			}
 			this.key = key;
+			this.generation = RobinHoodHashMap.this.generation;
 		}
 		
 		@Override
@@ -326,11 +1039,30 @@ public class RobinHoodHashMap<K, E> implements Map<K, E> {
 			{
 				throw new IllegalArgumentException();
 			}
+			if ( !isEmpty() )
+			{
+				unindexValue(this.value);
+				indexValue(value);
+			}
 			this.value = value;
-			this.empty = false;
 			return this.value;
 		}
 
+		/**
+		 * Fills the slot with the given key-value pair. Used when pairs are
+		 * placed or moved within the array; the value index is not updated.
+		 * @param key: the key to set
+		 * @param value: the value to set
+		 * @param distance: the distance from the key's hashed slot
+		 */
+		protected void fill(K key, E value, int distance) {
+			this.key = key;
+			this.value = value;
+			this.distance = distance;
+			this.empty = false;
+			this.generation = RobinHoodHashMap.this.generation;
+		}
+
 		/**
 		 * @return the distance
 		 */
@@ -349,7 +1081,7 @@ public class RobinHoodHashMap<K, E> implements Map<K, E> {
 		 * @return the empty
 		 */
 		protected boolean isEmpty() {
-			return empty;
+			return empty || generation != RobinHoodHashMap.this.generation;
 		}
 
 		/**
@@ -364,6 +1096,175 @@ public class RobinHoodHashMap<K, E> implements Map<K, E> {
 
 	}
 
+	/**
+	 * Walks the slot array of the RobinHoodHashMap, or the inline entries of a small
+	 * map. A removal shifts the following entries back by one position, so the
+	 * current slot is re-examined on the next step. The number of entries not yet visited is tracked so that an
+	 * entry shifted around the end of the array is not visited twice, and so
+	 * that the walk ends at the last entry instead of the end of the array.
+	 */
+	private abstract class SlotWalker
+	{
+		/** The next slot to examine **/
+		private int index = 0;
+		/** The slot of the entry most recently visited, or -1 if there is none **/
+		private int last = -1;
+		/** The number of entries that have not been visited **/
+		private int remaining = size;
+		/** The modification count expected by this walker **/
+		private int expectedModCount = modCount;
+
+		/**
+		 * @return true if there are entries that have not been visited: boolean
+		 */
+		protected boolean hasMore() {
+			return remaining > 0;
+		}
+
+		/**
+		 * Moves to the next non-empty slot.
+		 * @throws NoSuchElementException if every entry has been visited
+		 */
+		protected void nextSlot() {
+			checkModCount(expectedModCount);
+			if ( remaining == 0 )
+				throw new NoSuchElementException();
+			if ( array != null )
+				for (; array.get(index).isEmpty(); index++);
+			last = index++;
+			remaining--;
+		}
+
+		/**
+		 * Verifies that there is an entry most recently visited.
+		 * @throws IllegalStateException if there is no such entry or it was removed
+		 */
+		private void checkLast() {
+			if ( last < 0 )
+				throw new IllegalStateException();
+			checkModCount(expectedModCount);
+		}
+
+		/**
+		 * @return the key of the entry most recently visited: K
+		 * @throws IllegalStateException if there is no such entry or it was removed
+		 */
+		protected K lastKey() {
+			checkLast();
+			return array == null ? inlineKey(last) : array.get(last).getKey();
+		}
+
+		/**
+		 * @return the value of the entry most recently visited: E
+		 * @throws IllegalStateException if there is no such entry or it was removed
+		 */
+		protected E lastValue() {
+			checkLast();
+			return array == null ? inlineValue(last) : array.get(last).getValue();
+		}
+
+		/**
+		 * Replaces the value of the entry most recently visited.
+		 * @param value: the new value
+		 * @return the new value: E
+		 * @throws IllegalStateException if there is no such entry or it was removed
+		 */
+		protected E setLastValue(E value) {
+			checkLast();
+			if ( array != null )
+				return array.get(last).setValue(value);
+			if ( value == null )
+				throw new IllegalArgumentException();
+			setInlineValue(last, value);
+			return value;
+		}
+
+		/**
+		 * @return the entry most recently visited: Entry
+		 * @throws IllegalStateException if there is no such entry or it was removed
+		 */
+		protected Entry<K, E> lastEntry() {
+			checkLast();
+			return array == null ? new InlineEntry(inlineKey(last), inlineValue(last)) : array.get(last);
+		}
+
+		/**
+		 * Removes the entry most recently visited; the slot it occupied is
+		 * examined again since it may now hold a shifted entry.
+		 * @throws IllegalStateException if there is no such entry or it was removed
+		 */
+		protected void removeLast() {
+			checkLast();
+			if ( array == null )
+				removeInline(last);
+			else
+				removeAt(last);
+			index = last;
+			last = -1;
+			expectedModCount = modCount;
+		}
+	}
+
+	/**
+	 * A key-value pair of a small map. The value is written through to the map.
+	 */
+	private class InlineEntry extends AbstractMap.SimpleEntry<K, E>
+	{
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * @param key: the key of the pair
+		 * @param value: the value of the pair
+		 */
+		InlineEntry(K key, E value)
+		{
+			super(key, value);
+		}
+
+		@Override
+		public E setValue(E value) {
+			if ( value == null )
+				throw new IllegalArgumentException();
+			RobinHoodHashMap.this.replace(getKey(), value);
+			super.setValue(value);
+			return value;
+		}
+	}
+
+	/**
+	 * A cursor over the slot array of the RobinHoodHashMap.
+	 */
+	private class RobinHoodMapCursor extends SlotWalker implements MapCursor<K, E>
+	{
+		@Override
+		public boolean advance() {
+			if ( !hasMore() )
+				return false;
+			nextSlot();
+			return true;
+		}
+
+		@Override
+		public K key() {
+			return lastKey();
+		}
+
+		@Override
+		public E value() {
+			return lastValue();
+		}
+
+		@Override
+		public E setValue(E value) {
+			return setLastValue(value);
+		}
+
+		@Override
+		public void remove() {
+			removeLast();
+		}
+	}
+
 	public class RobinHoodKeySet implements Set<K>
 	{
 
@@ -400,14 +1301,15 @@ public class RobinHoodHashMap<K, E> implements Map<K, E> {
 		@SuppressWarnings("unchecked")
 		@Override
 		public <T> T[] toArray(T[] a) {
-			if ( a.length < array.size() )
+			if ( a.length < size )
 			{
-				a = (T[]) new Object[array.size()];
+				a = (T[]) new Object[size];
 			}
 			int i=0;
 			for ( K key : this )
 				a[i++] = (T) key;
-			a[i] = null;
+			if ( i < a.length )
+				a[i] = null;
 			return a;
 		}
 
@@ -450,13 +1352,11 @@ public class RobinHoodHashMap<K, E> implements Map<K, E> {
 
 		@Override
 		public boolean retainAll(Collection<?> c) {
-			ArrayList<Object> removeList = new ArrayList<Object>(this.size()); 
-			for ( Object key: this )
-				if ( !c.contains( key ) )
-					removeList.add( key );
-			
-			for ( Object key: removeList )
-				RobinHoodHashMap.this.remove(key);
+			Iterator<K> iterator = this.iterator();
+			while ( iterator.hasNext() )
+				if ( !c.contains( iterator.next() ) )
+					iterator.remove();
+			shrinkIfSparse();
 			
 			return true;
 		}
@@ -476,31 +1376,28 @@ public class RobinHoodHashMap<K, E> implements Map<K, E> {
 
 		}
 
-		public class KeySetIterator implements Iterator<K>
+		public class KeySetIterator extends SlotWalker implements Iterator<K>
 		{
 
-			private int index;
-
 			/**
 			 *  Creates an iterator for a RobinHoodHashMap
 			 */
-			KeySetIterator(  )
-			{
-				for (index=0; index<array.size() && array.get(index).empty; index++);
-			}
+			KeySetIterator(  ) { }
 
 			@Override
 			public boolean hasNext() {
-				return index < array.size() && !array.get(index).isEmpty(); 
+				return hasMore(); 
 			}
 
 			@Override
 			public K next() {
-				if ( index < 0 || index>= array.size())
-					throw new IndexOutOfBoundsException();
-				K key = (K) array.get(index).key;
-				for (index++; index<array.size() && array.get(index).isEmpty(); index++);
-				return key;
+				nextSlot();
+				return lastKey();
+			}
+
+			@Override
+			public void remove() {
+				removeLast();
 			}
 
 		}
@@ -542,9 +1439,9 @@ public class RobinHoodHashMap<K, E> implements Map<K, E> {
 		@SuppressWarnings("unchecked")
 		@Override
 		public <T> T[] toArray(T[] a) {
-			if ( a.length < array.size() )
+			if ( a.length < size )
 			{
-				a = (T[]) new Object[array.size()];
+				a = (T[]) new Object[size];
 			}
 			int i=0;
 			for ( E value : this )
@@ -626,31 +1523,28 @@ public class RobinHoodHashMap<K, E> implements Map<K, E> {
 		@Override
 		public void clear() { }
 
-		public class ValueSetIterator implements Iterator<E>
+		public class ValueSetIterator extends SlotWalker implements Iterator<E>
 		{
 
-			private int index;
-
 			/**
 			 *  Creates an iterator for a RobinHoodHashMap
 			 */
-			ValueSetIterator(  )
-			{
-				for (index=0; index<array.size() && array.get(index).empty; index++);
-			}
+			ValueSetIterator(  ) { }
 
 			@Override
 			public boolean hasNext() {
-				return index < array.size() && !array.get(index).isEmpty(); 
+				return hasMore(); 
 			}
 
 			@Override
 			public E next() {
-				if ( index < 0 || index>= array.size())
-					throw new IndexOutOfBoundsException();
-				E value = (E) array.get(index).getValue();
-				for (index++; index<array.size() && array.get(index).isEmpty(); index++);
-				return value;
+				nextSlot();
+				return lastValue();
+			}
+
+			@Override
+			public void remove() {
+				removeLast();
 			}
 
 		}
@@ -672,7 +1566,11 @@ public class RobinHoodHashMap<K, E> implements Map<K, E> {
 
 		@Override
 		public boolean contains(Object object) {
-			return RobinHoodHashMap.this.containsValue(object);
+			if ( !(object instanceof Entry) )
+				return false;
+			Entry<?, ?> entry = (Entry<?, ?>) object;
+			E value = RobinHoodHashMap.this.get(entry.getKey());
+			return value != null && value.equals(entry.getValue());
 		}
 
 		@Override
@@ -692,9 +1590,9 @@ public class RobinHoodHashMap<K, E> implements Map<K, E> {
 		@SuppressWarnings("unchecked")
 		@Override
 		public <T> T[] toArray(T[] a) {
-			if ( a.length < array.size() )
+			if ( a.length < size )
 			{
-				a = (T[]) new Object[array.size()];
+				a = (T[]) new Object[size];
 			}
 			int i=0;
 			for ( Entry<K,E>entry : this )
@@ -725,9 +1623,9 @@ public class RobinHoodHashMap<K, E> implements Map<K, E> {
 
 		@Override
 		public boolean containsAll(Collection<?> c) {
-			for ( Object value: c )
+			for ( Object entry: c )
 			{
-				if ( !RobinHoodHashMap.this.containsValue(value) )
+				if ( !this.contains(entry) )
 					return false;
 			}
 			return true;
@@ -774,31 +1672,28 @@ public class RobinHoodHashMap<K, E> implements Map<K, E> {
 			return;
 		}
 		
-		public class EntrySetIterator implements Iterator<Entry<K,E>>
+		public class EntrySetIterator extends SlotWalker implements Iterator<Entry<K,E>>
 		{
 
-			private int index;
-
 			/**
 			 *  Creates an iterator for a RobinHoodHashMap
 			 */
-			EntrySetIterator(  )
-			{
-				for (index=0; index<array.size() && array.get(index).empty; index++);
-			}
+			EntrySetIterator(  ) { }
 
 			@Override
 			public boolean hasNext() {
-				return index < array.size() && !array.get(index).isEmpty(); 
+				return hasMore(); 
 			}
 
 			@Override
 			public Entry<K,E> next() {
-				if ( index < 0 || index>= array.size())
-					throw new IndexOutOfBoundsException();
-				Entry<K,E> entry = array.get(index);
-				for (index++; index<array.size() && array.get(index).isEmpty(); index++);
-				return entry;
+				nextSlot();
+				return lastEntry();
+			}
+
+			@Override
+			public void remove() {
+				removeLast();
 			}
 
 		}
@@ -2,7 +2,9 @@ package util;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
@@ -10,6 +12,9 @@ import java.util.Set;
  * Elements in the set are ordered in an array by hashed value for quick lookup.
  * Hash conflicts result in elements occupying subsequent positions in the array.
  * 
+ * The slot array is only allocated when the first element is added, so a set that
+ * is never written costs a single object.
+ * 
  * @author Ken Loomis (https://github.com/kjloomis3)
  *
  * @param <E> The element type for the set.
@@ -18,12 +23,33 @@ public class RobinHoodHashSet<E> implements Set<E>, Iterable<E> {
 
 	/** The default size of the array is 20 unless overridden by the constructor. **/
 	private static final int DEFAULT_CAPACITY = 20;
+
+	/** The load factor of a table that is compacted or shrunk. **/
+	private static final float TARGET_LOAD_FACTOR = 0.5f;
+
+	/** The load factor at which an array smaller than the capacity is doubled. **/
+	private static final float MAX_LOAD_FACTOR = 0.75f;
 	
 	/** The underlying structure of this HashSet (Each slot should be instantiated before use) **/
 	private ArrayList<Slot> array;
 	
 	/** The number of elements in the set **/
 	private int size = 0;
+
+	/** The maximum number of elements in the set; the array may be smaller after shrinking **/
+	private int capacity;
+
+	/** The load factor below which the array is shrunk on removal (0 disables shrinking) **/
+	private float minLoadFactor = 0;
+
+	/** Hashes and compares the elements, or null to use their own hashCode and equals **/
+	private final HashingStrategy<? super E> strategy;
+
+	/** The number of structural modifications, used to detect concurrent modification **/
+	private int modCount = 0;
+
+	/** The generation of the live elements; slots stamped with an older generation are empty **/
+	private int generation = 0;
 	
 	/**
 	 * Instantiates the RobinHoodHashSet with a small number of storage locations
@@ -31,10 +57,7 @@ public class RobinHoodHashSet<E> implements Set<E>, Iterable<E> {
 	 */
 	public RobinHoodHashSet( ) 
 	{
-		this.array = new ArrayList<Slot>(DEFAULT_CAPACITY);
-		for ( int i=0; i<DEFAULT_CAPACITY; i++)
-			array.add( new Slot());
-		this.size = 0;
+		this( DEFAULT_CAPACITY );
 	}
 	
 	/**
@@ -42,22 +65,77 @@ public class RobinHoodHashSet<E> implements Set<E>, Iterable<E> {
 	 * @param capacity: the maximum capacity of the set.
 	 */
 	public RobinHoodHashSet( int capacity  ) 
+	{
+		this( capacity, null );
+	}
+
+	/**
+	 * Instantiates the RobinHoodHashSet with the given capacity, hashing and comparing
+	 * elements with the given strategy rather than their own hashCode and equals.
+	 * @param capacity: the maximum capacity of the set.
+	 * @param strategy: hashes and compares the elements, or null to use their own methods
+	 */
+	public RobinHoodHashSet( int capacity, HashingStrategy<? super E> strategy )
 	{
 		if ( capacity <= 0 ) throw new IllegalArgumentException("Invalid size for set");
-		this.array = new ArrayList<Slot>(capacity);
-		for ( int i=0; i<capacity; i++)
-			array.add( new Slot());
+		this.strategy = strategy;
+		this.capacity = capacity;
 		this.size = 0;
 	}
+
+	/**
+	 * Produces an array of empty slots.
+	 * @param length: the number of slots
+	 * @return the slots: ArrayList
+	 */
+	private ArrayList<Slot> newArray(int length)
+	{
+		ArrayList<Slot> slots = new ArrayList<Slot>(length);
+		for ( int i=0; i<length; i++)
+			slots.add( new Slot());
+		return slots;
+	}
 	
 	/**
-	 * Produces the hash value of the element to be added 
+	 * Produces the hash value of the element to be added. An element of a type the
+	 * strategy cannot take is hashed as 0; it is never equal to an element of the set.
 	 * @param element: the element to be added
 	 * @return the hashed value: int
 	 */
+	@SuppressWarnings("unchecked")
 	private int hash(Object object)
 	{
-		return Math.abs(object.hashCode()) % array.size();
+		int h;
+		if ( strategy == null )
+			h = object.hashCode();
+		else
+		{
+			try {
+				h = strategy.hash((E) object);
+			} catch (ClassCastException e) {
+				h = 0;
+			}
+		}
+		return Math.abs(h % array.size());
+	}
+
+	/**
+	 * Compares an element held by the set with the given element. An element of a
+	 * type the strategy cannot take is never equal, so lookups report it as absent.
+	 * @param stored: the element held by the set
+	 * @param object: the element being looked up
+	 * @return true if the elements are equal: boolean
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean elementEquals(E stored, Object object)
+	{
+		if ( strategy == null )
+			return stored.equals(object);
+		try {
+			return strategy.equals(stored, (E) object);
+		} catch (ClassCastException e) {
+			return false;
+		}
 	}
 	
 	/**
@@ -88,24 +166,211 @@ public class RobinHoodHashSet<E> implements Set<E>, Iterable<E> {
 	 * @return true if the set is full: boolean
 	 */
 	public boolean isFull() {
-		return size == array.size();
+		return size == capacity;
 	}
 
-	@Override
-	public boolean contains(Object object) 
+	/**
+	 * Returns the number of slots currently allocated for the set. This is the 
+	 * capacity of the set unless the set has been shrunk, or 0 if nothing has been
+	 * added yet.
+	 * @return the number of slots: int
+	 */
+	public int getTableSize() {
+		return array == null ? 0 : array.size();
+	}
+
+	/**
+	 * Sets the load factor below which the set releases slots when elements are 
+	 * removed. The set is then rehashed to a load factor of one half, so the load 
+	 * must halve again before the next shrink. Slots are reclaimed as needed when 
+	 * elements are added, up to the capacity of the set. Removal through an iterator
+	 * never shrinks the set. A load factor of 0 disables shrinking.
+	 * @param minLoadFactor: the load factor floor, at least 0 and below one half
+	 */
+	public void setMinLoadFactor(float minLoadFactor) {
+		if ( !(minLoadFactor >= 0 && minLoadFactor < TARGET_LOAD_FACTOR) )
+			throw new IllegalArgumentException("Invalid load factor for set");
+		this.minLoadFactor = minLoadFactor;
+		shrinkIfSparse();
+	}
+
+	/**
+	 * Rehashes the set into an array with exactly one slot per element.
+	 */
+	public void trimToSize() {
+		if ( array == null ) return;
+		resize( Math.max( size, 1 ) );
+	}
+
+	/**
+	 * Rehashes the set into an array sized for a load factor of one half (bounded 
+	 * by the capacity of the set). This shortens the probe sequences and releases 
+	 * the slots and any elements still referenced by cleared slots.
+	 */
+	public void compact() {
+		if ( array == null ) return;
+		resize( targetSize() );
+	}
+
+	/**
+	 * @return the number of slots for the current size at the target load factor: int
+	 */
+	private int targetSize() {
+		return (int) Math.min( capacity, Math.max( 1, (long) Math.ceil( size / TARGET_LOAD_FACTOR ) ) );
+	}
+
+	/**
+	 * Shrinks the array if the load factor has fallen below the minimum.
+	 */
+	private void shrinkIfSparse() {
+		if ( array != null && size < minLoadFactor * array.size() && targetSize() < array.size() )
+			resize( targetSize() );
+	}
+
+	/**
+	 * Allocates the array on the first addition, or doubles it (bounded by the capacity
+	 * of the set) if adding another element would take it past the maximum load factor,
+	 * so that a set that has been shrunk or trimmed does not fill every slot before it
+	 * grows again.
+	 */
+	private void ensureRoom() {
+		if ( array == null )
+			array = newArray(capacity);
+		else if ( array.size() < capacity && size + 1 > MAX_LOAD_FACTOR * array.size() )
+			resize( (int) Math.min( capacity, 2L * array.size() ) );
+	}
+
+	/**
+	 * Rehashes every element of the set into a new array of the given length.
+	 * @param length: the number of slots in the new array
+	 */
+	private void resize(int length) {
+		ArrayList<Slot> old = this.array;
+		this.array = newArray(length);
+		this.size = 0;
+		for ( Slot slot: old )
+		{
+			if ( !slot.isEmpty() )
+			{
+				int idx = hash(slot.data);
+				int i = -find(slot.data, idx) - 1;
+				insert(i, getDistance(i, idx), slot.data);
+			}
+		}
+	}
+
+	/**
+	 * Locates the given element using a single probe sequence starting from its
+	 * hashed slot. The probe stops at the first empty slot or at the first element
+	 * that is closer to its own hashed slot than the given element would be, since 
+	 * the robinhood ordering guarantees the element cannot appear beyond that point.
+	 * @param object: the element to locate
+	 * @param idx: the hashed slot of the element
+	 * @return the index of the element if present, otherwise -(insertion point + 1): int
+	 */
+	private int find(Object object, int idx)
 	{
-		if ( size == 0 || object == null ) return false;
-		int idx = hash(object);
-		int last = 0;
 		for ( int offset=0; offset<array.size(); offset++)
 		{
 			int  i = getIndex(idx, offset);
-			if ( !array.get (i).empty && array.get(i).data.equals(object))
-				return true;
-			if ( !array.get(i).empty && array.get(i).distance < last )
-				return false;
+			Slot slot = array.get(i);
+			if ( slot.isEmpty() || slot.distance < offset )
+				return -(i+1);
+			if ( elementEquals(slot.data, object) )
+				return i;
 		}
-		return false;
+		return -(idx+1);
+	}
+
+	/**
+	 * Places the element at the insertion point found by a previous probe.
+	 * Any element that is closer to its hashed slot is displaced and carried 
+	 * forward until an empty slot is reached. The array must not be full.
+	 * @param i: the insertion point
+	 * @param distance: the distance of the insertion point from the element's hashed slot
+	 * @param element: the element to be added
+	 */
+	private void insert(int i, int distance, E element)
+	{
+		while ( !array.get(i).isEmpty() )
+		{
+			Slot slot = array.get(i);
+			if ( slot.distance < distance )
+			{
+				E displaced = slot.data;
+				int displacedDistance = slot.distance;
+				slot.data = element;
+				slot.distance = distance;
+				element = displaced;
+				distance = displacedDistance;
+			}
+			i = getIndex(i, 1);
+			distance++;
+		}
+		array.get(i).data = element;
+		array.get(i).distance = distance;
+		array.get(i).empty = false;
+		array.get(i).generation = generation;
+		size++;
+		modCount++;
+	}
+
+	/**
+	 * Produces the distance of an insertion point from the element's hashed slot. 
+	 * @param i: the insertion point
+	 * @param idx: the hashed slot of the element
+	 * @return the distance: int
+	 */
+	private int getDistance ( int i, int idx )
+	{
+		return (i - idx + array.size()) % array.size();
+	}
+
+	/**
+	 * Locates the element that the hashing strategy of the set finds equal to the given
+	 * key, which need not be an element itself. The array is allocated or grown first, so
+	 * an insertion point returned stays valid for insertAt until the set is next modified.
+	 * Lets RobinHoodInterner look a value up from another form without creating it.
+	 * @param key: the key to locate
+	 * @return the index of the element if present, otherwise -(insertion point + 1): int
+	 */
+	int probe(Object key)
+	{
+		ensureRoom();
+		return find(key, hash(key));
+	}
+
+	/**
+	 * @param i: a slot in use, as returned by probe
+	 * @return the element in the slot: E
+	 */
+	E elementAt(int i)
+	{
+		return array.get(i).data;
+	}
+
+	/**
+	 * Adds an element at the insertion point that probe returned for a key, unless the
+	 * set is full. The element is placed by the hash of the key, which must be the hash
+	 * of the element.
+	 * @param found: the result of probe for the key
+	 * @param key: the key given to probe
+	 * @param element: the element to be added
+	 * @return true if the element was added: boolean
+	 */
+	boolean insertAt(int found, Object key, E element)
+	{
+		if ( isFull() ) return false;
+		int i = -found - 1;
+		insert(i, getDistance(i, hash(key)), element);
+		return true;
+	}
+
+	@Override
+	public boolean contains(Object object) 
+	{
+		if ( size == 0 || object == null ) return false;
+		return find(object, hash(object)) >= 0;
 	}
 
 	@Override
@@ -129,9 +394,9 @@ public class RobinHoodHashSet<E> implements Set<E>, Iterable<E> {
 	@Override
 	public <T> T[] toArray(T[] a) 
 	{
-		if ( a.length < array.size() )
+		if ( a.length < size )
 		{
-			a = (T[]) new Object[array.size()];
+			a = (T[]) new Object[size];
 		}
 		int i=0;
 		for ( E element: this )
@@ -143,62 +408,53 @@ public class RobinHoodHashSet<E> implements Set<E>, Iterable<E> {
 
 	@Override
 	public boolean add(E element) {
-		if ( size == array.size() || element == null )
+		if ( isFull() || element == null )
 		{
 			return false;
 		}
 
+		ensureRoom();
 		int idx = hash(element);
-		for ( int offset=0; offset<array.size(); offset++)
+		int i = find(element, idx);
+		if ( i >= 0 )
 		{
-			int  i = getIndex(idx, offset);
-			if ( array.get(i).empty )
-			{
-				array.get(i).data = element;
-				array.get(i).distance = offset;
-				array.get(i).empty = false;
-				size++;
-				return true;
-			}
-			else if ( array.get(i).data == element )
-			{
-				return false;
-			}
+			return false;
 		}
-
-		return false;
+		insert(-i-1, getDistance(-i-1, idx), element);
+		return true;
 	}
 
 	@Override
 	public boolean remove(Object object) 
 	{
 		if ( size == 0 || object == null ) return false;
-		
-		int idx = hash(object);
-		int last = 0;
-		for ( int offset=0; offset<array.size(); offset++)
+		int i = find(object, hash(object));
+		if ( i < 0 )
+			return false;
+		removeAt(i);
+		shrinkIfSparse();
+		return true;
+	}
+
+	/**
+	 * Removes the element in the given slot, shifting each subsequent element
+	 * that is away from its hashed slot back by one position.
+	 * @param i: the slot to empty
+	 */
+	private void removeAt(int i)
+	{
+		int j = getIndex(i, 1);
+		while(!array.get(j).isEmpty() && array.get(j).distance > 0)
 		{
-			int  i = getIndex(idx, offset);
-			if ( !array.get (i).empty && array.get(i).data.equals(object))
-			{
-				int j = getIndex(idx, offset+1);
-				while(!array.get(j).empty && array.get(j).distance > 0)
-				{
-					array.get(i).data = array.get(j).data;
-					array.get(i).distance = array.get(j).distance -1;
-					i=j;
-					j=getIndex(i, 1);
-				}
-				array.get(i).data = null;
-				array.get(i).empty = true;
-				size--;
-				return true;
-				
-			}
-			if ( !array.get(i).empty && array.get(i).distance < last )
-				return false;
+			array.get(i).data = array.get(j).data;
+			array.get(i).distance = array.get(j).distance -1;
+			i=j;
+			j=getIndex(i, 1);
 		}
-		return false;
+		array.get(i).data = null;
+		array.get(i).empty = true;
+		size--;
+		modCount++;
 	}
 
 	@Override
@@ -225,13 +481,14 @@ public class RobinHoodHashSet<E> implements Set<E>, Iterable<E> {
 
 	@Override
 	public boolean retainAll(Collection<?> c) {
-		ArrayList<E> removeList = new ArrayList<E>(size);
-		for ( E element: this )
+		Iterator<E> iterator = this.iterator();
+		while ( iterator.hasNext() )
 		{
-			if ( !c.contains(element) )
-				removeList.add(element);
+			if ( !c.contains(iterator.next()) )
+				iterator.remove();
 		}
-		return removeAll(removeList);
+		shrinkIfSparse();
+		return true;
 	}
 
 	@Override
@@ -244,14 +501,26 @@ public class RobinHoodHashSet<E> implements Set<E>, Iterable<E> {
 		return true;
 	}
 
+	/**
+	 * Removes all elements from the set in constant time. Rather than emptying every
+	 * slot, the generation of the set is advanced so that every slot stamped with
+	 * an earlier generation reads as empty. Cleared elements remain referenced until
+	 * their slots are reused. The slots are only emptied when the generation 
+	 * counter wraps around.
+	 */
 	@Override
 	public void clear() 
 	{
-		int capacity = array.size();
-		this.array = new ArrayList<Slot>(capacity);
-		for ( int i=0; i<capacity; i++)
-			array.add( new Slot());
+		if ( ++generation == 0 && array != null )
+		{
+			for ( Slot slot: array )
+			{
+				slot.data = null;
+				slot.empty = true;
+			}
+		}
 		this.size = 0;
+		modCount++;
 	}
 	
 	@Override
@@ -286,6 +555,8 @@ public class RobinHoodHashSet<E> implements Set<E>, Iterable<E> {
 		public int distance;
 		/** A flag indicating the slot is empty even if it contain data **/
 		public boolean empty;
+		/** The generation of the set in which the slot was filled **/
+		public int generation;
 		
 		/**
 		 * Instantiates a slot; sets all fields to default values. Should be
@@ -296,6 +567,14 @@ public class RobinHoodHashSet<E> implements Set<E>, Iterable<E> {
 			this.data = null; 
 			this.distance = 0;  
 			this.empty = true; 
+			this.generation = 0;
+		}
+		
+		/**
+		 * @return true if the slot holds no element of the current generation: boolean
+		 */
+		public boolean isEmpty() {
+			return empty || generation != RobinHoodHashSet.this.generation;
 		}
 		
 		@Override
@@ -305,31 +584,56 @@ public class RobinHoodHashSet<E> implements Set<E>, Iterable<E> {
 
 	}
 	
+	/**
+	 * Iterates over the slot array of the RobinHoodHashSet. A removal shifts the
+	 * following elements back by one position, so the current slot is examined
+	 * again on the next step. The number of elements not yet visited is tracked so 
+	 * that an element shifted around the end of the array is not visited twice.
+	 */
 	public class SetIterator implements Iterator<E>
 	{
 
-		private int index;
+		/** The next slot to examine **/
+		private int index = 0;
+		/** The slot of the element most recently returned, or -1 if there is none **/
+		private int last = -1;
+		/** The number of elements that have not been returned **/
+		private int remaining = size;
+		/** The modification count expected by this iterator **/
+		private int expectedModCount = modCount;
 		
 		/**
 		 *  Creates an iterator for a RobinHoodHashSet
 		 */
-		SetIterator(  )
-		{
-			for (index=0; index<array.size() && array.get(index).empty; index++);
-		}
+		SetIterator(  ) { }
 		
 		@Override
 		public boolean hasNext() {
-			return index < array.size() && array.get(index).data != null;
+			return remaining > 0;
 		}
 
 		@Override
 		public E next() {
-			if ( index < 0 || index>= array.size())
-				throw new IndexOutOfBoundsException();
-			E element = array.get(index).data;
-			for (index++; index<array.size() && array.get(index).empty; index++);
-			return element;
+			if ( modCount != expectedModCount )
+				throw new ConcurrentModificationException();
+			if ( remaining == 0 )
+				throw new NoSuchElementException();
+			for (; array.get(index).isEmpty(); index++);
+			last = index++;
+			remaining--;
+			return array.get(last).data;
+		}
+
+		@Override
+		public void remove() {
+			if ( last < 0 )
+				throw new IllegalStateException();
+			if ( modCount != expectedModCount )
+				throw new ConcurrentModificationException();
+			removeAt(last);
+			index = last;
+			last = -1;
+			expectedModCount = modCount;
 		}
 	
 	}
@@ -0,0 +1,419 @@
+package util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Deduplicates equal immutable objects using the robinhood hashing technique: intern
+ * returns the first instance seen of each distinct value, so that later equal instances
+ * can be dropped. The canonical instances are the elements of a RobinHoodHashSet, and
+ * interning takes a single probe sequence of the set, which either finds the canonical
+ * instance or ends at the slot where the candidate is inserted.
+ *
+ * The canonical instances are held either strongly, so they stay until the interner is
+ * cleared, or weakly, so that an instance no longer used anywhere else is reclaimed and
+ * its slot emptied the next time intern is called. Unlike String.intern, the number of
+ * instances is bounded: once the interner is full, new values are returned as they are
+ * without being kept.
+ *
+ * A value may also be interned from another form, described by a Lookup, such as the
+ * characters or the UTF-8 bytes of a string. The canonical instance is then found without
+ * creating the candidate, which is only created when the value is new.
+ *
+ * The interner is not synchronized; the ConcurrentRobinHoodInterner spreads values over
+ * several interners that are.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ *
+ * @param <T> The type of the interned objects.
+ */
+public class RobinHoodInterner<T> {
+
+	/** The default size of the array is 20 unless overridden by the constructor. **/
+	private static final int DEFAULT_CAPACITY = 20;
+
+	/**
+	 * Describes how to intern a value from another form without creating the value first.
+	 * The hash of a source must be the hash code of the value it creates.
+	 *
+	 * @param <S> The type of the source form.
+	 * @param <T> The type of the interned objects.
+	 */
+	public interface Lookup<S, T> {
+
+		/**
+		 * @param source: the source of a value
+		 * @return the hash code of the value the source creates: int
+		 */
+		int hash(S source);
+
+		/**
+		 * @param value: a canonical instance
+		 * @param source: the source of a value
+		 * @return true if the source creates a value equal to the instance: boolean
+		 */
+		boolean matches(T value, S source);
+
+		/**
+		 * @param source: the source of a value that is not yet interned
+		 * @return a new value created from the source: T
+		 */
+		T create(S source);
+	}
+
+	/** Interns strings from any sequence of characters **/
+	public static final Lookup<CharSequence, String> CHARS = new Lookup<CharSequence, String>() {
+		@Override
+		public int hash(CharSequence source) {
+			if ( source instanceof String )
+				return source.hashCode();
+			int h = 0;
+			for ( int i=0; i<source.length(); i++ )
+				h = 31 * h + source.charAt(i);
+			return h;
+		}
+
+		@Override
+		public boolean matches(String value, CharSequence source) {
+			return value.contentEquals(source);
+		}
+
+		@Override
+		public String create(CharSequence source) {
+			return source.toString();
+		}
+	};
+
+	/** Interns strings from their UTF-8 encoding, decoding the bytes only for a new string **/
+	public static final Lookup<byte[], String> UTF8 = new Lookup<byte[], String>() {
+		@Override
+		public int hash(byte[] source) {
+			int h = 0;
+			for ( int p=0; p<source.length; )
+			{
+				int code = decode(source, p);
+				if ( code < 0 )
+					return new String(source, StandardCharsets.UTF_8).hashCode();
+				p += encodedLength(code);
+				if ( code >= 0x10000 )
+				{
+					h = 31 * h + Character.highSurrogate(code);
+					h = 31 * h + Character.lowSurrogate(code);
+				}
+				else
+				{
+					h = 31 * h + code;
+				}
+			}
+			return h;
+		}
+
+		@Override
+		public boolean matches(String value, byte[] source) {
+			int j = 0;
+			for ( int p=0; p<source.length; )
+			{
+				int code = decode(source, p);
+				if ( code < 0 )
+					return value.equals(new String(source, StandardCharsets.UTF_8));
+				p += encodedLength(code);
+				if ( j >= value.length() || value.codePointAt(j) != code )
+					return false;
+				j += Character.charCount(code);
+			}
+			return j == value.length();
+		}
+
+		@Override
+		public String create(byte[] source) {
+			return new String(source, StandardCharsets.UTF_8);
+		}
+	};
+
+	/** Interns a value from an equal instance of itself **/
+	@SuppressWarnings("rawtypes")
+	private static final Lookup SELF = new Lookup<Object, Object>() {
+		@Override
+		public int hash(Object source) {
+			return source.hashCode();
+		}
+
+		@Override
+		public boolean matches(Object value, Object source) {
+			return value.equals(source);
+		}
+
+		@Override
+		public Object create(Object source) {
+			return source;
+		}
+	};
+
+	/**
+	 * Hashes and compares the elements of the set: a canonical instance, or its weak
+	 * reference, is hashed by the hash code of the instance and matched against the
+	 * probe key by the lookup of the probe. A weak reference given as the key matches
+	 * only itself, so that a reclaimed instance can be removed.
+	 */
+	private static final HashingStrategy<Object> ELEMENTS = new HashingStrategy<Object>() {
+		@Override
+		public int hash(Object element) {
+			if ( element instanceof Probe )
+				return ((Probe) element).hash;
+			if ( element instanceof WeakElement )
+				return ((WeakElement) element).hash;
+			return element.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object stored, Object key) {
+			if ( key instanceof WeakElement )
+				return stored == key;
+			Object element = stored instanceof WeakElement ? ((WeakElement) stored).get() : stored;
+			return element != null && ((Probe) key).matches(element);
+		}
+	};
+
+	/** The canonical instances, or their weak references **/
+	private final RobinHoodHashSet<Object> set;
+
+	/** The key that describes the value being interned to the set, reused by every call **/
+	private final Probe probe = new Probe();
+
+	/** True if the instances are held through weak references **/
+	private final boolean weak;
+
+	/** Receives the references cleared by the garbage collector **/
+	private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+	/**
+	 * A weak reference to a canonical instance that records its hash code.
+	 */
+	private static final class WeakElement extends WeakReference<Object>
+	{
+		/** The hash code of the instance **/
+		final int hash;
+
+		WeakElement( Object element, int hash, ReferenceQueue<Object> queue )
+		{
+			super( element, queue );
+			this.hash = hash;
+		}
+	}
+
+	/**
+	 * Describes a value to the set by its source, its hash code and its lookup, so that
+	 * the set can find the canonical instance without the value being created.
+	 */
+	private static final class Probe
+	{
+		/** The hash code of the value **/
+		int hash;
+
+		/** The source of the value **/
+		Object source;
+
+		/** Compares a canonical instance with the source **/
+		Lookup<Object, Object> lookup;
+
+		/**
+		 * @param element: a canonical instance
+		 * @return true if the source creates a value equal to the instance: boolean
+		 */
+		boolean matches(Object element)
+		{
+			return lookup.matches(element, source);
+		}
+	}
+
+	/**
+	 * Instantiates the RobinHoodInterner with a small number of storage locations
+	 * by default, holding the instances strongly. Should only be used for testing
+	 * purposes or when only a small interner is needed.
+	 */
+	public RobinHoodInterner( )
+	{
+		this( DEFAULT_CAPACITY, false );
+	}
+
+	/**
+	 * Instantiates the RobinHoodInterner with the given capacity.
+	 * @param capacity: the maximum number of canonical instances.
+	 * @param weak: true to hold the instances through weak references
+	 */
+	public RobinHoodInterner( int capacity, boolean weak )
+	{
+		if ( capacity <= 0 ) throw new IllegalArgumentException("Invalid capacity for interner");
+		this.set = new RobinHoodHashSet<Object>( capacity, ELEMENTS );
+		this.weak = weak;
+	}
+
+	/**
+	 * @return the lookup that interns a value from an equal instance of itself: Lookup
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> Lookup<T, T> self()
+	{
+		return (Lookup<T, T>) SELF;
+	}
+
+	/**
+	 * Returns the canonical instance equal to the candidate. If there is none, the
+	 * candidate becomes the canonical instance, unless the interner is full.
+	 * @param candidate: the instance to intern
+	 * @return the canonical instance, or the candidate if it is new or the interner is full: T
+	 */
+	public T intern(T candidate) {
+		if ( candidate == null ) return null;
+		return intern(candidate, candidate.hashCode(), self());
+	}
+
+	/**
+	 * Returns the canonical instance of the value the source creates. The value is only
+	 * created if there is no canonical instance, in which case it becomes the canonical
+	 * instance unless the interner is full.
+	 * @param source: the source of the value
+	 * @param lookup: describes how the source hashes, compares and creates the value
+	 * @return the canonical instance, or the new value: T
+	 */
+	public <S> T intern(S source, Lookup<S, T> lookup) {
+		if ( source == null ) return null;
+		return intern(source, lookup.hash(source), lookup);
+	}
+
+	/**
+	 * Interns the value of a source using a single probe of the set, after emptying
+	 * the slots whose instances have been reclaimed.
+	 * @param source: the source of the value
+	 * @param h: the hash code of the value
+	 * @param lookup: compares an instance with the source and creates the value
+	 * @return the canonical instance, or the new value: T
+	 */
+	@SuppressWarnings("unchecked")
+	<S> T intern(S source, int h, Lookup<S, T> lookup)
+	{
+		drain();
+		aim(source, h, lookup);
+		try {
+			int found = set.probe(probe);
+			if ( found >= 0 )
+			{
+				Object element = set.elementAt(found);
+				return (T) (weak ? ((WeakElement) element).get() : element);
+			}
+			T value = lookup.create(source);
+			if ( value != null )
+				set.insertAt(found, probe, weak ? new WeakElement(value, h, queue) : value);
+			return value;
+		} finally {
+			probe.source = null;
+		}
+	}
+
+	/**
+	 * Points the probe at the value of a source.
+	 * @param source: the source of the value
+	 * @param h: the hash code of the value
+	 * @param lookup: compares an instance with the source
+	 */
+	@SuppressWarnings("unchecked")
+	private void aim(Object source, int h, Lookup<?, ?> lookup)
+	{
+		probe.source = source;
+		probe.hash = h;
+		probe.lookup = (Lookup<Object, Object>) lookup;
+	}
+
+	/**
+	 * @param value: the value to look for
+	 * @return true if an instance equal to the value is interned: boolean
+	 */
+	public boolean contains(T value) {
+		if ( value == null ) return false;
+		drain();
+		aim(value, value.hashCode(), SELF);
+		try {
+			return set.contains(probe);
+		} finally {
+			probe.source = null;
+		}
+	}
+
+	/**
+	 * Returns the number of canonical instances, after emptying the slots whose
+	 * instances have been reclaimed.
+	 * @return the number of instances: int
+	 */
+	public int size() {
+		drain();
+		return set.size();
+	}
+
+	/**
+	 * Returns true if this interner is at capacity and cannot accept any new
+	 * instances.
+	 * @return true if the interner is full: boolean
+	 */
+	public boolean isFull() {
+		drain();
+		return set.isFull();
+	}
+
+	/**
+	 * Removes every canonical instance.
+	 */
+	public void clear() {
+		set.clear();
+		while ( queue.poll() != null );
+	}
+
+	/**
+	 * Removes from the set every instance the garbage collector has reclaimed. The
+	 * reference is located by the hash it records and matches only itself.
+	 */
+	private void drain()
+	{
+		Reference<?> ref;
+		while ( (ref = queue.poll()) != null )
+			set.remove(ref);
+	}
+
+	/**
+	 * Decodes the code point starting at the given position of a UTF-8 encoding.
+	 * @param bytes: the encoding
+	 * @param p: the position of the first byte of the code point
+	 * @return the code point, or -1 if the encoding is malformed there: int
+	 */
+	private static int decode(byte[] bytes, int p)
+	{
+		int b = bytes[p] & 0xff;
+		if ( b < 0x80 )
+			return b;
+		int length = b >= 0xf8 ? 0 : b >= 0xf0 ? 4 : b >= 0xe0 ? 3 : b >= 0xc2 ? 2 : 0;
+		if ( length == 0 || p + length > bytes.length )
+			return -1;
+		int code = b & (0x7f >> length);
+		for ( int k=1; k<length; k++ )
+		{
+			int c = bytes[p + k] & 0xff;
+			if ( (c & 0xc0) != 0x80 )
+				return -1;
+			code = (code << 6) | (c & 0x3f);
+		}
+		if ( encodedLength(code) != length || code > 0x10ffff || (code >= 0xd800 && code <= 0xdfff) )
+			return -1;
+		return code;
+	}
+
+	/**
+	 * @param code: a code point
+	 * @return the number of bytes in its UTF-8 encoding: int
+	 */
+	private static int encodedLength(int code)
+	{
+		return code < 0x80 ? 1 : code < 0x800 ? 2 : code < 0x10000 ? 3 : 4;
+	}
+
+}
@@ -0,0 +1,487 @@
+package util;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Implements a loading cache on top of the RobinHoodCache. Each slot holds a future for
+ * the value of its key. On a miss, a future that is not yet complete is placed in a
+ * separate table of loads in flight before the loader runs, so every concurrent miss for
+ * the same key finds it and waits for the same load rather than starting another one.
+ * Keeping it out of the cache until the load completes means the clock can never evict
+ * it, however full the cache is; a completed load then moves into the cache, where it is
+ * subject to eviction like any other entry. Loads in flight do not count towards the
+ * capacity.
+ *
+ * Loaders run on the executor given to the constructor. On a runtime with virtual
+ * threads, an executor that starts a virtual thread per task lets a loader block on
+ * I/O without holding a platform thread.
+ *
+ * If a refresh interval is given, a read of a value older than the interval still
+ * returns that value at once but also starts a reload in the background; the new
+ * value replaces the old one when the reload completes, and the old value is kept
+ * if it fails.
+ *
+ * A load that fails or produces null leaves nothing in the cache, so the next read
+ * loads again. The table is guarded by the cache's monitor, which is never held
+ * while a loader runs.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ *
+ * @param <K> The key type of the cache.
+ * @param <V> The value type of the cache.
+ */
+public class RobinHoodLoadingCache<K, V> {
+
+	/** The default number of entries is 20 unless overridden by the constructor. **/
+	private static final int DEFAULT_CAPACITY = 20;
+
+	/** The entries of the cache, each holding the future for its key's value **/
+	private final RobinHoodCache<K, Node<V>> cache;
+
+	/** The keys whose first load is running, each with the node to move into the cache once it completes **/
+	private final Map<K, Node<V>> loading = new HashMap<K, Node<V>>();
+
+	/** Runs the loaders **/
+	private final Executor executor;
+
+	/** The age in nanoseconds after which a read reloads a value in the background, or 0 to never refresh **/
+	private final long refreshNanos;
+
+	/** The source of the current time in nanoseconds **/
+	private final LongSupplier ticker;
+
+	/** The number of reads that found their key, loaded or loading **/
+	private long hitCount = 0;
+
+	/** The number of reads that started a load **/
+	private long missCount = 0;
+
+	/** The number of loads, including refreshes, that produced a value **/
+	private long loadSuccessCount = 0;
+
+	/** The number of loads, including refreshes, that failed or produced null **/
+	private long loadFailureCount = 0;
+
+	/**
+	 * The contents of a slot: the future for the value, when it was last loaded and
+	 * whether a refresh is running.
+	 *
+	 * @param <V> The value type of the cache.
+	 */
+	private static final class Node<V> {
+
+		/** The future for the value **/
+		CompletableFuture<V> future;
+
+		/** The time at which the value was loaded **/
+		long loadTime;
+
+		/** True while a refresh of the value is running **/
+		boolean refreshing;
+
+		Node( CompletableFuture<V> future )
+		{
+			this.future = future;
+		}
+	}
+
+	/**
+	 * Instantiates the RobinHoodLoadingCache with a small capacity by default, running
+	 * loaders on the common fork-join pool. Should only be used for testing purposes.
+	 */
+	public RobinHoodLoadingCache( )
+	{
+		this( DEFAULT_CAPACITY, ForkJoinPool.commonPool() );
+	}
+
+	/**
+	 * Instantiates the RobinHoodLoadingCache with the given capacity and executor.
+	 * @param capacity: the maximum number of entries in the cache.
+	 * @param executor: runs the loaders
+	 */
+	public RobinHoodLoadingCache( int capacity, Executor executor )
+	{
+		this( capacity, executor, 0, TimeUnit.NANOSECONDS, System::nanoTime );
+	}
+
+	/**
+	 * Instantiates the RobinHoodLoadingCache with the given capacity and executor, refreshing
+	 * values that are older than the given interval when they are read.
+	 * @param capacity: the maximum number of entries in the cache.
+	 * @param executor: runs the loaders
+	 * @param refreshAfter: the age after which a read reloads a value, or 0 to never refresh
+	 * @param unit: the unit of the refresh interval
+	 */
+	public RobinHoodLoadingCache( int capacity, Executor executor, long refreshAfter, TimeUnit unit )
+	{
+		this( capacity, executor, refreshAfter, unit, System::nanoTime );
+	}
+
+	/**
+	 * Instantiates the RobinHoodLoadingCache with the given capacity, executor, refresh
+	 * interval and source of time. Should only be used for testing purposes.
+	 * @param capacity: the maximum number of entries in the cache.
+	 * @param executor: runs the loaders
+	 * @param refreshAfter: the age after which a read reloads a value, or 0 to never refresh
+	 * @param unit: the unit of the refresh interval
+	 * @param ticker: produces the current time in nanoseconds
+	 */
+	public RobinHoodLoadingCache( int capacity, Executor executor, long refreshAfter, TimeUnit unit, LongSupplier ticker )
+	{
+		if ( refreshAfter < 0 ) throw new IllegalArgumentException("Invalid refresh interval");
+		if ( executor == null || ticker == null ) throw new NullPointerException();
+		this.cache = new RobinHoodCache<K, Node<V>>( capacity );
+		this.executor = executor;
+		this.refreshNanos = unit.toNanos( refreshAfter );
+		this.ticker = ticker;
+	}
+
+	/**
+	 * Returns the future for the value of the given key. If the key is absent, a future
+	 * is placed among the loads in flight and the loader is started on the executor;
+	 * concurrent calls for the same key return that future until the load completes.
+	 * @param key: the key to look up
+	 * @param loader: produces the value of the key if it must be loaded
+	 * @return the future for the value, which completes with null if the loader produced null: CompletableFuture
+	 */
+	public CompletableFuture<V> getAsync(K key, Function<? super K, ? extends V> loader)
+	{
+		if ( key == null || loader == null ) throw new NullPointerException();
+		Node<V> node;
+		CompletableFuture<V> future;
+		boolean load = false;
+		boolean refresh = false;
+		synchronized ( this )
+		{
+			node = lookup( key );
+			if ( node != null )
+			{
+				hitCount++;
+				if ( refreshNanos > 0 && !node.refreshing && node.future.isDone()
+						&& ticker.getAsLong() - node.loadTime >= refreshNanos )
+				{
+					node.refreshing = true;
+					refresh = true;
+				}
+			}
+			else
+			{
+				missCount++;
+				node = new Node<V>( new CompletableFuture<V>() );
+				loading.put( key, node );
+				load = true;
+			}
+			future = node.future;
+		}
+		if ( load )
+			load( key, node, loader );
+		else if ( refresh )
+			refresh( key, node, loader );
+		return future;
+	}
+
+	/**
+	 * Returns the futures for the values of the given keys as one future for a map. Keys that
+	 * are absent are loaded together by a single call to the bulk loader, with a future placed
+	 * among the loads in flight for each of them first so that concurrent reads of those keys
+	 * wait for the bulk load. Keys whose value is loading already are not passed to the bulk loader.
+	 * @param keys: the keys to look up
+	 * @param bulkLoader: produces the values of the absent keys; keys missing from its result have no value
+	 * @return the future for a map from each key with a value to its value: CompletableFuture
+	 */
+	public CompletableFuture<Map<K, V>> getAllAsync(Collection<? extends K> keys,
+			Function<? super Set<K>, ? extends Map<? extends K, ? extends V>> bulkLoader)
+	{
+		if ( keys == null || bulkLoader == null ) throw new NullPointerException();
+		Map<K, CompletableFuture<V>> futures = new HashMap<K, CompletableFuture<V>>();
+		Map<K, Node<V>> misses = new HashMap<K, Node<V>>();
+		synchronized ( this )
+		{
+			for ( K key: keys )
+			{
+				if ( key == null ) throw new NullPointerException();
+				if ( futures.containsKey( key ) )
+					continue;
+				Node<V> node = lookup( key );
+				if ( node != null )
+				{
+					hitCount++;
+				}
+				else
+				{
+					missCount++;
+					node = new Node<V>( new CompletableFuture<V>() );
+					loading.put( key, node );
+					misses.put( key, node );
+				}
+				futures.put( key, node.future );
+			}
+		}
+		if ( !misses.isEmpty() )
+			loadAll( misses, bulkLoader );
+
+		return CompletableFuture.allOf( futures.values().toArray( new CompletableFuture<?>[0] ) )
+				.thenApply( ignored -> {
+					Map<K, V> result = new HashMap<K, V>();
+					for ( Map.Entry<K, CompletableFuture<V>> entry: futures.entrySet() )
+					{
+						V value = entry.getValue().join();
+						if ( value != null )
+							result.put( entry.getKey(), value );
+					}
+					return result;
+				});
+	}
+
+	/**
+	 * Returns the future for the value of the given key without loading it.
+	 * @param key: the key to look up
+	 * @return the future for the value, or null if the key is absent: CompletableFuture
+	 */
+	public synchronized CompletableFuture<V> getIfPresent(Object key)
+	{
+		Node<V> node = lookup( key );
+		return node == null ? null : node.future;
+	}
+
+	/**
+	 * Finds the node of a key among the loads in flight, then in the cache, where
+	 * finding it sets its reference bit. Must be called while holding the monitor.
+	 * @param key: the key to look up
+	 * @return the node of the key, or null if it is absent: Node
+	 */
+	private Node<V> lookup(Object key)
+	{
+		Node<V> node = loading.get( key );
+		return node != null ? node : cache.get( key );
+	}
+
+	/**
+	 * Removes the key from the cache. A load of the key that is running still completes
+	 * the futures already returned for it, but its value is not kept.
+	 * @param key: the key to remove
+	 */
+	public synchronized void invalidate(Object key)
+	{
+		loading.remove( key );
+		cache.remove( key );
+	}
+
+	/**
+	 * Removes every entry from the cache.
+	 */
+	public synchronized void invalidateAll()
+	{
+		loading.clear();
+		cache.clear();
+	}
+
+	/**
+	 * @return the number of entries in the cache, including those still loading: int
+	 */
+	public synchronized int size() {
+		return cache.size() + loading.size();
+	}
+
+	/**
+	 * @return the number of reads that found their key, loaded or loading: long
+	 */
+	public synchronized long hitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @return the number of reads that started a load: long
+	 */
+	public synchronized long missCount() {
+		return missCount;
+	}
+
+	/**
+	 * @return the number of loads, including refreshes, that produced a value: long
+	 */
+	public synchronized long loadSuccessCount() {
+		return loadSuccessCount;
+	}
+
+	/**
+	 * @return the number of loads, including refreshes, that failed or produced null: long
+	 */
+	public synchronized long loadFailureCount() {
+		return loadFailureCount;
+	}
+
+	/**
+	 * @return the number of entries evicted to make room for new keys: long
+	 */
+	public synchronized long evictionCount() {
+		return cache.evictionCount();
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		StringBuilder s = new StringBuilder("RobinHoodLoadingCache:[" );
+		int[] n = { 0 };
+		BiConsumer<K, Node<V>> append = (key, node) -> {
+			if ( n[0]++ > 0 )
+			{
+				s.append( ", " );
+			}
+			s.append( key ).append( "=" );
+			if ( node.future.isDone() && !node.future.isCompletedExceptionally() )
+				s.append( node.future.join() );
+			else
+				s.append( "..." );
+		};
+		cache.forEach( append );
+		loading.forEach( append );
+		s.append( "]" );
+		return  s.toString();
+	}
+
+	/**
+	 * Runs the loader for a key on the executor and completes the future of its node.
+	 * @param key: the key to load
+	 * @param node: the node placed among the loads in flight for the key
+	 * @param loader: produces the value of the key
+	 */
+	private void load(K key, Node<V> node, Function<? super K, ? extends V> loader)
+	{
+		execute( () -> {
+			V value;
+			try {
+				value = loader.apply( key );
+			} catch (Throwable t) {
+				loaded( key, node, null, t );
+				return;
+			}
+			loaded( key, node, value, null );
+		}, e -> loaded( key, node, null, e ) );
+	}
+
+	/**
+	 * Records the result of a load and completes the future of its node. Unless the key
+	 * was invalidated while it loaded, the node leaves the loads in flight and, if the
+	 * load produced a value, is placed in the cache first.
+	 * @param key: the key that was loaded
+	 * @param node: the node placed among the loads in flight for the key
+	 * @param value: the value produced, or null
+	 * @param failure: the exception thrown by the loader, or null
+	 */
+	private void loaded(K key, Node<V> node, V value, Throwable failure)
+	{
+		synchronized ( this )
+		{
+			node.loadTime = ticker.getAsLong();
+			boolean success = failure == null && value != null;
+			if ( success )
+				loadSuccessCount++;
+			else
+				loadFailureCount++;
+			if ( loading.get( key ) == node )
+			{
+				loading.remove( key );
+				if ( success )
+					cache.put( key, node );
+			}
+		}
+		if ( failure != null )
+			node.future.completeExceptionally( failure );
+		else
+			node.future.complete( value );
+	}
+
+	/**
+	 * Runs the loader for a key on the executor and, if it produces a value, replaces the
+	 * future of the node with a completed one. The old value is kept if the loader fails.
+	 * @param key: the key to reload
+	 * @param node: the node in the cache for the key
+	 * @param loader: produces the value of the key
+	 */
+	private void refresh(K key, Node<V> node, Function<? super K, ? extends V> loader)
+	{
+		execute( () -> {
+			V value;
+			try {
+				value = loader.apply( key );
+			} catch (Throwable t) {
+				value = null;
+			}
+			refreshed( node, value );
+		}, e -> refreshed( node, null ) );
+	}
+
+	/**
+	 * Records the result of a refresh.
+	 * @param node: the node in the cache for the key
+	 * @param value: the value produced, or null if the refresh failed
+	 */
+	private synchronized void refreshed(Node<V> node, V value)
+	{
+		node.refreshing = false;
+		if ( value != null )
+		{
+			loadSuccessCount++;
+			node.future = CompletableFuture.completedFuture( value );
+			node.loadTime = ticker.getAsLong();
+		}
+		else
+		{
+			loadFailureCount++;
+		}
+	}
+
+	/**
+	 * Runs the bulk loader for the absent keys on the executor and completes the future of
+	 * each of their nodes. If the bulk loader fails, every future fails.
+	 * @param misses: the absent keys and the nodes placed among the loads in flight for them
+	 * @param bulkLoader: produces the values of the keys
+	 */
+	private void loadAll(Map<K, Node<V>> misses, Function<? super Set<K>, ? extends Map<? extends K, ? extends V>> bulkLoader)
+	{
+		execute( () -> {
+			Map<? extends K, ? extends V> values;
+			try {
+				values = bulkLoader.apply( new LinkedHashSet<K>( misses.keySet() ) );
+			} catch (Throwable t) {
+				for ( Map.Entry<K, Node<V>> entry: misses.entrySet() )
+					loaded( entry.getKey(), entry.getValue(), null, t );
+				return;
+			}
+			for ( Map.Entry<K, Node<V>> entry: misses.entrySet() )
+				loaded( entry.getKey(), entry.getValue(), values == null ? null : values.get( entry.getKey() ), null );
+		}, e -> {
+			for ( Map.Entry<K, Node<V>> entry: misses.entrySet() )
+				loaded( entry.getKey(), entry.getValue(), null, e );
+		});
+	}
+
+	/**
+	 * Submits a task to the executor, passing the exception to the given handler instead
+	 * if the executor rejects it.
+	 * @param task: the task to run
+	 * @param rejected: handles the rejection of the task
+	 */
+	private void execute(Runnable task, Consumer<RuntimeException> rejected)
+	{
+		try {
+			executor.execute( task );
+		} catch (RuntimeException e) {
+			rejected.accept( e );
+		}
+	}
+
+}
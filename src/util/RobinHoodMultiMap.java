@@ -0,0 +1,557 @@
+package util;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Implements a multimap (each key mapped to a list of values) using the robinhood
+ * hashing technique. Keys are ordered in an array by hashed key for quick lookup.
+ * Rather than holding a separate list object for each key, the values of every key
+ * are packed into blocks of one shared value array (the arena). A slot only records
+ * where its block starts, how many values it holds and how large it is, so moving
+ * a key within the slot array never moves its values.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ *
+ * @param <K> The key type of the map.
+ * @param <V> The value type of the map.
+ */
+public class RobinHoodMultiMap<K, V> {
+
+	/** The default size of the array is 20 unless overridden by the constructor. **/
+	private static final int DEFAULT_CAPACITY = 20;
+
+	/** The keys in each slot; null if the slot is empty **/
+	private Object[] keys;
+
+	/** The offset distance of each slot from the hashed slot of its key **/
+	private int[] distances;
+
+	/** The position in the arena of the block of values for each slot **/
+	private int[] offsets;
+
+	/** The number of values in the block of each slot **/
+	private int[] counts;
+
+	/** The number of positions reserved in the block of each slot **/
+	private int[] blockSizes;
+
+	/** The values of every key, packed into one block per key **/
+	private Object[] arena;
+
+	/** The first position of the arena that has not been reserved **/
+	private int arenaSize = 0;
+
+	/** The number of reserved positions in the arena no longer used by any block **/
+	private int garbage = 0;
+
+	/** The number of keys in the map **/
+	private int keyCount = 0;
+
+	/** The number of values in the map **/
+	private int size = 0;
+
+	/** The number of structural modifications, used to detect concurrent modification **/
+	private int modCount = 0;
+
+	/**
+	 * Instantiates the RobinHoodMultiMap with a small number of storage locations
+	 * by default. Should only be used for testing purposes or when only a small map is needed.
+	 */
+	public RobinHoodMultiMap( )
+	{
+		this( DEFAULT_CAPACITY );
+	}
+
+	/**
+	 * Instantiates the RobinHoodMultiMap with the given capacity.
+	 * @param capacity: the maximum number of keys in the map.
+	 */
+	public RobinHoodMultiMap( int capacity )
+	{
+		if ( capacity <= 0 ) throw new IllegalArgumentException("Invalid capacity for multimap");
+		this.keys = new Object[capacity];
+		this.distances = new int[capacity];
+		this.offsets = new int[capacity];
+		this.counts = new int[capacity];
+		this.blockSizes = new int[capacity];
+		this.arena = new Object[capacity];
+	}
+
+	/**
+	 * Produces the hash value of the key
+	 * @param key: the key
+	 * @return the hashed value: int
+	 */
+	private int hash(Object key)
+	{
+		return (key.hashCode() & 0x7fffffff) % keys.length;
+	}
+
+	/**
+	 * Locates the given key using a single probe sequence starting from its hashed slot.
+	 * @param key: the key to locate
+	 * @return the index of the key if present, otherwise -(insertion point + 1): int
+	 */
+	private int find(Object key)
+	{
+		int idx = hash(key);
+		for ( int offset=0; offset<keys.length; offset++)
+		{
+			int i = (idx + offset) % keys.length;
+			if ( keys[i] == null || distances[i] < offset )
+				return -(i+1);
+			if ( keys[i].equals(key) )
+				return i;
+		}
+		return -(idx+1);
+	}
+
+	/**
+	 * @return the number of values in the map: int
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of distinct keys in the map: int
+	 */
+	public int keyCount() {
+		return keyCount;
+	}
+
+	/**
+	 * @return true if the map holds no values: boolean
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns true if this map is at capacity and cannot accept any new
+	 * keys. Values may still be added to the keys already present.
+	 * @return true if the map is full: boolean
+	 */
+	public boolean isFull() {
+		return keyCount == keys.length;
+	}
+
+	/**
+	 * @param key: the key to look for
+	 * @return true if at least one value is mapped to the key: boolean
+	 */
+	public boolean containsKey(Object key) {
+		if ( size == 0 || key == null ) return false;
+		return find(key) >= 0;
+	}
+
+	/**
+	 * @param key: the key to look for
+	 * @param value: the value to look for
+	 * @return true if the value is mapped to the key: boolean
+	 */
+	public boolean containsEntry(Object key, Object value) {
+		if ( size == 0 || key == null || value == null ) return false;
+		int i = find(key);
+		return i >= 0 && indexOf(i, value) >= 0;
+	}
+
+	/**
+	 * @param key: the key to look for
+	 * @return the number of values mapped to the key: int
+	 */
+	public int valueCount(Object key) {
+		if ( size == 0 || key == null ) return 0;
+		int i = find(key);
+		return i >= 0 ? counts[i] : 0;
+	}
+
+	/**
+	 * Returns a view of the values mapped to the key. The view reflects later
+	 * changes to the map, and values added to the view are added to the map.
+	 * @param key: the key
+	 * @return the values mapped to the key: List
+	 */
+	public List<V> get(K key) {
+		return new ValueList(key);
+	}
+
+	/**
+	 * Adds the value to the end of the values mapped to the key.
+	 * @param key: the key
+	 * @param value: the value to add
+	 * @return true if the value was added, false if either is null or the map is full: boolean
+	 */
+	public boolean put(K key, V value) {
+		if ( key == null || value == null )
+		{
+			return false;
+		}
+
+		int i = find(key);
+		if ( i < 0 )
+		{
+			if ( isFull() )
+			{
+				return false;
+			}
+			i = insertKey(-i-1, key);
+		}
+		else if ( counts[i] == blockSizes[i] )
+		{
+			growBlock(i);
+		}
+		arena[offsets[i] + counts[i]++] = value;
+		size++;
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Removes one occurrence of the value from the values mapped to the key.
+	 * The key is removed once it has no values.
+	 * @param key: the key
+	 * @param value: the value to remove
+	 * @return true if the value was removed: boolean
+	 */
+	public boolean remove(Object key, Object value) {
+		if ( size == 0 || key == null || value == null ) return false;
+		int i = find(key);
+		if ( i < 0 )
+			return false;
+		int j = indexOf(i, value);
+		if ( j < 0 )
+			return false;
+		removeValue(i, j);
+		return true;
+	}
+
+	/**
+	 * Removes the key and every value mapped to it.
+	 * @param key: the key
+	 * @return the values that were mapped to the key: List
+	 */
+	@SuppressWarnings("unchecked")
+	public List<V> removeAll(Object key) {
+		if ( size == 0 || key == null ) return new ArrayList<V>(0);
+		int i = find(key);
+		if ( i < 0 )
+			return new ArrayList<V>(0);
+		ArrayList<V> removed = new ArrayList<V>(counts[i]);
+		for ( int j=0; j<counts[i]; j++ )
+			removed.add( (V) arena[offsets[i] + j] );
+		size -= counts[i];
+		removeKeyAt(i);
+		return removed;
+	}
+
+	/**
+	 * Removes every key and value from the map.
+	 */
+	public void clear() {
+		Arrays.fill(keys, null);
+		Arrays.fill(arena, 0, arenaSize, null);
+		arenaSize = 0;
+		garbage = 0;
+		keyCount = 0;
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * Passes every key-value pair to the given action, visiting the values of each
+	 * key in order. No objects are produced for the pairs.
+	 * @param action: the action to perform on each pair
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEach(BiConsumer<? super K, ? super V> action) {
+		int expectedModCount = modCount;
+		for ( int i=0; i<keys.length; i++ )
+		{
+			if ( keys[i] == null )
+				continue;
+			for ( int j=0; j<counts[i]; j++ )
+			{
+				action.accept( (K) keys[i], (V) arena[offsets[i] + j] );
+				if ( modCount != expectedModCount )
+					throw new ConcurrentModificationException();
+			}
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder s = new StringBuilder("RobinHoodMultiMap:[" );
+		int n=0;
+		for ( int i=0; i<keys.length; i++ )
+		{
+			if ( keys[i] == null )
+				continue;
+			if ( n++ > 0 )
+			{
+				s.append( ", " );
+			}
+			s.append( keys[i] ).append( "=[" );
+			for ( int j=0; j<counts[i]; j++ )
+			{
+				if ( j > 0 )
+				{
+					s.append( ", " );
+				}
+				s.append( arena[offsets[i] + j] );
+			}
+			s.append( "]" );
+		}
+		s.append( "]" );
+		return  s.toString();
+	}
+
+	/**
+	 * Finds the position of a value within the block of a slot.
+	 * @param i: the slot
+	 * @param value: the value to look for
+	 * @return the position within the block, or -1 if absent: int
+	 */
+	private int indexOf(int i, Object value)
+	{
+		for ( int j=0; j<counts[i]; j++ )
+			if ( arena[offsets[i] + j].equals(value) )
+				return j;
+		return -1;
+	}
+
+	/**
+	 * Adds a key with an empty block of one position at the insertion point found by
+	 * a previous probe, displacing any key that is closer to its hashed slot.
+	 * @param i: the insertion point
+	 * @param key: the key to add
+	 * @return the slot now holding the key: int
+	 */
+	private int insertKey(int i, K key)
+	{
+		int offset = reserve(1);
+		int distance = (i - hash(key) + keys.length) % keys.length;
+		Object carryKey = key;
+		int carryOffset = offset, carryCount = 0, carryBlockSize = 1;
+		int slot = -1;
+		while ( keys[i] != null )
+		{
+			if ( distances[i] < distance )
+			{
+				Object k = keys[i];
+				int d = distances[i], o = offsets[i], c = counts[i], b = blockSizes[i];
+				keys[i] = carryKey;
+				distances[i] = distance;
+				offsets[i] = carryOffset;
+				counts[i] = carryCount;
+				blockSizes[i] = carryBlockSize;
+				if ( slot < 0 )
+					slot = i;
+				carryKey = k;
+				distance = d;
+				carryOffset = o;
+				carryCount = c;
+				carryBlockSize = b;
+			}
+			i = (i + 1) % keys.length;
+			distance++;
+		}
+		keys[i] = carryKey;
+		distances[i] = distance;
+		offsets[i] = carryOffset;
+		counts[i] = carryCount;
+		blockSizes[i] = carryBlockSize;
+		keyCount++;
+		return slot < 0 ? i : slot;
+	}
+
+	/**
+	 * Removes the value at the given position in the block of a slot, keeping
+	 * the remaining values in order. The key is removed once it has no values.
+	 * @param i: the slot
+	 * @param j: the position within the block
+	 */
+	private void removeValue(int i, int j)
+	{
+		int start = offsets[i];
+		System.arraycopy(arena, start + j + 1, arena, start + j, counts[i] - j - 1);
+		arena[start + --counts[i]] = null;
+		size--;
+		if ( counts[i] == 0 )
+			removeKeyAt(i);
+		else
+			modCount++;
+	}
+
+	/**
+	 * Removes the key in the given slot and releases its block, shifting each
+	 * subsequent key that is away from its hashed slot back by one position.
+	 * @param i: the slot to empty
+	 */
+	private void removeKeyAt(int i)
+	{
+		Arrays.fill(arena, offsets[i], offsets[i] + counts[i], null);
+		garbage += blockSizes[i];
+		int j = (i + 1) % keys.length;
+		while ( keys[j] != null && distances[j] > 0 )
+		{
+			keys[i] = keys[j];
+			distances[i] = distances[j] - 1;
+			offsets[i] = offsets[j];
+			counts[i] = counts[j];
+			blockSizes[i] = blockSizes[j];
+			i = j;
+			j = (i + 1) % keys.length;
+		}
+		keys[i] = null;
+		distances[i] = 0;
+		keyCount--;
+		modCount++;
+	}
+
+	/**
+	 * Moves the values of a slot to a new block twice the size of its current one.
+	 * @param i: the slot
+	 */
+	private void growBlock(int i)
+	{
+		int offset = reserve(blockSizes[i] * 2);
+		System.arraycopy(arena, offsets[i], arena, offset, counts[i]);
+		Arrays.fill(arena, offsets[i], offsets[i] + counts[i], null);
+		garbage += blockSizes[i];
+		offsets[i] = offset;
+		blockSizes[i] *= 2;
+	}
+
+	/**
+	 * Reserves a block of positions at the end of the arena. If the arena has no
+	 * room, it is first repacked when at least half of it is unused, or enlarged
+	 * otherwise. Repacking moves the blocks of every slot.
+	 * @param length: the number of positions to reserve
+	 * @return the position of the block: int
+	 */
+	private int reserve(int length)
+	{
+		if ( arenaSize + length > arena.length )
+		{
+			int used = arenaSize - garbage;
+			if ( garbage >= arena.length / 2 && used + length <= arena.length )
+				repack(arena.length);
+			else
+				repack(Math.max( 2 * arena.length, used + length ));
+		}
+		int offset = arenaSize;
+		arenaSize += length;
+		return offset;
+	}
+
+	/**
+	 * Copies the block of every slot, in slot order, into a new arena of the given length.
+	 * @param length: the length of the new arena
+	 */
+	private void repack(int length)
+	{
+		Object[] packed = new Object[length];
+		int next = 0;
+		for ( int i=0; i<keys.length; i++ )
+		{
+			if ( keys[i] == null )
+				continue;
+			System.arraycopy(arena, offsets[i], packed, next, counts[i]);
+			offsets[i] = next;
+			next += blockSizes[i];
+		}
+		arena = packed;
+		arenaSize = next;
+		garbage = 0;
+	}
+
+	/**
+	 * A view of the values mapped to one key. The slot of the key is located again
+	 * whenever the map has been modified since it was last located.
+	 */
+	private class ValueList extends AbstractList<V>
+	{
+		/** The key whose values are viewed **/
+		private final K key;
+		/** The slot of the key when last located, or a negative value if absent **/
+		private int slot;
+		/** The modification count of the map when the slot was located **/
+		private int slotModCount;
+
+		/**
+		 * @param key: the key whose values are viewed
+		 */
+		ValueList(K key)
+		{
+			this.key = key;
+			this.slotModCount = RobinHoodMultiMap.this.modCount - 1;
+		}
+
+		/**
+		 * @return the slot of the key, or a negative value if absent: int
+		 */
+		private int slot()
+		{
+			if ( slotModCount != RobinHoodMultiMap.this.modCount )
+			{
+				slot = ( key == null || size == 0 ) ? -1 : find(key);
+				slotModCount = RobinHoodMultiMap.this.modCount;
+			}
+			return slot;
+		}
+
+		@Override
+		public int size() {
+			int i = slot();
+			return i >= 0 ? counts[i] : 0;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public V get(int index) {
+			int i = slot();
+			if ( i < 0 || index < 0 || index >= counts[i] )
+				throw new IndexOutOfBoundsException();
+			return (V) arena[offsets[i] + index];
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public V set(int index, V value) {
+			int i = slot();
+			if ( i < 0 || index < 0 || index >= counts[i] )
+				throw new IndexOutOfBoundsException();
+			if ( value == null )
+				throw new IllegalArgumentException();
+			V old = (V) arena[offsets[i] + index];
+			arena[offsets[i] + index] = value;
+			return old;
+		}
+
+		@Override
+		public boolean add(V value) {
+			modCount++;
+			return RobinHoodMultiMap.this.put(key, value);
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public V remove(int index) {
+			int i = slot();
+			if ( i < 0 || index < 0 || index >= counts[i] )
+				throw new IndexOutOfBoundsException();
+			V old = (V) arena[offsets[i] + index];
+			modCount++;
+			removeValue(i, index);
+			return old;
+		}
+	}
+
+}
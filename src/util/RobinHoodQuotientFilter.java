@@ -0,0 +1,475 @@
+package util;
+
+import java.util.Arrays;
+import java.util.function.ToLongFunction;
+
+/**
+ * An approximate-membership filter laid out like a RobinHoodHashSet, storing a short
+ * fingerprint of each element instead of the element itself. The fingerprint is split
+ * as in a quotient filter: its high bits (the quotient) select the hashed slot and only
+ * the remaining bits (the remainder) are stored, next to the slot's robinhood distance.
+ * An entry belongs to the hashed slot its distance leads back to, so a lookup only
+ * compares the remainders of entries whose distance equals their offset from the
+ * element's hashed slot.
+ *
+ * mightContain never answers false for an element that was added and not removed; it
+ * answers true for an element that was never added with roughly the configured false
+ * positive rate. Every add stores a fingerprint, so an element added twice must be
+ * removed twice, and removing an element that was never added can make another element
+ * with the same fingerprint read as absent.
+ *
+ * When the load reaches nine tenths the table doubles. The extra quotient bit is taken
+ * from the remainder, so the fingerprints are kept exactly but the false positive rate
+ * doubles with each growth; the table cannot grow once the remainder is a single bit.
+ *
+ * The table has at most 2^31 slots, addressed by a long and kept in chunks of 2^24
+ * distances so that no array needs more than an int can index. A filter is sized for at
+ * most nine tenths of that, MAX_EXPECTED_ELEMENTS (1,932,735,283) elements, and the
+ * constructor rejects more. Once a
+ * table can grow no further, add returns false without storing the fingerprint, and a
+ * later mightContain may then answer false for that element; a caller relying on the
+ * filter to prove absence must treat a false return from add or mergeFrom as an error.
+ * Filters built with the same hash function, false positive rate and expected number
+ * of elements have fingerprints of the same length and can be merged.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ *
+ * @param <E> The element type for the filter.
+ */
+public class RobinHoodQuotientFilter<E> {
+
+	/** The load factor at which the table doubles **/
+	private static final double MAX_LOAD = 0.9;
+
+	/** The largest number of quotient bits, which keeps the number of fingerprints within an int **/
+	private static final int MAX_QUOTIENT_BITS = 31;
+
+	/** The largest number of elements a filter can be sized for: nine tenths of the largest table **/
+	public static final int MAX_EXPECTED_ELEMENTS = (int) (MAX_LOAD * (1L << MAX_QUOTIENT_BITS));
+
+	/** The number of bits of a slot that select its distance within a chunk **/
+	private static final int CHUNK_BITS = 24;
+
+	/** The number of distances in every chunk but a smaller last one **/
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+	/** The largest robinhood distance a slot can record **/
+	private static final int MAX_DISTANCE = 254;
+
+	/** Produces the 64-bit hash of an element **/
+	private final ToLongFunction<? super E> hasher;
+
+	/** The number of bits of the fingerprint, quotient and remainder together **/
+	private final int fingerprintBits;
+
+	/** The number of bits of the quotient, which selects one of 2^quotientBits slots **/
+	private int quotientBits;
+
+	/** The number of bits of the remainder stored in each slot **/
+	private int remainderBits;
+
+	/** The remainder in each slot, packed into remainderBits bits **/
+	private long[] remainders;
+
+	/** The distance of each slot from the hashed slot of its entry, plus one, in chunks; 0 if the slot is empty **/
+	private byte[][] distances;
+
+	/** The number of fingerprints in the filter **/
+	private int size = 0;
+
+	/**
+	 * Instantiates the RobinHoodQuotientFilter, hashing elements by mixing their hashCode.
+	 * Since a hashCode has 32 bits, the false positive rate cannot fall much below the
+	 * number of elements divided by 2^32.
+	 * @param expectedElements: the number of elements the false positive rate is met for, at most MAX_EXPECTED_ELEMENTS
+	 * @param falsePositiveRate: the rate at which absent elements are reported present
+	 */
+	public RobinHoodQuotientFilter( int expectedElements, double falsePositiveRate )
+	{
+		this( expectedElements, falsePositiveRate, RobinHoodQuotientFilter::mix );
+	}
+
+	/**
+	 * Instantiates the RobinHoodQuotientFilter with the given hash function.
+	 * @param expectedElements: the number of elements the false positive rate is met for, at most MAX_EXPECTED_ELEMENTS
+	 * @param falsePositiveRate: the rate at which absent elements are reported present
+	 * @param hasher: produces the 64-bit hash of an element
+	 */
+	public RobinHoodQuotientFilter( int expectedElements, double falsePositiveRate, ToLongFunction<? super E> hasher )
+	{
+		if ( expectedElements <= 0 || expectedElements > MAX_EXPECTED_ELEMENTS ) throw new IllegalArgumentException("Invalid expected elements for filter");
+		if ( !(falsePositiveRate > 0 && falsePositiveRate < 1) ) throw new IllegalArgumentException("Invalid false positive rate for filter");
+		int q = 1;
+		while ( (1L << q) * MAX_LOAD < expectedElements )
+			q++;
+		int r = Math.max( 1, (int) Math.ceil( -Math.log( falsePositiveRate ) / Math.log( 2 ) ) );
+		this.hasher = hasher;
+		this.fingerprintBits = Math.min( 63, q + r );
+		this.quotientBits = q;
+		this.remainderBits = fingerprintBits - q;
+		allocate();
+	}
+
+	/**
+	 * Allocates empty slots for the current number of quotient and remainder bits.
+	 */
+	private void allocate()
+	{
+		long slots = slots();
+		this.remainders = new long[(int) ((slots * remainderBits + 63) / 64)];
+		this.distances = new byte[(int) (((slots - 1) >>> CHUNK_BITS) + 1)][];
+		for ( int c=0; c<distances.length; c++ )
+			distances[c] = new byte[(int) Math.min( CHUNK_SIZE, slots - ((long) c << CHUNK_BITS) )];
+	}
+
+	/**
+	 * @return the number of slots in the table: long
+	 */
+	private long slots()
+	{
+		return 1L << quotientBits;
+	}
+
+	/**
+	 * Mixes the hashCode of an element into a 64-bit hash.
+	 * @param element: the element to hash
+	 * @return the hash: long
+	 */
+	private static long mix(Object element)
+	{
+		long h = element.hashCode() * 0x9e3779b97f4a7c15L;
+		h ^= h >>> 32;
+		h *= 0xd6e8feb86659fd93L;
+		return h ^ (h >>> 32);
+	}
+
+	/**
+	 * @param element: an element
+	 * @return the fingerprint of the element, its quotient followed by its remainder: long
+	 */
+	@SuppressWarnings("unchecked")
+	private long fingerprint(Object element)
+	{
+		return hasher.applyAsLong((E) element) >>> (64 - fingerprintBits);
+	}
+
+	/**
+	 * @param i: a slot
+	 * @return the distance of the slot from the hashed slot of its entry, or -1 if it is empty: int
+	 */
+	private int distance(long i)
+	{
+		return (distances[(int) (i >>> CHUNK_BITS)][(int) i & (CHUNK_SIZE - 1)] & 0xff) - 1;
+	}
+
+	/**
+	 * @param i: a slot
+	 * @return the remainder stored in the slot: long
+	 */
+	private long remainder(long i)
+	{
+		long bit = i * remainderBits;
+		int word = (int) (bit >>> 6), shift = (int) (bit & 63);
+		long bits = remainders[word] >>> shift;
+		if ( shift + remainderBits > 64 )
+			bits |= remainders[word + 1] << (64 - shift);
+		return bits & ((1L << remainderBits) - 1);
+	}
+
+	/**
+	 * Fills the given slot.
+	 * @param i: a slot
+	 * @param remainder: the remainder to store
+	 * @param distance: the distance of the slot from the hashed slot, or -1 to empty it
+	 */
+	private void set(long i, long remainder, int distance)
+	{
+		long mask = (1L << remainderBits) - 1;
+		long bit = i * remainderBits;
+		int word = (int) (bit >>> 6), shift = (int) (bit & 63);
+		remainders[word] = (remainders[word] & ~(mask << shift)) | (remainder << shift);
+		if ( shift + remainderBits > 64 )
+		{
+			int high = 64 - shift;
+			remainders[word + 1] = (remainders[word + 1] & ~(mask >>> high)) | (remainder >>> high);
+		}
+		distances[(int) (i >>> CHUNK_BITS)][(int) i & (CHUNK_SIZE - 1)] = (byte) (distance + 1);
+	}
+
+	/**
+	 * Locates an entry of the given fingerprint using a single probe sequence starting
+	 * from its hashed slot. Only entries at their own distance from that slot belong to it.
+	 * @param fingerprint: the fingerprint to locate
+	 * @return the slot of a matching entry, otherwise -(insertion point + 1): long
+	 */
+	private long find(long fingerprint)
+	{
+		long mask = slots() - 1;
+		long home = fingerprint >>> remainderBits;
+		long remainder = fingerprint & ((1L << remainderBits) - 1);
+		for ( long offset=0; offset<=mask; offset++)
+		{
+			long i = (home + offset) & mask;
+			int d = distance(i);
+			if ( d < offset )
+				return -(i+1);
+			if ( d == offset && remainder(i) == remainder )
+				return i;
+		}
+		return -(home+1);
+	}
+
+	/**
+	 * @param element: the element to look for
+	 * @return false if the element is certainly absent, true if it is probably present: boolean
+	 */
+	public boolean mightContain(Object element) {
+		if ( size == 0 || element == null ) return false;
+		return find(fingerprint(element)) >= 0;
+	}
+
+	/**
+	 * Adds the fingerprint of the element, doubling the table first if it is loaded.
+	 * @param element: the element to add
+	 * @return true if the fingerprint was stored, false if the element is null or the filter is full and cannot grow: boolean
+	 */
+	public boolean add(E element) {
+		if ( element == null ) return false;
+		return insert(fingerprint(element));
+	}
+
+	/**
+	 * Removes one fingerprint of the element.
+	 * @param element: an element that was added
+	 * @return true if a fingerprint was removed: boolean
+	 */
+	public boolean remove(Object element) {
+		if ( size == 0 || element == null ) return false;
+		long i = find(fingerprint(element));
+		if ( i < 0 )
+			return false;
+		removeAt(i);
+		return true;
+	}
+
+	/**
+	 * Adds every fingerprint of the other filter to this one. The two filters must
+	 * use the same hash function, and a filter cannot be merged into itself.
+	 * @param other: the filter to merge in
+	 * @return true if every fingerprint was stored, false if this filter became full: boolean
+	 */
+	public boolean mergeFrom(RobinHoodQuotientFilter<? extends E> other) {
+		if ( other == this )
+			throw new IllegalArgumentException("Cannot merge a filter into itself");
+		if ( other.fingerprintBits != fingerprintBits )
+			throw new IllegalArgumentException("Incompatible filter for merge");
+		long mask = other.slots() - 1;
+		for ( long i=0; i<=mask; i++ )
+		{
+			int d = other.distance(i);
+			if ( d < 0 )
+				continue;
+			long home = (i - d) & mask;
+			if ( !insert( (home << other.remainderBits) | other.remainder(i) ) )
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the number of fingerprints in the filter: int
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if the filter holds no fingerprints: boolean
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the number of slots currently allocated for the filter.
+	 * @return the number of slots: long
+	 */
+	public long getTableSize() {
+		return slots();
+	}
+
+	/**
+	 * @return the number of bits of the remainder stored in each slot: int
+	 */
+	public int getRemainderBits() {
+		return remainderBits;
+	}
+
+	/**
+	 * Estimates the rate at which absent elements are currently reported present,
+	 * from the load of the table and the length of the remainders.
+	 * @return the false positive rate: double
+	 */
+	public double falsePositiveRate() {
+		return (double) size / slots() / (1L << remainderBits);
+	}
+
+	/**
+	 * Removes every fingerprint.
+	 */
+	public void clear() {
+		Arrays.fill(remainders, 0);
+		for ( byte[] chunk: distances )
+			Arrays.fill(chunk, (byte) 0);
+		size = 0;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "RobinHoodQuotientFilter:[size=" + size + ", slots=" + slots()
+				+ ", remainderBits=" + remainderBits + "]";
+	}
+
+	/**
+	 * Stores a fingerprint, doubling the table first if it is loaded or if the
+	 * robinhood distances would overflow.
+	 * @param fingerprint: the fingerprint to store
+	 * @return true if the fingerprint was stored, false if the table cannot grow: boolean
+	 */
+	private boolean insert(long fingerprint)
+	{
+		while ( size + 1 > MAX_LOAD * slots() || !fits(fingerprint) )
+		{
+			if ( !grow() )
+			{
+				if ( size < slots() && fits(fingerprint) )
+					break;
+				return false;
+			}
+		}
+		place(fingerprint);
+		return true;
+	}
+
+	/**
+	 * Follows the displacements an insertion would make without making them, to check
+	 * that no distance would exceed what a slot can record.
+	 * @param fingerprint: the fingerprint to store
+	 * @return true if the fingerprint can be stored: boolean
+	 */
+	private boolean fits(long fingerprint)
+	{
+		long mask = slots() - 1;
+		if ( size > mask || size == Integer.MAX_VALUE )
+			return false;
+		long home = fingerprint >>> remainderBits;
+		long i = find(fingerprint);
+		i = i < 0 ? -i-1 : i;
+		int distance = (int) ((i - home) & mask);
+		int d;
+		while ( (d = distance(i)) >= 0 )
+		{
+			if ( d < distance )
+			{
+				if ( distance > MAX_DISTANCE )
+					return false;
+				distance = d;
+			}
+			i = (i + 1) & mask;
+			distance++;
+		}
+		return distance <= MAX_DISTANCE;
+	}
+
+	/**
+	 * Stores a fingerprint at the insertion point of its probe sequence, displacing
+	 * any entry that is closer to its hashed slot.
+	 * @param fingerprint: the fingerprint to store
+	 */
+	private void place(long fingerprint)
+	{
+		long mask = slots() - 1;
+		long home = fingerprint >>> remainderBits;
+		long remainder = fingerprint & ((1L << remainderBits) - 1);
+		long i = find(fingerprint);
+		i = i < 0 ? -i-1 : i;
+		int distance = (int) ((i - home) & mask);
+		int d;
+		while ( (d = distance(i)) >= 0 )
+		{
+			if ( d < distance )
+			{
+				long displaced = remainder(i);
+				set(i, remainder, distance);
+				remainder = displaced;
+				distance = d;
+			}
+			i = (i + 1) & mask;
+			distance++;
+		}
+		set(i, remainder, distance);
+		size++;
+	}
+
+	/**
+	 * Removes the entry in the given slot, shifting each subsequent entry
+	 * that is away from its hashed slot back by one position.
+	 * @param i: the slot to empty
+	 */
+	private void removeAt(long i)
+	{
+		long mask = slots() - 1;
+		long j = (i + 1) & mask;
+		int d;
+		while ( (d = distance(j)) > 0 )
+		{
+			set(i, remainder(j), d - 1);
+			i = j;
+			j = (i + 1) & mask;
+		}
+		set(i, 0, -1);
+		size--;
+	}
+
+	/**
+	 * Doubles the table, moving the top bit of each remainder into the quotient.
+	 * @return true if the table grew, false if the remainder or the table cannot shrink or grow further: boolean
+	 */
+	private boolean grow()
+	{
+		if ( remainderBits <= 1 || quotientBits >= MAX_QUOTIENT_BITS )
+			return false;
+		long mask = slots() - 1;
+		long[] oldRemainders = this.remainders;
+		byte[][] oldDistances = this.distances;
+		int oldRemainderBits = this.remainderBits;
+		long[] fingerprints = new long[size];
+		int n = 0;
+		for ( long i=0; i<=mask; i++ )
+		{
+			int d = distance(i);
+			if ( d >= 0 )
+				fingerprints[n++] = (((i - d) & mask) << oldRemainderBits) | remainder(i);
+		}
+		this.quotientBits++;
+		this.remainderBits--;
+		allocate();
+		this.size = 0;
+		for ( long fingerprint: fingerprints )
+		{
+			if ( !fits(fingerprint) )
+			{
+				this.quotientBits--;
+				this.remainderBits++;
+				this.remainders = oldRemainders;
+				this.distances = oldDistances;
+				this.size = n;
+				return false;
+			}
+			place(fingerprint);
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,522 @@
+package util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Implements a map collection (no duplicate keys) using the robinhood hashing technique
+ * whose entries may be reclaimed by the garbage collector. Keys may be held through weak
+ * references, so an entry disappears once nothing else refers to its key, as in the
+ * WeakHashMap; values may be held through soft references, so entries are given up
+ * when the heap runs short rather than causing an OutOfMemoryError.
+ *
+ * Cleared references are placed on a reference queue by the collector. The queue is
+ * drained at the start of put and remove and when an iterator is created, and the slot
+ * of each cleared reference is emptied with the usual backward shift. Each reference
+ * records the hash of its key, since the key itself may be gone, so its slot is found
+ * with a single probe.
+ *
+ * A slot whose reference has been cleared but not yet drained is never returned: lookups
+ * and iteration treat it as absent. Reads never drain the queue, so a get, containsKey
+ * or size made while iterating cannot shift the slots under the iterator. In exchange,
+ * size counts the entries whose references were cleared since the last write until the
+ * next write or iterator drains them.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ *
+ * @param <K> The key type of the map.
+ * @param <V> The value type of the map.
+ */
+public class RobinHoodReferenceMap<K, V> extends AbstractMap<K, V> {
+
+	/** The default size of the array is 20 unless overridden by the constructor. **/
+	private static final int DEFAULT_CAPACITY = 20;
+
+	/** The keys in each slot, or their weak references; null if the slot is empty **/
+	private Object[] keys;
+
+	/** The values in each slot, or their soft references **/
+	private Object[] values;
+
+	/** The hash code of the key in each slot **/
+	private int[] hashes;
+
+	/** The offset distance of each slot from the hashed slot of its key **/
+	private int[] distances;
+
+	/** True if keys are held through weak references **/
+	private final boolean weakKeys;
+
+	/** True if values are held through soft references **/
+	private final boolean softValues;
+
+	/** Receives the references cleared by the garbage collector **/
+	private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+	/** The number of elements in the map, including those whose references are cleared but not yet drained **/
+	private int size = 0;
+
+	/** The number of structural modifications, used to detect concurrent modification **/
+	private int modCount = 0;
+
+	/** The internal representation of the entry set for this map **/
+	private ReferenceEntrySet entrySet;
+
+	/**
+	 * A weak reference to a key that records the hash code of the key.
+	 */
+	private static final class WeakKey extends WeakReference<Object>
+	{
+		/** The hash code of the key **/
+		final int hash;
+
+		WeakKey( Object key, int hash, ReferenceQueue<Object> queue )
+		{
+			super( key, queue );
+			this.hash = hash;
+		}
+	}
+
+	/**
+	 * A soft reference to a value that records the hash code of its key.
+	 */
+	private static final class SoftValue extends SoftReference<Object>
+	{
+		/** The hash code of the key of the value **/
+		final int hash;
+
+		SoftValue( Object value, int hash, ReferenceQueue<Object> queue )
+		{
+			super( value, queue );
+			this.hash = hash;
+		}
+	}
+
+	/**
+	 * Instantiates the RobinHoodReferenceMap with a small number of storage locations
+	 * by default, holding keys through weak references. Should only be used for testing
+	 * purposes or when only a small map is needed.
+	 */
+	public RobinHoodReferenceMap( )
+	{
+		this( DEFAULT_CAPACITY, true, false );
+	}
+
+	/**
+	 * Instantiates the RobinHoodReferenceMap with the given capacity.
+	 * @param capacity: the maximum capacity of the map.
+	 * @param weakKeys: true to hold keys through weak references
+	 * @param softValues: true to hold values through soft references
+	 */
+	public RobinHoodReferenceMap( int capacity, boolean weakKeys, boolean softValues )
+	{
+		if ( capacity <= 0 ) throw new IllegalArgumentException("Invalid capacity for reference map");
+		this.keys = new Object[capacity];
+		this.values = new Object[capacity];
+		this.hashes = new int[capacity];
+		this.distances = new int[capacity];
+		this.weakKeys = weakKeys;
+		this.softValues = softValues;
+	}
+
+	/**
+	 * @param i: a slot in use
+	 * @return the key in the slot, or null if its reference has been cleared: Object
+	 */
+	private Object key(int i)
+	{
+		return weakKeys ? ((WeakKey) keys[i]).get() : keys[i];
+	}
+
+	/**
+	 * @param i: a slot in use
+	 * @return the value in the slot, or null if its reference has been cleared: Object
+	 */
+	private Object value(int i)
+	{
+		return softValues ? ((SoftValue) values[i]).get() : values[i];
+	}
+
+	/**
+	 * Locates the given key using a single probe sequence starting from its hashed slot.
+	 * Slots whose key has been cleared never match.
+	 * @param key: the key to locate
+	 * @param h: the hash code of the key
+	 * @return the index of the key if present, otherwise -(insertion point + 1): int
+	 */
+	private int find(Object key, int h)
+	{
+		int idx = (h & 0x7fffffff) % keys.length;
+		for ( int offset=0; offset<keys.length; offset++)
+		{
+			int i = (idx + offset) % keys.length;
+			if ( keys[i] == null || distances[i] < offset )
+				return -(i+1);
+			if ( hashes[i] == h && key.equals(key(i)) )
+				return i;
+		}
+		return -(idx+1);
+	}
+
+	/**
+	 * Empties the slot of every reference the garbage collector has cleared. The slot
+	 * is found by probing from the hash recorded in the reference for the slot that
+	 * holds that very reference.
+	 */
+	private void drain()
+	{
+		Reference<?> ref;
+		while ( (ref = queue.poll()) != null )
+		{
+			int h = ref instanceof WeakKey ? ((WeakKey) ref).hash : ((SoftValue) ref).hash;
+			Object[] holders = ref instanceof WeakKey ? keys : values;
+			int idx = (h & 0x7fffffff) % keys.length;
+			for ( int offset=0; offset<keys.length; offset++)
+			{
+				int i = (idx + offset) % keys.length;
+				if ( keys[i] == null || distances[i] < offset )
+					break;
+				if ( holders[i] == ref )
+				{
+					removeAt(i);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of entries. Entries whose references have been cleared are
+	 * still counted until a put, a remove or the creation of an iterator drains them.
+	 * @return the number of entries: int
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns true if every slot is in use. A put into a full map first drains the
+	 * cleared references, so it may still succeed.
+	 * @return true if the map is full: boolean
+	 */
+	public boolean isFull() {
+		return size == keys.length;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		if ( key == null || size == 0 ) return null;
+		int i = find(key, key.hashCode());
+		return i < 0 ? null : (V) value(i);
+	}
+
+	/**
+	 * Associates the value with the key, after emptying the slots whose references
+	 * have been drained.
+	 * @param key: the key
+	 * @param value: the value
+	 * @return the value, or null if the key or value is null or the map is full: V
+	 */
+	@Override
+	public V put(K key, V value) {
+		if ( key == null || value == null )
+		{
+			return null;
+		}
+
+		drain();
+		int h = key.hashCode();
+		int i = find(key, h);
+		if ( i >= 0 )
+		{
+			values[i] = softValues ? new SoftValue(value, h, queue) : value;
+			return value;
+		}
+		if ( size == keys.length )
+		{
+			return null;
+		}
+		insertAt(-i-1, key, value, h);
+		return value;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V remove(Object key) {
+		if ( key == null ) return null;
+		drain();
+		if ( size == 0 ) return null;
+		int i = find(key, key.hashCode());
+		if ( i < 0 )
+			return null;
+		V value = (V) value(i);
+		removeAt(i);
+		return value;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(keys, null);
+		Arrays.fill(values, null);
+		while ( queue.poll() != null );
+		size = 0;
+		modCount++;
+	}
+
+	@Override
+	public Set<Entry<K, V>> entrySet() {
+		if ( entrySet == null )
+			entrySet = new ReferenceEntrySet();
+		return entrySet;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder s = new StringBuilder("RobinHoodReferenceMap:[" );
+		int n=0;
+		for ( Entry<K, V> entry: entrySet() )
+		{
+			if ( n++ > 0 )
+			{
+				s.append( ", " );
+			}
+			s.append( entry.getKey() ).append( "=" ).append( entry.getValue() );
+		}
+		s.append( "]" );
+		return  s.toString();
+	}
+
+	/**
+	 * Adds a new key-value pair at the insertion point found by a previous probe,
+	 * displacing any entry that is closer to its hashed slot.
+	 * @param i: the insertion point
+	 * @param key: the key to add
+	 * @param value: the value to add
+	 * @param h: the hash code of the key
+	 */
+	private void insertAt(int i, Object key, Object value, int h)
+	{
+		Object k = weakKeys ? new WeakKey(key, h, queue) : key;
+		Object v = softValues ? new SoftValue(value, h, queue) : value;
+		int distance = (i - (h & 0x7fffffff) % keys.length + keys.length) % keys.length;
+		while ( keys[i] != null )
+		{
+			if ( distances[i] < distance )
+			{
+				Object displacedKey = keys[i];
+				Object displacedValue = values[i];
+				int displacedHash = hashes[i];
+				int displacedDistance = distances[i];
+				keys[i] = k;
+				values[i] = v;
+				hashes[i] = h;
+				distances[i] = distance;
+				k = displacedKey;
+				v = displacedValue;
+				h = displacedHash;
+				distance = displacedDistance;
+			}
+			i = (i + 1) % keys.length;
+			distance++;
+		}
+		keys[i] = k;
+		values[i] = v;
+		hashes[i] = h;
+		distances[i] = distance;
+		size++;
+		modCount++;
+	}
+
+	/**
+	 * Removes the entry in the given slot, shifting each subsequent entry
+	 * that is away from its hashed slot back by one position.
+	 * @param i: the slot to empty
+	 */
+	private void removeAt(int i)
+	{
+		int j = (i + 1) % keys.length;
+		while ( keys[j] != null && distances[j] > 0 )
+		{
+			keys[i] = keys[j];
+			values[i] = values[j];
+			hashes[i] = hashes[j];
+			distances[i] = distances[j] - 1;
+			i = j;
+			j = (i + 1) % keys.length;
+		}
+		keys[i] = null;
+		values[i] = null;
+		distances[i] = 0;
+		size--;
+		modCount++;
+	}
+
+	/**
+	 * A key-value pair of the map. The pair holds its key and value strongly, so
+	 * neither can be reclaimed while the pair is in use. The value is written
+	 * through to the map.
+	 */
+	private class ReferenceEntry extends SimpleEntry<K, V>
+	{
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * @param key: the key of the pair
+		 * @param value: the value of the pair
+		 */
+		ReferenceEntry(K key, V value)
+		{
+			super(key, value);
+		}
+
+		@Override
+		public V setValue(V value) {
+			if ( value == null )
+				throw new IllegalArgumentException();
+			int h = getKey().hashCode();
+			int i = find(getKey(), h);
+			if ( i >= 0 )
+				values[i] = softValues ? new SoftValue(value, h, queue) : value;
+			return super.setValue(value);
+		}
+	}
+
+	public class ReferenceEntrySet extends AbstractSet<Entry<K, V>>
+	{
+		@Override
+		public int size() {
+			return RobinHoodReferenceMap.this.size();
+		}
+
+		@Override
+		public void clear() {
+			RobinHoodReferenceMap.this.clear();
+		}
+
+		@Override
+		public Iterator<Entry<K, V>> iterator() {
+			return new ReferenceIterator();
+		}
+
+		/**
+		 * Iterates over the entries whose key and value are both still reachable. Cleared
+		 * references are drained when the iterator is created, and the next pair is found
+		 * ahead of time and held strongly, so a pair that hasNext reported cannot be
+		 * collected before next returns it. After a removal the pair found ahead may have
+		 * shifted back, so the search for it is repeated from the removed slot.
+		 */
+		public class ReferenceIterator implements Iterator<Entry<K, V>>
+		{
+			/** The slot the scan started from **/
+			private final int start;
+			/** The number of slots examined so far **/
+			private int examined = 0;
+			/** The next pair to return, held strongly, or null at the end **/
+			private ReferenceEntry next;
+			/** The slot of the next pair **/
+			private int nextSlot;
+			/** The slot of the pair most recently returned, or -1 if there is none **/
+			private int last = -1;
+			/** The modification count expected by this iterator **/
+			private int expectedModCount;
+
+			/**
+			 *  Creates an iterator for a RobinHoodReferenceMap
+			 */
+			ReferenceIterator( )
+			{
+				drain();
+				int s = 0;
+				for ( int i=0; i<keys.length; i++ )
+				{
+					if ( keys[i] == null )
+					{
+						s = (i + 1) % keys.length;
+						break;
+					}
+					if ( distances[i] == 0 )
+						s = i;
+				}
+				start = s;
+				expectedModCount = modCount;
+				advance();
+			}
+
+			/**
+			 * Moves to the next slot holding a pair whose key and value are both reachable.
+			 */
+			@SuppressWarnings("unchecked")
+			private void advance()
+			{
+				next = null;
+				while ( examined < keys.length )
+				{
+					int i = (start + examined++) % keys.length;
+					if ( keys[i] == null )
+						continue;
+					Object key = key(i);
+					Object value = value(i);
+					if ( key != null && value != null )
+					{
+						next = new ReferenceEntry((K) key, (V) value);
+						nextSlot = i;
+						return;
+					}
+				}
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public Entry<K, V> next() {
+				if ( modCount != expectedModCount )
+					throw new ConcurrentModificationException();
+				if ( next == null )
+					throw new NoSuchElementException();
+				Entry<K, V> entry = next;
+				last = nextSlot;
+				advance();
+				return entry;
+			}
+
+			@Override
+			public void remove() {
+				if ( last < 0 )
+					throw new IllegalStateException();
+				if ( modCount != expectedModCount )
+					throw new ConcurrentModificationException();
+				removeAt(last);
+				examined = (last - start + keys.length) % keys.length;
+				last = -1;
+				expectedModCount = modCount;
+				advance();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,441 @@
+package util;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Implements a set collection (no duplicates) using the robinhood hashing technique
+ * for more elements than an int can index. The slots are addressed by a long and
+ * stored in fixed-size chunks, each a pair of ordinary arrays, so no single array
+ * approaches the limit of the virtual machine. A probe sequence that reaches the end
+ * of a chunk simply continues at the start of the next one, and the last chunk wraps
+ * around to the first.
+ *
+ * Elements are placed by a 64-bit hash. By default it is derived from hashCode with
+ * a mixing function, which spreads the elements over the whole table but can produce
+ * no more than 2^32 distinct values; a hash function producing a full 64-bit hash
+ * should be given for tables that large.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ *
+ * @param <E> The element type for the set.
+ */
+public class SegmentedRobinHoodHashSet<E> implements Iterable<E> {
+
+	/** The default number of slots in each chunk **/
+	private static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+	/** The elements of each chunk; a slot is empty if its element is null **/
+	private final Object[][] elements;
+
+	/** The offset distance of each slot from the hashed slot of its element **/
+	private final int[][] distances;
+
+	/** The number of bits of a slot index that select the slot within its chunk **/
+	private final int chunkBits;
+
+	/** Selects the slot within its chunk from a slot index **/
+	private final int chunkMask;
+
+	/** The number of slots, which is the maximum number of elements **/
+	private final long capacity;
+
+	/** Produces the 64-bit hash of an element **/
+	private final ToLongFunction<? super E> hasher;
+
+	/** The number of elements in the set **/
+	private long size = 0;
+
+	/** The number of structural modifications, used to detect concurrent modification **/
+	private int modCount = 0;
+
+	/**
+	 * Instantiates the SegmentedRobinHoodHashSet with the given capacity, hashing
+	 * elements by mixing their hashCode.
+	 * @param capacity: the maximum capacity of the set.
+	 */
+	public SegmentedRobinHoodHashSet( long capacity )
+	{
+		this( capacity, DEFAULT_CHUNK_SIZE, SegmentedRobinHoodHashSet::mix );
+	}
+
+	/**
+	 * Instantiates the SegmentedRobinHoodHashSet with the given capacity and hash function.
+	 * @param capacity: the maximum capacity of the set.
+	 * @param hasher: produces the 64-bit hash of an element
+	 */
+	public SegmentedRobinHoodHashSet( long capacity, ToLongFunction<? super E> hasher )
+	{
+		this( capacity, DEFAULT_CHUNK_SIZE, hasher );
+	}
+
+	/**
+	 * Instantiates the SegmentedRobinHoodHashSet with the given capacity, chunk size
+	 * and hash function.
+	 * @param capacity: the maximum capacity of the set.
+	 * @param chunkSize: the number of slots in each chunk, a power of two
+	 * @param hasher: produces the 64-bit hash of an element
+	 */
+	public SegmentedRobinHoodHashSet( long capacity, int chunkSize, ToLongFunction<? super E> hasher )
+	{
+		if ( capacity <= 0 ) throw new IllegalArgumentException("Invalid capacity for set");
+		if ( chunkSize <= 0 || Integer.bitCount(chunkSize) != 1 ) throw new IllegalArgumentException("Invalid chunk size for set");
+		long chunks = (capacity - 1) / chunkSize + 1;
+		if ( chunks > Integer.MAX_VALUE - 8 ) throw new IllegalArgumentException("Invalid capacity for chunk size");
+		this.capacity = capacity;
+		this.chunkBits = Integer.numberOfTrailingZeros(chunkSize);
+		this.chunkMask = chunkSize - 1;
+		this.hasher = hasher;
+		this.elements = new Object[(int) chunks][];
+		this.distances = new int[(int) chunks][];
+		for ( int c=0; c<chunks; c++ )
+		{
+			int length = (int) Math.min( chunkSize, capacity - ((long) c << chunkBits) );
+			elements[c] = new Object[length];
+			distances[c] = new int[length];
+		}
+	}
+
+	/**
+	 * Mixes the hashCode of an element into a 64-bit hash.
+	 * @param element: the element to hash
+	 * @return the hash: long
+	 */
+	private static long mix(Object element)
+	{
+		long h = element.hashCode() * 0x9e3779b97f4a7c15L;
+		h ^= h >>> 32;
+		h *= 0xd6e8feb86659fd93L;
+		return h ^ (h >>> 32);
+	}
+
+	/**
+	 * Produces the hashed slot of the element
+	 * @param element: the element
+	 * @return the hashed slot: long
+	 */
+	@SuppressWarnings("unchecked")
+	private long hash(Object element)
+	{
+		return (hasher.applyAsLong((E) element) & Long.MAX_VALUE) % capacity;
+	}
+
+	/**
+	 * @param i: a slot index
+	 * @return the element in the slot, or null if it is empty: Object
+	 */
+	private Object element(long i)
+	{
+		return elements[(int) (i >>> chunkBits)][(int) i & chunkMask];
+	}
+
+	/**
+	 * @param i: a slot index
+	 * @return the distance of the slot from the hashed slot of its element: int
+	 */
+	private int distance(long i)
+	{
+		return distances[(int) (i >>> chunkBits)][(int) i & chunkMask];
+	}
+
+	/**
+	 * Fills the given slot.
+	 * @param i: a slot index
+	 * @param element: the element, or null to empty the slot
+	 * @param distance: the distance of the slot from the hashed slot of the element
+	 */
+	private void set(long i, Object element, int distance)
+	{
+		int c = (int) (i >>> chunkBits);
+		elements[c][(int) i & chunkMask] = element;
+		distances[c][(int) i & chunkMask] = distance;
+	}
+
+	/**
+	 * @param i: a slot index
+	 * @return the following slot index, wrapping around at the end of the table: long
+	 */
+	private long nextIndex(long i)
+	{
+		return ++i == capacity ? 0 : i;
+	}
+
+	/**
+	 * Locates the given element using a single probe sequence starting from its
+	 * hashed slot, continuing across chunk boundaries.
+	 * @param element: the element to locate
+	 * @return the index of the element if present, otherwise -(insertion point + 1): long
+	 */
+	private long find(Object element)
+	{
+		long idx = hash(element);
+		long i = idx;
+		for ( long offset=0; offset<capacity; offset++)
+		{
+			Object e = element(i);
+			if ( e == null || distance(i) < offset )
+				return -(i+1);
+			if ( e.equals(element) )
+				return i;
+			i = nextIndex(i);
+		}
+		return -(idx+1);
+	}
+
+	/**
+	 * @return the number of elements in the set: long
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * @return the maximum number of elements in the set: long
+	 */
+	public long capacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return true if the set has no elements: boolean
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns true if this set is at capacity and cannot accept any new
+	 * elements.
+	 * @return true if the set is full: boolean
+	 */
+	public boolean isFull() {
+		return size == capacity;
+	}
+
+	/**
+	 * @param element: the element to look for
+	 * @return true if the element is in the set: boolean
+	 */
+	public boolean contains(Object element) {
+		if ( size == 0 || element == null ) return false;
+		return find(element) >= 0;
+	}
+
+	/**
+	 * Adds the element if it is not already in the set.
+	 * @param element: the element to add
+	 * @return true if the element was added, false if it was present, null or the set is full: boolean
+	 */
+	public boolean add(E element) {
+		if ( isFull() || element == null )
+		{
+			return false;
+		}
+		long i = find(element);
+		if ( i >= 0 )
+		{
+			return false;
+		}
+		insertAt(-i-1, element);
+		return true;
+	}
+
+	/**
+	 * @param element: the element to remove
+	 * @return true if the element was removed: boolean
+	 */
+	public boolean remove(Object element) {
+		if ( size == 0 || element == null ) return false;
+		long i = find(element);
+		if ( i < 0 )
+			return false;
+		removeAt(i);
+		return true;
+	}
+
+	/**
+	 * Removes all elements from the set.
+	 */
+	public void clear() {
+		for ( int c=0; c<elements.length; c++ )
+		{
+			Arrays.fill(elements[c], null);
+			Arrays.fill(distances[c], 0);
+		}
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * Passes every element to the given action in slot order.
+	 * @param action: the action to perform on each element
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public void forEach(Consumer<? super E> action) {
+		int expectedModCount = modCount;
+		for ( int c=0; c<elements.length; c++ )
+		{
+			Object[] chunk = elements[c];
+			for ( int j=0; j<chunk.length; j++ )
+			{
+				if ( chunk[j] == null )
+					continue;
+				action.accept( (E) chunk[j] );
+				if ( modCount != expectedModCount )
+					throw new ConcurrentModificationException();
+			}
+		}
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new SegmentedIterator();
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder s = new StringBuilder("SegmentedRobinHoodHashSet:[" );
+		long n=0;
+		for ( E element: this )
+		{
+			if ( n++ > 0 )
+			{
+				s.append( ", " );
+			}
+			s.append( element );
+		}
+		s.append( "]" );
+		return  s.toString();
+	}
+
+	/**
+	 * Adds a new element at the insertion point found by a previous probe,
+	 * displacing any element that is closer to its hashed slot.
+	 * @param i: the insertion point
+	 * @param element: the element to add
+	 */
+	private void insertAt(long i, Object element)
+	{
+		int distance = (int) ((i - hash(element) + capacity) % capacity);
+		Object e;
+		while ( (e = element(i)) != null )
+		{
+			int d = distance(i);
+			if ( d < distance )
+			{
+				set(i, element, distance);
+				element = e;
+				distance = d;
+			}
+			i = nextIndex(i);
+			distance++;
+		}
+		set(i, element, distance);
+		size++;
+		modCount++;
+	}
+
+	/**
+	 * Removes the element in the given slot, shifting each subsequent element
+	 * that is away from its hashed slot back by one position.
+	 * @param i: the slot to empty
+	 */
+	private void removeAt(long i)
+	{
+		long j = nextIndex(i);
+		Object e;
+		while ( (e = element(j)) != null && distance(j) > 0 )
+		{
+			set(i, e, distance(j) - 1);
+			i = j;
+			j = nextIndex(i);
+		}
+		set(i, null, 0);
+		size--;
+		modCount++;
+	}
+
+	/**
+	 * Iterates over the elements chunk after chunk, counting the slots examined in a long
+	 * so that a table of more than 2^31 slots is covered. The scan does not begin at slot 0,
+	 * since a cluster may wrap from the last chunk into the first; it begins at the start
+	 * of a cluster, so that a removal, which pulls the rest of the cluster back one slot
+	 * and possibly across a chunk boundary, only moves elements still ahead of the scan.
+	 */
+	public class SegmentedIterator implements Iterator<E>
+	{
+		/** The slot the scan started from **/
+		private final long start;
+		/** The number of slots examined so far **/
+		private long examined = 0;
+		/** The number of elements not yet returned **/
+		private long remaining = size;
+		/** The slot of the element most recently returned, or -1 if there is none **/
+		private long last = -1;
+		/** The modification count expected by this iterator **/
+		private int expectedModCount = modCount;
+
+		/**
+		 *  Creates an iterator for a SegmentedRobinHoodHashSet
+		 */
+		SegmentedIterator( )
+		{
+			long s = 0;
+			for ( long i=0; remaining > 0 && i<capacity; i++ )
+			{
+				if ( element(i) == null )
+				{
+					s = nextIndex(i);
+					break;
+				}
+				if ( distance(i) == 0 )
+					s = i;
+			}
+			start = s;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return remaining > 0;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public E next() {
+			if ( modCount != expectedModCount )
+				throw new ConcurrentModificationException();
+			if ( remaining == 0 )
+				throw new NoSuchElementException();
+			while ( true )
+			{
+				long i = (start + examined++) % capacity;
+				Object e = element(i);
+				if ( e != null )
+				{
+					last = i;
+					remaining--;
+					return (E) e;
+				}
+			}
+		}
+
+		@Override
+		public void remove() {
+			if ( last < 0 )
+				throw new IllegalStateException();
+			if ( modCount != expectedModCount )
+				throw new ConcurrentModificationException();
+			removeAt(last);
+			examined = (last - start + capacity) % capacity;
+			last = -1;
+			expectedModCount = modCount;
+		}
+	}
+
+}
@@ -0,0 +1,582 @@
+package util;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.function.BiConsumer;
+
+/**
+ * Implements a map collection (no duplicate keys) using the robinhood hashing technique
+ * whose keys are strings, stored without String objects. The characters of every key are
+ * encoded as UTF-8 into a shared ByteArena, and a slot only records where its key starts
+ * in the arena, how many bytes it has and its hash code, which is the String hash code of
+ * the key. A key therefore costs its encoded bytes, a long and two ints rather than a
+ * String, its array and their headers. The arena is chunked and addressed by long
+ * positions, so the keys together may exceed 2 GiB.
+ *
+ * Keys may be looked up by any CharSequence. The probe loop compares the stored hash
+ * before comparing any characters, and compares characters by encoding them one at a time
+ * against the arena, so no String or byte array is made for the key looked up. Keys are
+ * only decoded into Strings when asked for, by forEach or by the key of a cursor.
+ *
+ * A character that is half of a surrogate pair but has no other half is encoded as three
+ * bytes like any other character rather than being replaced, so every key is returned
+ * exactly as it was put.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ *
+ * @param <V> The value type of the map.
+ */
+public class StringRobinHoodMap<V> {
+
+	/** The default size of the array is 20 unless overridden by the constructor. **/
+	private static final int DEFAULT_CAPACITY = 20;
+
+	/** The values in each slot; null if the slot is empty **/
+	private Object[] values;
+
+	/** The position in the arena of the key of each slot **/
+	private long[] offsets;
+
+	/** The number of bytes in the key of each slot **/
+	private int[] lengths;
+
+	/** The String hash code of the key of each slot **/
+	private int[] hashes;
+
+	/** The offset distance of each slot from the hashed slot of its key **/
+	private int[] distances;
+
+	/** The encoded characters of the keys **/
+	private final ByteArena arena = new ByteArena();
+
+	/** The number of elements in the map **/
+	private int size = 0;
+
+	/** The number of structural modifications, used to detect concurrent modification **/
+	private int modCount = 0;
+
+	/**
+	 * Instantiates the StringRobinHoodMap with a small number of storage locations
+	 * by default. Should only be used for testing purposes or when only a small map is needed.
+	 */
+	public StringRobinHoodMap( )
+	{
+		this( DEFAULT_CAPACITY );
+	}
+
+	/**
+	 * Instantiates the StringRobinHoodMap with the given capacity. The arena takes
+	 * no memory until the first key is put, and grows as needed.
+	 * @param capacity: the maximum capacity of the map.
+	 */
+	public StringRobinHoodMap( int capacity )
+	{
+		if ( capacity <= 0 ) throw new IllegalArgumentException("Invalid capacity for string map");
+		this.values = new Object[capacity];
+		this.offsets = new long[capacity];
+		this.lengths = new int[capacity];
+		this.hashes = new int[capacity];
+		this.distances = new int[capacity];
+	}
+
+	/**
+	 * Produces the hash code of the characters, which is the same as String.hashCode.
+	 * The hash code cached by a String is used when the key is one.
+	 * @param key: the key
+	 * @return the hash code: int
+	 */
+	private static int hash(CharSequence key)
+	{
+		if ( key instanceof String )
+			return key.hashCode();
+		int h = 0;
+		for ( int i=0; i<key.length(); i++ )
+			h = 31 * h + key.charAt(i);
+		return h;
+	}
+
+	/**
+	 * @param h: the hash code of a key
+	 * @return the hashed slot of the key: int
+	 */
+	private int slot(int h)
+	{
+		return (h & 0x7fffffff) % values.length;
+	}
+
+	/**
+	 * Locates the given key using a single probe sequence starting from its hashed slot.
+	 * @param key: the key to locate
+	 * @param h: the hash code of the key
+	 * @return the index of the key if present, otherwise -(insertion point + 1): int
+	 */
+	private int find(CharSequence key, int h)
+	{
+		int idx = slot(h);
+		for ( int offset=0; offset<values.length; offset++)
+		{
+			int i = (idx + offset) % values.length;
+			if ( values[i] == null || distances[i] < offset )
+				return -(i+1);
+			if ( hashes[i] == h && matches(i, key) )
+				return i;
+		}
+		return -(idx+1);
+	}
+
+	/**
+	 * Compares the key of a slot with the given characters, encoding each character
+	 * and comparing its bytes with the next bytes of the key in the arena.
+	 * @param i: a slot in use
+	 * @param key: the characters to compare
+	 * @return true if the key of the slot encodes exactly the given characters: boolean
+	 */
+	private boolean matches(int i, CharSequence key)
+	{
+		long p = offsets[i];
+		long end = p + lengths[i];
+		int n = key.length();
+		for ( int j=0; j<n; j++ )
+		{
+			char c = key.charAt(j);
+			if ( c < 0x80 )
+			{
+				if ( p >= end || arena.get(p++) != c )
+					return false;
+				continue;
+			}
+			int code = c;
+			if ( Character.isHighSurrogate(c) && j + 1 < n && Character.isLowSurrogate(key.charAt(j + 1)) )
+				code = Character.toCodePoint(c, key.charAt(++j));
+			int bytes = encodedLength(code);
+			if ( p + bytes > end )
+				return false;
+			for ( int b=0; b<bytes; b++ )
+				if ( arena.get(p++) != encodedByte(code, bytes, b) )
+					return false;
+		}
+		return p == end;
+	}
+
+	/**
+	 * @param code: a character or code point
+	 * @return the number of bytes in its encoding: int
+	 */
+	private static int encodedLength(int code)
+	{
+		return code < 0x80 ? 1 : code < 0x800 ? 2 : code < 0x10000 ? 3 : 4;
+	}
+
+	/**
+	 * @param code: a character or code point
+	 * @param bytes: the number of bytes in its encoding
+	 * @param b: the index of the byte wanted
+	 * @return the byte of the encoding: byte
+	 */
+	private static byte encodedByte(int code, int bytes, int b)
+	{
+		if ( b == 0 )
+		{
+			switch ( bytes )
+			{
+				case 1: return (byte) code;
+				case 2: return (byte) (0xc0 | (code >> 6));
+				case 3: return (byte) (0xe0 | (code >> 12));
+				default: return (byte) (0xf0 | (code >> 18));
+			}
+		}
+		return (byte) (0x80 | ((code >> (6 * (bytes - 1 - b))) & 0x3f));
+	}
+
+	/**
+	 * @param key: the characters to encode
+	 * @return the number of bytes in their encoding, which may exceed an int: long
+	 */
+	private static long encodedLength(CharSequence key)
+	{
+		long length = 0;
+		int n = key.length();
+		for ( int j=0; j<n; j++ )
+		{
+			char c = key.charAt(j);
+			if ( Character.isHighSurrogate(c) && j + 1 < n && Character.isLowSurrogate(key.charAt(j + 1)) )
+			{
+				length += 4;
+				j++;
+			}
+			else
+			{
+				length += encodedLength(c);
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Encodes the characters into the arena.
+	 * @param key: the characters to encode
+	 * @param p: the position in the arena of the first byte
+	 */
+	private void encode(CharSequence key, long p)
+	{
+		int n = key.length();
+		for ( int j=0; j<n; j++ )
+		{
+			char c = key.charAt(j);
+			int code = c;
+			if ( Character.isHighSurrogate(c) && j + 1 < n && Character.isLowSurrogate(key.charAt(j + 1)) )
+				code = Character.toCodePoint(c, key.charAt(++j));
+			int bytes = encodedLength(code);
+			for ( int b=0; b<bytes; b++ )
+				arena.set(p++, encodedByte(code, bytes, b));
+		}
+	}
+
+	/**
+	 * Decodes the key of a slot into a String.
+	 * @param i: a slot in use
+	 * @return the key: String
+	 */
+	private String decode(int i)
+	{
+		long p = offsets[i];
+		long end = p + lengths[i];
+		StringBuilder s = new StringBuilder(lengths[i]);
+		while ( p < end )
+		{
+			int b = arena.get(p++) & 0xff;
+			if ( b < 0x80 )
+			{
+				s.append( (char) b );
+				continue;
+			}
+			int bytes = b >= 0xf0 ? 4 : b >= 0xe0 ? 3 : 2;
+			int code = b & (0x7f >> bytes);
+			for ( int k=1; k<bytes; k++ )
+				code = (code << 6) | (arena.get(p++) & 0x3f);
+			s.appendCodePoint( code );
+		}
+		return s.toString();
+	}
+
+	/**
+	 * @return the number of elements in the map: int
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if the map holds no elements: boolean
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns true if this map is at capacity and cannot accept any new
+	 * elements.
+	 * @return true if the map is full: boolean
+	 */
+	public boolean isFull() {
+		return size == values.length;
+	}
+
+	/**
+	 * @param key: the key to look for
+	 * @return true if the key is present: boolean
+	 */
+	public boolean containsKey(CharSequence key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * Returns the value for the key, without making a String of it.
+	 * @param key: the key to look up
+	 * @return the value, or null if the key is absent: V
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(CharSequence key) {
+		if ( size == 0 || key == null ) return null;
+		int i = find(key, hash(key));
+		return i < 0 ? null : (V) values[i];
+	}
+
+	/**
+	 * Associates the value with the key. The characters of a new key are encoded into
+	 * the arena, so a mutable sequence may be reused afterwards.
+	 * @param key: the key
+	 * @param value: the value
+	 * @return the value, or null if the key or value is null or the map is full: V
+	 * @throws IllegalArgumentException if the key takes more than 2^31 - 1 bytes to encode
+	 */
+	public V put(CharSequence key, V value) {
+		if ( key == null || value == null )
+		{
+			return null;
+		}
+
+		int h = hash(key);
+		int i = find(key, h);
+		if ( i >= 0 )
+		{
+			values[i] = value;
+			return value;
+		}
+		if ( size == values.length )
+		{
+			return null;
+		}
+		long encoded = encodedLength(key);
+		if ( encoded > Integer.MAX_VALUE ) throw new IllegalArgumentException("Key too long for string map");
+		int length = (int) encoded;
+		long start = arena.reserve(length, offsets, lengths, values);
+		encode(key, start);
+		insertAt(-i-1, value, start, length, h);
+		return value;
+	}
+
+	/**
+	 * Removes the key from the map.
+	 * @param key: the key to remove
+	 * @return the value that was mapped to the key, or null if absent: V
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(CharSequence key) {
+		if ( size == 0 || key == null ) return null;
+		int i = find(key, hash(key));
+		if ( i < 0 )
+			return null;
+		V value = (V) values[i];
+		removeAt(i);
+		return value;
+	}
+
+	/**
+	 * Removes every key from the map.
+	 */
+	public void clear() {
+		Arrays.fill(values, null);
+		arena.clear();
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * @return the number of bytes of the arena holding keys: long
+	 */
+	public long keyBytes() {
+		return arena.used();
+	}
+
+	/**
+	 * Passes every key-value pair to the given action. Each key is decoded into a new String.
+	 * @param action: the action to perform on each pair
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEach(BiConsumer<? super String, ? super V> action) {
+		int expectedModCount = modCount;
+		for ( int i=0; i<values.length; i++ )
+		{
+			if ( values[i] == null )
+				continue;
+			action.accept( decode(i), (V) values[i] );
+			if ( modCount != expectedModCount )
+				throw new ConcurrentModificationException();
+		}
+	}
+
+	/**
+	 * Produces a cursor over the key-value pairs of the map. A key is only decoded
+	 * into a String when the key of the cursor is asked for.
+	 * @return a cursor positioned before the first pair: MapCursor
+	 */
+	public MapCursor<String, V> cursor() {
+		return new StringCursor();
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder s = new StringBuilder("StringRobinHoodMap:[" );
+		int n=0;
+		for ( int i=0; i<values.length; i++ )
+		{
+			if ( values[i] == null )
+				continue;
+			if ( n++ > 0 )
+			{
+				s.append( ", " );
+			}
+			s.append( decode(i) ).append( "=" ).append( values[i] );
+		}
+		s.append( "]" );
+		return  s.toString();
+	}
+
+	/**
+	 * Adds a new entry at the insertion point found by a previous probe, displacing
+	 * any entry that is closer to its hashed slot. The key is already in the arena.
+	 * @param i: the insertion point
+	 * @param value: the value to add
+	 * @param start: the position of the key in the arena
+	 * @param length: the number of bytes in the key
+	 * @param h: the hash code of the key
+	 */
+	private void insertAt(int i, Object value, long start, int length, int h)
+	{
+		int distance = (i - slot(h) + values.length) % values.length;
+		while ( values[i] != null )
+		{
+			if ( distances[i] < distance )
+			{
+				Object displacedValue = values[i];
+				long displacedStart = offsets[i];
+				int displacedLength = lengths[i];
+				int displacedHash = hashes[i];
+				int displacedDistance = distances[i];
+				values[i] = value;
+				offsets[i] = start;
+				lengths[i] = length;
+				hashes[i] = h;
+				distances[i] = distance;
+				value = displacedValue;
+				start = displacedStart;
+				length = displacedLength;
+				h = displacedHash;
+				distance = displacedDistance;
+			}
+			i = (i + 1) % values.length;
+			distance++;
+		}
+		values[i] = value;
+		offsets[i] = start;
+		lengths[i] = length;
+		hashes[i] = h;
+		distances[i] = distance;
+		size++;
+		modCount++;
+	}
+
+	/**
+	 * Removes the entry in the given slot, shifting each subsequent entry
+	 * that is away from its hashed slot back by one position. The bytes of
+	 * its key become unused.
+	 * @param i: the slot to empty
+	 */
+	private void removeAt(int i)
+	{
+		arena.release(lengths[i]);
+		int j = (i + 1) % values.length;
+		while ( values[j] != null && distances[j] > 0 )
+		{
+			values[i] = values[j];
+			offsets[i] = offsets[j];
+			lengths[i] = lengths[j];
+			hashes[i] = hashes[j];
+			distances[i] = distances[j] - 1;
+			i = j;
+			j = (i + 1) % values.length;
+		}
+		values[i] = null;
+		distances[i] = 0;
+		size--;
+		modCount++;
+	}
+
+	/**
+	 * A cursor over the slots of the map. The key of the current slot is only decoded from
+	 * the arena when key() is called, so a walk that reads just the values creates no
+	 * strings. A removal leaves the key's bytes in the arena as garbage until a later put
+	 * compacts it, and the cursor stays on the removed slot, into which the rest of the
+	 * cluster has shifted.
+	 */
+	private class StringCursor implements MapCursor<String, V>
+	{
+		/** The slot the scan started from **/
+		private final int start;
+		/** The number of slots examined so far **/
+		private int examined = 0;
+		/** The slot the cursor is positioned on, or -1 if it is not positioned on a pair **/
+		private int current = -1;
+		/** The modification count expected by this cursor **/
+		private int expectedModCount = modCount;
+
+		/**
+		 *  Creates a cursor for a StringRobinHoodMap
+		 */
+		StringCursor( )
+		{
+			int s = 0;
+			for ( int i=0; i<values.length; i++ )
+			{
+				if ( values[i] == null )
+				{
+					s = (i + 1) % values.length;
+					break;
+				}
+				if ( distances[i] == 0 )
+					s = i;
+			}
+			start = s;
+		}
+
+		/**
+		 * @return the slot the cursor is positioned on: int
+		 */
+		private int current()
+		{
+			if ( modCount != expectedModCount )
+				throw new ConcurrentModificationException();
+			if ( current < 0 )
+				throw new IllegalStateException();
+			return current;
+		}
+
+		@Override
+		public boolean advance() {
+			if ( modCount != expectedModCount )
+				throw new ConcurrentModificationException();
+			while ( examined < values.length )
+			{
+				int i = (start + examined++) % values.length;
+				if ( values[i] != null )
+				{
+					current = i;
+					return true;
+				}
+			}
+			current = -1;
+			return false;
+		}
+
+		@Override
+		public String key() {
+			return decode(current());
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public V value() {
+			return (V) values[current()];
+		}
+
+		@Override
+		public V setValue(V value) {
+			if ( value == null )
+				throw new IllegalArgumentException();
+			values[current()] = value;
+			return value;
+		}
+
+		@Override
+		public void remove() {
+			int i = current();
+			removeAt(i);
+			examined = (i - start + values.length) % values.length;
+			current = -1;
+			expectedModCount = modCount;
+		}
+	}
+
+}
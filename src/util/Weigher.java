@@ -0,0 +1,25 @@
+package util;
+
+/**
+ * Computes the weight of a cache entry, such as the number of bytes its value
+ * occupies. A cache built with a maximum weight evicts entries until the sum of
+ * the weights of its entries is within that maximum. The weight of an entry is
+ * computed once, when it is put, so it must not depend on state that changes
+ * while the entry is cached.
+ *
+ * @author Ken Loomis (https://github.com/kjloomis3)
+ *
+ * @param <K> The key type of the cache.
+ * @param <V> The value type of the cache.
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+	/**
+	 * @param key: the key of the entry
+	 * @param value: the value of the entry
+	 * @return the weight of the entry, which must not be negative: int
+	 */
+	int weigh(K key, V value);
+
+}